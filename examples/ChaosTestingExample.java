@@ -1,6 +1,10 @@
 package examples;
 
 import com.reene4444.cpupinning.chaos.ChaosIntegration;
+import com.reene4444.cpupinning.chaos.ChaosRun;
+import com.reene4444.cpupinning.chaos.ExperimentReport;
+import com.reene4444.cpupinning.chaos.StressMode;
+import com.reene4444.cpupinning.chaos.StressSpec;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -8,7 +12,7 @@ import java.util.Set;
 
 /**
  * Example: Chaos Engineering Integration
- * Test CPU pinning resilience under stress
+ * Test CPU pinning resilience under stress (needs cpu.pinning.chaos.enabled=true)
  */
 @Service
 public class ChaosTestingExample {
@@ -19,16 +23,37 @@ public class ChaosTestingExample {
     public void testPinningResilience() {
         // Enable CPU chaos on specific cores
         chaosIntegration.enableCpuChaos(Set.of(0, 1), 30); // 30 seconds
-        
+    
         // Your application continues running
         // Framework validates that threads stay pinned despite CPU contention
-        
+    
         // Validate resilience
         Thread testThread = Thread.currentThread();
         boolean resilient = chaosIntegration.validatePinningResilience(
             testThread, Set.of(0, 1), 10);
-        
+    
         System.out.println("Pinning resilience: " + resilient);
     }
+    
+    public void testNoisyNeighbors() {
+        // Evict the last-level cache shared with cores 0-1 at 50% duty cycle for a minute
+        ChaosRun thrash = chaosIntegration.startStress(
+            StressSpec.of(StressMode.CACHE_THRASH, Set.of(2, 3)).withIntensity(0.5), 60);
+    
+        // Saturate node 1's memory bandwidth until stopped
+        ChaosRun bandwidth = chaosIntegration.startStress(
+            StressSpec.of(StressMode.MEMORY_BANDWIDTH, Set.of(8, 9)).withNumaNode(1), 0);
+    
+        // ... measure the application ...
+    
+        bandwidth.stop();
+    }
+    
+    public void proveIsolation(Runnable request) throws InterruptedException {
+        // Baseline, then cache thrashing on cores 4-7 with the request pinned to 0-3, then unpinned
+        ExperimentReport report = chaosIntegration.runExperiment(
+            request, Set.of(0, 1, 2, 3), StressSpec.of(StressMode.CACHE_THRASH, Set.of(4, 5, 6, 7)), 30);
+        System.out.println(report);
+        System.out.println(report.toJson());
+    }
 }
-
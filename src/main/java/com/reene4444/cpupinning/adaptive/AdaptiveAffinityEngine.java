@@ -1,13 +1,16 @@
 package com.reene4444.cpupinning.adaptive;
 
 import com.reene4444.cpupinning.core.*;
-import io.micrometer.core.instrument.MeterRegistry;
+import com.reene4444.cpupinning.jfr.AdaptiveDecisionEvent;
+import com.reene4444.cpupinning.perf.PerfCounterMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 /**
  * Adaptive CPU Affinity Engine - dynamically adjusts thread CPU binding
@@ -17,43 +20,91 @@ public class AdaptiveAffinityEngine {
     private static final Logger logger = LoggerFactory.getLogger(AdaptiveAffinityEngine.class);
     
     private final NumaTopology numaTopology;
-    private final MeterRegistry meterRegistry;
-    private final Map<Thread, ThreadMetrics> threadMetrics = new ConcurrentHashMap<>();
+    private final CpuUtilizationSampler utilizationSampler;
+    private final PerfCounterMonitor perfCounterMonitor;
+    // Released automatically when a tracked thread terminates
+    private final ThreadRegistry<ThreadMetrics> threadMetrics = new ThreadRegistry<>(this::releaseThread);
+    // Virtual threads are tracked through their carrier, keyed by the carrier's native tid
+    private final Map<Integer, ThreadMetrics> carrierMetrics = new ConcurrentHashMap<>();
+    // Execution latency per executor or domain, see AffinityDomain
+    private final Map<String, DomainMetrics> domainMetrics = new ConcurrentHashMap<>();
+    private final WorkloadClassifier classifier = new WorkloadClassifier(this::reclassify);
     private final ScheduledExecutorService scheduler;
     private final AtomicLong migrationCount = new AtomicLong(0);
+    // Null until the first thread is tracked, so an idle engine runs no review thread
+    private volatile ScheduledFuture<?> reviewTask;
+    
+    // Migration policy thresholds, adjustable at runtime
+    private volatile MigrationPolicy migrationPolicy = new MigrationPolicy(100, 100);
+    private volatile long reviewIntervalMs = 5000;
     
     // CPU core allocation strategy
     private final Map<WorkloadType, Set<Integer>> workloadCpuMapping = new ConcurrentHashMap<>();
+    // Workload types whose CPUs were configured explicitly and must not be re-selected
+    private final Set<WorkloadType> workloadOverrides = ConcurrentHashMap.newKeySet();
+    // How each workload type treats SMT siblings; types not listed share them
+    private final Map<WorkloadType, SmtMode> smtModes = new ConcurrentHashMap<>();
+    // Scheduling profile applied with each workload type's pin; types without one keep their scheduling
+    private final Map<WorkloadType, SchedulingProfile> schedulingProfiles = new ConcurrentHashMap<>();
     private final Set<Integer> availableCpus;
     
-    public AdaptiveAffinityEngine(MeterRegistry meterRegistry) {
+    public AdaptiveAffinityEngine() {
         this.numaTopology = NumaTopology.getInstance();
-        this.meterRegistry = meterRegistry;
+        this.utilizationSampler = CpuUtilizationSampler.getInstance();
+        this.perfCounterMonitor = PerfCounterMonitor.getInstance();
         this.availableCpus = new HashSet<>();
         int cpuCount = CpuAffinity.getAvailableCpuCount();
         for (int i = 0; i < cpuCount; i++) {
             availableCpus.add(i);
         }
-        this.scheduler = Executors.newScheduledThreadPool(1);
+        // Daemon, so a batch job that never closes its context can still exit
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "adaptive-affinity-review");
+            thread.setDaemon(true);
+            return thread;
+        });
         initializeWorkloadMapping();
-        startAdaptiveScheduler();
+        // Latency-critical threads get their physical cores to themselves
+        smtModes.putAll(CpuSelection.defaultSmtModes(this::configuredCpus, availableCpus, 
+                                                     NumaTopology.getInstance()::getSmtSiblings));
+        initializeSchedulingProfiles();
     }
     
     /**
-     * Auto-pin thread based on workload type with adaptive behavior
+     * Auto-pin thread based on workload type with adaptive behavior. {@link WorkloadType#AUTO}
+     * classifies the thread itself from samples taken by the review loop.
      */
     public void autoPinByWorkload(Thread thread, WorkloadType type) {
+        if (type == WorkloadType.AUTO) {
+            WorkloadType classified = classifier.getWorkloadType(thread.getId());
+            pinTracked(thread, classified, preferredCpus(classified), thread.getId(), true);
+            return;
+        }
+        pinTracked(thread, type, preferredCpus(type), null, false);
+    }
+    
+    /**
+     * Pin by the type a classification key (e.g. an annotated method) currently resolves
+     * to. Threads pinned through a key move to the new type's CPUs when it is reclassified;
+     * measurements for the key are taken with {@link WorkloadClassifier#start}.
+     * @return the resolved workload type
+     */
+    public WorkloadType autoPinByClassification(Thread thread, Object key) {
+        WorkloadType type = classifier.getWorkloadType(key);
+        pinTracked(thread, type, preferredCpus(type), key, false);
+        return type;
+    }
+    
+    public WorkloadClassifier getWorkloadClassifier() {
+        return classifier;
+    }
+    
+    private Set<Integer> preferredCpus(WorkloadType type) {
         Set<Integer> preferredCpus = selectOptimalCpus(type);
         if (preferredCpus.isEmpty()) {
             preferredCpus = availableCpus;
         }
-        
-        boolean success = CpuAffinity.pinThread(preferredCpus);
-        if (success) {
-            threadMetrics.put(thread, new ThreadMetrics(type, preferredCpus));
-            logger.info("Auto-pinned thread {} to CPUs {} for workload type {}", 
-                       thread.getName(), preferredCpus, type);
-        }
+        return utilizationSampler.withoutSaturated(preferredCpus);
     }
     
     /**
@@ -64,133 +115,653 @@ public class AdaptiveAffinityEngine {
         if (localCpus.isEmpty()) {
             localCpus = new ArrayList<>(availableCpus);
         }
-        
-        Set<Integer> cpus = new HashSet<>(localCpus);
+    
+        pinTracked(thread, WorkloadType.MIXED, new HashSet<>(localCpus), null, false);
+    }
+    
+    /**
+     * Pin the calling thread and track it. Threads already placed on the same CPUs
+     * for the same workload keep their history and skip the syscall.
+     * @param classificationKey key whose reclassification moves the thread, or null
+     * @param sampleThread whether the review loop measures the thread for classification
+     */
+    private void pinTracked(Thread thread, WorkloadType type, Set<Integer> cpus, Object classificationKey,
+                            boolean sampleThread) {
+        if (VirtualThreads.isVirtual(thread)) {
+            pinCarrier(type, cpus);
+            return;
+        }
+        ThreadMetrics existing = threadMetrics.get(thread);
+        if (existing != null && existing.workloadType == type && existing.currentCpus.equals(cpus)
+            && Objects.equals(existing.classificationKey, classificationKey)) {
+            AffinityEvents.pinAvoided(poolName(type));
+            return;
+        }
+    
         boolean success = CpuAffinity.pinThread(cpus);
         if (success) {
-            threadMetrics.put(thread, new ThreadMetrics(WorkloadType.MIXED, cpus));
-            logger.info("NUMA-aware pinned thread {} to local CPUs {}", 
-                       thread.getName(), cpus);
+            int nativeTid = existing != null ? existing.nativeTid : nativeIdOf(thread);
+            ThreadMetrics metrics = new ThreadMetrics(type, cpus, nativeTid, classificationKey, sampleThread);
+            if (existing != null && sampleThread && existing.sampleThread) {
+                metrics.snapshot = existing.snapshot;
+            }
+            metrics.scheduling = existing != null && existing.workloadType == type 
+                               ? existing.scheduling : applyScheduling(0, type);
+            threadMetrics.put(thread, metrics);
+            ensureReviewing();
+            if (existing != null && existing.workloadType != type) {
+                AffinityEvents.threadReleased(nativeTid, poolName(existing.workloadType));
+            }
+            perfCounterMonitor.register(poolName(type), nativeTid);
+            AffinityEvents.threadPinned(nativeTid, poolName(type), 
+                                        existing != null ? existing.currentCpus : Set.of(), cpus);
+            logger.debug("Pinned thread {} to CPUs {} for workload type {}", thread.getName(), cpus, type);
+        }
+    }
+    
+    /**
+     * Pin the carrier of the calling virtual thread. The carrier is what the kernel
+     * schedules, and it outlives the virtual thread, so it is what gets tracked.
+     * Carriers are shared by every virtual thread of the JVM, so a carrier takes the
+     * CPUs of the workload type it last ran, is re-pinned whenever its mask was changed
+     * behind the engine's back, and never gets a type's scheduling profile.
+     */
+    private void pinCarrier(WorkloadType type, Set<Integer> cpus) {
+        int carrierTid = CpuAffinity.getCurrentThreadNativeId();
+        ThreadMetrics existing = carrierTid > 0 ? carrierMetrics.get(carrierTid) : null;
+        if (existing != null && existing.workloadType == type && existing.currentCpus.equals(cpus)
+                && CpuAffinity.getThreadAffinity().equals(cpus)) {
+            AffinityEvents.pinAvoided(poolName(type));
+            return;
+        }
+    
+        boolean success = CpuAffinity.pinThread(cpus);
+        if (success && carrierTid > 0) {
+            ThreadMetrics metrics = new ThreadMetrics(type, cpus, carrierTid, null, false);
+            carrierMetrics.put(carrierTid, metrics);
+            ensureReviewing();
+            perfCounterMonitor.register(poolName(type), carrierTid);
+            AffinityEvents.threadPinned(carrierTid, poolName(type), 
+                                        existing != null ? existing.currentCpus : Set.of(), cpus);
+            logger.debug("Pinned carrier {} to CPUs {} for workload type {}", carrierTid, cpus, type);
         }
     }
     
+    /**
+     * Apply the workload type's scheduling profile, if it has one
+     * @param nativeTid kernel thread ID, 0 for the caller
+     * @return the profile in effect, or null if none was applied
+     */
+    private SchedulingProfile applyScheduling(int nativeTid, WorkloadType type) {
+        SchedulingProfile profile = schedulingProfiles.get(type);
+        return profile != null ? CpuAffinity.applySchedulingProfile(nativeTid, profile) : null;
+    }
+    
+    private void releaseThread(long threadId, ThreadMetrics metrics) {
+        if (metrics.sampleThread) {
+            classifier.forget(metrics.classificationKey);
+        }
+        perfCounterMonitor.unregister(metrics.nativeTid);
+        AffinityEvents.threadReleased(metrics.nativeTid, poolName(metrics.workloadType));
+    }
+    
+    private static String poolName(WorkloadType type) {
+        return "workload:" + type;
+    }
+    
     /**
      * Record metrics for adaptive decision making
      */
     public void recordLatency(Thread thread, long latencyMs) {
-        ThreadMetrics metrics = threadMetrics.get(thread);
+        ThreadMetrics metrics = metricsOf(thread);
         if (metrics != null) {
             metrics.recordLatency(latencyMs);
         }
     }
     
+    /**
+     * Record one execution of a workload-annotated method
+     */
+    public void recordExecution(Thread thread, WorkloadType type, long latencyNanos) {
+        if (type == WorkloadType.AUTO) {
+            type = classifier.getWorkloadType(thread.getId());
+        }
+        recordLatency(thread, TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+        String domain = AffinityDomain.current();
+        domainMetrics.computeIfAbsent(domain != null ? domain : poolName(type), name -> new DomainMetrics())
+            .record(latencyNanos);
+        AffinityEvents.executionCompleted(type, latencyNanos);
+    }
+    
     public void recordQps(Thread thread, long qps) {
-        ThreadMetrics metrics = threadMetrics.get(thread);
+        ThreadMetrics metrics = metricsOf(thread);
         if (metrics != null) {
             metrics.recordQps(qps);
         }
     }
     
     /**
-     * Select optimal CPUs based on workload type
+     * Metrics a sample from the given thread is attributed to: its own, or for a
+     * virtual thread its current carrier's (resolvable only from the thread itself)
+     */
+    private ThreadMetrics metricsOf(Thread thread) {
+        if (!VirtualThreads.isVirtual(thread)) {
+            return threadMetrics.get(thread);
+        }
+        if (thread != Thread.currentThread()) {
+            return null;
+        }
+        ThreadMetrics metrics = carrierMetrics.get(CpuAffinity.getCurrentThreadNativeId());
+        if (metrics != null) {
+            metrics.lastCpu = CpuAffinity.getCurrentCpu();
+        }
+        return metrics;
+    }
+    
+    /**
+     * Move every thread pinned through a reclassified key to its new type's CPUs
+     */
+    private void reclassify(Object key, WorkloadType type) {
+        Set<Integer> cpus = preferredCpus(type);
+        threadMetrics.forEach((thread, metrics) -> {
+            if (!key.equals(metrics.classificationKey) || metrics.workloadType == type) {
+                return;
+            }
+            String previousPool = poolName(metrics.workloadType);
+            metrics.workloadType = type;
+            AffinityEvents.threadReleased(metrics.nativeTid, previousPool);
+            perfCounterMonitor.register(poolName(type), metrics.nativeTid);
+            if (metrics.nativeTid > 0) {
+                metrics.scheduling = applyScheduling(metrics.nativeTid, type);
+            }
+            if (!cpus.equals(metrics.currentCpus) && repinThread(metrics, cpus, MigrationReason.RECLASSIFICATION)) {
+                migrationCount.incrementAndGet();
+                logger.debug("Moved thread {} to CPUs {} after reclassification as {}", thread.getName(), cpus, type);
+            }
+        });
+    }
+    
+    /**
+     * Replace the CPU sets of the given workload types and re-pin every tracked
+     * thread of those types in one batched pass
+     * @return number of threads re-pinned
+     */
+    public int updateWorkloadMapping(Map<WorkloadType, Set<Integer>> mapping) {
+        Map<WorkloadType, Set<Integer>> updated = new EnumMap<>(WorkloadType.class);
+        for (Map.Entry<WorkloadType, Set<Integer>> entry : mapping.entrySet()) {
+            if (entry.getKey() == WorkloadType.AUTO) {
+                logger.warn("Ignoring CPUs configured for AUTO, which resolves to another workload type");
+            } else if (!entry.getValue().isEmpty()) {
+                updated.put(entry.getKey(), new HashSet<>(entry.getValue()));
+            }
+        }
+        validateSmtModes(type -> updated.containsKey(type) ? updated.get(type) : configuredCpus(type), smtModes);
+        updated.forEach((type, cpus) -> {
+            Set<Integer> previous = workloadCpuMapping.put(type, cpus);
+            workloadOverrides.add(type);
+            AffinityEvents.poolChanged(poolName(type), previous != null ? previous : Set.of(), cpus);
+        });
+    
+        // SMT modes take the changed types' siblings out of other types too
+        int repinned = repinWorkloads(smtModes.isEmpty() ? mapping.keySet() : EnumSet.allOf(WorkloadType.class));
+        logger.info("Updated workload CPU mapping {}, re-pinned {} thread(s)", mapping, repinned);
+        return repinned;
+    }
+    
+    /**
+     * CPU sets the engine chose itself, i.e. every workload type not set by configuration
+     */
+    public Map<WorkloadType, Set<Integer>> getLearnedWorkloadCpus() {
+        Map<WorkloadType, Set<Integer>> learned = new EnumMap<>(WorkloadType.class);
+        workloadCpuMapping.forEach((type, cpus) -> {
+            if (!workloadOverrides.contains(type)) {
+                learned.put(type, new TreeSet<>(cpus));
+            }
+        });
+        return learned;
+    }
+    
+    /**
+     * Start from CPU sets learned by an earlier run. Types set by configuration keep
+     * their CPUs, and CPUs this process cannot use are dropped.
+     * @return number of threads re-pinned
+     */
+    public int restoreWorkloadCpus(Map<WorkloadType, Set<Integer>> learned) {
+        Map<WorkloadType, Set<Integer>> usable = new EnumMap<>(WorkloadType.class);
+        for (Map.Entry<WorkloadType, Set<Integer>> entry : learned.entrySet()) {
+            Set<Integer> cpus = new HashSet<>(entry.getValue());
+            cpus.retainAll(availableCpus);
+            if (entry.getKey() != WorkloadType.AUTO && !cpus.isEmpty() && !workloadOverrides.contains(entry.getKey())) {
+                usable.put(entry.getKey(), cpus);
+            }
+        }
+        try {
+            validateSmtModes(type -> usable.containsKey(type) ? usable.get(type) : configuredCpus(type), smtModes);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Not restoring learned CPUs {}: {}", learned, e.getMessage());
+            return 0;
+        }
+        workloadCpuMapping.putAll(usable);
+        Set<WorkloadType> restored = usable.keySet();
+        int repinned = repinWorkloads(smtModes.isEmpty() ? restored : EnumSet.allOf(WorkloadType.class));
+        logger.info("Restored learned CPUs of {}, re-pinned {} thread(s)", restored, repinned);
+        return repinned;
+    }
+    
+    /**
+     * Set how a workload type treats the SMT siblings of its CPUs and re-pin every
+     * tracked thread whose CPUs change as a result
+     * @return number of threads re-pinned
+     */
+    public int setSmtMode(WorkloadType type, SmtMode mode) {
+        if (type == WorkloadType.AUTO) {
+            throw new IllegalArgumentException("AUTO uses the SMT mode of the workload type it resolves to");
+        }
+        if (smtModes.getOrDefault(type, SmtMode.SHARED) == mode) {
+            return 0;
+        }
+        Map<WorkloadType, SmtMode> modes = new EnumMap<>(smtModes);
+        modes.put(type, mode);
+        validateSmtModes(this::configuredCpus, modes);
+        if (mode == SmtMode.SHARED) {
+            smtModes.remove(type);
+        } else {
+            smtModes.put(type, mode);
+        }
+        int repinned = repinWorkloads(EnumSet.allOf(WorkloadType.class));
+        logger.info("Set SMT mode of {} to {}, re-pinned {} thread(s)", type, mode, repinned);
+        return repinned;
+    }
+    
+    /**
+     * SMT mode of each workload type that does not share siblings
+     */
+    public Map<WorkloadType, SmtMode> getSmtModes() {
+        return new EnumMap<>(smtModes);
+    }
+    
+    /**
+     * Re-pin every tracked thread of the given types whose selected CPUs changed,
+     * computing every new placement first and then applying them together
+     */
+    private int repinWorkloads(Set<WorkloadType> types) {
+        List<ThreadMetrics> tracked = new ArrayList<>(carrierMetrics.values());
+        threadMetrics.forEach((thread, metrics) -> tracked.add(metrics));
+        Map<ThreadMetrics, Set<Integer>> repins = new HashMap<>();
+        for (ThreadMetrics metrics : tracked) {
+            if (types.contains(metrics.workloadType)) {
+                Set<Integer> newCpus = selectOptimalCpus(metrics.workloadType);
+                if (!newCpus.equals(metrics.currentCpus)) {
+                    repins.put(metrics, newCpus);
+                }
+            }
+        }
+        int repinned = 0;
+        for (Map.Entry<ThreadMetrics, Set<Integer>> repin : repins.entrySet()) {
+            if (repinThread(repin.getKey(), repin.getValue(), MigrationReason.RECONFIGURATION)) {
+                repinned++;
+            }
+        }
+        return repinned;
+    }
+    
+    /**
+     * Replace the scheduling profiles of the given workload types and apply them to
+     * every tracked thread of those types
+     * @return number of threads whose scheduling was updated
+     */
+    public int updateSchedulingProfiles(Map<WorkloadType, SchedulingProfile> profiles) {
+        for (Map.Entry<WorkloadType, SchedulingProfile> entry : profiles.entrySet()) {
+            if (entry.getKey() == WorkloadType.AUTO) {
+                logger.warn("Ignoring scheduling configured for AUTO, which resolves to another workload type");
+            } else if (entry.getValue() != null) {
+                schedulingProfiles.put(entry.getKey(), entry.getValue());
+            }
+        }
+    
+        // Carriers are shared by every virtual thread, so no workload type's profile is theirs
+        List<ThreadMetrics> tracked = new ArrayList<>();
+        threadMetrics.forEach((thread, metrics) -> tracked.add(metrics));
+        int updated = 0;
+        for (ThreadMetrics metrics : tracked) {
+            if (metrics.nativeTid > 0 && profiles.containsKey(metrics.workloadType)) {
+                metrics.scheduling = applyScheduling(metrics.nativeTid, metrics.workloadType);
+                updated++;
+            }
+        }
+        logger.info("Updated workload scheduling profiles {}, applied to {} thread(s)", profiles, updated);
+        return updated;
+    }
+    
+    /**
+     * Scheduling profile applied with each workload type's pin
+     */
+    public Map<WorkloadType, SchedulingProfile> getSchedulingProfiles() {
+        return new EnumMap<>(schedulingProfiles);
+    }
+    
+    /**
+     * Update the migration policy thresholds and review interval
+     */
+    public synchronized void updatePolicy(long latencyThresholdMs, long minQps, long reviewIntervalMs) {
+        this.migrationPolicy = new MigrationPolicy(latencyThresholdMs, minQps);
+        if (reviewIntervalMs > 0 && reviewIntervalMs != this.reviewIntervalMs) {
+            this.reviewIntervalMs = reviewIntervalMs;
+            if (reviewTask != null) {
+                reviewTask.cancel(false);
+                startAdaptiveScheduler();
+            }
+        }
+        logger.info("Adaptive policy updated: latency threshold {}ms, min QPS {}, review interval {}ms",
+                   latencyThresholdMs, minQps, this.reviewIntervalMs);
+    }
+    
+    /**
+     * Select optimal CPUs based on workload type and SMT modes, see {@link CpuSelection#select}
      */
     private Set<Integer> selectOptimalCpus(WorkloadType type) {
+        return CpuSelection.select(type, this::configuredCpus, smtModes, availableCpus, 
+                                   NumaTopology.getInstance()::getSmtSiblings);
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the SMT modes would leave a workload type no CPU
+     */
+    private void validateSmtModes(Function<WorkloadType, Set<Integer>> configured, Map<WorkloadType, SmtMode> modes) {
+        CpuSelection.validate(configured, modes, availableCpus, NumaTopology.getInstance()::getSmtSiblings);
+    }
+    
+    /**
+     * CPUs configured or selected for a workload type before SMT modes are applied
+     */
+    private Set<Integer> configuredCpus(WorkloadType type) {
         Set<Integer> cpus = workloadCpuMapping.get(type);
         if (cpus == null || cpus.isEmpty()) {
-            // Default: use first half of CPUs for CPU-intensive, second half for IO-intensive
-            int cpuCount = availableCpus.size();
-            cpus = new HashSet<>();
-            
-            switch (type) {
-                case CPU_INTENSIVE:
-                    // Use first half CPUs
-                    for (int i = 0; i < cpuCount / 2; i++) {
-                        cpus.add(i);
-                    }
-                    break;
-                case IO_INTENSIVE:
-                    // Use second half CPUs
-                    for (int i = cpuCount / 2; i < cpuCount; i++) {
-                        cpus.add(i);
-                    }
-                    break;
-                case LOW_LATENCY:
-                    // Use dedicated cores (first 2-4 cores)
-                    int dedicatedCores = Math.min(4, cpuCount);
-                    for (int i = 0; i < dedicatedCores; i++) {
-                        cpus.add(i);
-                    }
-                    break;
-                default:
-                    cpus = new HashSet<>(availableCpus);
-            }
+            cpus = defaultCpus(type);
         }
         return cpus;
     }
     
+    private Set<Integer> defaultCpus(WorkloadType type) {
+        List<Integer> quiet = type == WorkloadType.LOW_LATENCY 
+                            ? IrqTopology.getInstance().rankQuietCpus(availableCpus) : List.of();
+        return CpuSelection.defaultCpus(type, availableCpus, quiet);
+    }
+    
     private void initializeWorkloadMapping() {
-        // Initialize default CPU allocation per workload type
-        int cpuCount = availableCpus.size();
-        int half = cpuCount / 2;
-        
-        Set<Integer> cpuIntensive = new HashSet<>();
-        Set<Integer> ioIntensive = new HashSet<>();
-        
-        for (int i = 0; i < half; i++) {
-            cpuIntensive.add(i);
+        for (WorkloadType type : List.of(WorkloadType.CPU_INTENSIVE, WorkloadType.IO_INTENSIVE, 
+                                         WorkloadType.MIXED, WorkloadType.LOW_LATENCY)) {
+            workloadCpuMapping.put(type, defaultCpus(type));
         }
-        for (int i = half; i < cpuCount; i++) {
-            ioIntensive.add(i);
+    }
+    
+    /**
+     * Default scheduling per workload type: batch work never preempts latency-critical
+     * threads on wakeup, and latency-critical threads get a nice boost and a minimum
+     * utilization clamp where the kernel and privileges allow
+     */
+    private void initializeSchedulingProfiles() {
+        schedulingProfiles.put(WorkloadType.CPU_INTENSIVE, SchedulingProfile.batch(0));
+        schedulingProfiles.put(WorkloadType.MEMORY_INTENSIVE, SchedulingProfile.batch(0));
+        schedulingProfiles.put(WorkloadType.IO_INTENSIVE, SchedulingProfile.DEFAULT);
+        schedulingProfiles.put(WorkloadType.MIXED, SchedulingProfile.DEFAULT);
+        schedulingProfiles.put(WorkloadType.LOW_LATENCY, 
+                               SchedulingProfile.normal(-5).withUtilClamp(512, SchedulingProfile.MAX_UTIL));
+    }
+    
+    /**
+     * Dedicated cores for latency-critical threads: isolated cores first, then those
+     * taking the fewest interrupts
+     */
+    private Set<Integer> selectQuietCpus(int count) {
+        List<Integer> ranked = IrqTopology.getInstance().rankQuietCpus(availableCpus);
+        return new HashSet<>(ranked.subList(0, Math.min(count, ranked.size())));
+    }
+    
+    /**
+     * Re-select the least-loaded dedicated cores for LOW_LATENCY among the quietest
+     * candidates, once utilization samples are available
+     */
+    private void refreshLowLatencyCores() {
+        int dedicated = CpuSelection.lowLatencyCpuCount(availableCpus.size());
+        if (utilizationSampler.hasSamples() && !workloadOverrides.contains(WorkloadType.LOW_LATENCY)) {
+            // Twice as many quiet candidates as needed, then the least loaded of those
+            Set<Integer> candidates = selectQuietCpus(Math.min(dedicated * 2, availableCpus.size()));
+            Set<Integer> cores = utilizationSampler.leastLoaded(candidates, dedicated);
+            try {
+                validateSmtModes(type -> type == WorkloadType.LOW_LATENCY ? cores : configuredCpus(type), smtModes);
+                workloadCpuMapping.put(WorkloadType.LOW_LATENCY, cores);
+            } catch (IllegalArgumentException e) {
+                logger.debug("Keeping LOW_LATENCY cores: {}", e.getMessage());
+            }
+        }
+    }
+    
+    private void ensureReviewing() {
+        if (reviewTask == null) {
+            synchronized (this) {
+                if (reviewTask == null) {
+                    startAdaptiveScheduler();
+                }
+            }
         }
-        
-        workloadCpuMapping.put(WorkloadType.CPU_INTENSIVE, cpuIntensive);
-        workloadCpuMapping.put(WorkloadType.IO_INTENSIVE, ioIntensive);
-        workloadCpuMapping.put(WorkloadType.MIXED, new HashSet<>(availableCpus));
     }
     
     /**
      * Adaptive scheduler that periodically reviews and migrates threads
      */
-    private void startAdaptiveScheduler() {
-        scheduler.scheduleAtFixedRate(() -> {
+    private synchronized void startAdaptiveScheduler() {
+        reviewTask = scheduler.scheduleAtFixedRate(() -> {
             try {
                 reviewAndMigrate();
             } catch (Exception e) {
                 logger.error("Error in adaptive scheduler", e);
             }
-        }, 5, 5, TimeUnit.SECONDS);
+        }, reviewIntervalMs, reviewIntervalMs, TimeUnit.MILLISECONDS);
     }
     
     private void reviewAndMigrate() {
-        for (Map.Entry<Thread, ThreadMetrics> entry : threadMetrics.entrySet()) {
-            Thread thread = entry.getKey();
-            ThreadMetrics metrics = entry.getValue();
-            
-            if (!thread.isAlive()) {
-                threadMetrics.remove(thread);
+        refreshLowLatencyCores();
+        perfCounterMonitor.sample();
+    
+        threadMetrics.forEach((thread, metrics) -> {
+            if (metrics.sampleThread) {
+                metrics.snapshot = classifier.sampleThread(metrics.classificationKey, thread.getId(), metrics.snapshot);
+            }
+            review(thread.getName(), metrics);
+        });
+        for (Iterator<Map.Entry<Integer, ThreadMetrics>> it = carrierMetrics.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, ThreadMetrics> carrier = it.next();
+            // Carriers of an idle virtual thread scheduler exit after a keep-alive
+            if (!CpuAffinity.isProcessThread(carrier.getKey())) {
+                it.remove();
+                releaseThread(carrier.getKey(), carrier.getValue());
                 continue;
             }
-            
-            // Check if migration is needed based on metrics
-            if (shouldMigrate(metrics)) {
-                Set<Integer> newCpus = selectOptimalCpus(metrics.workloadType);
-                if (!newCpus.equals(metrics.currentCpus)) {
-                    CpuAffinity.pinThread(newCpus);
-                    metrics.currentCpus = newCpus;
-                    migrationCount.incrementAndGet();
-                    logger.debug("Migrated thread {} to CPUs {}", thread.getName(), newCpus);
-                }
+            review(carrierName(carrier.getKey()), carrier.getValue());
+        }
+        domainMetrics.values().forEach(DomainMetrics::roll);
+    }
+    
+    /**
+     * Current placement of a thread the engine pinned, null if it tracks none
+     */
+    public ThreadPlacement getThreadPlacement(Thread thread) {
+        ThreadMetrics metrics = threadMetrics.get(thread);
+        return metrics != null ? new ThreadPlacement(poolName(metrics.workloadType), thread.getName(), metrics.nativeTid,
+                                                     metrics.currentCpus, metrics.scheduling) : null;
+    }
+    
+    /**
+     * Tracked platform threads, for incremental scans, see {@link ThreadRegistry#threadIterator}
+     */
+    Iterator<Thread> trackedThreadIterator() {
+        return threadMetrics.threadIterator();
+    }
+    
+    /**
+     * Placements of tracked virtual thread carriers, weakly consistent
+     */
+    Iterator<ThreadPlacement> carrierPlacementIterator() {
+        Iterator<Map.Entry<Integer, ThreadMetrics>> carriers = carrierMetrics.entrySet().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return carriers.hasNext();
+            }
+    
+            @Override
+            public ThreadPlacement next() {
+                Map.Entry<Integer, ThreadMetrics> carrier = carriers.next();
+                ThreadMetrics metrics = carrier.getValue();
+                return new ThreadPlacement(poolName(metrics.workloadType), carrierName(carrier.getKey()), 
+                                           carrier.getKey(), metrics.currentCpus, metrics.scheduling);
+            }
+        };
+    }
+    
+    private static String carrierName(int nativeTid) {
+        return "carrier-" + nativeTid;
+    }
+    
+    /**
+     * Review one live tracked thread or carrier and migrate it if its metrics call for it
+     */
+    private void review(String threadName, ThreadMetrics metrics) {
+        // Check if migration is needed based on metrics
+        AdaptiveDecisionEvent event = new AdaptiveDecisionEvent();
+        Set<Integer> previousCpus = metrics.currentCpus;
+        Set<Integer> newCpus = previousCpus;
+        boolean migrated = false;
+        MigrationReason reason = migrationReason(metrics);
+        if (reason != null) {
+            // Moves threads off cores that have become saturated or stolen since they were pinned
+            newCpus = utilizationSampler.withoutSaturated(selectOptimalCpus(metrics.workloadType));
+            if (!newCpus.equals(metrics.currentCpus) && repinThread(metrics, newCpus, reason)) {
+                migrated = true;
+                migrationCount.incrementAndGet();
+                logger.debug("Migrated thread {} to CPUs {} ({})", threadName, newCpus, reason);
             }
         }
-        
-        if (meterRegistry != null) {
-            meterRegistry.counter("cpu.pinning.migrations").increment();
+        if (event.shouldCommit()) {
+            event.nativeTid = metrics.nativeTid;
+            event.workloadType = metrics.workloadType.name();
+            event.averageLatencyMs = metrics.getAverageLatency();
+            event.latencyThresholdMs = migrationPolicy.getLatencyThresholdMs();
+            event.averageQps = metrics.getAverageQps();
+            event.minQps = migrationPolicy.getMinQps();
+            double ipc = perfCounterMonitor.getThreadIpc(metrics.nativeTid);
+            // NaN when the thread has no perf counters; the event documents 0 for that
+            event.ipc = Double.isNaN(ipc) ? 0.0 : ipc;
+            event.reason = reason != null ? reason.name() : null;
+            event.currentCpus = CpuList.format(previousCpus);
+            event.targetCpus = CpuList.format(newCpus);
+            event.migrated = migrated;
+            event.commit();
+        }
+    }
+    
+    /**
+     * @return the reason to migrate, or null to stay
+     */
+    private MigrationReason migrationReason(ThreadMetrics metrics) {
+        return migrationPolicy.evaluate(perfCounterMonitor.isIpcDropped(metrics.nativeTid),
+                                        metrics.getAverageLatency(), metrics.getAverageQps());
+    }
+    
+    public MigrationPolicy getMigrationPolicy() {
+        return migrationPolicy;
+    }
+    
+    /**
+     * Re-pin a tracked thread from the calling (scheduler/refresh) thread by its native ID
+     */
+    private boolean repinThread(ThreadMetrics metrics, Set<Integer> cpus, MigrationReason reason) {
+        if (metrics.nativeTid <= 0) {
+            return false;
+        }
+        boolean success = CpuAffinity.pinThread(metrics.nativeTid, cpus);
+        if (success) {
+            Set<Integer> previous = metrics.currentCpus;
+            metrics.currentCpus = cpus;
+            AffinityEvents.threadMigrated(metrics.nativeTid, poolName(metrics.workloadType), previous, cpus, reason);
+        }
+        return success;
+    }
+    
+    private static int nativeIdOf(Thread thread) {
+        // Only the calling thread's kernel ID can be read
+        return thread == Thread.currentThread() ? CpuAffinity.getCurrentThreadNativeId() : 0;
+    }
+    
+    /**
+     * Run a review pass now, on the review thread, instead of waiting for the next tick
+     * @return number of threads migrated by the pass
+     */
+    public int rebalance() {
+        long before = migrationCount.get();
+        try {
+            scheduler.submit(this::reviewAndMigrate).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException e) {
+            logger.warn("Rebalance failed: {}", e.toString());
         }
+        return (int) (migrationCount.get() - before);
     }
     
-    private boolean shouldMigrate(ThreadMetrics metrics) {
-        // Migrate if latency is high or QPS is low
-        return metrics.getAverageLatency() > 100 || metrics.getAverageQps() < 100;
+    /**
+     * Current placement of every live thread tracked by the engine
+     */
+    public List<ThreadPlacement> getThreadPlacements() {
+        List<ThreadPlacement> placements = new ArrayList<>();
+        threadMetrics.forEach((thread, metrics) -> placements.add(
+            new ThreadPlacement(poolName(metrics.workloadType), thread.getName(), metrics.nativeTid, 
+                                metrics.currentCpus, metrics.scheduling)));
+        carrierMetrics.forEach((nativeTid, metrics) -> placements.add(
+            new ThreadPlacement(poolName(metrics.workloadType), carrierName(nativeTid), nativeTid, 
+                                metrics.currentCpus, metrics.scheduling)));
+        return placements;
+    }
+    
+    /**
+     * CPU each tracked virtual thread carrier was last seen running on, by native tid
+     */
+    public Map<Integer, Integer> getCarrierCpus() {
+        Map<Integer, Integer> cpus = new TreeMap<>();
+        carrierMetrics.forEach((nativeTid, metrics) -> cpus.put(nativeTid, metrics.lastCpu));
+        return cpus;
+    }
+    
+    /**
+     * Average execution latency in milliseconds per domain over the last review
+     * interval. Executions outside an {@link AffinityDomain} count towards
+     * {@code "workload:<TYPE>"}.
+     */
+    public Map<String, Double> getDomainLatencies() {
+        Map<String, Double> latencies = new TreeMap<>();
+        domainMetrics.forEach((domain, metrics) -> latencies.put(domain, metrics.averageLatencyMs));
+        return latencies;
+    }
+    
+    /**
+     * CPU set currently selected for each workload type
+     */
+    public Map<WorkloadType, Set<Integer>> getWorkloadCpus() {
+        Map<WorkloadType, Set<Integer>> cpus = new EnumMap<>(WorkloadType.class);
+        for (WorkloadType type : WorkloadType.values()) {
+            if (type != WorkloadType.AUTO) {
+                cpus.put(type, selectOptimalCpus(type));
+            }
+        }
+        return cpus;
+    }
+    
+    /**
+     * Total number of migrations performed by the review loop
+     */
+    public long getMigrationCount() {
+        return migrationCount.get();
     }
     
     public void shutdown() {
@@ -201,38 +772,75 @@ public class AdaptiveAffinityEngine {
      * Thread metrics for adaptive decision making
      */
     private static class ThreadMetrics {
-        final WorkloadType workloadType;
-        Set<Integer> currentCpus;
+        // Changes in place only when the thread's classification key is reclassified
+        volatile WorkloadType workloadType;
+        final int nativeTid;
+        final Object classificationKey;
+        final boolean sampleThread;
+        // Review loop's last measurement of the thread, for sampleThread only
+        WorkloadClassifier.Snapshot snapshot;
+        volatile Set<Integer> currentCpus;
+        // Scheduling in effect after the workload's profile was applied, null if none was
+        volatile SchedulingProfile scheduling;
+        // Last CPU a sample was recorded on, for carriers only
+        volatile int lastCpu = -1;
         private final Queue<Long> latencyHistory = new ConcurrentLinkedQueue<>();
         private final Queue<Long> qpsHistory = new ConcurrentLinkedQueue<>();
-        private static final int HISTORY_SIZE = 10;
-        
-        ThreadMetrics(WorkloadType workloadType, Set<Integer> cpus) {
+    
+        ThreadMetrics(WorkloadType workloadType, Set<Integer> cpus, int nativeTid, Object classificationKey,
+                      boolean sampleThread) {
             this.workloadType = workloadType;
             this.currentCpus = cpus;
+            this.nativeTid = nativeTid;
+            this.classificationKey = classificationKey;
+            this.sampleThread = sampleThread;
         }
-        
+    
         void recordLatency(long latencyMs) {
             latencyHistory.offer(latencyMs);
-            if (latencyHistory.size() > HISTORY_SIZE) {
+            if (latencyHistory.size() > MigrationPolicy.HISTORY_SIZE) {
                 latencyHistory.poll();
             }
         }
-        
+    
         void recordQps(long qps) {
             qpsHistory.offer(qps);
-            if (qpsHistory.size() > HISTORY_SIZE) {
+            if (qpsHistory.size() > MigrationPolicy.HISTORY_SIZE) {
                 qpsHistory.poll();
             }
         }
-        
+    
         double getAverageLatency() {
             return latencyHistory.stream().mapToLong(Long::longValue).average().orElse(0.0);
         }
-        
+    
         double getAverageQps() {
             return qpsHistory.stream().mapToLong(Long::longValue).average().orElse(0.0);
         }
     }
+    
+    /**
+     * Execution latency of one domain, averaged per review interval
+     */
+    private static class DomainMetrics {
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        volatile double averageLatencyMs;
+    
+        void record(long latencyNanos) {
+            executions.increment();
+            totalNanos.add(latencyNanos);
+        }
+    
+        /**
+         * Close the current interval; an idle interval keeps the previous average
+         */
+        void roll() {
+            long count = executions.sumThenReset();
+            long nanos = totalNanos.sumThenReset();
+            if (count > 0) {
+                averageLatencyMs = nanos / 1_000_000.0 / count;
+            }
+        }
+    }
 }
-
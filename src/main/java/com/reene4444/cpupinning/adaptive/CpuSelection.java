@@ -0,0 +1,124 @@
+package com.reene4444.cpupinning.adaptive;
+
+import com.reene4444.cpupinning.core.SmtMode;
+import com.reene4444.cpupinning.core.WorkloadType;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * How CPUs are chosen per workload type: the default split and the SMT rules applied on
+ * top of it. Shared by {@link AdaptiveAffinityEngine} and the placement simulator so both
+ * place alike.
+ */
+public final class CpuSelection {
+    /** Most CPUs dedicated to LOW_LATENCY by default */
+    public static final int LOW_LATENCY_CPUS = 4;
+    
+    private CpuSelection() {
+    }
+    
+    /**
+     * CPUs dedicated to LOW_LATENCY by default: up to {@link #LOW_LATENCY_CPUS}, but no more
+     * than a quarter of the machine, so its whole cores still leave CPUs for everything else
+     */
+    public static int lowLatencyCpuCount(int cpuCount) {
+        return Math.max(1, Math.min(LOW_LATENCY_CPUS, cpuCount / 4));
+    }
+    
+    /**
+     * Default CPUs of a workload type: CPU-intensive on the lower half, I/O-intensive on
+     * the upper half, the quietest few for LOW_LATENCY, everything else anywhere
+     * @param cpus CPUs to split
+     * @param quietCpus the same CPUs ranked quietest first
+     */
+    public static Set<Integer> defaultCpus(WorkloadType type, Set<Integer> cpus, List<Integer> quietCpus) {
+        List<Integer> sorted = new ArrayList<>(new TreeSet<>(cpus));
+        int half = sorted.size() / 2;
+        switch (type) {
+            case CPU_INTENSIVE:
+                return new TreeSet<>(sorted.subList(0, Math.min(sorted.size(), Math.max(1, half))));
+            case IO_INTENSIVE:
+                return new TreeSet<>(sorted.subList(half, sorted.size()));
+            case LOW_LATENCY:
+                return new TreeSet<>(quietCpus.subList(0, Math.min(lowLatencyCpuCount(cpus.size()), quietCpus.size())));
+            default:
+                return new TreeSet<>(sorted);
+        }
+    }
+    
+    /**
+     * SMT modes to start from: LOW_LATENCY on whole cores, one thread each, unless that
+     * would leave another workload type without a CPU (a single-core host)
+     */
+    public static Map<WorkloadType, SmtMode> defaultSmtModes(Function<WorkloadType, Set<Integer>> configuredCpus,
+                                                             Set<Integer> allCpus,
+                                                             Function<Integer, Set<Integer>> siblingsOf) {
+        Map<WorkloadType, SmtMode> modes = new EnumMap<>(WorkloadType.class);
+        modes.put(WorkloadType.LOW_LATENCY, SmtMode.HT_OFF);
+        for (WorkloadType type : WorkloadType.values()) {
+            if (type != WorkloadType.AUTO && available(type, configuredCpus, modes, allCpus, siblingsOf).isEmpty()) {
+                return new EnumMap<>(WorkloadType.class);
+            }
+        }
+        return modes;
+    }
+    
+    /**
+     * CPUs of a workload type under SMT modes. Every CPU a type that does not share
+     * siblings claims, the CPUs it runs on and their siblings, is taken out of every other
+     * type. A type whose configured CPUs are all claimed runs on the CPUs nobody claims.
+     * @param configuredCpus CPUs of each type before SMT modes are applied
+     * @param smtModes mode of each type that does not share siblings
+     * @param allCpus every CPU placement may use
+     * @throws IllegalArgumentException if the other types claim every CPU
+     */
+    public static Set<Integer> select(WorkloadType type, Function<WorkloadType, Set<Integer>> configuredCpus,
+                                      Map<WorkloadType, SmtMode> smtModes, Set<Integer> allCpus,
+                                      Function<Integer, Set<Integer>> siblingsOf) {
+        Set<Integer> cpus = available(type, configuredCpus, smtModes, allCpus, siblingsOf);
+        if (cpus.isEmpty()) {
+            throw new IllegalArgumentException("SMT modes " + smtModes + " leave no CPU for " + type);
+        }
+        return cpus;
+    }
+    
+    /**
+     * Check that the SMT modes leave every workload type a CPU
+     * @throws IllegalArgumentException naming a type left without one
+     */
+    public static void validate(Function<WorkloadType, Set<Integer>> configuredCpus,
+                                Map<WorkloadType, SmtMode> smtModes, Set<Integer> allCpus,
+                                Function<Integer, Set<Integer>> siblingsOf) {
+        for (WorkloadType type : WorkloadType.values()) {
+            if (type != WorkloadType.AUTO) {
+                select(type, configuredCpus, smtModes, allCpus, siblingsOf);
+            }
+        }
+    }
+    
+    private static Set<Integer> available(WorkloadType type, Function<WorkloadType, Set<Integer>> configuredCpus,
+                                          Map<WorkloadType, SmtMode> smtModes, Set<Integer> allCpus,
+                                          Function<Integer, Set<Integer>> siblingsOf) {
+        Set<Integer> claimed = new TreeSet<>();
+        smtModes.forEach((other, otherMode) -> {
+            if (other != type && otherMode != SmtMode.SHARED) {
+                claimed.addAll(otherMode.claim(configuredCpus.apply(other), siblingsOf));
+            }
+        });
+        Set<Integer> cpus = configuredCpus.apply(type);
+        SmtMode mode = smtModes.getOrDefault(type, SmtMode.SHARED);
+        Set<Integer> available = new TreeSet<>(mode.select(cpus, siblingsOf));
+        available.removeAll(claimed);
+        if (available.isEmpty() && mode == SmtMode.SHARED) {
+            available.addAll(allCpus);
+            available.removeAll(claimed);
+        }
+        return available;
+    }
+}
@@ -0,0 +1,16 @@
+package com.reene4444.cpupinning.adaptive;
+
+/**
+ * What the drift reconciler does when a thread's kernel affinity was changed externally
+ */
+public enum DriftPolicy {
+    /**
+     * Re-apply the desired CPUs
+     */
+    REAPPLY,
+    
+    /**
+     * Only report the drift (log, metrics, journal)
+     */
+    ALERT
+}
@@ -0,0 +1,204 @@
+package com.reene4444.cpupinning.adaptive;
+
+import com.reene4444.cpupinning.business.BusinessIsolationManager;
+import com.reene4444.cpupinning.core.AffinityEvents;
+import com.reene4444.cpupinning.core.CpuAffinity;
+import com.reene4444.cpupinning.core.CpuList;
+import com.reene4444.cpupinning.core.NumaTopology;
+import com.reene4444.cpupinning.core.ThreadPlacement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drift Reconciler - periodically compares each managed thread's desired CPUs with
+ * its actual kernel affinity, and re-applies or reports threads whose affinity was
+ * rewritten by taskset, a container runtime or a CPU manager.
+ * <p>
+ * Each scan visits at most {@code maxChecksPerScan} threads. It resumes iterators over
+ * the business pools' and the engine's registries where the previous scan stopped, so
+ * large thread counts are covered over several scans without copying the registries.
+ */
+public class DriftReconciler {
+    private static final Logger logger = LoggerFactory.getLogger(DriftReconciler.class);
+    
+    private final AdaptiveAffinityEngine engine;
+    private final BusinessIsolationManager manager;
+    private final AtomicLong driftCount = new AtomicLong();
+    private final AtomicLong repairCount = new AtomicLong();
+    private final AtomicLong checkCount = new AtomicLong();
+    private volatile DriftPolicy policy = DriftPolicy.REAPPLY;
+    private volatile int maxChecksPerScan = 256;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> scanTask;
+    // Where the current pass over the registries stands; null when the next scan starts a new pass
+    private Iterator<Thread> pooledThreads;
+    private Iterator<Thread> engineThreads;
+    private Iterator<ThreadPlacement> carriers;
+    
+    public DriftReconciler(AdaptiveAffinityEngine engine, BusinessIsolationManager manager) {
+        this.engine = engine;
+        this.manager = manager;
+    }
+    
+    public void setPolicy(DriftPolicy policy) {
+        this.policy = policy;
+    }
+    
+    public DriftPolicy getPolicy() {
+        return policy;
+    }
+    
+    public void setMaxChecksPerScan(int maxChecksPerScan) {
+        this.maxChecksPerScan = Math.max(1, maxChecksPerScan);
+    }
+    
+    /**
+     * Total number of drifted threads detected
+     */
+    public long getDriftCount() {
+        return driftCount.get();
+    }
+    
+    /**
+     * Total number of drifted threads whose desired CPUs were re-applied
+     */
+    public long getRepairCount() {
+        return repairCount.get();
+    }
+    
+    /**
+     * Total number of thread affinities read
+     */
+    public long getCheckCount() {
+        return checkCount.get();
+    }
+    
+    public synchronized void start(long intervalMs) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cpu-pinning-drift-reconciler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if (scanTask != null) {
+            scanTask.cancel(false);
+        }
+        scanTask = scheduler.scheduleAtFixedRate(this::reconcileSafely, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Drift reconciler started: every {} ms, policy {}, at most {} thread(s) per scan",
+                   intervalMs, policy, maxChecksPerScan);
+    }
+    
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            scanTask = null;
+        }
+    }
+    
+    private void reconcileSafely() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            logger.error("Error reconciling thread affinity", e);
+        }
+    }
+    
+    /**
+     * Check the next slice of managed threads
+     * @return number of drifted threads found
+     */
+    public synchronized int reconcile() {
+        if (pooledThreads == null) {
+            // Start a new pass over the registries
+            pooledThreads = manager.pinnedThreadIterator();
+            engineThreads = engine.trackedThreadIterator();
+            carriers = engine.carrierPlacementIterator();
+        }
+    
+        int drifted = 0;
+        DriftPolicy currentPolicy = policy;
+        Set<Integer> effectiveCpus = NumaTopology.getInstance().getEffectiveCpus();
+        for (int visited = 0; visited < maxChecksPerScan; visited++) {
+            Thread thread = null;
+            ThreadPlacement placement;
+            if (pooledThreads.hasNext()) {
+                thread = pooledThreads.next();
+                placement = manager.getThreadPlacement(thread);
+                // A thread both owners placed on different CPUs has no single desired placement
+                ThreadPlacement other = engine.getThreadPlacement(thread);
+                if (placement != null && other != null && !other.getCpus().equals(placement.getCpus())) {
+                    placement = null;
+                }
+            } else if (engineThreads.hasNext()) {
+                thread = engineThreads.next();
+                // Threads in a business pool were checked with the pool
+                placement = manager.getThreadPlacement(thread) == null ? engine.getThreadPlacement(thread) : null;
+            } else if (carriers.hasNext()) {
+                placement = carriers.next();
+            } else {
+                pooledThreads = null;
+                break;
+            }
+            if (placement != null && check(thread, placement, currentPolicy, effectiveCpus)) {
+                drifted++;
+            }
+        }
+        return drifted;
+    }
+    
+    /**
+     * Compare one thread's kernel affinity with its placement, re-applying it if the policy says so
+     * @param thread the thread, null for a virtual thread carrier
+     * @return whether the thread had drifted
+     */
+    private boolean check(Thread thread, ThreadPlacement placement, DriftPolicy currentPolicy,
+                          Set<Integer> effectiveCpus) {
+        int nativeTid = placement.getNativeTid();
+        if (!isOwnThread(thread, nativeTid)) {
+            return false;
+        }
+        Set<Integer> actual = CpuAffinity.getThreadAffinity(nativeTid);
+        checkCount.incrementAndGet();
+        if (actual.isEmpty() || actual.equals(placement.getCpus())) {
+            // Empty means the thread exited since it was checked
+            return false;
+        }
+        // The kernel silently drops CPUs outside our cpuset; that is not drift
+        Set<Integer> allowed = new HashSet<>(placement.getCpus());
+        allowed.retainAll(effectiveCpus);
+        if (actual.equals(allowed)) {
+            return false;
+        }
+        driftCount.incrementAndGet();
+        boolean repaired = currentPolicy == DriftPolicy.REAPPLY && isOwnThread(thread, nativeTid)
+            && CpuAffinity.pinThread(nativeTid, placement.getCpus());
+        if (repaired) {
+            repairCount.incrementAndGet();
+        }
+        logger.warn("Affinity drift on thread {} (tid {}) in '{}': desired {}, actual {}{}",
+                   placement.getThreadName(), nativeTid, placement.getPool(),
+                   CpuList.format(placement.getCpus()), CpuList.format(actual), repaired ? ", re-applied" : "");
+        AffinityEvents.driftDetected(nativeTid, placement.getPool(), placement.getCpus(), actual, repaired);
+        return true;
+    }
+    
+    /**
+     * Registry entries can outlive their thread and kernel thread IDs are reused
+     * host-wide, so a placement's ID is only touched while it is still this process's
+     * thread, and for a platform thread while that thread is alive
+     */
+    private static boolean isOwnThread(Thread thread, int nativeTid) {
+        return (thread == null || thread.isAlive()) && CpuAffinity.isProcessThread(nativeTid);
+    }
+}
@@ -0,0 +1,50 @@
+package com.reene4444.cpupinning.adaptive;
+
+import com.reene4444.cpupinning.core.MigrationReason;
+
+/**
+ * Thresholds the adaptive review loop migrates threads on. Shared by
+ * {@link AdaptiveAffinityEngine} and the placement simulator so both decide alike.
+ */
+public final class MigrationPolicy {
+    /** Latency and QPS samples averaged per thread */
+    public static final int HISTORY_SIZE = 10;
+    
+    private final long latencyThresholdMs;
+    private final long minQps;
+    
+    public MigrationPolicy(long latencyThresholdMs, long minQps) {
+        this.latencyThresholdMs = latencyThresholdMs;
+        this.minQps = minQps;
+    }
+    
+    public long getLatencyThresholdMs() {
+        return latencyThresholdMs;
+    }
+    
+    public long getMinQps() {
+        return minQps;
+    }
+    
+    /**
+     * Migrate if IPC collapsed (cache/SMT interference), latency is high or QPS is low
+     * @return the reason to migrate, or null to stay
+     */
+    public MigrationReason evaluate(boolean ipcDropped, double averageLatencyMs, double averageQps) {
+        if (ipcDropped) {
+            return MigrationReason.IPC_DROP;
+        }
+        if (averageLatencyMs > latencyThresholdMs) {
+            return MigrationReason.HIGH_LATENCY;
+        }
+        if (averageQps < minQps) {
+            return MigrationReason.LOW_QPS;
+        }
+        return null;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("latency > %d ms or QPS < %d", latencyThresholdMs, minQps);
+    }
+}
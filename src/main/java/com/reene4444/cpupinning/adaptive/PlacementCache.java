@@ -0,0 +1,209 @@
+package com.reene4444.cpupinning.adaptive;
+
+import com.reene4444.cpupinning.business.BusinessIsolationManager;
+import com.reene4444.cpupinning.core.CpuList;
+import com.reene4444.cpupinning.core.NumaTopology;
+import com.reene4444.cpupinning.core.WorkloadType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Placement Cache - keeps what the engine and the business pools learned across restarts.
+ * <p>
+ * The file holds the engine's self-selected CPUs per workload type, the confirmed types
+ * of classified methods and the CPUs of every business pool, stamped with a version and
+ * the {@link NumaTopology#getFingerprint() topology fingerprint}. It is only restored on
+ * a host whose topology has the same fingerprint. Writes go to a temporary file that is
+ * renamed over the cache, at most once per write interval and only when something changed.
+ */
+public class PlacementCache implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(PlacementCache.class);
+    
+    static final int VERSION = 1;
+    private static final String WORKLOAD = "workload.";
+    private static final String POOL = "pool.";
+    private static final String CLASSIFICATION = "classification.";
+    
+    private final Path file;
+    private final AdaptiveAffinityEngine engine;
+    private final BusinessIsolationManager businessIsolationManager;
+    private final String fingerprint;
+    // Entries of the last write or restore, so unchanged state is not written again
+    private Map<String, String> lastSaved = Map.of();
+    private ScheduledExecutorService scheduler;
+    
+    public PlacementCache(Path file, AdaptiveAffinityEngine engine, BusinessIsolationManager businessIsolationManager) {
+        this.file = file;
+        this.engine = engine;
+        this.businessIsolationManager = businessIsolationManager;
+        this.fingerprint = NumaTopology.getInstance().getFingerprint();
+    }
+    
+    /**
+     * Load the cache into the engine, its classifier and the pool manager's placement hints
+     * @return false if there is no cache, or it has another version or topology
+     */
+    public synchronized boolean restore() {
+        Properties cache = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            cache.load(reader);
+        } catch (NoSuchFileException e) {
+            logger.info("No placement cache at {}, starting from defaults", file);
+            return false;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Ignoring unreadable placement cache {}: {}", file, e.getMessage());
+            return false;
+        }
+        if (!String.valueOf(VERSION).equals(cache.getProperty("version"))) {
+            logger.info("Ignoring placement cache {} with version {}", file, cache.getProperty("version"));
+            return false;
+        }
+        if (!fingerprint.equals(cache.getProperty("fingerprint"))) {
+            logger.info("Ignoring placement cache {}: learned on another topology", file);
+            return false;
+        }
+    
+        Map<WorkloadType, Set<Integer>> workloads = new EnumMap<>(WorkloadType.class);
+        Map<String, Set<Integer>> pools = new HashMap<>();
+        Map<String, WorkloadType> classifications = new HashMap<>();
+        for (String name : cache.stringPropertyNames()) {
+            String value = cache.getProperty(name);
+            try {
+                if (name.startsWith(WORKLOAD)) {
+                    workloads.put(WorkloadType.valueOf(name.substring(WORKLOAD.length())), CpuList.parse(value));
+                } else if (name.startsWith(POOL)) {
+                    pools.put(name.substring(POOL.length()), CpuList.parse(value));
+                } else if (name.startsWith(CLASSIFICATION)) {
+                    classifications.put(name.substring(CLASSIFICATION.length()), WorkloadType.valueOf(value));
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warn("Skipping placement cache entry {}={}: {}", name, value, e.getMessage());
+            }
+        }
+        engine.restoreWorkloadCpus(workloads);
+        engine.getWorkloadClassifier().seed(classifications);
+        businessIsolationManager.setPlacementHints(pools);
+        lastSaved = snapshot();
+        logger.info("Restored placement cache {}: {} workload type(s), {} pool(s), {} classification(s)",
+                   file, workloads.size(), pools.size(), classifications.size());
+        return true;
+    }
+    
+    /**
+     * Write the current state if it changed since the last write
+     * @return whether the file was written
+     */
+    public synchronized boolean save() throws IOException {
+        Map<String, String> entries = snapshot();
+        if (entries.equals(lastSaved)) {
+            return false;
+        }
+        Properties cache = new Properties();
+        cache.setProperty("version", String.valueOf(VERSION));
+        cache.setProperty("fingerprint", fingerprint);
+        entries.forEach(cache::setProperty);
+    
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+                cache.store(writer, "CPU pinning placement cache");
+                writer.flush();
+                // On disk before the rename, so a crash leaves the old or the new cache
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        lastSaved = entries;
+        logger.debug("Saved placement cache {}", file);
+        return true;
+    }
+    
+    private Map<String, String> snapshot() {
+        Map<String, String> entries = new TreeMap<>();
+        engine.getLearnedWorkloadCpus().forEach((type, cpus) -> {
+            if (!cpus.isEmpty()) {
+                entries.put(WORKLOAD + type, CpuList.format(cpus));
+            }
+        });
+        for (String name : businessIsolationManager.getBusinessNames()) {
+            BusinessIsolationManager.CpuPool pool = businessIsolationManager.getBusinessPool(name);
+            if (pool != null) {
+                entries.put(POOL + name, CpuList.format(pool.getCpus()));
+            }
+        }
+        engine.getWorkloadClassifier().getLearnedClassifications()
+              .forEach((key, type) -> entries.put(CLASSIFICATION + key, type.name()));
+        return entries;
+    }
+    
+    /**
+     * Save in the background every {@code writeIntervalMs}, skipping unchanged state
+     */
+    public synchronized void start(long writeIntervalMs) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cpu-pinning-placement-cache");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::saveSafely, writeIntervalMs, writeIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private void saveSafely() {
+        try {
+            save();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to save placement cache {}: {}", file, e.getMessage());
+        }
+    }
+    
+    public Path getFile() {
+        return file;
+    }
+    
+    /**
+     * Stop background saves and write the final state
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+        }
+        saveSafely();
+    }
+}
@@ -0,0 +1,310 @@
+package com.reene4444.cpupinning.adaptive;
+
+import com.reene4444.cpupinning.core.WorkloadType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Workload Classifier - resolves {@link WorkloadType#AUTO} per annotated method or thread
+ * from measured CPU time vs wall time, allocation rate and monitor blocking.
+ * Monitor blocking needs {@link ThreadMXBean#getThreadInfo(long)}, a VM operation, so it is
+ * only read by the review loop's thread samples and never per invocation.
+ * <p>
+ * Measurements feed exponentially weighted averages. A key changes type only when the
+ * averages cross a band (entering a type needs a stronger signal than staying in it)
+ * and the new type is confirmed by several consecutive samples, so workloads near a
+ * boundary do not flap between core groups.
+ */
+public class WorkloadClassifier {
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadClassifier.class);
+    
+    // CPU time / wall time bands
+    private static final double CPU_BOUND_ENTER = 0.70;
+    private static final double CPU_BOUND_STAY = 0.60;
+    private static final double IO_BOUND_ENTER = 0.30;
+    private static final double IO_BOUND_STAY = 0.40;
+    // Allocation rate bands in bytes per second of wall time, for CPU-bound work
+    private static final double MEMORY_BOUND_ENTER = 512.0 * 1024 * 1024;
+    private static final double MEMORY_BOUND_STAY = 384.0 * 1024 * 1024;
+    // Monitor contention per second above which a low CPU ratio means lock waits, not I/O
+    private static final double CONTENDED_BLOCKS_PER_SECOND = 1000;
+    private static final double ALPHA = 0.3;
+    private static final int MIN_SAMPLES = 5;
+    private static final int CONFIRMATIONS = 3;
+    
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private final Map<Object, Classification> classifications = new ConcurrentHashMap<>();
+    // Types learned by an earlier run, by key name, for keys not seen yet in this one
+    private final Map<String, WorkloadType> seeds = new ConcurrentHashMap<>();
+    private final BiConsumer<Object, WorkloadType> onReclassified;
+    private volatile int sampleEvery = 4;
+    
+    /**
+     * @param onReclassified called with the key and its new type when a key changes type
+     */
+    public WorkloadClassifier(BiConsumer<Object, WorkloadType> onReclassified) {
+        this.onReclassified = onReclassified;
+        this.allocationBean = threadBean instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()
+            ? (com.sun.management.ThreadMXBean) threadBean : null;
+        if (!threadBean.isCurrentThreadCpuTimeSupported()) {
+            logger.warn("Thread CPU time is not supported; AUTO workloads stay MIXED");
+        }
+    }
+    
+    /**
+     * Measure one in every {@code sampleEvery} invocations of a method
+     */
+    public void setSampleEvery(int sampleEvery) {
+        this.sampleEvery = Math.max(1, sampleEvery);
+    }
+    
+    /**
+     * Current type of a key, {@link WorkloadType#MIXED} until enough samples were seen
+     */
+    public WorkloadType getWorkloadType(Object key) {
+        Classification classification = classifications.get(key);
+        if (classification == null && !seeds.isEmpty()) {
+            classification = classificationOf(key);
+        }
+        return classification != null ? classification.type : WorkloadType.MIXED;
+    }
+    
+    /**
+     * Current type of every classified key, by key name
+     */
+    public Map<String, WorkloadType> getClassifications() {
+        Map<String, WorkloadType> types = new TreeMap<>();
+        classifications.forEach((key, classification) -> types.put(key.toString(), classification.type));
+        return types;
+    }
+    
+    public void forget(Object key) {
+        classifications.remove(key);
+    }
+    
+    /**
+     * Confirmed types of keys that outlive a run, e.g. annotated methods, by key name.
+     * Thread keys are left out because thread IDs are not stable across restarts.
+     */
+    public Map<String, WorkloadType> getLearnedClassifications() {
+        Map<String, WorkloadType> learned = new TreeMap<>(seeds);
+        classifications.forEach((key, classification) -> {
+            if (!(key instanceof Long) && (classification.samples >= MIN_SAMPLES || classification.seeded)) {
+                learned.put(key.toString(), classification.type);
+            }
+        });
+        return learned;
+    }
+    
+    /**
+     * Start keys with these names from a type learned by an earlier run instead of
+     * {@link WorkloadType#MIXED}; new measurements can still move them
+     */
+    public void seed(Map<String, WorkloadType> learned) {
+        learned.forEach((name, type) -> {
+            if (type != WorkloadType.AUTO) {
+                seeds.put(name, type);
+            }
+        });
+    }
+    
+    private Classification classificationOf(Object key) {
+        return classifications.computeIfAbsent(key, k -> {
+            Classification classification = new Classification();
+            WorkloadType seeded = seeds.isEmpty() ? null : seeds.remove(k.toString());
+            if (seeded != null) {
+                classification.type = seeded;
+                classification.seeded = true;
+            }
+            return classification;
+        });
+    }
+    
+    /**
+     * Start measuring an invocation on the calling thread
+     * @return the measurement to finish when the invocation returns, or null if this
+     *         invocation is not sampled
+     */
+    public Measurement start(Object key) {
+        Classification classification = classificationOf(key);
+        if (classification.invocations++ % sampleEvery != 0 || !threadBean.isCurrentThreadCpuTimeSupported()) {
+            return null;
+        }
+        long cpuNanos = threadBean.getCurrentThreadCpuTime();
+        if (cpuNanos < 0) {
+            // e.g. a virtual thread
+            return null;
+        }
+        return new Measurement(key, System.nanoTime(), cpuNanos, allocatedBytes());
+    }
+    
+    /**
+     * Measure a thread over an interval from another thread, e.g. the review loop
+     * @param previous the snapshot taken at the start of the interval, or null
+     * @return the snapshot to pass next time, or null if the thread cannot be measured
+     */
+    Snapshot sampleThread(Object key, long threadId, Snapshot previous) {
+        long cpuNanos = threadBean.isThreadCpuTimeSupported() ? threadBean.getThreadCpuTime(threadId) : -1;
+        if (cpuNanos < 0) {
+            return null;
+        }
+        long allocated = allocationBean != null ? allocationBean.getThreadAllocatedBytes(threadId) : 0;
+        ThreadInfo info = threadBean.getThreadInfo(threadId);
+        long blocked = info != null ? info.getBlockedCount() : 0;
+        Snapshot current = new Snapshot(System.nanoTime(), cpuNanos, allocated, blocked);
+        if (previous != null) {
+            record(key, current.wallNanos - previous.wallNanos, current.cpuNanos - previous.cpuNanos,
+                   current.allocatedBytes - previous.allocatedBytes, current.blockedCount - previous.blockedCount);
+        }
+        return current;
+    }
+    
+    /**
+     * Add one measurement of a key and reclassify it if the averages call for it
+     * @param blockedCount monitor blocks over the measurement, negative if not measured
+     * @return the key's type after this measurement
+     */
+    public WorkloadType record(Object key, long wallNanos, long cpuNanos, long allocatedBytes, long blockedCount) {
+        if (wallNanos <= 0) {
+            return getWorkloadType(key);
+        }
+        Classification classification = classificationOf(key);
+        double seconds = wallNanos / 1e9;
+        WorkloadType previous;
+        WorkloadType changed = null;
+        synchronized (classification) {
+            classification.add(Math.min(1.0, (double) cpuNanos / wallNanos), allocatedBytes / seconds,
+                               blockedCount >= 0 ? blockedCount / seconds : -1);
+            previous = classification.type;
+            if (classification.samples >= MIN_SAMPLES) {
+                WorkloadType candidate = classification.candidate();
+                if (candidate == previous) {
+                    classification.pendingCount = 0;
+                } else if (candidate == classification.pending && ++classification.pendingCount >= CONFIRMATIONS) {
+                    classification.type = candidate;
+                    classification.pendingCount = 0;
+                    changed = candidate;
+                } else if (candidate != classification.pending) {
+                    classification.pending = candidate;
+                    classification.pendingCount = 1;
+                }
+            }
+        }
+        if (changed != null) {
+            logger.info("Workload {} reclassified from {} to {}", key, previous, changed);
+            if (onReclassified != null) {
+                onReclassified.accept(key, changed);
+            }
+        }
+        return classification.type;
+    }
+    
+    private long allocatedBytes() {
+        return allocationBean != null ? allocationBean.getCurrentThreadAllocatedBytes() : 0;
+    }
+    
+    /**
+     * An invocation being measured on the thread that started it
+     */
+    public final class Measurement {
+        private final Object key;
+        private final long startNanos;
+        private final long startCpuNanos;
+        private final long startAllocatedBytes;
+    
+        private Measurement(Object key, long startNanos, long startCpuNanos, long startAllocatedBytes) {
+            this.key = key;
+            this.startNanos = startNanos;
+            this.startCpuNanos = startCpuNanos;
+            this.startAllocatedBytes = startAllocatedBytes;
+        }
+    
+        /**
+         * Finish the measurement; must be called on the thread that started it
+         */
+        public void finish() {
+            record(key, System.nanoTime() - startNanos, threadBean.getCurrentThreadCpuTime() - startCpuNanos,
+                   allocatedBytes() - startAllocatedBytes, -1);
+        }
+    }
+    
+    /**
+     * Cumulative counters of a thread at one point in time
+     */
+    static final class Snapshot {
+        final long wallNanos;
+        final long cpuNanos;
+        final long allocatedBytes;
+        final long blockedCount;
+    
+        Snapshot(long wallNanos, long cpuNanos, long allocatedBytes, long blockedCount) {
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.blockedCount = blockedCount;
+        }
+    }
+    
+    private static class Classification {
+        volatile WorkloadType type = WorkloadType.MIXED;
+        // Type came from an earlier run rather than from samples
+        boolean seeded;
+        // Racy by design: only used to pick which invocations are sampled
+        int invocations;
+        int samples;
+        double cpuRatio;
+        double allocationRate;
+        double blockRate;
+        WorkloadType pending;
+        int pendingCount;
+    
+        /**
+         * @param blockRate negative if blocking was not measured, leaving its average as is
+         */
+        void add(double cpuRatio, double allocationRate, double blockRate) {
+            if (samples++ == 0) {
+                this.cpuRatio = cpuRatio;
+                this.allocationRate = allocationRate;
+                this.blockRate = Math.max(0, blockRate);
+            } else {
+                this.cpuRatio += ALPHA * (cpuRatio - this.cpuRatio);
+                this.allocationRate += ALPHA * (allocationRate - this.allocationRate);
+                if (blockRate >= 0) {
+                    this.blockRate += ALPHA * (blockRate - this.blockRate);
+                }
+            }
+        }
+    
+        /**
+         * Type the averages point to, with thresholds relaxed for the current type
+         */
+        WorkloadType candidate() {
+            boolean cpuBound = cpuRatio >= (isCpuBound(type) ? CPU_BOUND_STAY : CPU_BOUND_ENTER);
+            if (cpuBound) {
+                boolean memoryBound = allocationRate >= (type == WorkloadType.MEMORY_INTENSIVE
+                                                         ? MEMORY_BOUND_STAY : MEMORY_BOUND_ENTER);
+                return memoryBound ? WorkloadType.MEMORY_INTENSIVE : WorkloadType.CPU_INTENSIVE;
+            }
+            boolean waiting = cpuRatio <= (type == WorkloadType.IO_INTENSIVE ? IO_BOUND_STAY : IO_BOUND_ENTER);
+            // Time spent waiting for monitors is contention, which I/O cores do not help
+            if (waiting && blockRate < CONTENDED_BLOCKS_PER_SECOND) {
+                return WorkloadType.IO_INTENSIVE;
+            }
+            return WorkloadType.MIXED;
+        }
+    
+        private static boolean isCpuBound(WorkloadType type) {
+            return type == WorkloadType.CPU_INTENSIVE || type == WorkloadType.MEMORY_INTENSIVE;
+        }
+    }
+}
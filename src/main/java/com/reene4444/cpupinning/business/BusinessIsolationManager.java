@@ -1,11 +1,22 @@
 package com.reene4444.cpupinning.business;
 
+import com.reene4444.cpupinning.core.AffinityEvents;
 import com.reene4444.cpupinning.core.CpuAffinity;
+import com.reene4444.cpupinning.core.CpuUtilizationSampler;
+import com.reene4444.cpupinning.core.HostCoordinator;
+import com.reene4444.cpupinning.core.MigrationReason;
+import com.reene4444.cpupinning.core.NumaTopology;
+import com.reene4444.cpupinning.core.SchedulingProfile;
+import com.reene4444.cpupinning.core.SmtMode;
+import com.reene4444.cpupinning.core.ThreadPlacement;
+import com.reene4444.cpupinning.core.ThreadRegistry;
+import com.reene4444.cpupinning.perf.PerfCounterMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -17,8 +28,10 @@ public class BusinessIsolationManager {
     
     private static BusinessIsolationManager instance;
     private final Map<String, CpuPool> businessPools = new ConcurrentHashMap<>();
-    private final Map<Thread, String> threadToBusiness = new ConcurrentHashMap<>();
+    private final ThreadRegistry<String> threadToBusiness = new ThreadRegistry<>();
     private final ReentrantLock allocationLock = new ReentrantLock();
+    // CPUs sized pools held in an earlier run, preferred when they are allocated again
+    private final Map<String, Set<Integer>> placementHints = new ConcurrentHashMap<>();
     private final Set<Integer> availableCpus;
     
     private BusinessIsolationManager() {
@@ -40,28 +53,178 @@ public class BusinessIsolationManager {
      * Register a business service with CPU pool
      */
     public void registerBusinessPool(String businessName, Set<Integer> cpus) {
+        registerBusinessPool(businessName, cpus, null);
+    }
+    
+    /**
+     * Register a business service with CPU pool and the scheduling profile its threads get when pinned
+     * @param schedulingProfile profile to apply, or null to leave the threads' scheduling untouched
+     */
+    public void registerBusinessPool(String businessName, Set<Integer> cpus, SchedulingProfile schedulingProfile) {
+        CpuPool pool;
+        CpuPool previous;
         allocationLock.lock();
         try {
-            // Validate CPU allocation
+            // Validate CPU allocation; a pool being replaced may keep its own CPUs
             Set<Integer> allocated = new HashSet<>();
-            for (CpuPool pool : businessPools.values()) {
-                allocated.addAll(pool.getCpus());
+            for (CpuPool other : businessPools.values()) {
+                if (!other.getBusinessName().equals(businessName)) {
+                    allocated.addAll(other.getClaimedCpus());
+                }
             }
-            
+    
             Set<Integer> intersection = new HashSet<>(cpus);
             intersection.retainAll(allocated);
-            
+    
             if (!intersection.isEmpty()) {
                 throw new IllegalArgumentException(
                     String.format("CPUs %s are already allocated to other businesses", intersection));
             }
-            
-            CpuPool pool = new CpuPool(businessName, cpus);
+    
+            leaseHostCpus(List.of(businessName), cpus);
+            pool = new CpuPool(businessName, cpus);
+            pool.setSchedulingProfile(schedulingProfile);
+            previous = businessPools.get(businessName);
+            if (previous != null) {
+                pool.carryOver(previous);
+            }
             businessPools.put(businessName, pool);
+            releaseUnclaimedHostCpus();
+            AffinityEvents.poolChanged(businessName, previous != null ? previous.getCpus() : Set.of(), cpus);
             logger.info("Registered business pool '{}' with CPUs: {}", businessName, cpus);
         } finally {
             allocationLock.unlock();
         }
+    
+        if (previous != null) {
+            // Threads carried over from the replaced pool move to the new CPUs
+            Set<Integer> pinned = pool.getPinnedCpus();
+            for (PooledThread pooled : pool.getLivePooledThreads()) {
+                if (!pooled.cpus.equals(pinned) && CpuAffinity.pinThread(pooled.nativeTid, pinned)) {
+                    Set<Integer> before = pooled.cpus;
+                    pooled.cpus = new HashSet<>(pinned);
+                    AffinityEvents.threadMigrated(pooled.nativeTid, businessName, before, pinned, 
+                                                  MigrationReason.RECONFIGURATION);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Remove a pool: its CPUs and host leases become free, and its live threads stop being
+     * tracked and are re-pinned to every effective CPU
+     * @return false if no such pool was registered
+     */
+    public boolean unregisterBusinessPool(String businessName) {
+        CpuPool pool;
+        allocationLock.lock();
+        try {
+            pool = businessPools.remove(businessName);
+            if (pool == null) {
+                return false;
+            }
+            releaseUnclaimedHostCpus();
+        } finally {
+            allocationLock.unlock();
+        }
+    
+        Set<Integer> effectiveCpus = NumaTopology.getInstance().getEffectiveCpus();
+        pool.threads.forEach((thread, pooled) -> {
+            pool.removeThread(thread);
+            threadToBusiness.remove(thread);
+            if (pooled.nativeTid > 0) {
+                CpuAffinity.pinThread(pooled.nativeTid, effectiveCpus);
+                PerfCounterMonitor.getInstance().unregister(pooled.nativeTid);
+            }
+            AffinityEvents.threadReleased(pooled.nativeTid, businessName);
+        });
+        AffinityEvents.poolChanged(businessName, pool.getCpus(), Set.of());
+        logger.info("Unregistered business pool '{}' (CPUs {})", businessName, pool.getCpus());
+        return true;
+    }
+    
+    /**
+     * Register (or resize) a pool with {@code cpuCount} CPUs that no other pool holds and,
+     * with host coordination, no other process on the host has leased
+     * @return the pool's CPUs
+     * @throws IllegalArgumentException if fewer CPUs are free
+     */
+    public Set<Integer> allocateBusinessPool(String businessName, int cpuCount) {
+        if (cpuCount <= 0) {
+            throw new IllegalArgumentException("CPU count must be positive: " + cpuCount);
+        }
+        allocationLock.lock();
+        try {
+            CpuPool existing = businessPools.get(businessName);
+            if (existing != null && existing.getCpus().size() == cpuCount) {
+                return existing.getCpus();
+            }
+            Set<Integer> free = NumaTopology.getInstance().getEffectiveCpus();
+            for (CpuPool pool : businessPools.values()) {
+                if (pool != existing) {
+                    free.removeAll(pool.getClaimedCpus());
+                }
+            }
+            HostCoordinator coordinator = HostCoordinator.getInstance();
+            Set<Integer> hint = placementHints.get(businessName);
+            Set<Integer> cpus;
+            if (hint != null && hint.size() == cpuCount && free.containsAll(hint)
+                    && (coordinator == null || coordinator.tryAcquire(hint).isEmpty())) {
+                cpus = new TreeSet<>(hint);
+            } else if (coordinator != null) {
+                cpus = coordinator.acquireAny(cpuCount, free);
+            } else {
+                cpus = new TreeSet<>();
+                for (Iterator<Integer> it = free.iterator(); it.hasNext() && cpus.size() < cpuCount; ) {
+                    cpus.add(it.next());
+                }
+            }
+            if (cpus.size() < cpuCount) {
+                throw new IllegalArgumentException(String.format(
+                    "Business pool '%s' needs %d CPUs but fewer are free%s", businessName, cpuCount,
+                    coordinator != null ? " on this host" : ""));
+            }
+            reconfigurePools(Map.of(businessName, cpus));
+            return businessPools.get(businessName).getCpus();
+        } finally {
+            allocationLock.unlock();
+        }
+    }
+    
+    /**
+     * Lease CPUs host-wide when host coordination is on, all or nothing
+     * @throws IllegalArgumentException if another live process holds any of them
+     */
+    private static void leaseHostCpus(Collection<String> businessNames, Set<Integer> cpus) {
+        HostCoordinator coordinator = HostCoordinator.getInstance();
+        if (coordinator == null || cpus.isEmpty()) {
+            return;
+        }
+        Set<Integer> conflicts = coordinator.tryAcquire(cpus);
+        if (!conflicts.isEmpty()) {
+            Map<Integer, Long> owners = new TreeMap<>();
+            for (Integer cpu : conflicts) {
+                owners.put(cpu, coordinator.getOwner(cpu));
+            }
+            throw new IllegalArgumentException(String.format(
+                "CPUs %s for business pool(s) %s are leased by other processes on this host (CPU=PID)",
+                owners, businessNames));
+        }
+    }
+    
+    /**
+     * Give back host leases of CPUs no pool claims any more
+     */
+    private void releaseUnclaimedHostCpus() {
+        HostCoordinator coordinator = HostCoordinator.getInstance();
+        if (coordinator == null) {
+            return;
+        }
+        Set<Integer> unclaimed = coordinator.getHeldCpus();
+        for (CpuPool pool : businessPools.values()) {
+            unclaimed.removeAll(pool.getClaimedCpus());
+        }
+        coordinator.release(unclaimed);
     }
     
     /**
@@ -73,18 +236,204 @@ public class BusinessIsolationManager {
             logger.warn("Business pool '{}' not found", businessName);
             return false;
         }
-        
-        Set<Integer> cpus = pool.getCpus();
+    
+        // Stay within the pool, on its least-loaded cores (steal counts double)
+        Set<Integer> cpus = CpuUtilizationSampler.getInstance().leastLoaded(pool.getPinnedCpus());
+        PooledThread existing = pool.getPooledThread(thread);
+        if (existing != null && existing.cpus.equals(cpus)) {
+            // Already placed here; skip the syscall
+            AffinityEvents.pinAvoided(businessName);
+            return true;
+        }
+    
         boolean success = CpuAffinity.pinThread(cpus);
         if (success) {
+            int nativeTid = existing != null ? existing.nativeTid
+                          : thread == Thread.currentThread() ? CpuAffinity.getCurrentThreadNativeId() : 0;
+            SchedulingProfile scheduling = existing != null ? existing.scheduling 
+                                         : applyScheduling(0, pool.getSchedulingProfile());
             threadToBusiness.put(thread, businessName);
-            pool.addThread(thread);
-            logger.info("Pinned thread {} to business '{}' CPUs: {}", 
-                       thread.getName(), businessName, cpus);
+            pool.addThread(thread, nativeTid, cpus, scheduling);
+            PerfCounterMonitor.getInstance().register("pool:" + businessName, nativeTid);
+            AffinityEvents.threadPinned(nativeTid, businessName, existing != null ? existing.cpus : Set.of(), cpus);
+            logger.debug("Pinned thread {} to business '{}' CPUs: {}", 
+                        thread.getName(), businessName, cpus);
         }
         return success;
     }
     
+    /**
+     * Apply a new CPU set to each named pool (registering pools that do not exist yet)
+     * and re-pin the live threads of every changed pool in one batched pass.
+     * The whole update is rejected if it would make two pools overlap.
+     * @return number of threads re-pinned
+     */
+    public int reconfigurePools(Map<String, Set<Integer>> poolCpus) {
+        return reconfigurePools(poolCpus, Map.of());
+    }
+    
+    /**
+     * Apply new CPU sets and SMT modes to the named pools (registering pools that do not
+     * exist yet) and re-pin the live threads of every changed pool in one batched pass.
+     * The whole update is rejected if it would make two pools overlap, counting the
+     * siblings claimed by pools that do not share them, or, with host coordination,
+     * use CPUs another process on the host has leased.
+     * @return number of threads re-pinned
+     */
+    public int reconfigurePools(Map<String, Set<Integer>> poolCpus, Map<String, SmtMode> smtModes) {
+        Map<PooledThread, String> repins = new HashMap<>();
+        allocationLock.lock();
+        try {
+            Set<String> changed = new LinkedHashSet<>(poolCpus.keySet());
+            changed.addAll(smtModes.keySet());
+            Map<String, Set<Integer>> target = new HashMap<>();
+            for (CpuPool pool : businessPools.values()) {
+                target.put(pool.getBusinessName(), pool.getClaimedCpus());
+            }
+            for (String name : changed) {
+                CpuPool pool = businessPools.get(name);
+                Set<Integer> cpus = poolCpus.containsKey(name) ? poolCpus.get(name) 
+                                  : pool != null ? pool.getCpus() : null;
+                if (cpus == null) {
+                    throw new IllegalArgumentException(String.format("Business pool '%s' not found", name));
+                }
+                SmtMode mode = smtModes.getOrDefault(name, pool != null ? pool.getSmtMode() : SmtMode.SHARED);
+                target.put(name, mode.claim(cpus));
+            }
+            validateDisjoint(target);
+            Set<Integer> leased = new TreeSet<>();
+            for (String name : changed) {
+                leased.addAll(target.get(name));
+            }
+            leaseHostCpus(changed, leased);
+    
+            for (String name : changed) {
+                CpuPool pool = businessPools.get(name);
+                Set<Integer> cpus = poolCpus.containsKey(name) ? poolCpus.get(name) : pool.getCpus();
+                SmtMode mode = smtModes.getOrDefault(name, pool != null ? pool.getSmtMode() : SmtMode.SHARED);
+                if (pool == null) {
+                    pool = new CpuPool(name, cpus);
+                    pool.setSmtMode(mode);
+                    businessPools.put(name, pool);
+                    AffinityEvents.poolChanged(name, Set.of(), cpus);
+                    logger.info("Registered business pool '{}' with CPUs: {} (SMT {})", name, cpus, mode);
+                } else if (!pool.getCpus().equals(cpus) || pool.getSmtMode() != mode) {
+                    Set<Integer> previous = pool.getCpus();
+                    pool.setCpus(cpus);
+                    pool.setSmtMode(mode);
+                    for (PooledThread pooled : pool.getLivePooledThreads()) {
+                        repins.put(pooled, name);
+                    }
+                    AffinityEvents.poolChanged(name, previous, cpus);
+                    logger.info("Resized business pool '{}' to CPUs: {} (SMT {})", name, cpus, mode);
+                }
+            }
+            releaseUnclaimedHostCpus();
+        } finally {
+            allocationLock.unlock();
+        }
+    
+        int repinned = 0;
+        // Same choice of cores as pinToBusiness, made once per pool so its threads agree
+        Map<String, Set<Integer>> repinCpus = new HashMap<>();
+        for (Map.Entry<PooledThread, String> repin : repins.entrySet()) {
+            PooledThread pooled = repin.getKey();
+            Set<Integer> cpus = repinCpus.computeIfAbsent(repin.getValue(), name -> 
+                CpuUtilizationSampler.getInstance().leastLoaded(businessPools.get(name).getPinnedCpus()));
+            if (CpuAffinity.pinThread(pooled.nativeTid, cpus)) {
+                Set<Integer> previous = pooled.cpus;
+                pooled.cpus = new HashSet<>(cpus);
+                AffinityEvents.threadMigrated(pooled.nativeTid, repin.getValue(), previous, cpus, 
+                                              MigrationReason.RECONFIGURATION);
+                repinned++;
+            }
+        }
+        if (!repins.isEmpty()) {
+            logger.info("Re-pinned {}/{} pooled thread(s) after pool reconfiguration", repinned, repins.size());
+        }
+        return repinned;
+    }
+    
+    /**
+     * Change how a pool treats the SMT siblings of its CPUs and re-pin its threads
+     * @throws IllegalArgumentException if the siblings the mode claims belong to another pool
+     * @return number of threads re-pinned
+     */
+    public int setSmtMode(String businessName, SmtMode smtMode) {
+        return reconfigurePools(Map.of(), Map.of(businessName, smtMode));
+    }
+    
+    /**
+     * Change the scheduling profile of a pool and apply it to the pool's live threads
+     * @param schedulingProfile profile to apply, or null to stop managing the pool's scheduling
+     * @return number of threads whose scheduling was updated
+     */
+    public int setSchedulingProfile(String businessName, SchedulingProfile schedulingProfile) {
+        CpuPool pool = businessPools.get(businessName);
+        if (pool == null) {
+            logger.warn("Business pool '{}' not found", businessName);
+            return 0;
+        }
+        if (Objects.equals(pool.getSchedulingProfile(), schedulingProfile)) {
+            return 0;
+        }
+        pool.setSchedulingProfile(schedulingProfile);
+        int updated = 0;
+        if (schedulingProfile != null) {
+            for (PooledThread pooled : pool.getLivePooledThreads()) {
+                pooled.scheduling = applyScheduling(pooled.nativeTid, schedulingProfile);
+                updated++;
+            }
+        }
+        logger.info("Set scheduling of business pool '{}' to {}, applied to {} thread(s)", 
+                    businessName, schedulingProfile, updated);
+        return updated;
+    }
+    
+    /**
+     * Limit the CPU time tasks of the pool's {@link PoolExecutor}s may use; batch tasks wait
+     * while the budget is exhausted
+     * @param cpus CPUs' worth of CPU time per second, 0 or less to remove the budget
+     * @param burstMs wall time at the full rate the budget can save up
+     */
+    public void setCpuBudget(String businessName, double cpus, long burstMs) {
+        CpuPool pool = businessPools.get(businessName);
+        if (pool == null) {
+            throw new IllegalArgumentException(String.format("Business pool '%s' not found", businessName));
+        }
+        CpuBudget budget = cpus > 0 ? new CpuBudget(cpus, burstMs) : null;
+        if (sameLimits(pool.getBudget(), budget)) {
+            // Unchanged, e.g. on a configuration refresh; keep the tokens saved up so far
+            return;
+        }
+        pool.setBudget(budget);
+        logger.info("Set CPU budget of business pool '{}' to {}", businessName, budget != null ? budget : "unlimited");
+    }
+    
+    private static boolean sameLimits(CpuBudget a, CpuBudget b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.getCpus() == b.getCpus() && a.getBurstNanos() == b.getBurstNanos();
+    }
+    
+    private static SchedulingProfile applyScheduling(int nativeTid, SchedulingProfile profile) {
+        return profile != null ? CpuAffinity.applySchedulingProfile(nativeTid, profile) : null;
+    }
+    
+    private static void validateDisjoint(Map<String, Set<Integer>> poolCpus) {
+        Map<Integer, String> owners = new HashMap<>();
+        for (Map.Entry<String, Set<Integer>> entry : poolCpus.entrySet()) {
+            for (Integer cpu : entry.getValue()) {
+                String owner = owners.putIfAbsent(cpu, entry.getKey());
+                if (owner != null) {
+                    throw new IllegalArgumentException(String.format(
+                        "CPU %d cannot be allocated to both '%s' and '%s'", cpu, owner, entry.getKey()));
+                }
+            }
+        }
+    }
+    
     /**
      * Get CPU pool for a business
      */
@@ -98,18 +447,78 @@ public class BusinessIsolationManager {
     public boolean migrateThread(Thread thread, String fromBusiness, String toBusiness) {
         CpuPool fromPool = businessPools.get(fromBusiness);
         CpuPool toPool = businessPools.get(toBusiness);
-        
+    
         if (fromPool == null || toPool == null) {
             return false;
         }
-        
+    
+        PooledThread previous = fromPool.getPooledThread(thread);
         boolean success = pinToBusiness(thread, toBusiness);
-        if (success) {
+        if (success && previous != null) {
             fromPool.removeThread(thread);
+            AffinityEvents.threadReleased(previous.nativeTid, fromBusiness);
+            AffinityEvents.threadMigrated(previous.nativeTid, toBusiness, previous.cpus, toPool.getCpus(), 
+                                          MigrationReason.POOL_TRANSFER);
         }
         return success;
     }
     
+    /**
+     * Kernel thread ID of a thread pinned to any business pool
+     * @return the ID, or -1 if the thread is in no pool
+     */
+    public int getNativeTid(Thread thread) {
+        for (CpuPool pool : businessPools.values()) {
+            PooledThread pooled = pool.getPooledThread(thread);
+            if (pooled != null) {
+                return pooled.nativeTid;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Current placement of a thread in the business pool it was last pinned to, null if
+     * it is in none
+     */
+    public ThreadPlacement getThreadPlacement(Thread thread) {
+        String businessName = threadToBusiness.get(thread);
+        CpuPool pool = businessName != null ? businessPools.get(businessName) : null;
+        PooledThread pooled = pool != null ? pool.getPooledThread(thread) : null;
+        return pooled != null ? new ThreadPlacement(businessName, thread.getName(), pooled.nativeTid, pooled.cpus,
+                                                    pooled.scheduling) : null;
+    }
+    
+    /**
+     * Threads pinned to a business pool, for incremental scans, see
+     * {@link ThreadRegistry#threadIterator}
+     */
+    public Iterator<Thread> pinnedThreadIterator() {
+        return threadToBusiness.threadIterator();
+    }
+    
+    /**
+     * Current placement of every live thread in every business pool
+     */
+    public List<ThreadPlacement> getThreadPlacements() {
+        List<ThreadPlacement> placements = new ArrayList<>();
+        for (CpuPool pool : businessPools.values()) {
+            pool.threads.forEach((thread, pooled) -> placements.add(
+                new ThreadPlacement(pool.getBusinessName(), thread.getName(), pooled.nativeTid, pooled.cpus,
+                                    pooled.scheduling)));
+        }
+        return placements;
+    }
+    
+    /**
+     * Prefer these CPUs when {@link #allocateBusinessPool} sizes the named pools, e.g.
+     * the placement an earlier run had learned
+     */
+    public void setPlacementHints(Map<String, Set<Integer>> hints) {
+        placementHints.clear();
+        hints.forEach((name, cpus) -> placementHints.put(name, Set.copyOf(cpus)));
+    }
+    
     /**
      * Get all registered business pools
      */
@@ -122,37 +531,186 @@ public class BusinessIsolationManager {
      */
     public static class CpuPool {
         private final String businessName;
-        private final Set<Integer> cpus;
-        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
-        
+        private volatile Set<Integer> cpus;
+        private volatile SchedulingProfile schedulingProfile;
+        private volatile SmtMode smtMode = SmtMode.SHARED;
+        // Threads leave the pool automatically when they terminate
+        private final ThreadRegistry<PooledThread> threads;
+        private volatile CpuBudget budget;
+        // Accounting of tasks run through the pool's executors
+        private final LongAdder cpuNanos = new LongAdder();
+        private final LongAdder throttledTasks = new LongAdder();
+        private final LongAdder rejectedTasks = new LongAdder();
+    
         public CpuPool(String businessName, Set<Integer> cpus) {
             this.businessName = businessName;
             this.cpus = new HashSet<>(cpus);
+            this.threads = new ThreadRegistry<>((threadId, pooled) -> 
+                AffinityEvents.threadReleased(pooled.nativeTid, businessName));
         }
-        
+    
         public String getBusinessName() {
             return businessName;
         }
-        
+    
         public Set<Integer> getCpus() {
             return new HashSet<>(cpus);
         }
-        
+    
+        void setCpus(Set<Integer> cpus) {
+            this.cpus = new HashSet<>(cpus);
+        }
+    
+        /**
+         * CPUs the pool's threads are pinned to under its SMT mode
+         */
+        public Set<Integer> getPinnedCpus() {
+            return smtMode.select(cpus);
+        }
+    
+        /**
+         * CPUs no other pool may use: the pool's CPUs and the siblings its SMT mode claims
+         */
+        public Set<Integer> getClaimedCpus() {
+            return smtMode.claim(cpus);
+        }
+    
+        public SmtMode getSmtMode() {
+            return smtMode;
+        }
+    
+        void setSmtMode(SmtMode smtMode) {
+            this.smtMode = smtMode;
+        }
+    
+        /**
+         * Scheduling profile applied to threads pinned to the pool, null if unmanaged
+         */
+        public SchedulingProfile getSchedulingProfile() {
+            return schedulingProfile;
+        }
+    
+        void setSchedulingProfile(SchedulingProfile schedulingProfile) {
+            this.schedulingProfile = schedulingProfile;
+        }
+    
+        /**
+         * CPU time budget of the pool's executors, null if unlimited
+         */
+        public CpuBudget getBudget() {
+            return budget;
+        }
+    
+        void setBudget(CpuBudget budget) {
+            this.budget = budget;
+        }
+    
+        void recordCpuTime(long nanos) {
+            cpuNanos.add(nanos);
+            CpuBudget current = budget;
+            if (current != null) {
+                current.consume(nanos);
+            }
+        }
+    
+        void recordThrottled() {
+            throttledTasks.increment();
+        }
+    
+        void recordRejected() {
+            rejectedTasks.increment();
+        }
+    
+        /**
+         * CPU time used by tasks of the pool's executors
+         */
+        public long getCpuNanos() {
+            return cpuNanos.sum();
+        }
+    
+        /**
+         * Batch tasks that waited for the budget to refill
+         */
+        public long getThrottledTasks() {
+            return throttledTasks.sum();
+        }
+    
+        /**
+         * Tasks turned away because the pool's executor queues were full
+         */
+        public long getRejectedTasks() {
+            return rejectedTasks.sum();
+        }
+    
+        /**
+         * Keep the budget, accounting and tracked threads of the pool this one replaces
+         */
+        void carryOver(CpuPool previous) {
+            budget = previous.budget;
+            cpuNanos.add(previous.getCpuNanos());
+            throttledTasks.add(previous.getThrottledTasks());
+            rejectedTasks.add(previous.getRejectedTasks());
+            previous.threads.forEach((thread, pooled) -> {
+                previous.removeThread(thread);
+                threads.put(thread, pooled);
+            });
+        }
+    
         public Set<Thread> getThreads() {
-            return new HashSet<>(threads);
+            Set<Thread> live = new HashSet<>();
+            threads.forEach((thread, pooled) -> live.add(thread));
+            return live;
+        }
+    
+        Set<Integer> getNativeThreadIds() {
+            Set<Integer> tids = new HashSet<>();
+            for (PooledThread pooled : getLivePooledThreads()) {
+                tids.add(pooled.nativeTid);
+            }
+            return tids;
+        }
+    
+        List<PooledThread> getLivePooledThreads() {
+            List<PooledThread> live = new ArrayList<>();
+            threads.forEach((thread, pooled) -> {
+                if (pooled.nativeTid > 0) {
+                    live.add(pooled);
+                }
+            });
+            return live;
+        }
+    
+        PooledThread getPooledThread(Thread thread) {
+            return threads.get(thread);
         }
-        
-        void addThread(Thread thread) {
-            threads.add(thread);
+    
+        void addThread(Thread thread, int nativeTid, Set<Integer> cpus, SchedulingProfile scheduling) {
+            PooledThread pooled = new PooledThread(nativeTid, cpus);
+            pooled.scheduling = scheduling;
+            threads.put(thread, pooled);
         }
-        
+    
         void removeThread(Thread thread) {
             threads.remove(thread);
         }
-        
+    
         public int getThreadCount() {
             return threads.size();
         }
     }
+    
+    /**
+     * Placement of one pooled thread: native thread ID (0 when unknown) and the CPUs it was last pinned to
+     */
+    static class PooledThread {
+        final int nativeTid;
+        volatile Set<Integer> cpus;
+        // Scheduling in effect after the pool's profile was applied, null if none was
+        volatile SchedulingProfile scheduling;
+    
+        PooledThread(int nativeTid, Set<Integer> cpus) {
+            this.nativeTid = nativeTid;
+            this.cpus = new HashSet<>(cpus);
+        }
+    }
 }
-
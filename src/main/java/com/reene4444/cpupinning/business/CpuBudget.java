@@ -0,0 +1,79 @@
+package com.reene4444.cpupinning.business;
+
+/**
+ * CPU Budget - token bucket of CPU time for one business pool.
+ * <p>
+ * The bucket refills at {@code cpus} CPU-seconds per second up to {@code burst} worth of
+ * that rate. Tasks are charged the CPU time they actually used after they ran, so the
+ * bucket can go into debt; it is exhausted until the refill has paid the debt back.
+ */
+public class CpuBudget {
+    private final double cpus;
+    private final long burstNanos;
+    // CPU nanoseconds still available; negative while in debt
+    private double tokens;
+    private long lastRefill;
+    
+    /**
+     * @param cpus CPUs' worth of CPU time per second the pool may use, e.g. 1.5
+     * @param burstMs wall time at the full rate the bucket can hold
+     */
+    public CpuBudget(double cpus, long burstMs) {
+        if (!(cpus > 0)) {
+            throw new IllegalArgumentException("CPU budget must be positive: " + cpus);
+        }
+        if (burstMs <= 0) {
+            throw new IllegalArgumentException("Budget burst must be positive: " + burstMs + " ms");
+        }
+        this.cpus = cpus;
+        this.burstNanos = (long) (cpus * burstMs * 1_000_000L);
+        this.tokens = burstNanos;
+        this.lastRefill = System.nanoTime();
+    }
+    
+    /**
+     * Charge CPU time a task used
+     */
+    public synchronized void consume(long cpuNanos) {
+        refill();
+        tokens -= cpuNanos;
+    }
+    
+    /**
+     * Wall time until the bucket is out of debt, 0 if CPU time is available now
+     */
+    public synchronized long nanosUntilAvailable() {
+        refill();
+        return tokens > 0 ? 0 : (long) Math.ceil((1 - tokens) / cpus);
+    }
+    
+    /**
+     * Share of the burst spent: 0 when full, 1 when empty, above 1 while in debt
+     */
+    public synchronized double getUsage() {
+        refill();
+        return 1 - tokens / burstNanos;
+    }
+    
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burstNanos, tokens + (now - lastRefill) * cpus);
+        lastRefill = now;
+    }
+    
+    public double getCpus() {
+        return cpus;
+    }
+    
+    /**
+     * CPU nanoseconds a full bucket holds
+     */
+    public long getBurstNanos() {
+        return burstNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%.2f CPU(s), burst %d ms", cpus, Math.round(burstNanos / cpus / 1_000_000));
+    }
+}
@@ -0,0 +1,261 @@
+package com.reene4444.cpupinning.business;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool Executor - workers pinned to one business pool, with latency and batch queues.
+ * <p>
+ * Every task is charged the CPU time its worker spent on it, measured with
+ * {@link ThreadMXBean#getCurrentThreadCpuTime()}, against the pool's {@link CpuBudget}.
+ * Latency tasks are always taken first; batch tasks wait while the budget is exhausted,
+ * so batch work cannot starve latency work on the pool's own cores. Once the queues hold
+ * {@code queueCapacity} tasks new ones are rejected at once instead of queueing up.
+ */
+public class PoolExecutor extends AbstractExecutorService {
+    private static final Logger logger = LoggerFactory.getLogger(PoolExecutor.class);
+    private static final ThreadMXBean THREAD_MX = ManagementFactory.getThreadMXBean();
+    
+    private final BusinessIsolationManager manager;
+    private final String pool;
+    private final int queueCapacity;
+    private final boolean cpuTimeSupported;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final ArrayDeque<Task> latencyQueue = new ArrayDeque<>();
+    private final ArrayDeque<Task> batchQueue = new ArrayDeque<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final CountDownLatch terminated;
+    private volatile boolean shutdown;
+    
+    /**
+     * @param pool business pool the workers are pinned to
+     * @param threads number of workers
+     * @param queueCapacity tasks both queues may hold together before submissions are rejected
+     * @throws IllegalArgumentException if the pool is not registered
+     */
+    public PoolExecutor(String pool, int threads, int queueCapacity) {
+        this(BusinessIsolationManager.getInstance(), pool, threads, queueCapacity);
+    }
+    
+    PoolExecutor(BusinessIsolationManager manager, String pool, int threads, int queueCapacity) {
+        if (manager.getBusinessPool(pool) == null) {
+            throw new IllegalArgumentException(String.format("Business pool '%s' not found", pool));
+        }
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Threads and queue capacity must be positive");
+        }
+        this.manager = manager;
+        this.pool = pool;
+        this.queueCapacity = queueCapacity;
+        this.cpuTimeSupported = THREAD_MX.isCurrentThreadCpuTimeSupported();
+        if (cpuTimeSupported && !THREAD_MX.isThreadCpuTimeEnabled()) {
+            THREAD_MX.setThreadCpuTimeEnabled(true);
+        }
+        this.terminated = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::runWorker, pool + "-worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+        workers.forEach(Thread::start);
+        logger.info("Pool executor for business '{}' started: {} worker(s), queue capacity {}{}",
+                   pool, threads, queueCapacity, cpuTimeSupported ? "" : ", charging wall time (no thread CPU time)");
+    }
+    
+    /**
+     * Run as a batch task
+     */
+    @Override
+    public void execute(Runnable command) {
+        execute(TaskPriority.BATCH, command);
+    }
+    
+    /**
+     * @throws RejectedExecutionException if the queues are full or the executor is shut down
+     */
+    public void execute(TaskPriority priority, Runnable command) {
+        if (command == null || priority == null) {
+            throw new NullPointerException();
+        }
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("Pool executor for business '" + pool + "' is shut down");
+            }
+            if (latencyQueue.size() + batchQueue.size() >= queueCapacity) {
+                BusinessIsolationManager.CpuPool cpuPool = manager.getBusinessPool(pool);
+                if (cpuPool != null) {
+                    cpuPool.recordRejected();
+                }
+                throw new RejectedExecutionException(String.format(
+                    "Business pool '%s' is saturated: %d task(s) queued", pool, queueCapacity));
+            }
+            (priority == TaskPriority.LATENCY ? latencyQueue : batchQueue).add(new Task(command));
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public <T> Future<T> submit(TaskPriority priority, Callable<T> task) {
+        RunnableFuture<T> future = newTaskFor(task);
+        execute(priority, future);
+        return future;
+    }
+    
+    public Future<?> submit(TaskPriority priority, Runnable task) {
+        RunnableFuture<Void> future = newTaskFor(task, null);
+        execute(priority, future);
+        return future;
+    }
+    
+    private void runWorker() {
+        if (!manager.pinToBusiness(Thread.currentThread(), pool)) {
+            logger.warn("Pool executor could not pin worker {} to business '{}'", Thread.currentThread().getName(), pool);
+        }
+        try {
+            Task task;
+            while ((task = take()) != null) {
+                long start = cpuTimeSupported ? THREAD_MX.getCurrentThreadCpuTime() : System.nanoTime();
+                try {
+                    task.command.run();
+                } catch (Throwable e) {
+                    // Errors too: a worker that dies is never replaced and the pool would shrink
+                    logger.error("Task failed in pool executor for business '{}'", pool, e);
+                }
+                long used = (cpuTimeSupported ? THREAD_MX.getCurrentThreadCpuTime() : System.nanoTime()) - start;
+                BusinessIsolationManager.CpuPool cpuPool = manager.getBusinessPool(pool);
+                if (cpuPool != null) {
+                    cpuPool.recordCpuTime(used);
+                }
+            }
+        } catch (InterruptedException e) {
+            // shutdownNow
+        } finally {
+            terminated.countDown();
+        }
+    }
+    
+    /**
+     * Next task: latency work first, batch work once the pool's budget allows, null after shutdown
+     */
+    private Task take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                Task task = latencyQueue.poll();
+                if (task != null) {
+                    return task;
+                }
+                task = batchQueue.peek();
+                if (task != null) {
+                    BusinessIsolationManager.CpuPool cpuPool = manager.getBusinessPool(pool);
+                    CpuBudget budget = cpuPool != null ? cpuPool.getBudget() : null;
+                    long waitNanos = budget != null ? budget.nanosUntilAvailable() : 0;
+                    if (waitNanos <= 0) {
+                        return batchQueue.poll();
+                    }
+                    if (!task.throttled) {
+                        task.throttled = true;
+                        cpuPool.recordThrottled();
+                    }
+                    // A latency task arriving wakes the worker before the budget refills
+                    available.awaitNanos(waitNanos);
+                    continue;
+                }
+                if (shutdown) {
+                    return null;
+                }
+                available.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Tasks waiting in the queue of the given priority
+     */
+    public int getQueueDepth(TaskPriority priority) {
+        lock.lock();
+        try {
+            return (priority == TaskPriority.LATENCY ? latencyQueue : batchQueue).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public String getPool() {
+        return pool;
+    }
+    
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = new ArrayList<>();
+        lock.lock();
+        try {
+            shutdown = true;
+            latencyQueue.forEach(task -> pending.add(task.command));
+            batchQueue.forEach(task -> pending.add(task.command));
+            latencyQueue.clear();
+            batchQueue.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        workers.forEach(Thread::interrupt);
+        return pending;
+    }
+    
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+    
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+    
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+    
+    private static class Task {
+        final Runnable command;
+        // Counted once as throttled, however often its worker waits on the budget
+        boolean throttled;
+    
+        Task(Runnable command) {
+            this.command = command;
+        }
+    }
+}
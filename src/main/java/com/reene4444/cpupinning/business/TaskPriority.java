@@ -0,0 +1,15 @@
+package com.reene4444.cpupinning.business;
+
+/**
+ * Priority of a task submitted to a {@link PoolExecutor}
+ */
+public enum TaskPriority {
+    /**
+     * Served before batch work and never held back by the pool's CPU budget
+     */
+    LATENCY,
+    /**
+     * Runs when no latency task is waiting, delayed while the pool's CPU budget is exhausted
+     */
+    BATCH
+}
@@ -0,0 +1,183 @@
+package com.reene4444.cpupinning.chaos;
+
+import com.reene4444.cpupinning.core.CpuAffinity;
+import com.reene4444.cpupinning.core.CpuList;
+import com.reene4444.cpupinning.core.NumaTopology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures what pinning buys under interference: runs a workload three times, each for
+ * the same warm-up and measurement window, and reports throughput and latency per phase.
+ * <ol>
+ *   <li>{@link Phase#BASELINE}: pinned to the workload CPUs, no chaos</li>
+ *   <li>{@link Phase#CHAOS_PINNED}: pinned to the workload CPUs, stress on the other CPUs</li>
+ *   <li>{@link Phase#CHAOS_UNPINNED}: free to run on any effective CPU, same stress</li>
+ * </ol>
+ * Each worker thread invokes the workload back to back and times every invocation.
+ */
+public class ChaosExperiment {
+    private static final Logger logger = LoggerFactory.getLogger(ChaosExperiment.class);
+    
+    public enum Phase {
+        BASELINE, CHAOS_PINNED, CHAOS_UNPINNED
+    }
+    
+    private final ChaosIntegration chaos;
+    private final Set<Integer> workloadCpus;
+    private final Runnable workload;
+    private StressSpec stress;
+    private int threads;
+    private long warmupMs = 1000;
+    private long measureMs = 5000;
+    
+    /**
+     * @param workloadCpus CPUs the workload is pinned to in the pinned phases
+     * @param workload one operation, invoked repeatedly from several threads
+     */
+    public ChaosExperiment(ChaosIntegration chaos, Set<Integer> workloadCpus, Runnable workload) {
+        if (workloadCpus == null || workloadCpus.isEmpty()) {
+            throw new IllegalArgumentException("No workload CPUs");
+        }
+        this.chaos = chaos;
+        this.workloadCpus = Collections.unmodifiableSet(new TreeSet<>(workloadCpus));
+        this.workload = workload;
+        this.threads = workloadCpus.size();
+        this.stress = StressSpec.of(StressMode.CPU, defaultStressCpus(this.workloadCpus));
+    }
+    
+    /**
+     * Every effective CPU outside the workload's, or the workload's own if none is left
+     */
+    private static Set<Integer> defaultStressCpus(Set<Integer> workloadCpus) {
+        Set<Integer> cpus = NumaTopology.getInstance().getEffectiveCpus();
+        cpus.removeAll(workloadCpus);
+        if (cpus.isEmpty()) {
+            logger.warn("No CPUs outside {} to stress; chaos will share the workload's CPUs",
+                       CpuList.format(workloadCpus));
+            return workloadCpus;
+        }
+        return cpus;
+    }
+    
+    /**
+     * Stress applied in both chaos phases, by default CPU stress on every other CPU
+     */
+    public void setStress(StressSpec stress) {
+        this.stress = stress;
+    }
+    
+    /**
+     * Workload threads per phase, by default one per workload CPU
+     */
+    public void setThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.threads = threads;
+    }
+    
+    public void setWarmupMs(long warmupMs) {
+        this.warmupMs = Math.max(0, warmupMs);
+    }
+    
+    public void setMeasureMs(long measureMs) {
+        if (measureMs <= 0) {
+            throw new IllegalArgumentException("Measurement window must be positive: " + measureMs);
+        }
+        this.measureMs = measureMs;
+    }
+    
+    /**
+     * Run all three phases in order; chaos is stopped between and after them
+     */
+    public ExperimentReport run() throws InterruptedException {
+        Map<Phase, ExperimentReport.PhaseResult> results = new EnumMap<>(Phase.class);
+        Set<Integer> allCpus = NumaTopology.getInstance().getEffectiveCpus();
+        logger.info("Chaos experiment: {} thread(s) on {} against {}", threads, CpuList.format(workloadCpus), stress);
+        results.put(Phase.BASELINE, runPhase(Phase.BASELINE, workloadCpus));
+        for (Phase phase : new Phase[] {Phase.CHAOS_PINNED, Phase.CHAOS_UNPINNED}) {
+            ChaosRun run = chaos.startStress(stress, 0);
+            try {
+                results.put(phase, runPhase(phase, phase == Phase.CHAOS_PINNED ? workloadCpus : allCpus));
+            } finally {
+                run.stop();
+                run.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        }
+        ExperimentReport report = new ExperimentReport(workloadCpus, stress, threads, results);
+        logger.info("Chaos experiment finished:\n{}", report);
+        return report;
+    }
+    
+    private ExperimentReport.PhaseResult runPhase(Phase phase, Set<Integer> cpus) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(threads);
+        LatencyHistogram[] histograms = new LatencyHistogram[threads];
+        LongAdder errors = new LongAdder();
+        long measureStart = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(warmupMs);
+        long measureEnd = measureStart + TimeUnit.MILLISECONDS.toNanos(measureMs);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histograms[i] = histogram;
+            Thread worker = new Thread(() -> {
+                try {
+                    if (!CpuAffinity.pinThread(cpus)) {
+                        logger.warn("Experiment worker could not pin to CPUs {}", CpuList.format(cpus));
+                    }
+                    measure(histogram, errors, measureStart, measureEnd);
+                } finally {
+                    done.countDown();
+                }
+            }, "chaos-experiment-" + phase.name().toLowerCase() + "-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+        workers.forEach(Thread::start);
+        if (!done.await(warmupMs + measureMs + TimeUnit.MINUTES.toMillis(1), TimeUnit.MILLISECONDS)) {
+            // A hung workload invocation; report what completed in the window
+            logger.warn("Chaos experiment phase {} did not finish; interrupting its workers", phase);
+            workers.forEach(Thread::interrupt);
+        }
+    
+        // The latch orders the workers' records before these reads, except for hung workers
+        LatencyHistogram latency = new LatencyHistogram();
+        for (LatencyHistogram histogram : histograms) {
+            latency.add(histogram);
+        }
+        return new ExperimentReport.PhaseResult(phase, cpus, latency, errors.sum(), measureMs);
+    }
+    
+    private void measure(LatencyHistogram histogram, LongAdder errors, long measureStart, long measureEnd) {
+        long now = System.nanoTime();
+        while (now < measureEnd && !Thread.currentThread().isInterrupted()) {
+            boolean failed = false;
+            try {
+                workload.run();
+            } catch (RuntimeException e) {
+                failed = true;
+            }
+            long end = System.nanoTime();
+            // Only operations that complete inside the window count
+            if (now >= measureStart && end <= measureEnd) {
+                if (failed) {
+                    errors.increment();
+                } else {
+                    histogram.record(end - now);
+                }
+            }
+            now = end;
+        }
+    }
+}
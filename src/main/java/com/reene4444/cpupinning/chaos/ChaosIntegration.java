@@ -1,23 +1,38 @@
 package com.reene4444.cpupinning.chaos;
 
+import com.reene4444.cpupinning.business.BusinessIsolationManager;
 import com.reene4444.cpupinning.core.CpuAffinity;
+import com.reene4444.cpupinning.core.CpuList;
+import com.reene4444.cpupinning.core.NumaTopology;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Chaos Engineering Integration - integrates with ChaosBlade for CPU stress testing
- * and validates CPU pinning resilience under load
+ * Chaos Engineering Integration - injects noisy-neighbor stress on chosen CPUs
+ * and validates CPU pinning resilience under load.
+ * <p>
+ * Each {@link StressMode} reproduces a different kind of interference: plain CPU load,
+ * last-level cache eviction, memory bandwidth saturation on a NUMA node, contention
+ * from a hyperthread sibling, or lock contention. Stress runs on a duty cycle on a
+ * pooled set of workers that are reused across runs.
  */
 public class ChaosIntegration {
     private static final Logger logger = LoggerFactory.getLogger(ChaosIntegration.class);
+    private static final long RESILIENCE_CHECK_MS = 100;
     
     private final ScheduledExecutorService chaosScheduler;
-    private boolean chaosEnabled = false;
+    private final StressWorkerPool stressWorkers = new StressWorkerPool("chaos-stress-");
+    private final Set<ChaosRun> activeRuns = ConcurrentHashMap.newKeySet();
+    private volatile boolean shutdown;
     
     public ChaosIntegration() {
         this.chaosScheduler = Executors.newScheduledThreadPool(1);
@@ -27,70 +42,126 @@ public class ChaosIntegration {
      * Enable chaos testing - simulates CPU contention
      */
     public void enableCpuChaos(Set<Integer> targetCpus, int durationSeconds) {
-        if (chaosEnabled) {
+        if (isChaosEnabled()) {
             logger.warn("Chaos testing already enabled");
             return;
         }
-        
-        chaosEnabled = true;
-        logger.info("Starting CPU chaos test on CPUs {} for {} seconds", targetCpus, durationSeconds);
-        
-        // Create CPU stress threads on target CPUs
-        for (Integer cpu : targetCpus) {
-            Thread stressThread = new Thread(() -> {
-                CpuAffinity.pinThread(Set.of(cpu));
-                // CPU-intensive loop
-                long endTime = System.currentTimeMillis() + (durationSeconds * 1000L);
-                while (System.currentTimeMillis() < endTime && chaosEnabled) {
-                    // Burn CPU cycles
-                    Math.sqrt(Math.random() * 1000000);
+        startStress(StressSpec.of(StressMode.CPU, targetCpus), durationSeconds);
+    }
+    
+    /**
+     * Start stress as described by the spec; several runs may be active at once
+     * @param durationSeconds seconds until the run stops itself, or 0 to run until stopped
+     */
+    public ChaosRun startStress(StressSpec spec, int durationSeconds) {
+        if (shutdown) {
+            throw new IllegalStateException("Chaos integration is shut down");
+        }
+        List<Integer> workerCpus = workerCpus(spec);
+        ChaosRun run = new ChaosRun(spec, workerCpus, Stressor.create(spec, workerCpus.size()), durationSeconds,
+                                    activeRuns::remove);
+        activeRuns.add(run);
+        logger.info("Starting chaos stress {} {}", spec,
+                   durationSeconds > 0 ? "for " + durationSeconds + " seconds" : "until stopped");
+        run.start(stressWorkers);
+        if (durationSeconds > 0) {
+            chaosScheduler.schedule(run::stop, durationSeconds, TimeUnit.SECONDS);
+        }
+        return run;
+    }
+    
+    /**
+     * One worker per target CPU; SMT stress moves to the siblings outside the target set
+     * and lock contention doubles up so waiters and holders share each CPU
+     */
+    private static List<Integer> workerCpus(StressSpec spec) {
+        List<Integer> cpus = new ArrayList<>();
+        switch (spec.getMode()) {
+            case SMT_SIBLING:
+                NumaTopology topology = NumaTopology.getInstance();
+                Set<Integer> siblings = new TreeSet<>();
+                for (Integer cpu : spec.getCpus()) {
+                    siblings.addAll(topology.getSmtSiblings(cpu));
                 }
-            }, "chaos-stress-" + cpu);
-            stressThread.setDaemon(true);
-            stressThread.start();
+                siblings.removeAll(spec.getCpus());
+                if (siblings.isEmpty()) {
+                    logger.warn("CPUs {} have no SMT siblings; stressing the CPUs themselves",
+                               CpuList.format(spec.getCpus()));
+                    siblings.addAll(spec.getCpus());
+                }
+                cpus.addAll(siblings);
+                break;
+            case LOCK_CONTENTION:
+                cpus.addAll(spec.getCpus());
+                cpus.addAll(spec.getCpus());
+                break;
+            default:
+                cpus.addAll(spec.getCpus());
         }
-        
-        // Auto-disable after duration
-        chaosScheduler.schedule(() -> {
-            disableCpuChaos();
-        }, durationSeconds, TimeUnit.SECONDS);
+        return cpus;
     }
     
     /**
-     * Disable chaos testing
+     * Disable chaos testing - stops every active stress run
      */
     public void disableCpuChaos() {
-        chaosEnabled = false;
-        logger.info("CPU chaos testing disabled");
+        for (ChaosRun run : new ArrayList<>(activeRuns)) {
+            run.stop();
+        }
+        logger.info("Chaos testing disabled");
     }
     
     /**
      * Check if chaos testing is active
      */
     public boolean isChaosEnabled() {
-        return chaosEnabled;
+        return !activeRuns.isEmpty();
+    }
+    
+    public List<ChaosRun> getActiveRuns() {
+        return new ArrayList<>(activeRuns);
+    }
+    
+    /**
+     * Stress worker threads this instance keeps, idle or running
+     */
+    public int getStressWorkerCount() {
+        return stressWorkers.getWorkerCount();
     }
     
     /**
-     * Validate CPU pinning resilience - ensures threads stay pinned under chaos
+     * Validate CPU pinning resilience - stresses the expected CPUs and checks the target
+     * thread's kernel affinity every {@value #RESILIENCE_CHECK_MS} ms until the test ends.
+     * The thread must be the caller or pinned through a business pool, so its kernel
+     * thread ID is known.
      */
     public boolean validatePinningResilience(Thread thread, Set<Integer> expectedCpus, int testDurationSeconds) {
+        int nativeTid = thread == Thread.currentThread() ? CpuAffinity.getCurrentThreadNativeId()
+                                                          : BusinessIsolationManager.getInstance().getNativeTid(thread);
+        if (nativeTid <= 0) {
+            logger.warn("Cannot validate pinning of thread {}: its kernel thread ID is unknown", thread.getName());
+            return false;
+        }
         logger.info("Validating pinning resilience for thread {} under chaos", thread.getName());
-        
+    
         enableCpuChaos(expectedCpus, testDurationSeconds);
-        
+    
         try {
-            Thread.sleep(testDurationSeconds * 1000L);
-            
-            Set<Integer> actualCpus = CpuAffinity.getThreadAffinity();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(testDurationSeconds);
+            Set<Integer> actualCpus = CpuAffinity.getThreadAffinity(nativeTid);
+            while (actualCpus.equals(expectedCpus) && System.nanoTime() < deadline) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                Thread.sleep(Math.max(1, Math.min(RESILIENCE_CHECK_MS, remainingMs)));
+                actualCpus = CpuAffinity.getThreadAffinity(nativeTid);
+            }
             boolean resilient = actualCpus.equals(expectedCpus);
-            
+    
             if (resilient) {
                 logger.info("Pinning resilience validated: thread stayed on CPUs {}", actualCpus);
             } else {
                 logger.warn("Pinning resilience failed: expected {}, actual {}", expectedCpus, actualCpus);
             }
-            
+    
             return resilient;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -100,9 +171,25 @@ public class ChaosIntegration {
         }
     }
     
+    /**
+     * Measure the workload's throughput and latency without chaos, then under chaos pinned
+     * to the workload CPUs, then under chaos unpinned
+     * @param measureSeconds measurement window of each phase, after a one-second warm-up
+     */
+    public ExperimentReport runExperiment(Runnable workload, Set<Integer> workloadCpus, StressSpec stress,
+                                          int measureSeconds) throws InterruptedException {
+        ChaosExperiment experiment = new ChaosExperiment(this, workloadCpus, workload);
+        if (stress != null) {
+            experiment.setStress(stress);
+        }
+        experiment.setMeasureMs(TimeUnit.SECONDS.toMillis(measureSeconds));
+        return experiment.run();
+    }
+    
     public void shutdown() {
+        shutdown = true;
         disableCpuChaos();
         chaosScheduler.shutdown();
+        stressWorkers.shutdown();
     }
 }
-
@@ -0,0 +1,147 @@
+package com.reene4444.cpupinning.chaos;
+
+import com.reene4444.cpupinning.core.CpuAffinity;
+import com.reene4444.cpupinning.core.CpuList;
+import com.reene4444.cpupinning.jfr.ChaosInjectedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * One active stress injection: a worker per target CPU (two for lock contention) running
+ * a {@link Stressor} on a duty cycle until stopped. Workers run on the owning
+ * {@link ChaosIntegration}'s pool and restore their affinity when the run ends.
+ */
+public final class ChaosRun {
+    private static final Logger logger = LoggerFactory.getLogger(ChaosRun.class);
+    
+    private final StressSpec spec;
+    private final List<Integer> workerCpus;
+    private final Stressor stressor;
+    private final Consumer<ChaosRun> onStopped;
+    private final ChaosInjectedEvent event = new ChaosInjectedEvent();
+    private final AtomicInteger running;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final LongAdder stressedNanos = new LongAdder();
+    private volatile boolean stopped;
+    
+    ChaosRun(StressSpec spec, List<Integer> workerCpus, Stressor stressor, int durationSeconds,
+             Consumer<ChaosRun> onStopped) {
+        this.spec = spec;
+        this.workerCpus = List.copyOf(workerCpus);
+        this.stressor = stressor;
+        this.onStopped = onStopped;
+        this.running = new AtomicInteger(workerCpus.size());
+        event.cpus = CpuList.format(Set.copyOf(workerCpus));
+        event.mode = spec.getMode().name();
+        event.intensity = spec.getIntensity();
+        event.plannedDurationSeconds = durationSeconds;
+    }
+    
+    void start(StressWorkerPool pool) {
+        event.begin();
+        for (int worker = 0; worker < workerCpus.size(); worker++) {
+            int index = worker;
+            pool.execute(() -> runWorker(index, workerCpus.get(index)), this::workerReturned);
+        }
+    }
+    
+    private void runWorker(int worker, int cpu) {
+        Set<Integer> previous = CpuAffinity.getThreadAffinity();
+        try {
+            if (!CpuAffinity.pinThread(Set.of(cpu))) {
+                logger.warn("Chaos worker for {} could not pin to CPU {}", spec.getMode(), cpu);
+            }
+            long periodNanos = TimeUnit.MILLISECONDS.toNanos(spec.getPeriodMs());
+            long busyNanos = (long) (periodNanos * spec.getIntensity());
+            while (!stopped && !Thread.currentThread().isInterrupted()) {
+                long start = System.nanoTime();
+                stressor.burn(worker, start + busyNanos);
+                long now = System.nanoTime();
+                stressedNanos.add(now - start);
+                long idleNanos = start + periodNanos - now;
+                if (idleNanos > 0 && !stopped) {
+                    LockSupport.parkNanos(idleNanos);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Chaos worker for {} on CPU {} failed", spec.getMode(), cpu, e);
+        } finally {
+            if (!previous.isEmpty()) {
+                // Pool threads are reused by later runs
+                CpuAffinity.pinThread(previous);
+            }
+        }
+    }
+    
+    /**
+     * Called by each worker once it is back in the pool
+     */
+    private void workerReturned() {
+        if (running.decrementAndGet() == 0) {
+            stressor.close();
+            finished.countDown();
+        }
+    }
+    
+    /**
+     * Stop the workers; they finish their current stress slice and return to the pool
+     * @return false if the run was already stopped
+     */
+    public boolean stop() {
+        synchronized (this) {
+            if (stopped) {
+                return false;
+            }
+            stopped = true;
+        }
+        // Spans the injection window in the recording
+        event.commit();
+        onStopped.accept(this);
+        logger.info("Chaos stress stopped: {}", spec);
+        return true;
+    }
+    
+    /**
+     * Wait until every worker has left its stress loop and is back in the pool, and the
+     * run's buffers are released
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+    
+    public boolean isRunning() {
+        return !stopped;
+    }
+    
+    public StressSpec getSpec() {
+        return spec;
+    }
+    
+    /**
+     * CPU of each worker; SMT stress runs on the siblings of the target CPUs
+     */
+    public List<Integer> getWorkerCpus() {
+        return workerCpus;
+    }
+    
+    /**
+     * Time all workers together have spent in stress slices, excluding duty-cycle sleeps
+     */
+    public long getStressedNanos() {
+        return stressedNanos.sum();
+    }
+    
+    @Override
+    public String toString() {
+        return spec + (stopped ? " (stopped)" : "");
+    }
+}
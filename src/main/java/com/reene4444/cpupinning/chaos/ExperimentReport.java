@@ -0,0 +1,233 @@
+package com.reene4444.cpupinning.chaos;
+
+import com.reene4444.cpupinning.core.CpuList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Result of a {@link ChaosExperiment}: throughput and latency per phase and how much
+ * each chaos phase degraded them relative to the baseline
+ */
+public final class ExperimentReport {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    
+    private final Set<Integer> workloadCpus;
+    private final StressSpec stress;
+    private final int threads;
+    private final Map<ChaosExperiment.Phase, PhaseResult> phases;
+    
+    ExperimentReport(Set<Integer> workloadCpus, StressSpec stress, int threads,
+                     Map<ChaosExperiment.Phase, PhaseResult> phases) {
+        this.workloadCpus = workloadCpus;
+        this.stress = stress;
+        this.threads = threads;
+        this.phases = Collections.unmodifiableMap(phases);
+    }
+    
+    public PhaseResult getPhase(ChaosExperiment.Phase phase) {
+        return phases.get(phase);
+    }
+    
+    /**
+     * Latency at a percentile in a phase relative to the baseline, e.g. 1.5 when it is
+     * 50% higher
+     * @return the ratio, or NaN if the baseline recorded nothing
+     */
+    public double getLatencyInflation(ChaosExperiment.Phase phase, double percentile) {
+        long baseline = phases.get(ChaosExperiment.Phase.BASELINE).getLatency().getPercentileNanos(percentile);
+        return baseline > 0 ? (double) phases.get(phase).getLatency().getPercentileNanos(percentile) / baseline
+                            : Double.NaN;
+    }
+    
+    /**
+     * Throughput of a phase relative to the baseline
+     * @return the ratio, or NaN if the baseline completed nothing
+     */
+    public double getThroughputRatio(ChaosExperiment.Phase phase) {
+        double baseline = phases.get(ChaosExperiment.Phase.BASELINE).getThroughput();
+        return baseline > 0 ? phases.get(phase).getThroughput() / baseline : Double.NaN;
+    }
+    
+    /**
+     * The report as nested maps and lists suitable for JSON rendering
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("workloadCpus", CpuList.format(workloadCpus));
+        report.put("threads", threads);
+        Map<String, Object> stressMap = new LinkedHashMap<>();
+        stressMap.put("mode", stress.getMode().name());
+        stressMap.put("cpus", CpuList.format(stress.getCpus()));
+        stressMap.put("intensity", stress.getIntensity());
+        report.put("stress", stressMap);
+        List<Map<String, Object>> phaseList = new ArrayList<>();
+        for (PhaseResult result : phases.values()) {
+            Map<String, Object> phase = new LinkedHashMap<>();
+            phase.put("phase", result.getPhase().name());
+            phase.put("cpus", CpuList.format(result.getCpus()));
+            phase.put("operations", result.getOperations());
+            phase.put("errors", result.getErrors());
+            phase.put("throughputPerSecond", result.getThroughput());
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("meanNanos", result.getLatency().getMeanNanos());
+            for (double percentile : PERCENTILES) {
+                latency.put("p" + percentileLabel(percentile) + "Nanos",
+                            result.getLatency().getPercentileNanos(percentile));
+            }
+            latency.put("maxNanos", result.getLatency().getMaxNanos());
+            phase.put("latency", latency);
+            if (result.getPhase() != ChaosExperiment.Phase.BASELINE) {
+                phase.put("throughputVsBaseline", getThroughputRatio(result.getPhase()));
+                phase.put("p99VsBaseline", getLatencyInflation(result.getPhase(), 99));
+            }
+            phaseList.add(phase);
+        }
+        report.put("phases", phaseList);
+        return report;
+    }
+    
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        appendJson(json, toMap());
+        return json.toString();
+    }
+    
+    private static void appendJson(StringBuilder json, Object value) {
+        if (value instanceof Map) {
+            json.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                appendJson(json, entry.getKey().toString());
+                json.append(':');
+                appendJson(json, entry.getValue());
+            }
+            json.append('}');
+        } else if (value instanceof List) {
+            json.append('[');
+            boolean first = true;
+            for (Object element : (List<?>) value) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                appendJson(json, element);
+            }
+            json.append(']');
+        } else if (value instanceof Double) {
+            double number = (Double) value;
+            json.append(Double.isFinite(number) ? String.format(Locale.ROOT, "%.4f", number) : "null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else if (value == null) {
+            json.append("null");
+        } else {
+            json.append('"');
+            for (char c : value.toString().toCharArray()) {
+                if (c == '"' || c == '\\') {
+                    json.append('\\').append(c);
+                } else if (c < 0x20) {
+                    json.append(String.format("\\u%04x", (int) c));
+                } else {
+                    json.append(c);
+                }
+            }
+            json.append('"');
+        }
+    }
+    
+    private static String percentileLabel(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile)
+                                                   : String.valueOf(percentile).replace(".", "");
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("workload on %s with %d thread(s), chaos %s%n", CpuList.format(workloadCpus),
+                                  threads, stress));
+        text.append(String.format("%-15s %12s %10s %10s %10s %10s %8s%n", "phase", "ops/s", "p50 us", "p99 us",
+                                  "p99.9 us", "max us", "errors"));
+        for (PhaseResult result : phases.values()) {
+            LatencyHistogram latency = result.getLatency();
+            text.append(String.format(Locale.ROOT, "%-15s %12.0f %10.1f %10.1f %10.1f %10.1f %8d%n",
+                                      result.getPhase(), result.getThroughput(),
+                                      latency.getPercentileNanos(50) / 1000.0, latency.getPercentileNanos(99) / 1000.0,
+                                      latency.getPercentileNanos(99.9) / 1000.0, latency.getMaxNanos() / 1000.0,
+                                      result.getErrors()));
+        }
+        for (PhaseResult result : phases.values()) {
+            if (result.getPhase() != ChaosExperiment.Phase.BASELINE) {
+                text.append(String.format(Locale.ROOT, "%s vs baseline: throughput x%.2f, p99 x%.2f%n",
+                                          result.getPhase(), getThroughputRatio(result.getPhase()),
+                                          getLatencyInflation(result.getPhase(), 99)));
+            }
+        }
+        return text.toString();
+    }
+    
+    /**
+     * Measurements of one phase
+     */
+    public static final class PhaseResult {
+        private final ChaosExperiment.Phase phase;
+        private final Set<Integer> cpus;
+        private final LatencyHistogram latency;
+        private final long errors;
+        private final long measureMs;
+    
+        PhaseResult(ChaosExperiment.Phase phase, Set<Integer> cpus, LatencyHistogram latency, long errors,
+                    long measureMs) {
+            this.phase = phase;
+            this.cpus = cpus;
+            this.latency = latency;
+            this.errors = errors;
+            this.measureMs = measureMs;
+        }
+    
+        public ChaosExperiment.Phase getPhase() {
+            return phase;
+        }
+    
+        /**
+         * CPUs the workload threads were allowed to run on
+         */
+        public Set<Integer> getCpus() {
+            return cpus;
+        }
+    
+        /**
+         * Latency of the operations that completed inside the measurement window
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+    
+        public long getOperations() {
+            return latency.getCount();
+        }
+    
+        /**
+         * Invocations that threw, not included in the latency histogram
+         */
+        public long getErrors() {
+            return errors;
+        }
+    
+        /**
+         * Successful operations per second
+         */
+        public double getThroughput() {
+            return latency.getCount() * 1000.0 / measureMs;
+        }
+    }
+}
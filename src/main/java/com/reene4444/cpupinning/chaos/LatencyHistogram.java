@@ -0,0 +1,101 @@
+package com.reene4444.cpupinning.chaos;
+
+/**
+ * Log-linear latency histogram in nanoseconds: exact below 32 ns, then 16 buckets per
+ * power of two, so any recorded value is reported within about 6%. Not thread-safe;
+ * record on one thread and {@link #add} histograms together afterwards.
+ */
+public final class LatencyHistogram {
+    private static final int LINEAR = 32;
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = LINEAR + (63 - 5) * SUB_BUCKETS;
+    
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long total;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[index(value)]++;
+        count++;
+        total += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+    
+    /**
+     * Add another histogram's values to this one
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+    
+    private static int index(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int top = (int) (value >>> (exponent - SUB_BUCKET_BITS));
+        return LINEAR + (exponent - 5) * SUB_BUCKETS + top - SUB_BUCKETS;
+    }
+    
+    /**
+     * Highest value that falls in a bucket
+     */
+    private static long upperBound(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int exponent = (index - LINEAR) / SUB_BUCKETS + 5;
+        long top = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+    
+    /**
+     * @return mean latency, or 0 if nothing was recorded
+     */
+    public double getMeanNanos() {
+        return count > 0 ? (double) total / count : 0;
+    }
+    
+    public long getMinNanos() {
+        return count > 0 ? min : 0;
+    }
+    
+    public long getMaxNanos() {
+        return max;
+    }
+    
+    /**
+     * Latency at or below which the given percentage of values fall
+     * @param percentile 0 to 100
+     * @return the bucket's upper bound capped at the maximum, or 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+}
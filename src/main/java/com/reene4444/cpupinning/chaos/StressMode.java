@@ -0,0 +1,35 @@
+package com.reene4444.cpupinning.chaos;
+
+/**
+ * Kind of noisy neighbor a chaos run simulates
+ */
+public enum StressMode {
+    /**
+     * Integer and floating-point arithmetic in registers; competes for CPU time only
+     */
+    CPU,
+    
+    /**
+     * Writes through a buffer twice the size of the last-level cache, evicting the
+     * working set of every thread sharing that cache
+     */
+    CACHE_THRASH,
+    
+    /**
+     * Streams reads and writes through a large buffer bound to one NUMA node,
+     * saturating that node's memory bandwidth
+     */
+    MEMORY_BANDWIDTH,
+    
+    /**
+     * Runs on the hyperthread siblings of the target CPUs, competing for the execution
+     * units and L1/L2 caches of their physical cores
+     */
+    SMT_SIBLING,
+    
+    /**
+     * Two workers per CPU fighting over one lock, causing futex waits, wakeups and
+     * context switches on the target CPUs
+     */
+    LOCK_CONTENTION
+}
@@ -0,0 +1,136 @@
+package com.reene4444.cpupinning.chaos;
+
+import com.reene4444.cpupinning.core.CpuList;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * What to stress, where, and how hard: a {@link StressMode}, the target CPUs and a duty
+ * cycle. At intensity 0.5 with the default 100 ms period each worker stresses for 50 ms
+ * and sleeps for 50 ms.
+ */
+public final class StressSpec {
+    private final StressMode mode;
+    private final Set<Integer> cpus;
+    private final double intensity;
+    private final int periodMs;
+    // -1 for the node of the first target CPU
+    private final int numaNode;
+    // 0 to size the buffer from the last-level cache
+    private final int bufferBytes;
+    
+    private StressSpec(StressMode mode, Set<Integer> cpus, double intensity, int periodMs, int numaNode,
+                       int bufferBytes) {
+        this.mode = mode;
+        this.cpus = cpus;
+        this.intensity = intensity;
+        this.periodMs = periodMs;
+        this.numaNode = numaNode;
+        this.bufferBytes = bufferBytes;
+    }
+    
+    /**
+     * Full-intensity stress of the given mode on the target CPUs
+     */
+    public static StressSpec of(StressMode mode, Set<Integer> cpus) {
+        Objects.requireNonNull(mode, "mode");
+        if (cpus == null || cpus.isEmpty()) {
+            throw new IllegalArgumentException("No target CPUs for " + mode + " stress");
+        }
+        return new StressSpec(mode, Collections.unmodifiableSet(new TreeSet<>(cpus)), 1.0, 100, -1, 0);
+    }
+    
+    /**
+     * @param intensity fraction of each period spent stressing, in (0, 1]
+     */
+    public StressSpec withIntensity(double intensity) {
+        if (!(intensity > 0 && intensity <= 1)) {
+            throw new IllegalArgumentException("Intensity must be in (0, 1]: " + intensity);
+        }
+        return new StressSpec(mode, cpus, intensity, periodMs, numaNode, bufferBytes);
+    }
+    
+    /**
+     * Length of one stress-then-sleep cycle
+     */
+    public StressSpec withPeriodMs(int periodMs) {
+        if (periodMs <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + periodMs);
+        }
+        return new StressSpec(mode, cpus, intensity, periodMs, numaNode, bufferBytes);
+    }
+    
+    /**
+     * Node whose memory {@link StressMode#MEMORY_BANDWIDTH} saturates; the target CPUs may
+     * be on another node to load the interconnect as well
+     */
+    public StressSpec withNumaNode(int numaNode) {
+        return new StressSpec(mode, cpus, intensity, periodMs, numaNode, bufferBytes);
+    }
+    
+    /**
+     * Buffer size for {@link StressMode#CACHE_THRASH} and {@link StressMode#MEMORY_BANDWIDTH}
+     */
+    public StressSpec withBufferBytes(int bufferBytes) {
+        if (bufferBytes <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferBytes);
+        }
+        return new StressSpec(mode, cpus, intensity, periodMs, numaNode, bufferBytes);
+    }
+    
+    public StressMode getMode() {
+        return mode;
+    }
+    
+    public Set<Integer> getCpus() {
+        return cpus;
+    }
+    
+    public double getIntensity() {
+        return intensity;
+    }
+    
+    public int getPeriodMs() {
+        return periodMs;
+    }
+    
+    /**
+     * @return the configured node, or -1 for the node of the first target CPU
+     */
+    public int getNumaNode() {
+        return numaNode;
+    }
+    
+    /**
+     * @return the configured buffer size, or 0 to size it from the last-level cache
+     */
+    public int getBufferBytes() {
+        return bufferBytes;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StressSpec)) {
+            return false;
+        }
+        StressSpec other = (StressSpec) o;
+        return mode == other.mode && cpus.equals(other.cpus) && intensity == other.intensity
+            && periodMs == other.periodMs && numaNode == other.numaNode && bufferBytes == other.bufferBytes;
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(mode, cpus, intensity, periodMs, numaNode, bufferBytes);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s on %s at %.0f%% of %d ms", mode, CpuList.format(cpus), intensity * 100, periodMs);
+    }
+}
@@ -0,0 +1,124 @@
+package com.reene4444.cpupinning.chaos;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stress worker threads kept across chaos runs. A worker is back on the idle list before
+ * the run it served hears that it finished, so a run started after
+ * {@link ChaosRun#awaitTermination} always reuses it instead of starting a thread of its own.
+ */
+final class StressWorkerPool {
+    private static final Logger logger = LoggerFactory.getLogger(StressWorkerPool.class);
+    private static final long KEEP_ALIVE_NANOS = TimeUnit.SECONDS.toNanos(60);
+    
+    private final String namePrefix;
+    private final AtomicInteger workerCount = new AtomicInteger();
+    // Guarded by this
+    private final Deque<Worker> idle = new ArrayDeque<>();
+    private final Set<Worker> workers = ConcurrentHashMap.newKeySet();
+    private boolean shutdown;
+    
+    StressWorkerPool(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+    
+    /**
+     * Run a task on an idle worker, or on a new one if none is idle
+     * @param onReturned called on the worker once it is idle again
+     * @throws RejectedExecutionException after {@link #shutdown}
+     */
+    void execute(Runnable task, Runnable onReturned) {
+        synchronized (this) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Chaos stress workers are shut down");
+            }
+            Worker worker = idle.pollFirst();
+            if (worker == null) {
+                worker = new Worker(namePrefix + workerCount.incrementAndGet());
+                workers.add(worker);
+                worker.start();
+            }
+            worker.task = task;
+            worker.onReturned = onReturned;
+            notifyAll();
+        }
+    }
+    
+    /**
+     * Workers alive, idle or running a task
+     */
+    int getWorkerCount() {
+        return workers.size();
+    }
+    
+    /**
+     * Let idle workers exit; busy ones exit when their task ends
+     */
+    synchronized void shutdown() {
+        shutdown = true;
+        notifyAll();
+    }
+    
+    private final class Worker extends Thread {
+        // Guarded by the pool
+        Runnable task;
+        Runnable onReturned;
+    
+        Worker(String name) {
+            super(name);
+            setDaemon(true);
+        }
+    
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Runnable next;
+                    Runnable returned;
+                    synchronized (StressWorkerPool.this) {
+                        long deadline = System.nanoTime() + KEEP_ALIVE_NANOS;
+                        long remaining = KEEP_ALIVE_NANOS;
+                        while (task == null && !shutdown && remaining > 0) {
+                            TimeUnit.NANOSECONDS.timedWait(StressWorkerPool.this, remaining);
+                            remaining = deadline - System.nanoTime();
+                        }
+                        if (task == null) {
+                            idle.remove(this);
+                            return;
+                        }
+                        next = task;
+                        returned = onReturned;
+                        task = null;
+                        onReturned = null;
+                    }
+                    try {
+                        next.run();
+                    } catch (Throwable e) {
+                        logger.error("Chaos stress task failed on {}", getName(), e);
+                    }
+                    synchronized (StressWorkerPool.this) {
+                        if (!shutdown) {
+                            idle.addFirst(this);
+                        }
+                    }
+                    returned.run();
+                }
+            } catch (InterruptedException e) {
+                synchronized (StressWorkerPool.this) {
+                    idle.remove(this);
+                }
+            } finally {
+                workers.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.reene4444.cpupinning.chaos;
+
+import com.reene4444.cpupinning.core.NumaTopology;
+import com.reene4444.cpupinning.numa.MemoryPolicy;
+import com.reene4444.cpupinning.numa.NumaAllocator;
+import com.reene4444.cpupinning.numa.NumaBuffer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Stress loop of one {@link StressMode}, holding the buffers or lock shared by a run's
+ * workers. Loops keep their state in locals so workers never contend on shared
+ * generators; results go to {@link #sink} so the JIT cannot drop the work.
+ */
+abstract class Stressor implements AutoCloseable {
+    private static final int CACHE_LINE = 64;
+    private static final int DEFAULT_BUFFER_BYTES = 64 * 1024 * 1024;
+    private static final int MAX_BUFFER_BYTES = 1024 * 1024 * 1024;
+    // Iterations between clock checks, well under a millisecond of work for every loop
+    private static final int CHUNK = 4096;
+    
+    volatile long sink;
+    
+    static Stressor create(StressSpec spec, int workers) {
+        switch (spec.getMode()) {
+            case CACHE_THRASH:
+                return new CacheThrash(allocate(spec, 2));
+            case MEMORY_BANDWIDTH:
+                return new Bandwidth(allocate(spec, 4), workers);
+            case SMT_SIBLING:
+                return new CoreContention();
+            case LOCK_CONTENTION:
+                return new LockContention();
+            default:
+                return new Arithmetic();
+        }
+    }
+    
+    /**
+     * Buffer of the configured size, or {@code llcMultiple} times the last-level cache, on
+     * the configured node or the node of the first target CPU
+     */
+    private static NumaBuffer allocate(StressSpec spec, int llcMultiple) {
+        NumaTopology topology = NumaTopology.getInstance();
+        int bytes = spec.getBufferBytes();
+        if (bytes == 0) {
+            long llc = topology.getL3CacheBytes();
+            bytes = llc > 0 ? (int) Math.min(MAX_BUFFER_BYTES, llc * llcMultiple) : DEFAULT_BUFFER_BYTES;
+        }
+        int node = spec.getNumaNode() >= 0 ? spec.getNumaNode()
+                                           : topology.getNumaNode(spec.getCpus().iterator().next());
+        return NumaAllocator.getInstance().allocate(bytes, node, MemoryPolicy.BIND);
+    }
+    
+    /**
+     * Stress until the deadline
+     * @param worker index of the calling worker within the run
+     */
+    abstract void burn(int worker, long untilNanos);
+    
+    @Override
+    public void close() {
+    }
+    
+    private static class Arithmetic extends Stressor {
+        @Override
+        void burn(int worker, long untilNanos) {
+            long x = 0x9E3779B97F4A7C15L + worker;
+            double d = 1.0;
+            do {
+                for (int i = 0; i < CHUNK; i++) {
+                    x ^= x << 13;
+                    x ^= x >>> 7;
+                    x ^= x << 17;
+                    d = Math.sqrt(d + (x & 0xFFFF));
+                }
+            } while (System.nanoTime() < untilNanos);
+            sink = x + (long) d;
+        }
+    }
+    
+    /**
+     * Multiplies, divides and L1/L2-resident loads and stores, which share a physical core's
+     * ports and private caches with its sibling
+     */
+    private static class CoreContention extends Stressor {
+        // Fits in L2 but not L1
+        private static final int TABLE_LONGS = 32 * 1024;
+    
+        @Override
+        void burn(int worker, long untilNanos) {
+            long[] table = new long[TABLE_LONGS];
+            long x = 0x9E3779B97F4A7C15L + worker;
+            double d = 1.0;
+            do {
+                for (int i = 0; i < CHUNK; i++) {
+                    x ^= x << 13;
+                    x ^= x >>> 7;
+                    x ^= x << 17;
+                    int slot = (int) (x & (TABLE_LONGS - 1));
+                    table[slot] += x * 0x2545F4914F6CDD1DL;
+                    d = d * 1.0000001 + table[(slot + 64) & (TABLE_LONGS - 1)] / (double) (x | 1);
+                }
+            } while (System.nanoTime() < untilNanos);
+            sink = x + (long) d + table[0];
+        }
+    }
+    
+    /**
+     * Dirties every cache line of a buffer larger than the LLC in a prefetcher-hostile order
+     */
+    private static class CacheThrash extends Stressor {
+        // Prime stride in cache lines, so the walk visits every line before repeating
+        private static final int STRIDE = 4099;
+    
+        private final NumaBuffer buffer;
+    
+        CacheThrash(NumaBuffer buffer) {
+            this.buffer = buffer;
+        }
+    
+        @Override
+        void burn(int worker, long untilNanos) {
+            ByteBuffer bytes = buffer.getBuffer().duplicate().order(ByteOrder.nativeOrder());
+            int lines = bytes.capacity() / CACHE_LINE;
+            int stride = lines > STRIDE ? STRIDE : 1;
+            int line = (int) ((long) worker * lines / 7 % Math.max(1, lines));
+            long sum = 0;
+            do {
+                for (int i = 0; i < CHUNK; i++) {
+                    line += stride;
+                    if (line >= lines) {
+                        line -= lines;
+                    }
+                    int offset = line * CACHE_LINE;
+                    long value = bytes.getLong(offset) + 1;
+                    bytes.putLong(offset, value);
+                    sum += value;
+                }
+            } while (System.nanoTime() < untilNanos);
+            sink = sum;
+        }
+    
+        @Override
+        public void close() {
+            buffer.close();
+        }
+    }
+    
+    /**
+     * Sequential read-modify-write of each worker's own slice, which the prefetcher turns
+     * into full-speed memory traffic
+     */
+    private static class Bandwidth extends Stressor {
+        private final NumaBuffer buffer;
+        private final int sliceBytes;
+    
+        Bandwidth(NumaBuffer buffer, int workers) {
+            this.buffer = buffer;
+            this.sliceBytes = buffer.getCapacity() / Math.max(1, workers) / CACHE_LINE * CACHE_LINE;
+        }
+    
+        @Override
+        void burn(int worker, long untilNanos) {
+            ByteBuffer bytes = buffer.getBuffer().duplicate().order(ByteOrder.nativeOrder());
+            int start = worker * sliceBytes;
+            int end = start + Math.max(CACHE_LINE, sliceBytes);
+            int offset = start;
+            long sum = 0;
+            do {
+                for (int i = 0; i < CHUNK; i++) {
+                    long value = bytes.getLong(offset) + 1;
+                    bytes.putLong(offset, value);
+                    sum += value;
+                    offset += CACHE_LINE;
+                    if (offset + Long.BYTES > end) {
+                        offset = start;
+                    }
+                }
+            } while (System.nanoTime() < untilNanos);
+            sink = sum;
+        }
+    
+        @Override
+        public void close() {
+            buffer.close();
+        }
+    }
+    
+    /**
+     * Short critical sections on one monitor, so waiting workers inflate it and park
+     */
+    private static class LockContention extends Stressor {
+        private final Object lock = new Object();
+        private final long[] shared = new long[8];
+    
+        @Override
+        void burn(int worker, long untilNanos) {
+            long local = worker;
+            do {
+                for (int i = 0; i < CHUNK / 64; i++) {
+                    synchronized (lock) {
+                        for (int j = 0; j < 64; j++) {
+                            shared[j & 7] += j + local;
+                        }
+                    }
+                    for (int j = 0; j < 16; j++) {
+                        local = local * 31 + j;
+                    }
+                }
+            } while (System.nanoTime() < untilNanos);
+            sink = local;
+        }
+    }
+}
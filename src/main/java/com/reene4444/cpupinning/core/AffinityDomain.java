@@ -0,0 +1,50 @@
+package com.reene4444.cpupinning.core;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Names the executor or domain the current task belongs to, so execution samples
+ * from short-lived (typically virtual) threads aggregate under a stable key instead
+ * of under a thread that is never seen again.
+ */
+public final class AffinityDomain {
+    private static final ThreadLocal<String> current = new ThreadLocal<>();
+    
+    private AffinityDomain() {
+    }
+    
+    /**
+     * Domain of the running task, or null outside any domain
+     */
+    public static String current() {
+        return current.get();
+    }
+    
+    public static void run(String domain, Runnable task) {
+        String previous = current.get();
+        current.set(domain);
+        try {
+            task.run();
+        } finally {
+            restore(previous);
+        }
+    }
+    
+    public static <T> T call(String domain, Callable<T> task) throws Exception {
+        String previous = current.get();
+        current.set(domain);
+        try {
+            return task.call();
+        } finally {
+            restore(previous);
+        }
+    }
+    
+    private static void restore(String previous) {
+        if (previous != null) {
+            current.set(previous);
+        } else {
+            current.remove();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.reene4444.cpupinning.core;
+
+import com.reene4444.cpupinning.jfr.PoolResizedEvent;
+import com.reene4444.cpupinning.jfr.ThreadMigratedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide dispatcher of {@link AffinityListener} callbacks.
+ * A failing listener is logged and never breaks the pinning path.
+ * Migrations and pool changes are also emitted as JFR events.
+ */
+public final class AffinityEvents {
+    private static final Logger logger = LoggerFactory.getLogger(AffinityEvents.class);
+    private static final CopyOnWriteArrayList<AffinityListener> listeners = new CopyOnWriteArrayList<>();
+    
+    private AffinityEvents() {
+    }
+    
+    public static void addListener(AffinityListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+    
+    public static void removeListener(AffinityListener listener) {
+        listeners.remove(listener);
+    }
+    
+    public static boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+    
+    static void pinSyscall(long durationNanos, boolean success) {
+        for (AffinityListener listener : listeners) {
+            try {
+                listener.onPinSyscall(durationNanos, success);
+            } catch (RuntimeException e) {
+                logger.warn("Affinity listener {} failed", listener, e);
+            }
+        }
+    }
+    
+    public static void threadPinned(int nativeTid, String pool, Set<Integer> previousCpus, Set<Integer> cpus) {
+        for (AffinityListener listener : listeners) {
+            try {
+                listener.onThreadPinned(nativeTid, pool, previousCpus, cpus);
+            } catch (RuntimeException e) {
+                logger.warn("Affinity listener {} failed", listener, e);
+            }
+        }
+    }
+    
+    public static void pinAvoided(String pool) {
+        for (AffinityListener listener : listeners) {
+            try {
+                listener.onPinAvoided(pool);
+            } catch (RuntimeException e) {
+                logger.warn("Affinity listener {} failed", listener, e);
+            }
+        }
+    }
+    
+    public static void threadMigrated(int nativeTid, String pool, Set<Integer> fromCpus, Set<Integer> toCpus,
+                                      MigrationReason reason) {
+        ThreadMigratedEvent event = new ThreadMigratedEvent();
+        if (event.shouldCommit()) {
+            event.nativeTid = nativeTid;
+            event.pool = pool;
+            event.fromCpus = CpuList.format(fromCpus);
+            event.toCpus = CpuList.format(toCpus);
+            event.reason = reason.name();
+            event.commit();
+        }
+        for (AffinityListener listener : listeners) {
+            try {
+                listener.onThreadMigrated(nativeTid, pool, fromCpus, toCpus, reason);
+            } catch (RuntimeException e) {
+                logger.warn("Affinity listener {} failed", listener, e);
+            }
+        }
+    }
+    
+    public static void threadReleased(int nativeTid, String pool) {
+        for (AffinityListener listener : listeners) {
+            try {
+                listener.onThreadReleased(nativeTid, pool);
+            } catch (RuntimeException e) {
+                logger.warn("Affinity listener {} failed", listener, e);
+            }
+        }
+    }
+    
+    public static void poolChanged(String pool, Set<Integer> previousCpus, Set<Integer> cpus) {
+        PoolResizedEvent event = new PoolResizedEvent();
+        if (event.shouldCommit()) {
+            event.pool = pool;
+            event.previousCpus = CpuList.format(previousCpus);
+            event.cpus = CpuList.format(cpus);
+            event.commit();
+        }
+        for (AffinityListener listener : listeners) {
+            try {
+                listener.onPoolChanged(pool, previousCpus, cpus);
+            } catch (RuntimeException e) {
+                logger.warn("Affinity listener {} failed", listener, e);
+            }
+        }
+    }
+    
+    public static void driftDetected(int nativeTid, String pool, Set<Integer> desiredCpus, Set<Integer> actualCpus,
+                                     boolean repaired) {
+        for (AffinityListener listener : listeners) {
+            try {
+                listener.onDriftDetected(nativeTid, pool, desiredCpus, actualCpus, repaired);
+            } catch (RuntimeException e) {
+                logger.warn("Affinity listener {} failed", listener, e);
+            }
+        }
+    }
+    
+    public static void executionCompleted(WorkloadType type, long latencyNanos) {
+        for (AffinityListener listener : listeners) {
+            try {
+                listener.onExecutionCompleted(type, latencyNanos);
+            } catch (RuntimeException e) {
+                logger.warn("Affinity listener {} failed", listener, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.reene4444.cpupinning.core;
+
+import java.util.Set;
+
+/**
+ * Callback interface for affinity changes, so metrics, tracing and journaling can
+ * observe the framework without the core depending on them. Callbacks run
+ * synchronously on the thread making the change and must be cheap and non-blocking.
+ * <p>
+ * {@code pool} names the owner of a placement: a business pool name, or
+ * {@code "workload:<TYPE>"} for threads placed by the adaptive engine.
+ */
+public interface AffinityListener {
+    
+    /**
+     * A sched_setaffinity call completed
+     */
+    default void onPinSyscall(long durationNanos, boolean success) {
+    }
+    
+    /**
+     * A thread was placed on a CPU set
+     * @param previousCpus the thread's last known placement, empty if none
+     */
+    default void onThreadPinned(int nativeTid, String pool, Set<Integer> previousCpus, Set<Integer> cpus) {
+    }
+    
+    /**
+     * A pin request was satisfied without a syscall because the thread was already placed
+     */
+    default void onPinAvoided(String pool) {
+    }
+    
+    /**
+     * A placed thread was moved to a different CPU set
+     */
+    default void onThreadMigrated(int nativeTid, String pool, Set<Integer> fromCpus, Set<Integer> toCpus, 
+                                  MigrationReason reason) {
+    }
+    
+    /**
+     * A thread is no longer tracked by its owner (exited or left the pool)
+     */
+    default void onThreadReleased(int nativeTid, String pool) {
+    }
+    
+    /**
+     * A pool was registered ({@code previousCpus} empty), resized or unregistered ({@code cpus} empty)
+     */
+    default void onPoolChanged(String pool, Set<Integer> previousCpus, Set<Integer> cpus) {
+    }
+    
+    /**
+     * A managed thread's kernel affinity no longer matched its desired CPUs
+     * @param repaired true if the desired CPUs were re-applied successfully
+     */
+    default void onDriftDetected(int nativeTid, String pool, Set<Integer> desiredCpus, Set<Integer> actualCpus,
+                                 boolean repaired) {
+    }
+    
+    /**
+     * An execution of a workload-annotated method completed
+     */
+    default void onExecutionCompleted(WorkloadType type, long latencyNanos) {
+    }
+}
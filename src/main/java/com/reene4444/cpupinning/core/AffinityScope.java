@@ -0,0 +1,39 @@
+package com.reene4444.cpupinning.core;
+
+import java.util.Set;
+
+/**
+ * Temporarily pins the current thread and restores its previous affinity on close.
+ * On Linux new threads inherit the creating thread's mask, so threads started
+ * inside a scope (e.g. by a library without a thread factory hook) land on the scope's CPUs.
+ */
+public final class AffinityScope implements AutoCloseable {
+    private final Set<Integer> previousCpus;
+    private final boolean pinned;
+    
+    private AffinityScope(Set<Integer> cpus) {
+        this.previousCpus = CpuAffinity.getThreadAffinity();
+        this.pinned = !previousCpus.isEmpty() && CpuAffinity.pinThread(cpus);
+    }
+    
+    /**
+     * Pin the current thread to the given CPUs until the returned scope is closed
+     */
+    public static AffinityScope enter(Set<Integer> cpus) {
+        return new AffinityScope(cpus);
+    }
+    
+    /**
+     * Whether the scope's CPUs were actually applied
+     */
+    public boolean isPinned() {
+        return pinned;
+    }
+    
+    @Override
+    public void close() {
+        if (pinned) {
+            CpuAffinity.pinThread(previousCpus);
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package com.reene4444.cpupinning.core;
 
+import com.reene4444.cpupinning.jfr.ThreadPinnedEvent;
 import com.sun.jna.Library;
 import com.sun.jna.Native;
 import com.sun.jna.Platform;
-import com.sun.jna.ptr.LongByReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,9 +19,18 @@ public class CpuAffinity {
     private static final CLibrary INSTANCE = Native.load(Platform.isLinux() ? "c" : 
                                                           Platform.isMac() ? "c" : "kernel32", CLibrary.class);
     
+    /** Size of a glibc cpu_set_t (CPU_SETSIZE = 1024 bits) in 64-bit words */
+    private static final int CPU_SET_WORDS = 16;
+    
+    /** gettid syscall number for the running architecture, -1 if unknown */
+    private static final int SYS_GETTID = "aarch64".equals(Platform.ARCH) ? 178 
+                                        : "x86-64".equals(Platform.ARCH) ? 186 : -1;
+    
     public interface CLibrary extends Library {
-        int sched_setaffinity(int pid, int cpusetsize, long cpuset);
-        int sched_getaffinity(int pid, int cpusetsize, LongByReference cpuset);
+        int sched_setaffinity(int pid, int cpusetsize, long[] cpuset);
+        int sched_getaffinity(int pid, int cpusetsize, long[] cpuset);
+        long syscall(long number);
+        int sched_getcpu();
     }
     
     /**
@@ -30,19 +39,41 @@ public class CpuAffinity {
      * @return true if successful
      */
     public static boolean pinThread(Set<Integer> cores) {
+        // tid 0 addresses the calling thread, not the whole process
+        return pinThread(0, cores);
+    }
+    
+    /**
+     * Pin any thread of this process, identified by its native (kernel) thread ID
+     * @param nativeTid kernel thread ID as returned by {@link #getCurrentThreadNativeId()}, 0 for the caller
+     * @param cores Set of CPU core IDs (0-indexed)
+     * @return true if successful
+     */
+    public static boolean pinThread(int nativeTid, Set<Integer> cores) {
         if (cores == null || cores.isEmpty()) {
             logger.warn("No CPU cores specified for pinning");
             return false;
         }
         
         try {
-            long mask = createCpuMask(cores);
-            int pid = getCurrentThreadId();
+            long[] mask = createCpuMask(cores);
             
             if (Platform.isLinux()) {
-                int result = INSTANCE.sched_setaffinity(pid, 8, mask);
+                ThreadPinnedEvent event = new ThreadPinnedEvent();
+                event.begin();
+                long start = System.nanoTime();
+                int result = INSTANCE.sched_setaffinity(nativeTid, mask.length * Long.BYTES, mask);
+                event.end();
+                AffinityEvents.pinSyscall(System.nanoTime() - start, result == 0);
+                if (event.shouldCommit()) {
+                    event.nativeTid = nativeTid != 0 ? nativeTid : getCurrentThreadNativeId();
+                    event.cpus = CpuList.format(cores);
+                    event.success = result == 0;
+                    event.commit();
+                }
                 if (result == 0) {
-                    logger.debug("Successfully pinned thread {} to CPUs: {}", pid, cores);
+                    logger.debug("Successfully pinned thread {} to CPUs: {}", 
+                                nativeTid == 0 ? Thread.currentThread().getName() : nativeTid, cores);
                     return true;
                 } else {
                     logger.error("Failed to set CPU affinity, error code: {}", result);
@@ -67,14 +98,21 @@ public class CpuAffinity {
      * @return Set of CPU core IDs this thread is pinned to
      */
     public static Set<Integer> getThreadAffinity() {
+        return getThreadAffinity(0);
+    }
+    
+    /**
+     * Get the kernel CPU affinity of any thread of this process
+     * @param nativeTid kernel thread ID, 0 for the caller
+     * @return Set of CPU core IDs, empty if the thread is gone or the platform is unsupported
+     */
+    public static Set<Integer> getThreadAffinity(int nativeTid) {
         try {
-            int pid = getCurrentThreadId();
-            
             if (Platform.isLinux()) {
-                LongByReference maskRef = new LongByReference();
-                int result = INSTANCE.sched_getaffinity(pid, 8, maskRef);
+                long[] mask = new long[CPU_SET_WORDS];
+                int result = INSTANCE.sched_getaffinity(nativeTid, mask.length * Long.BYTES, mask);
                 if (result == 0) {
-                    return parseCpuMask(maskRef.getValue());
+                    return parseCpuMask(mask);
                 }
             }
         } catch (Exception e) {
@@ -83,6 +121,104 @@ public class CpuAffinity {
         return Set.of();
     }
     
+    /**
+     * Get the kernel thread ID of the current thread, so it can be re-pinned later
+     * from another thread. Returns 0 (meaning "the caller") when it cannot be determined.
+     */
+    public static int getCurrentThreadNativeId() {
+        if (!Platform.isLinux()) {
+            return 0;
+        }
+        try {
+            if (SYS_GETTID > 0) {
+                return (int) INSTANCE.syscall(SYS_GETTID);
+            }
+            // e.g. "1234/task/1240"
+            String self = java.nio.file.Files.readSymbolicLink(java.nio.file.Paths.get("/proc/thread-self")).toString();
+            return Integer.parseInt(self.substring(self.lastIndexOf('/') + 1));
+        } catch (Exception e) {
+            logger.debug("Unable to determine native thread ID", e);
+            return 0;
+        }
+    }
+    
+    /**
+     * Whether a kernel thread ID is a live thread of this process. Thread IDs are
+     * host-wide and reused, so a remembered ID may since belong to another process.
+     */
+    public static boolean isProcessThread(int nativeTid) {
+        return nativeTid > 0 && java.nio.file.Files.isDirectory(java.nio.file.Paths.get("/proc/self/task", 
+                                                                                          Integer.toString(nativeTid)));
+    }
+    
+    /**
+     * Get the CPU the calling thread is running on right now (the carrier's CPU when
+     * called from a virtual thread)
+     * @return CPU core ID, or -1 if it cannot be determined
+     */
+    public static int getCurrentCpu() {
+        if (!Platform.isLinux()) {
+            return -1;
+        }
+        try {
+            return INSTANCE.sched_getcpu();
+        } catch (Exception | UnsatisfiedLinkError e) {
+            logger.debug("Unable to determine current CPU", e);
+            return -1;
+        }
+    }
+    
+    /**
+     * Apply a scheduling profile to any thread of this process. Without CAP_SYS_NICE the
+     * profile degrades step by step (real-time to SCHED_OTHER, negative nice to 0, no
+     * utilization clamp) instead of failing, so check the result for what took effect.
+     * @param nativeTid kernel thread ID, 0 for the caller
+     * @return the profile in effect afterwards as read back from the kernel, or null if
+     *         scheduling attributes are unsupported here
+     */
+    public static SchedulingProfile applySchedulingProfile(int nativeTid, SchedulingProfile profile) {
+        if (!SchedAttr.isSupportedPlatform()) {
+            return null;
+        }
+        try {
+            SchedulingProfile attempt = profile;
+            while (attempt != null) {
+                int result = SchedAttr.set(nativeTid, attempt);
+                if (result == 0) {
+                    break;
+                }
+                logger.debug("sched_setattr({}) for thread {} failed with errno {}", attempt, nativeTid, -result);
+                attempt = attempt.degrade(-result);
+            }
+            SchedulingProfile applied = SchedAttr.get(nativeTid);
+            if (!profile.equals(applied)) {
+                logger.info("Requested scheduling {} for thread {}, in effect: {}", profile,
+                            nativeTid == 0 ? Thread.currentThread().getName() : nativeTid, applied);
+            }
+            return applied;
+        } catch (Exception | UnsatisfiedLinkError e) {
+            logger.error("Error setting scheduling attributes", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Get the scheduling profile of any thread of this process
+     * @param nativeTid kernel thread ID, 0 for the caller
+     * @return the profile, or null if unsupported or the thread uses an unmanaged policy
+     */
+    public static SchedulingProfile getSchedulingProfile(int nativeTid) {
+        if (!SchedAttr.isSupportedPlatform()) {
+            return null;
+        }
+        try {
+            return SchedAttr.get(nativeTid);
+        } catch (Exception | UnsatisfiedLinkError e) {
+            logger.debug("Unable to read scheduling attributes", e);
+            return null;
+        }
+    }
+    
     /**
      * Get available CPU cores count
      */
@@ -90,32 +226,18 @@ public class CpuAffinity {
         return Runtime.getRuntime().availableProcessors();
     }
     
-    private static long createCpuMask(Set<Integer> cores) {
-        long mask = 0;
+    private static long[] createCpuMask(Set<Integer> cores) {
+        long[] mask = new long[CPU_SET_WORDS];
         for (Integer core : cores) {
-            if (core >= 0 && core < 64) {
-                mask |= (1L << core);
+            if (core >= 0 && core < CPU_SET_WORDS * Long.SIZE) {
+                mask[core / Long.SIZE] |= (1L << (core % Long.SIZE));
             }
         }
         return mask;
     }
     
-    private static Set<Integer> parseCpuMask(long mask) {
-        BitSet bits = BitSet.valueOf(new long[]{mask});
+    private static Set<Integer> parseCpuMask(long[] mask) {
+        BitSet bits = BitSet.valueOf(mask);
         return bits.stream().boxed().collect(java.util.stream.Collectors.toSet());
     }
-    
-    private static int getCurrentThreadId() {
-        if (Platform.isLinux()) {
-            // Use ProcessHandle for Java 9+ or fallback to system property
-            try {
-                return (int) ProcessHandle.current().pid();
-            } catch (Exception e) {
-                // Fallback: use thread ID as approximation
-                return (int) Thread.currentThread().getId();
-            }
-        }
-        return 0;
-    }
 }
-
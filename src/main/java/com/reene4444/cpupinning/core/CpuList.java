@@ -0,0 +1,81 @@
+package com.reene4444.cpupinning.core;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Parser and formatter for the Linux cpulist format ("0-3,8,10-11"),
+ * as used by sysfs, /proc and taskset -c
+ */
+public final class CpuList {
+    
+    private CpuList() {
+    }
+    
+    /**
+     * Parse a cpulist string
+     * @throws IllegalArgumentException if the string is not a valid cpulist
+     */
+    public static Set<Integer> parse(String cpuList) {
+        Set<Integer> cpus = new TreeSet<>();
+        if (cpuList == null || cpuList.isBlank()) {
+            return cpus;
+        }
+        for (String part : cpuList.trim().split(",")) {
+            String range = part.trim();
+            if (range.isEmpty()) {
+                continue;
+            }
+            try {
+                int dash = range.indexOf('-');
+                if (dash < 0) {
+                    cpus.add(Integer.parseInt(range));
+                } else {
+                    int from = Integer.parseInt(range.substring(0, dash).trim());
+                    int to = Integer.parseInt(range.substring(dash + 1).trim());
+                    if (from < 0 || to < from) {
+                        throw new IllegalArgumentException("Invalid CPU range '" + range + "' in cpulist: " + cpuList);
+                    }
+                    for (int cpu = from; cpu <= to; cpu++) {
+                        cpus.add(cpu);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cpulist: " + cpuList, e);
+            }
+        }
+        return cpus;
+    }
+    
+    /**
+     * Format CPUs as a compact cpulist string
+     */
+    public static String format(Set<Integer> cpus) {
+        StringBuilder sb = new StringBuilder();
+        int start = -1;
+        int prev = -1;
+        for (int cpu : new TreeSet<>(cpus)) {
+            if (start < 0) {
+                start = cpu;
+            } else if (cpu != prev + 1) {
+                appendRange(sb, start, prev);
+                start = cpu;
+            }
+            prev = cpu;
+        }
+        if (start >= 0) {
+            appendRange(sb, start, prev);
+        }
+        return sb.toString();
+    }
+    
+    private static void appendRange(StringBuilder sb, int from, int to) {
+        if (sb.length() > 0) {
+            sb.append(',');
+        }
+        sb.append(from);
+        if (to > from) {
+            sb.append('-').append(to);
+        }
+    }
+}
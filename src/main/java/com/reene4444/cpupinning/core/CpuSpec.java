@@ -0,0 +1,89 @@
+package com.reene4444.cpupinning.core;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Resolves topology-relative CPU specifications to concrete core IDs, so that
+ * configuration does not hard-code core numbers of one instance type.
+ * <ul>
+ *   <li>{@code 0-3,8} - cpulist syntax</li>
+ *   <li>{@code node:0} - all CPUs of a NUMA node</li>
+ *   <li>{@code l3:1} - all CPUs sharing an L3 cache domain</li>
+ *   <li>{@code 25%} - the first quarter of the effective cpuset (at least one CPU)</li>
+ *   <li>{@code isolated} - CPUs isolated via isolcpus / nohz_full</li>
+ *   <li>{@code quiet:4} - the four quietest CPUs: isolated first, then lowest interrupt rate</li>
+ * </ul>
+ * The result is always restricted to the effective cpuset of the process.
+ */
+public final class CpuSpec {
+    
+    private CpuSpec() {
+    }
+    
+    /**
+     * Resolve a specification against the detected topology
+     * @throws IllegalArgumentException if the specification is malformed
+     */
+    public static Set<Integer> resolve(String spec) {
+        return resolve(spec, NumaTopology.getInstance());
+    }
+    
+    public static Set<Integer> resolve(String spec, NumaTopology topology) {
+        Set<Integer> effective = topology.getEffectiveCpus();
+        if (spec == null || spec.isBlank()) {
+            return new TreeSet<>();
+        }
+        String value = spec.trim();
+        
+        Set<Integer> cpus;
+        if (value.startsWith("node:")) {
+            cpus = new TreeSet<>(topology.getCpusInNode(parseIndex(value, "node:")));
+        } else if (value.startsWith("l3:")) {
+            cpus = topology.getCpusInL3Domain(parseIndex(value, "l3:"));
+        } else if (value.equals("isolated")) {
+            IrqTopology irq = IrqTopology.getInstance();
+            cpus = irq.getIsolatedCpus();
+            cpus.addAll(irq.getNohzFullCpus());
+        } else if (value.startsWith("quiet:")) {
+            int count = parseIndex(value, "quiet:");
+            List<Integer> ranked = IrqTopology.getInstance().rankQuietCpus(effective);
+            cpus = new TreeSet<>(ranked.subList(0, Math.min(count, ranked.size())));
+        } else if (value.endsWith("%")) {
+            cpus = percentOf(effective, value);
+        } else {
+            cpus = CpuList.parse(value);
+        }
+        cpus.retainAll(effective);
+        return cpus;
+    }
+    
+    private static int parseIndex(String value, String prefix) {
+        try {
+            return Integer.parseInt(value.substring(prefix.length()).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid CPU specification: " + value, e);
+        }
+    }
+    
+    private static Set<Integer> percentOf(Set<Integer> effective, String value) {
+        double percent;
+        try {
+            percent = Double.parseDouble(value.substring(0, value.length() - 1).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid CPU specification: " + value, e);
+        }
+        if (percent <= 0 || percent > 100) {
+            throw new IllegalArgumentException("CPU percentage must be in (0, 100]: " + value);
+        }
+        int count = Math.max(1, (int) Math.round(effective.size() * percent / 100.0));
+        Set<Integer> cpus = new TreeSet<>();
+        Iterator<Integer> it = new TreeSet<>(effective).iterator();
+        while (cpus.size() < count && it.hasNext()) {
+            cpus.add(it.next());
+        }
+        return cpus;
+    }
+}
@@ -0,0 +1,347 @@
+package com.reene4444.cpupinning.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background sampler of per-CPU utilization, steal and iowait from /proc/stat.
+ * The file is re-read through one open channel into a preallocated buffer and
+ * parsed in place. Values are kept as exponentially weighted moving averages in
+ * one primitive array indexed by CPU; each sample publishes a new array through a
+ * volatile field, so readers see either the previous sample or the next one whole.
+ */
+public class CpuUtilizationSampler {
+    private static final Logger logger = LoggerFactory.getLogger(CpuUtilizationSampler.class);
+    private static final Path PROC_STAT = Paths.get("/proc/stat");
+    /** Weight of the newest sample in the moving averages */
+    private static final double SMOOTHING = 0.3;
+    /** Steal hurts a pinned thread more than ordinary load, since it cannot run elsewhere */
+    private static final double STEAL_WEIGHT = 2.0;
+    /** Load above the least-loaded CPU of a set within which a CPU still counts as least loaded */
+    private static final double LOAD_SPREAD = 0.2;
+    // user nice system idle iowait irq softirq steal (guest time is already part of user)
+    private static final int FIELDS = 8;
+    private static final int IDLE = 3;
+    private static final int IOWAIT = 4;
+    private static final int STEAL = 7;
+    // Layout of the published averages, per CPU
+    private static final int AVERAGES = 3;
+    private static final int UTILIZATION_AVERAGE = 0;
+    private static final int STEAL_AVERAGE = 1;
+    private static final int IOWAIT_AVERAGE = 2;
+    private static CpuUtilizationSampler instance;
+    
+    private final Path procStat;
+    private final int cpuSlots;
+    private final long[] previous;
+    private final long[] current;
+    private final ByteBuffer buffer;
+    private volatile double[] averages;
+    private FileChannel channel;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> samplingTask;
+    private volatile long sampleCount;
+    private volatile double saturationThreshold = 0.9;
+    
+    private CpuUtilizationSampler() {
+        this(PROC_STAT, possibleCpuCount());
+    }
+    
+    /**
+     * Sampler of another /proc/stat, keeping averages for CPUs below {@code cpuSlots}
+     */
+    public CpuUtilizationSampler(Path procStat, int cpuSlots) {
+        this.procStat = procStat;
+        this.cpuSlots = cpuSlots;
+        this.previous = new long[cpuSlots * FIELDS];
+        this.current = new long[cpuSlots * FIELDS];
+        this.averages = new double[cpuSlots * AVERAGES];
+        // Only the leading "cpuN" lines are needed; the rest of the file may be truncated
+        this.buffer = ByteBuffer.allocate(256 + cpuSlots * 160);
+    }
+    
+    public static synchronized CpuUtilizationSampler getInstance() {
+        if (instance == null) {
+            instance = new CpuUtilizationSampler();
+        }
+        return instance;
+    }
+    
+    /**
+     * Start (or reschedule) background sampling
+     */
+    public synchronized void start(long intervalMs) {
+        if (!Files.isReadable(procStat)) {
+            logger.info("{} not available, CPU utilization sampling disabled", procStat);
+            return;
+        }
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(procStat, StandardOpenOption.READ);
+                // Prime the counters so the first interval yields a real delta
+                readCounters(previous);
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to open {}, CPU utilization sampling disabled", procStat, e);
+            return;
+        }
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cpu-utilization-sampler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if (samplingTask != null) {
+            samplingTask.cancel(false);
+        }
+        samplingTask = scheduler.scheduleAtFixedRate(this::sampleSafely, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Sampling per-CPU utilization every {}ms", intervalMs);
+    }
+    
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            samplingTask = null;
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Error closing {}", procStat, e);
+            }
+            channel = null;
+        }
+    }
+    
+    private void sampleSafely() {
+        try {
+            sample();
+        } catch (Exception e) {
+            logger.error("Error sampling CPU utilization", e);
+        }
+    }
+    
+    /**
+     * Fold the interval since the previous read into the averages; the background
+     * task calls this, and it does nothing unless sampling was started
+     */
+    public synchronized void sample() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        Arrays.fill(current, 0);
+        readCounters(current);
+        double[] next = averages.clone();
+        for (int cpu = 0; cpu < cpuSlots; cpu++) {
+            int base = cpu * FIELDS;
+            long total = 0;
+            for (int f = 0; f < FIELDS; f++) {
+                total += current[base + f] - previous[base + f];
+            }
+            if (total <= 0) {
+                // Offline or not reported
+                continue;
+            }
+            long idle = current[base + IDLE] - previous[base + IDLE];
+            long waiting = current[base + IOWAIT] - previous[base + IOWAIT];
+            long stolen = current[base + STEAL] - previous[base + STEAL];
+            int slot = cpu * AVERAGES;
+            next[slot + UTILIZATION_AVERAGE] = smooth(next[slot + UTILIZATION_AVERAGE], 
+                                                      (double) (total - idle - waiting) / total);
+            next[slot + IOWAIT_AVERAGE] = smooth(next[slot + IOWAIT_AVERAGE], (double) waiting / total);
+            next[slot + STEAL_AVERAGE] = smooth(next[slot + STEAL_AVERAGE], (double) stolen / total);
+        }
+        System.arraycopy(current, 0, previous, 0, current.length);
+        averages = next;
+        sampleCount++;
+    }
+    
+    private static double smooth(double average, double sample) {
+        return average + SMOOTHING * (sample - average);
+    }
+    
+    /**
+     * Parse the "cpuN" lines of /proc/stat into counters[N * FIELDS + field]
+     */
+    private void readCounters(long[] counters) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // keep reading until full or EOF
+        }
+        byte[] data = buffer.array();
+        int limit = buffer.position();
+        int pos = 0;
+        while (pos < limit) {
+            int lineEnd = pos;
+            while (lineEnd < limit && data[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd - pos < 4 || data[pos] != 'c' || data[pos + 1] != 'p' || data[pos + 2] != 'u') {
+                // CPU lines come first; stop at the first other line
+                if (pos > 0) {
+                    break;
+                }
+            } else if (data[pos + 3] >= '0' && data[pos + 3] <= '9') {
+                parseCpuLine(data, pos + 3, lineEnd, counters);
+            }
+            pos = lineEnd + 1;
+        }
+    }
+    
+    private void parseCpuLine(byte[] data, int pos, int end, long[] counters) {
+        int cpu = 0;
+        while (pos < end && data[pos] >= '0' && data[pos] <= '9') {
+            cpu = cpu * 10 + (data[pos++] - '0');
+        }
+        if (cpu >= cpuSlots) {
+            return;
+        }
+        int base = cpu * FIELDS;
+        for (int f = 0; f < FIELDS && pos < end; f++) {
+            while (pos < end && data[pos] == ' ') {
+                pos++;
+            }
+            long value = 0;
+            while (pos < end && data[pos] >= '0' && data[pos] <= '9') {
+                value = value * 10 + (data[pos++] - '0');
+            }
+            counters[base + f] = value;
+        }
+    }
+    
+    /**
+     * Smoothed fraction of time the CPU was busy (0..1), 0 if unknown
+     */
+    public double getUtilization(int cpu) {
+        return average(averages, cpu, UTILIZATION_AVERAGE);
+    }
+    
+    /**
+     * Smoothed fraction of time stolen by the hypervisor (0..1)
+     */
+    public double getSteal(int cpu) {
+        return average(averages, cpu, STEAL_AVERAGE);
+    }
+    
+    /**
+     * Smoothed fraction of time idle with outstanding I/O (0..1)
+     */
+    public double getIowait(int cpu) {
+        return average(averages, cpu, IOWAIT_AVERAGE);
+    }
+    
+    /**
+     * Load score used for placement: utilization plus weighted steal
+     */
+    public double getLoad(int cpu) {
+        return load(averages, cpu);
+    }
+    
+    private double average(double[] snapshot, int cpu, int average) {
+        return cpu >= 0 && cpu < cpuSlots ? snapshot[cpu * AVERAGES + average] : 0.0;
+    }
+    
+    private double load(double[] snapshot, int cpu) {
+        return average(snapshot, cpu, UTILIZATION_AVERAGE) + STEAL_WEIGHT * average(snapshot, cpu, STEAL_AVERAGE);
+    }
+    
+    /**
+     * Whether at least one interval has been sampled
+     */
+    public boolean hasSamples() {
+        return sampleCount > 0;
+    }
+    
+    /**
+     * Pick the {@code count} least-loaded CPUs of a set
+     */
+    public Set<Integer> leastLoaded(Set<Integer> cpus, int count) {
+        if (!hasSamples() || count >= cpus.size()) {
+            return new HashSet<>(cpus);
+        }
+        // Rank against one sample, a new one may be published meanwhile
+        double[] snapshot = averages;
+        List<Integer> ranked = new ArrayList<>(cpus);
+        ranked.sort(Comparator.<Integer>comparingDouble(cpu -> load(snapshot, cpu)).thenComparingInt(cpu -> cpu));
+        return new HashSet<>(ranked.subList(0, Math.max(1, count)));
+    }
+    
+    /**
+     * The least-loaded CPUs of a set: those not saturated whose load is within a fixed
+     * spread of the least-loaded one. The whole set if nothing has been sampled yet,
+     * and the least-loaded CPU if every CPU is saturated.
+     */
+    public Set<Integer> leastLoaded(Set<Integer> cpus) {
+        if (!hasSamples() || cpus.isEmpty()) {
+            return new HashSet<>(cpus);
+        }
+        double[] snapshot = averages;
+        double lowest = Double.MAX_VALUE;
+        for (Integer cpu : cpus) {
+            lowest = Math.min(lowest, load(snapshot, cpu));
+        }
+        Set<Integer> selected = new HashSet<>();
+        for (Integer cpu : cpus) {
+            double load = load(snapshot, cpu);
+            if (load <= lowest + LOAD_SPREAD && (load < saturationThreshold || load == lowest)) {
+                selected.add(cpu);
+            }
+        }
+        return selected;
+    }
+    
+    /**
+     * Load at or above which a CPU is avoided for new placements
+     */
+    public void setSaturationThreshold(double saturationThreshold) {
+        this.saturationThreshold = saturationThreshold;
+    }
+    
+    /**
+     * Drop saturated CPUs (load at or above the threshold) from a set, keeping
+     * the whole set if every CPU is saturated
+     */
+    public Set<Integer> withoutSaturated(Set<Integer> cpus) {
+        if (!hasSamples()) {
+            return new HashSet<>(cpus);
+        }
+        double[] snapshot = averages;
+        Set<Integer> available = new HashSet<>();
+        for (Integer cpu : cpus) {
+            if (load(snapshot, cpu) < saturationThreshold) {
+                available.add(cpu);
+            }
+        }
+        return available.isEmpty() ? new HashSet<>(cpus) : available;
+    }
+    
+    private static int possibleCpuCount() {
+        int count = CpuAffinity.getAvailableCpuCount();
+        try {
+            Path possible = Paths.get("/sys/devices/system/cpu/possible");
+            if (Files.exists(possible)) {
+                for (int cpu : CpuList.parse(Files.readString(possible).trim())) {
+                    count = Math.max(count, cpu + 1);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            logger.debug("Unable to read possible CPUs", e);
+        }
+        return count;
+    }
+}
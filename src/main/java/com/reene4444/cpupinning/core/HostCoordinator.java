@@ -0,0 +1,489 @@
+package com.reene4444.cpupinning.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Host Coordinator - core leases shared by every JVM on the host through a memory-mapped
+ * registry file (by default under {@code /dev/shm}), so that isolated pools of different
+ * processes do not collide. There is no daemon: each process compare-and-sets CPU slots
+ * to its PID, heartbeats its process slot, and takes over the leases of processes that
+ * have exited or stopped heartbeating.
+ * <p>
+ * Coordinated processes must share the registry file and a PID namespace.
+ */
+public final class HostCoordinator implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(HostCoordinator.class);
+    
+    public static final Path DEFAULT_PATH = Paths.get("/dev/shm/cpu-pinning-host.registry");
+    
+    // "CPUH"
+    private static final int MAGIC = 0x43505548;
+    private static final int VERSION = 1;
+    private static final int MAX_CPUS = 4096;
+    private static final int MAX_PROCESSES = 256;
+    // Header: magic, version, CPU slots, process slots
+    private static final int HEADER_BYTES = 64;
+    // Process slot: pid, start time (epoch ms), heartbeat (epoch ms), the process's lease timeout (ms)
+    private static final int PROCESS_SLOT_BYTES = 32;
+    private static final int PID = 0;
+    private static final int START = 8;
+    private static final int HEARTBEAT = 16;
+    private static final int TIMEOUT = 24;
+    private static final int CPU_OFFSET = HEADER_BYTES + MAX_PROCESSES * PROCESS_SLOT_BYTES;
+    private static final int FILE_BYTES = CPU_OFFSET + MAX_CPUS * Long.BYTES;
+    // Tolerance when comparing process start times computed by different JVMs
+    private static final long START_TOLERANCE_MS = 1000;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+                                                                                 ByteOrder.nativeOrder());
+    private static HostCoordinator instance;
+    
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer registry;
+    private final long pid = ProcessHandle.current().pid();
+    private final long startMillis = startMillis(ProcessHandle.current());
+    private final long leaseTimeoutMs;
+    private final Set<Integer> held = new TreeSet<>();
+    private final ScheduledExecutorService heartbeat;
+    private int processSlot = -1;
+    private boolean closed;
+    
+    private HostCoordinator(Path file, long heartbeatMs, long leaseTimeoutMs) throws IOException {
+        this.file = file;
+        this.leaseTimeoutMs = leaseTimeoutMs;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE);
+        try (FileLock lock = channel.lock()) {
+            if (channel.size() < FILE_BYTES) {
+                channel.write(ByteBuffer.wrap(new byte[1]), FILE_BYTES - 1);
+            }
+            registry = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_BYTES);
+            registry.order(ByteOrder.nativeOrder());
+            initializeHeader();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        synchronized (this) {
+            register();
+        }
+        reap();
+        heartbeat = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "host-coordinator-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleAtFixedRate(this::beat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        logger.info("Host coordination via {} as PID {} (heartbeat {} ms, lease timeout {} ms)",
+                   file, pid, heartbeatMs, leaseTimeoutMs);
+    }
+    
+    /**
+     * Open a registry for this process; most callers use {@link #enable} instead
+     * @param leaseTimeoutMs silence after which other processes may take over this process's leases
+     */
+    public static HostCoordinator open(Path file, long heartbeatMs, long leaseTimeoutMs) throws IOException {
+        if (heartbeatMs <= 0 || leaseTimeoutMs <= heartbeatMs) {
+            throw new IllegalArgumentException(String.format(
+                "Lease timeout (%d ms) must exceed a positive heartbeat interval (%d ms)", leaseTimeoutMs, heartbeatMs));
+        }
+        return new HostCoordinator(file, heartbeatMs, leaseTimeoutMs);
+    }
+    
+    /**
+     * Open the process-wide coordinator that business pools lease their CPUs from
+     */
+    public static synchronized HostCoordinator enable(Path file, long heartbeatMs, long leaseTimeoutMs)
+            throws IOException {
+        if (instance == null) {
+            instance = open(file, heartbeatMs, leaseTimeoutMs);
+        }
+        return instance;
+    }
+    
+    /**
+     * @return the process-wide coordinator, or null when host coordination is off
+     */
+    public static synchronized HostCoordinator getInstance() {
+        return instance;
+    }
+    
+    /**
+     * Release every lease of the process-wide coordinator and turn coordination off
+     */
+    public static void disable() {
+        HostCoordinator coordinator = getInstance();
+        if (coordinator != null) {
+            coordinator.close();
+        }
+    }
+    
+    private void initializeHeader() throws IOException {
+        if (registry.getInt(0) == 0) {
+            registry.putInt(4, VERSION);
+            registry.putInt(8, MAX_CPUS);
+            registry.putInt(12, MAX_PROCESSES);
+            registry.putInt(0, MAGIC);
+            registry.force();
+        } else if (registry.getInt(0) != MAGIC || registry.getInt(4) != VERSION
+                   || registry.getInt(8) != MAX_CPUS || registry.getInt(12) != MAX_PROCESSES) {
+            throw new IOException(String.format("%s is not a version %d host registry", file, VERSION));
+        }
+    }
+    
+    private static long startMillis(ProcessHandle process) {
+        return process.info().startInstant().map(Instant::toEpochMilli).orElse(0L);
+    }
+    
+    private static int processOffset(int slot) {
+        return HEADER_BYTES + slot * PROCESS_SLOT_BYTES;
+    }
+    
+    private static int cpuOffset(int cpu) {
+        if (cpu < 0 || cpu >= MAX_CPUS) {
+            throw new IllegalArgumentException("CPU " + cpu + " is outside the host registry");
+        }
+        return CPU_OFFSET + cpu * Long.BYTES;
+    }
+    
+    private long get(int offset) {
+        return (long) LONGS.getVolatile(registry, offset);
+    }
+    
+    private void set(int offset, long value) {
+        LONGS.setVolatile(registry, offset, value);
+    }
+    
+    private boolean compareAndSet(int offset, long expected, long value) {
+        return LONGS.compareAndSet(registry, offset, expected, value);
+    }
+    
+    /**
+     * Claim a free (or dead process's) slot in the process table
+     */
+    private void register() throws IOException {
+        for (int slot = 0; slot < MAX_PROCESSES; slot++) {
+            int offset = processOffset(slot);
+            long owner = get(offset + PID);
+            // A negative PID marks a slot being filled in; it is not free
+            if ((owner == 0 || owner == pid || owner > 0 && isDead(owner)) && compareAndSet(offset + PID, owner, -pid)) {
+                // Fill the slot before publishing the PID, so no process judges this one by the previous heartbeat
+                set(offset + HEARTBEAT, System.currentTimeMillis());
+                set(offset + TIMEOUT, leaseTimeoutMs);
+                set(offset + START, startMillis);
+                set(offset + PID, pid);
+                processSlot = slot;
+                return;
+            }
+        }
+        throw new IOException("Host registry " + file + " has no free process slot");
+    }
+    
+    private int findProcessSlot(long owner) {
+        for (int slot = 0; slot < MAX_PROCESSES; slot++) {
+            if (get(processOffset(slot) + PID) == owner) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Whether a lease holder has exited, been replaced by a new process with its PID,
+     * or stopped heartbeating
+     */
+    private boolean isDead(long owner) {
+        if (owner == pid) {
+            return false;
+        }
+        int slot = findProcessSlot(owner);
+        if (slot < 0) {
+            return true;
+        }
+        int offset = processOffset(slot);
+        // Each process is judged by its own timeout, which matches its heartbeat interval
+        long timeoutMs = get(offset + TIMEOUT);
+        if (System.currentTimeMillis() - get(offset + HEARTBEAT) > (timeoutMs > 0 ? timeoutMs : leaseTimeoutMs)) {
+            return true;
+        }
+        Optional<ProcessHandle> process = ProcessHandle.of(owner);
+        if (process.isEmpty() || !process.get().isAlive()) {
+            return true;
+        }
+        long recordedStart = get(offset + START);
+        long actualStart = startMillis(process.get());
+        return recordedStart != 0 && actualStart != 0 && Math.abs(recordedStart - actualStart) > START_TOLERANCE_MS;
+    }
+    
+    /**
+     * Lease all of the given CPUs, or none of them
+     * @return the CPUs held by other live processes; empty when every CPU was leased
+     */
+    public synchronized Set<Integer> tryAcquire(Set<Integer> cpus) {
+        checkOpen();
+        Set<Integer> acquired = new TreeSet<>();
+        Set<Integer> conflicts = new TreeSet<>();
+        for (Integer cpu : new TreeSet<>(cpus)) {
+            if (held.contains(cpu)) {
+                continue;
+            }
+            if (claim(cpu)) {
+                acquired.add(cpu);
+            } else {
+                conflicts.add(cpu);
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            acquired.forEach(this::unclaim);
+            return conflicts;
+        }
+        held.addAll(acquired);
+        return conflicts;
+    }
+    
+    /**
+     * Lease {@code count} CPUs from the candidates, lowest first, or none if fewer are free.
+     * Candidates this process already holds count as free.
+     * @return the leased CPUs, or an empty set
+     */
+    public synchronized Set<Integer> acquireAny(int count, Set<Integer> candidates) {
+        checkOpen();
+        Set<Integer> acquired = new TreeSet<>();
+        Set<Integer> claimed = new TreeSet<>();
+        for (Integer cpu : new TreeSet<>(candidates)) {
+            if (acquired.size() == count) {
+                break;
+            }
+            if (held.contains(cpu)) {
+                // Already this process's, e.g. a pool being resized
+                acquired.add(cpu);
+            } else if (claim(cpu)) {
+                acquired.add(cpu);
+                claimed.add(cpu);
+            }
+        }
+        if (acquired.size() < count) {
+            claimed.forEach(this::unclaim);
+            return new TreeSet<>();
+        }
+        held.addAll(claimed);
+        return acquired;
+    }
+    
+    private boolean claim(int cpu) {
+        int offset = cpuOffset(cpu);
+        while (true) {
+            long owner = get(offset);
+            if (owner == pid) {
+                return true;
+            }
+            if (owner != 0 && !isDead(owner)) {
+                return false;
+            }
+            if (compareAndSet(offset, owner, pid)) {
+                if (owner != 0) {
+                    logger.info("Took over CPU {} from dead process {}", cpu, owner);
+                }
+                return true;
+            }
+        }
+    }
+    
+    private void unclaim(int cpu) {
+        compareAndSet(cpuOffset(cpu), pid, 0);
+    }
+    
+    public synchronized void release(Set<Integer> cpus) {
+        for (Integer cpu : cpus) {
+            if (held.remove(cpu) && !closed) {
+                unclaim(cpu);
+            }
+        }
+    }
+    
+    /**
+     * CPUs leased by this process
+     */
+    public synchronized Set<Integer> getHeldCpus() {
+        return new TreeSet<>(held);
+    }
+    
+    /**
+     * PID holding a CPU's lease
+     * @return the PID, or 0 if the CPU is free or its holder is dead
+     */
+    public long getOwner(int cpu) {
+        long owner = get(cpuOffset(cpu));
+        return owner != 0 && !isDead(owner) ? owner : 0;
+    }
+    
+    /**
+     * Every live lease on the host, by CPU
+     */
+    public Map<Integer, Long> getLeases() {
+        Map<Integer, Long> leases = new TreeMap<>();
+        for (int cpu = 0; cpu < MAX_CPUS; cpu++) {
+            long owner = get(cpuOffset(cpu));
+            if (owner != 0 && !isDead(owner)) {
+                leases.put(cpu, owner);
+            }
+        }
+        return leases;
+    }
+    
+    public long getPid() {
+        return pid;
+    }
+    
+    /**
+     * Free the CPU and process slots of dead processes
+     * @return number of CPU leases freed
+     */
+    public int reap() {
+        int freed = 0;
+        for (int cpu = 0; cpu < MAX_CPUS; cpu++) {
+            int offset = cpuOffset(cpu);
+            long owner = get(offset);
+            if (owner != 0 && isDead(owner) && compareAndSet(offset, owner, 0)) {
+                freed++;
+            }
+        }
+        for (int slot = 0; slot < MAX_PROCESSES; slot++) {
+            int offset = processOffset(slot);
+            long owner = get(offset + PID);
+            boolean dead = owner > 0 ? isDead(owner)
+                         : owner < 0 && ProcessHandle.of(-owner).map(process -> !process.isAlive()).orElse(true);
+            if (dead) {
+                compareAndSet(offset + PID, owner, 0);
+            }
+        }
+        if (freed > 0) {
+            logger.info("Freed {} CPU lease(s) of dead processes in {}", freed, file);
+        }
+        return freed;
+    }
+    
+    private synchronized void beat() {
+        if (closed) {
+            return;
+        }
+        try {
+            int offset = processOffset(processSlot);
+            if (get(offset + PID) == pid) {
+                set(offset + HEARTBEAT, System.currentTimeMillis());
+                return;
+            }
+            // Silent for longer than the lease timeout (e.g. a long pause) and reaped by another process
+            logger.warn("Host registry slot of PID {} was reclaimed; re-registering and re-leasing {}",
+                       pid, CpuList.format(held));
+            register();
+            Set<Integer> lost = new TreeSet<>();
+            for (Integer cpu : held) {
+                if (!claim(cpu)) {
+                    lost.add(cpu);
+                }
+            }
+            if (!lost.isEmpty()) {
+                held.removeAll(lost);
+                logger.error("CPUs {} were taken over by other processes while this one was unresponsive",
+                             CpuList.format(lost));
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Host registry heartbeat failed", e);
+        }
+    }
+    
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Host coordinator is closed");
+        }
+    }
+    
+    /**
+     * Release every lease and the process slot
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            held.forEach(this::unclaim);
+            held.clear();
+            compareAndSet(processOffset(processSlot) + PID, pid, 0);
+            closed = true;
+        }
+        synchronized (HostCoordinator.class) {
+            if (instance == this) {
+                instance = null;
+            }
+        }
+        heartbeat.shutdownNow();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close host registry {}", file, e);
+        }
+    }
+    
+    /**
+     * Inspect or exercise a registry from the command line:
+     * {@code list}, {@code reap}, {@code acquire CPUS [holdMs]} or {@code acquire-any COUNT CPUS [holdMs]}
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: HostCoordinator <registry> list|reap|acquire CPUS [holdMs]"
+                               + "|acquire-any COUNT CPUS [holdMs]");
+            System.exit(2);
+        }
+        try (HostCoordinator coordinator = open(Paths.get(args[0]), 1000, 10_000)) {
+            long holdMs = 0;
+            switch (args[1]) {
+                case "list":
+                    coordinator.getLeases().forEach((cpu, owner) -> System.out.println(cpu + " " + owner));
+                    return;
+                case "reap":
+                    System.out.println(coordinator.reap());
+                    return;
+                case "acquire":
+                    Set<Integer> conflicts = coordinator.tryAcquire(CpuList.parse(args[2]));
+                    System.out.println(conflicts.isEmpty() ? "leased " + args[2]
+                                                           : "held elsewhere " + CpuList.format(conflicts));
+                    holdMs = args.length > 3 ? Long.parseLong(args[3]) : 0;
+                    break;
+                case "acquire-any":
+                    Set<Integer> leased = coordinator.acquireAny(Integer.parseInt(args[2]), CpuList.parse(args[3]));
+                    System.out.println(leased.isEmpty() ? "none free" : "leased " + CpuList.format(leased));
+                    holdMs = args.length > 4 ? Long.parseLong(args[4]) : 0;
+                    break;
+                default:
+                    System.err.println("Unknown command " + args[1]);
+                    System.exit(2);
+            }
+            System.out.flush();
+            Thread.sleep(holdMs);
+        }
+    }
+}
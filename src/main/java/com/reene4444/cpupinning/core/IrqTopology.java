@@ -0,0 +1,285 @@
+package com.reene4444.cpupinning.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Interrupt and kernel CPU isolation awareness: reads per-CPU interrupt counts,
+ * IRQ affinities and isolcpus/nohz_full so latency-critical threads can be kept
+ * on quiet cores, and optionally steers IRQs away from reserved cores.
+ * The procfs and sysfs roots can be replaced, e.g. by a copy of another host's files.
+ */
+public class IrqTopology {
+    private static final Logger logger = LoggerFactory.getLogger(IrqTopology.class);
+    /** Interrupt rates are resampled at most this often */
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+    private static IrqTopology instance;
+    
+    private final Path procInterrupts;
+    private final Path procIrq;
+    private final Path procCmdline;
+    private final Path sysCpu;
+    private final Set<Integer> isolatedCpus = new TreeSet<>();
+    private final Set<Integer> nohzFullCpus = new TreeSet<>();
+    private final Map<Integer, Double> interruptRates = new HashMap<>();
+    private Map<Integer, Long> lastCounts = new HashMap<>();
+    private long lastSampleNanos;
+    
+    private IrqTopology() {
+        this(Paths.get("/proc"), Paths.get("/sys/devices/system/cpu"));
+    }
+    
+    /**
+     * @param procRoot directory holding interrupts, cmdline and irq/N/smp_affinity_list
+     * @param sysCpuRoot directory holding the isolated and nohz_full cpulists
+     */
+    public IrqTopology(Path procRoot, Path sysCpuRoot) {
+        this.procInterrupts = procRoot.resolve("interrupts");
+        this.procIrq = procRoot.resolve("irq");
+        this.procCmdline = procRoot.resolve("cmdline");
+        this.sysCpu = sysCpuRoot;
+        detectIsolation();
+        lastCounts = readInterruptCounts();
+        lastSampleNanos = System.nanoTime();
+    }
+    
+    public static synchronized IrqTopology getInstance() {
+        if (instance == null) {
+            instance = new IrqTopology();
+        }
+        return instance;
+    }
+    
+    private void detectIsolation() {
+        try {
+            isolatedCpus.addAll(CpuList.parse(readFirstLine(sysCpu.resolve("isolated"))));
+            nohzFullCpus.addAll(CpuList.parse(readFirstLine(sysCpu.resolve("nohz_full"))));
+    
+            // Older kernels expose isolcpus only on the command line
+            for (String arg : readFirstLine(procCmdline).split("\\s+")) {
+                if (arg.startsWith("isolcpus=")) {
+                    isolatedCpus.addAll(parseIsolcpus(arg.substring("isolcpus=".length())));
+                } else if (arg.startsWith("nohz_full=")) {
+                    nohzFullCpus.addAll(parseIsolcpus(arg.substring("nohz_full=".length())));
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Unable to detect isolated CPUs", e);
+        }
+        if (!isolatedCpus.isEmpty() || !nohzFullCpus.isEmpty()) {
+            logger.info("Detected isolated CPUs {}, nohz_full CPUs {}", 
+                       CpuList.format(isolatedCpus), CpuList.format(nohzFullCpus));
+        }
+    }
+    
+    /**
+     * Parse an isolcpus value, which may prefix the cpulist with flags ("domain,managed_irq,2-5")
+     */
+    private static Set<Integer> parseIsolcpus(String value) {
+        StringBuilder cpuList = new StringBuilder();
+        for (String part : value.split(",")) {
+            if (!part.isEmpty() && Character.isDigit(part.charAt(0))) {
+                if (cpuList.length() > 0) {
+                    cpuList.append(',');
+                }
+                cpuList.append(part);
+            }
+        }
+        return CpuList.parse(cpuList.toString());
+    }
+    
+    /**
+     * CPUs isolated from the scheduler (isolcpus / cpuset isolation)
+     */
+    public Set<Integer> getIsolatedCpus() {
+        return new TreeSet<>(isolatedCpus);
+    }
+    
+    /**
+     * CPUs running without the periodic scheduler tick
+     */
+    public Set<Integer> getNohzFullCpus() {
+        return new TreeSet<>(nohzFullCpus);
+    }
+    
+    /**
+     * Interrupts per second per CPU over the last sampling window (at least one second)
+     */
+    public synchronized Map<Integer, Double> getInterruptRates() {
+        long now = System.nanoTime();
+        long elapsed = now - lastSampleNanos;
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            Map<Integer, Long> counts = readInterruptCounts();
+            for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+                long delta = entry.getValue() - lastCounts.getOrDefault(entry.getKey(), entry.getValue());
+                interruptRates.put(entry.getKey(), Math.max(0, delta) * 1e9 / elapsed);
+            }
+            lastCounts = counts;
+            lastSampleNanos = now;
+        }
+        return new HashMap<>(interruptRates);
+    }
+    
+    /**
+     * Interrupts each CPU has handled since boot, by CPU
+     */
+    public Map<Integer, Long> getInterruptCounts() {
+        return readInterruptCounts();
+    }
+    
+    /**
+     * Interrupt rate of one CPU, 0 if unknown
+     */
+    public double getInterruptRate(int cpu) {
+        return getInterruptRates().getOrDefault(cpu, 0.0);
+    }
+    
+    /**
+     * Order candidate CPUs from quietest to noisiest: isolated CPUs first,
+     * then nohz_full CPUs, then by interrupt rate (cumulative count before the first window)
+     */
+    public List<Integer> rankQuietCpus(Set<Integer> candidates) {
+        Map<Integer, Double> rates = getInterruptRates();
+        Map<Integer, Long> counts;
+        synchronized (this) {
+            counts = new HashMap<>(lastCounts);
+        }
+        Comparator<Integer> quietness = Comparator
+                .comparing((Integer cpu) -> !isolatedCpus.contains(cpu))
+                .thenComparing(cpu -> !nohzFullCpus.contains(cpu))
+                .thenComparingDouble(cpu -> rates.isEmpty() 
+                        ? counts.getOrDefault(cpu, 0L) : rates.getOrDefault(cpu, 0.0))
+                .thenComparingInt(cpu -> cpu);
+        List<Integer> ranked = new ArrayList<>(candidates);
+        ranked.sort(quietness);
+        return ranked;
+    }
+    
+    /**
+     * Current affinity of every IRQ line
+     */
+    public Map<Integer, Set<Integer>> getIrqAffinities() {
+        Map<Integer, Set<Integer>> affinities = new TreeMap<>();
+        if (!Files.isDirectory(procIrq)) {
+            return affinities;
+        }
+        try (DirectoryStream<Path> irqs = Files.newDirectoryStream(procIrq, "[0-9]*")) {
+            for (Path irqDir : irqs) {
+                Path list = irqDir.resolve("smp_affinity_list");
+                if (Files.exists(list)) {
+                    affinities.put(Integer.parseInt(irqDir.getFileName().toString()), 
+                                   CpuList.parse(readFirstLine(list)));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Unable to read IRQ affinities", e);
+        }
+        return affinities;
+    }
+    
+    /**
+     * Rewrite IRQ affinities so no interrupt targets the reserved CPUs.
+     * Requires root; IRQs the kernel refuses to move (e.g. managed IRQs) are skipped.
+     * @return number of IRQs moved
+     */
+    public int steerIrqsAwayFrom(Set<Integer> reservedCpus) {
+        if (reservedCpus.isEmpty()) {
+            return 0;
+        }
+        Set<Integer> housekeeping = NumaTopology.getInstance().getEffectiveCpus();
+        housekeeping.removeAll(reservedCpus);
+        if (housekeeping.isEmpty()) {
+            logger.warn("Not steering IRQs: reserved CPUs {} leave no CPU for interrupts", reservedCpus);
+            return 0;
+        }
+    
+        int moved = 0;
+        int refused = 0;
+        for (Map.Entry<Integer, Set<Integer>> entry : getIrqAffinities().entrySet()) {
+            Set<Integer> current = entry.getValue();
+            if (Collections.disjoint(current, reservedCpus)) {
+                continue;
+            }
+            Set<Integer> target = new TreeSet<>(current);
+            target.removeAll(reservedCpus);
+            if (target.isEmpty()) {
+                target.addAll(housekeeping);
+            }
+            try {
+                Files.writeString(procIrq.resolve(entry.getKey() + "/smp_affinity_list"), CpuList.format(target));
+                moved++;
+            } catch (IOException e) {
+                refused++;
+                logger.debug("Kernel refused to move IRQ {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+        logger.info("Steered {} IRQ(s) away from reserved CPUs {} ({} could not be moved)", 
+                   moved, CpuList.format(reservedCpus), refused);
+        return moved;
+    }
+    
+    /**
+     * Sum /proc/interrupts per CPU column. The header names the columns, since
+     * offline CPUs are omitted. Rows without a count for every column (ERR, MIS)
+     * are host-wide totals and are skipped.
+     */
+    private Map<Integer, Long> readInterruptCounts() {
+        Map<Integer, Long> counts = new HashMap<>();
+        if (!Files.exists(procInterrupts)) {
+            return counts;
+        }
+        try {
+            List<String> lines = Files.readAllLines(procInterrupts);
+            if (lines.isEmpty()) {
+                return counts;
+            }
+            String[] header = lines.get(0).trim().split("\\s+");
+            int[] columnCpu = new int[header.length];
+            for (int i = 0; i < header.length; i++) {
+                columnCpu[i] = Integer.parseInt(header[i].substring(3));
+                counts.put(columnCpu[i], 0L);
+            }
+            for (int l = 1; l < lines.size(); l++) {
+                String[] fields = lines.get(l).trim().split("\\s+");
+                // fields[0] is the IRQ label ("24:", "LOC:"), then one count per column
+                int columns = 0;
+                while (columns < columnCpu.length && columns + 1 < fields.length && isNumber(fields[columns + 1])) {
+                    columns++;
+                }
+                if (columns < columnCpu.length) {
+                    continue;
+                }
+                for (int i = 0; i < columns; i++) {
+                    counts.merge(columnCpu[i], Long.parseLong(fields[i + 1]), Long::sum);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Unable to read {}", procInterrupts, e);
+        }
+        return counts;
+    }
+    
+    private static boolean isNumber(String field) {
+        for (int i = 0; i < field.length(); i++) {
+            if (!Character.isDigit(field.charAt(i))) {
+                return false;
+            }
+        }
+        return !field.isEmpty();
+    }
+    
+    private static String readFirstLine(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return "";
+        }
+        List<String> lines = Files.readAllLines(file);
+        return lines.isEmpty() ? "" : lines.get(0).trim();
+    }
+}
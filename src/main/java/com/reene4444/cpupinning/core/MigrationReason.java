@@ -0,0 +1,36 @@
+package com.reene4444.cpupinning.core;
+
+/**
+ * Why a thread was moved to a different CPU set
+ */
+public enum MigrationReason {
+    /**
+     * Average latency exceeded the engine threshold
+     */
+    HIGH_LATENCY,
+    
+    /**
+     * Throughput fell below the engine threshold
+     */
+    LOW_QPS,
+    
+    /**
+     * Instructions per cycle dropped below the thread's baseline
+     */
+    IPC_DROP,
+    
+    /**
+     * Pool or workload CPU sets were reconfigured
+     */
+    RECONFIGURATION,
+    
+    /**
+     * Thread moved explicitly from one business pool to another
+     */
+    POOL_TRANSFER,
+    
+    /**
+     * Automatic workload classification moved the thread's workload to another type
+     */
+    RECLASSIFICATION
+}
@@ -3,27 +3,90 @@ package com.reene4444.cpupinning.core;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * NUMA (Non-Uniform Memory Access) topology detection and management
  */
 public class NumaTopology {
     private static final Logger logger = LoggerFactory.getLogger(NumaTopology.class);
-    private static NumaTopology instance;
+    private static final Path SYS_NODE = Paths.get("/sys/devices/system/node");
+    private static final Path SYS_CPU = Paths.get("/sys/devices/system/cpu");
+    // Completed once detection finishes; detection runs at most once per JVM
+    private static CompletableFuture<NumaTopology> discovery;
     
-    private final Map<Integer, List<Integer>> numaNodeToCpus = new HashMap<>();
+    private final Map<Integer, List<Integer>> numaNodeToCpus = new TreeMap<>();
     private final Map<Integer, Integer> cpuToNumaNode = new HashMap<>();
+    private final List<Set<Integer>> l3Domains = new ArrayList<>();
+    // Size of one L3 cache, 0 when unknown
+    private long l3CacheBytes;
+    // SMT siblings of each CPU, including the CPU itself; CPUs without siblings are absent
+    private final Map<Integer, Set<Integer>> smtSiblings = new HashMap<>();
+    private final Set<Integer> effectiveCpus = new TreeSet<>();
     
     private NumaTopology() {
         detectTopology();
     }
     
-    public static synchronized NumaTopology getInstance() {
-        if (instance == null) {
-            instance = new NumaTopology();
+    /**
+     * The detected topology, waiting for a detection started by {@link #discoverAsync()}
+     * or running it on the calling thread if none was started
+     */
+    public static NumaTopology getInstance() {
+        CompletableFuture<NumaTopology> pending;
+        boolean detectHere = false;
+        synchronized (NumaTopology.class) {
+            if (discovery == null) {
+                discovery = new CompletableFuture<>();
+                detectHere = true;
+            }
+            pending = discovery;
+        }
+        if (detectHere) {
+            detect(pending);
+        }
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Start detection (and loading the native library) on a background thread, so it
+     * overlaps with application startup. Does nothing if detection already started.
+     */
+    public static synchronized CompletableFuture<NumaTopology> discoverAsync() {
+        if (discovery == null) {
+            CompletableFuture<NumaTopology> pending = new CompletableFuture<>();
+            discovery = pending;
+            Thread thread = new Thread(() -> detect(pending), "numa-topology-discovery");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return discovery;
+    }
+    
+    private static void detect(CompletableFuture<NumaTopology> pending) {
+        try {
+            pending.complete(new NumaTopology());
+        } catch (Throwable t) {
+            // e.g. the native library failed to load; every caller sees the same failure
+            pending.completeExceptionally(t);
         }
-        return instance;
     }
     
     /**
@@ -34,53 +97,142 @@ public class NumaTopology {
         try {
             if (System.getProperty("os.name").toLowerCase().contains("linux")) {
                 detectLinuxNumaTopology();
-            } else {
-                // Fallback: assume single NUMA node
-                int cpuCount = CpuAffinity.getAvailableCpuCount();
-                numaNodeToCpus.put(0, new ArrayList<>());
-                for (int i = 0; i < cpuCount; i++) {
-                    numaNodeToCpus.get(0).add(i);
-                    cpuToNumaNode.put(i, 0);
-                }
+                detectLinuxCacheTopology();
+                detectSmtSiblings();
+                detectEffectiveCpus();
             }
         } catch (Exception e) {
             logger.warn("Failed to detect NUMA topology, assuming single node", e);
-            int cpuCount = CpuAffinity.getAvailableCpuCount();
-            numaNodeToCpus.put(0, new ArrayList<>());
+            numaNodeToCpus.clear();
+            cpuToNumaNode.clear();
+            l3Domains.clear();
+            l3CacheBytes = 0;
+            smtSiblings.clear();
+            effectiveCpus.clear();
+        }
+    
+        int cpuCount = CpuAffinity.getAvailableCpuCount();
+        if (numaNodeToCpus.isEmpty()) {
+            // Fallback: assume single NUMA node
+            List<Integer> cpus = new ArrayList<>();
             for (int i = 0; i < cpuCount; i++) {
-                numaNodeToCpus.get(0).add(i);
+                cpus.add(i);
                 cpuToNumaNode.put(i, 0);
             }
+            numaNodeToCpus.put(0, cpus);
+        }
+        if (effectiveCpus.isEmpty()) {
+            for (int i = 0; i < cpuCount; i++) {
+                effectiveCpus.add(i);
+            }
+        }
+        if (l3Domains.isEmpty()) {
+            l3Domains.add(new TreeSet<>(effectiveCpus));
         }
+        logger.info("Detected topology: NUMA nodes {}, {} L3 domain(s), {} SMT sibling group(s), effective CPUs {}", 
+                   numaNodeToCpus, l3Domains.size(), getSmtSiblingGroups().size(), CpuList.format(effectiveCpus));
     }
     
-    private void detectLinuxNumaTopology() {
-        // Simplified detection - in production, read from /sys filesystem
-        int cpuCount = CpuAffinity.getAvailableCpuCount();
-        // Assume 2 NUMA nodes for multi-socket systems
-        int cpusPerNode = cpuCount / 2;
-        
-        for (int node = 0; node < 2; node++) {
-            List<Integer> cpus = new ArrayList<>();
-            for (int i = node * cpusPerNode; i < (node + 1) * cpusPerNode && i < cpuCount; i++) {
-                cpus.add(i);
-                cpuToNumaNode.put(i, node);
+    private void detectLinuxNumaTopology() throws IOException {
+        if (!Files.isDirectory(SYS_NODE)) {
+            return;
+        }
+        try (DirectoryStream<Path> nodes = Files.newDirectoryStream(SYS_NODE, "node[0-9]*")) {
+            for (Path nodeDir : nodes) {
+                int node = Integer.parseInt(nodeDir.getFileName().toString().substring(4));
+                Set<Integer> cpus = CpuList.parse(readFirstLine(nodeDir.resolve("cpulist")));
+                if (cpus.isEmpty()) {
+                    // Memory-only node
+                    continue;
+                }
+                numaNodeToCpus.put(node, new ArrayList<>(cpus));
+                for (Integer cpu : cpus) {
+                    cpuToNumaNode.put(cpu, node);
+                }
             }
-            if (!cpus.isEmpty()) {
-                numaNodeToCpus.put(node, cpus);
+        }
+    }
+    
+    private void detectLinuxCacheTopology() throws IOException {
+        if (!Files.isDirectory(SYS_CPU)) {
+            return;
+        }
+        Set<Set<Integer>> domains = new LinkedHashSet<>();
+        try (DirectoryStream<Path> cpus = Files.newDirectoryStream(SYS_CPU, "cpu[0-9]*")) {
+            for (Path cpuDir : cpus) {
+                Path cacheDir = cpuDir.resolve("cache");
+                if (!Files.isDirectory(cacheDir)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> indexes = Files.newDirectoryStream(cacheDir, "index[0-9]*")) {
+                    for (Path index : indexes) {
+                        if ("3".equals(readFirstLine(index.resolve("level")))) {
+                            domains.add(CpuList.parse(readFirstLine(index.resolve("shared_cpu_list"))));
+                            l3CacheBytes = Math.max(l3CacheBytes, parseCacheSize(readFirstLine(index.resolve("size"))));
+                        }
+                    }
+                }
             }
         }
-        
-        if (numaNodeToCpus.isEmpty()) {
-            // Fallback to single node
-            numaNodeToCpus.put(0, new ArrayList<>());
-            for (int i = 0; i < cpuCount; i++) {
-                numaNodeToCpus.get(0).add(i);
-                cpuToNumaNode.put(i, 0);
+        List<Set<Integer>> sorted = new ArrayList<>(domains);
+        sorted.sort(Comparator.comparingInt(domain -> domain.iterator().next()));
+        l3Domains.addAll(sorted);
+    }
+    
+    private void detectSmtSiblings() throws IOException {
+        if (!Files.isDirectory(SYS_CPU)) {
+            return;
+        }
+        try (DirectoryStream<Path> cpus = Files.newDirectoryStream(SYS_CPU, "cpu[0-9]*")) {
+            for (Path cpuDir : cpus) {
+                int cpu = Integer.parseInt(cpuDir.getFileName().toString().substring(3));
+                Set<Integer> siblings = CpuList.parse(readFirstLine(cpuDir.resolve("topology/thread_siblings_list")));
+                if (siblings.size() > 1) {
+                    smtSiblings.put(cpu, Collections.unmodifiableSet(new TreeSet<>(siblings)));
+                }
+            }
+        }
+    }
+    
+    private void detectEffectiveCpus() throws IOException {
+        // Reflects container cpusets and taskset restrictions, unlike availableProcessors()
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.exists(status)) {
+            return;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("Cpus_allowed_list:")) {
+                effectiveCpus.addAll(CpuList.parse(line.substring(line.indexOf(':') + 1)));
+                return;
             }
         }
     }
     
+    /**
+     * Parse a sysfs cache size such as {@code 32768K}
+     */
+    private static long parseCacheSize(String size) {
+        if (size.isEmpty()) {
+            return 0;
+        }
+        char unit = Character.toUpperCase(size.charAt(size.length() - 1));
+        long multiplier = unit == 'K' ? 1024 : unit == 'M' ? 1024 * 1024 : unit == 'G' ? 1024 * 1024 * 1024 : 1;
+        String digits = multiplier > 1 ? size.substring(0, size.length() - 1) : size;
+        try {
+            return Long.parseLong(digits.trim()) * multiplier;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    private static String readFirstLine(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return "";
+        }
+        List<String> lines = Files.readAllLines(file);
+        return lines.isEmpty() ? "" : lines.get(0).trim();
+    }
+    
     /**
      * Get NUMA node for a specific CPU core
      */
@@ -96,11 +248,20 @@ public class NumaTopology {
     }
     
     /**
-     * Get local NUMA node CPUs for current thread
+     * Get local NUMA node CPUs for current thread: those of the node it is running on,
+     * or of the first node if the current CPU is unknown
      */
     public List<Integer> getLocalNumaCpus() {
-        // Simplified: return first NUMA node CPUs
-        return getCpusInNode(0);
+        return getCpusInNode(getCurrentNumaNode());
+    }
+    
+    /**
+     * Get the NUMA node the calling thread is running on right now
+     */
+    public int getCurrentNumaNode() {
+        int cpu = CpuAffinity.getCurrentCpu();
+        return cpu >= 0 && cpuToNumaNode.containsKey(cpu) ? cpuToNumaNode.get(cpu) 
+                                                          : numaNodeToCpus.keySet().iterator().next();
     }
     
     /**
@@ -109,5 +270,91 @@ public class NumaTopology {
     public Set<Integer> getNumaNodes() {
         return new HashSet<>(numaNodeToCpus.keySet());
     }
+    
+    /**
+     * Get the CPUs sharing the given last-level (L3) cache domain, ordered by lowest CPU
+     */
+    public Set<Integer> getCpusInL3Domain(int domain) {
+        if (domain < 0 || domain >= l3Domains.size()) {
+            return new TreeSet<>();
+        }
+        return new TreeSet<>(l3Domains.get(domain));
+    }
+    
+    /**
+     * Get the L3 cache domain containing a CPU
+     * @return domain index, or -1 if the CPU is in no known domain
+     */
+    public int getL3Domain(int cpu) {
+        for (int domain = 0; domain < l3Domains.size(); domain++) {
+            if (l3Domains.get(domain).contains(cpu)) {
+                return domain;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Get the size of one L3 cache in bytes
+     * @return the size, or 0 if it could not be read
+     */
+    public long getL3CacheBytes() {
+        return l3CacheBytes;
+    }
+    
+    /**
+     * Get the logical CPUs sharing a physical core with a CPU, including the CPU itself
+     */
+    public Set<Integer> getSmtSiblings(int cpu) {
+        Set<Integer> siblings = smtSiblings.get(cpu);
+        return siblings != null ? siblings : Set.of(cpu);
+    }
+    
+    /**
+     * Get every group of SMT siblings (physical cores with more than one logical CPU),
+     * ordered by lowest CPU
+     */
+    public List<Set<Integer>> getSmtSiblingGroups() {
+        Set<Set<Integer>> groups = new LinkedHashSet<>(new TreeMap<>(smtSiblings).values());
+        return new ArrayList<>(groups);
+    }
+    
+    /**
+     * Get the number of L3 cache domains
+     */
+    public int getL3DomainCount() {
+        return l3Domains.size();
+    }
+    
+    /**
+     * Get the CPUs this process is allowed to run on (cgroup cpuset / inherited affinity)
+     */
+    public Set<Integer> getEffectiveCpus() {
+        return new TreeSet<>(effectiveCpus);
+    }
+    
+    /**
+     * Digest of the NUMA layout, cache and SMT domains and effective CPUs; state learned
+     * on one topology is only valid on a topology with the same fingerprint
+     */
+    public String getFingerprint() {
+        StringBuilder layout = new StringBuilder();
+        numaNodeToCpus.forEach((node, cpus) -> layout.append("node").append(node).append('=')
+                                                     .append(CpuList.format(new TreeSet<>(cpus))).append(';'));
+        for (Set<Integer> domain : l3Domains) {
+            layout.append("l3=").append(CpuList.format(domain)).append(';');
+        }
+        layout.append("l3bytes=").append(l3CacheBytes).append(';');
+        for (Set<Integer> siblings : getSmtSiblingGroups()) {
+            layout.append("smt=").append(CpuList.format(siblings)).append(';');
+        }
+        layout.append("effective=").append(CpuList.format(effectiveCpus));
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] digest = sha256.digest(layout.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
 }
-
@@ -0,0 +1,47 @@
+package com.reene4444.cpupinning.core;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factory that pins every thread it creates to a fixed CPU set before
+ * the thread runs its first task, so pooled threads are placed once at birth
+ */
+public class PinningThreadFactory implements ThreadFactory {
+    private final String namePrefix;
+    private final Set<Integer> cpus;
+    private final boolean daemon;
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+    private final AtomicInteger pinnedThreads = new AtomicInteger(0);
+    
+    public PinningThreadFactory(String namePrefix, Set<Integer> cpus, boolean daemon) {
+        this.namePrefix = namePrefix;
+        this.cpus = new HashSet<>(cpus);
+        this.daemon = daemon;
+    }
+    
+    @Override
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(() -> {
+            if (CpuAffinity.pinThread(cpus)) {
+                pinnedThreads.incrementAndGet();
+            }
+            runnable.run();
+        }, namePrefix + threadNumber.getAndIncrement());
+        thread.setDaemon(daemon);
+        return thread;
+    }
+    
+    public Set<Integer> getCpus() {
+        return new HashSet<>(cpus);
+    }
+    
+    /**
+     * Number of threads created by this factory whose pin succeeded
+     */
+    public int getPinnedThreadCount() {
+        return pinnedThreads.get();
+    }
+}
@@ -0,0 +1,80 @@
+package com.reene4444.cpupinning.core;
+
+import com.sun.jna.Library;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+/**
+ * Minimal sched_setattr(2)/sched_getattr(2) binding
+ */
+final class SchedAttr {
+    /** SCHED_ATTR_SIZE_VER1, which adds the utilization clamps */
+    private static final int ATTR_SIZE = 56;
+    // Children of a thread with an elevated profile start with the default policy
+    private static final long FLAG_RESET_ON_FORK = 0x01;
+    private static final long FLAG_UTIL_CLAMP_MIN = 0x20;
+    private static final long FLAG_UTIL_CLAMP_MAX = 0x40;
+    
+    private static final int SYS_SCHED_SETATTR = "aarch64".equals(Platform.ARCH) ? 274 
+                                               : "x86-64".equals(Platform.ARCH) ? 314 : -1;
+    private static final int SYS_SCHED_GETATTR = "aarch64".equals(Platform.ARCH) ? 275 
+                                               : "x86-64".equals(Platform.ARCH) ? 315 : -1;
+    private static final SchedLibrary LIBC = Platform.isLinux() ? Native.load("c", SchedLibrary.class) : null;
+    
+    interface SchedLibrary extends Library {
+        long syscall(long number, long pid, Pointer attr, long flags);
+        long syscall(long number, long pid, Pointer attr, long size, long flags);
+    }
+    
+    private SchedAttr() {
+    }
+    
+    static boolean isSupportedPlatform() {
+        return LIBC != null && SYS_SCHED_SETATTR > 0;
+    }
+    
+    /**
+     * @param tid kernel thread ID, 0 for the caller
+     * @return 0, or -errno on failure
+     */
+    static int set(int tid, SchedulingProfile profile) {
+        Memory attr = new Memory(ATTR_SIZE);
+        attr.clear();
+        attr.setInt(0, ATTR_SIZE);
+        attr.setInt(4, profile.getPolicy().getValue());
+        long flags = FLAG_RESET_ON_FORK;
+        if (profile.hasUtilClamp()) {
+            flags |= FLAG_UTIL_CLAMP_MIN | FLAG_UTIL_CLAMP_MAX;
+            attr.setInt(48, profile.getUtilMin());
+            attr.setInt(52, profile.getUtilMax());
+        }
+        attr.setLong(8, flags);
+        attr.setInt(16, profile.getNice());
+        attr.setInt(20, profile.getPriority());
+        long result = LIBC.syscall(SYS_SCHED_SETATTR, tid, attr, 0);
+        return result == 0 ? 0 : -Native.getLastError();
+    }
+    
+    /**
+     * @param tid kernel thread ID, 0 for the caller
+     * @return the thread's current profile, or null if it cannot be read or uses another policy
+     */
+    static SchedulingProfile get(int tid) {
+        Memory attr = new Memory(ATTR_SIZE);
+        attr.clear();
+        if (LIBC.syscall(SYS_SCHED_GETATTR, tid, attr, ATTR_SIZE, 0) != 0) {
+            return null;
+        }
+        SchedPolicy policy = SchedPolicy.fromValue(attr.getInt(4));
+        if (policy == null) {
+            return null;
+        }
+        // Kernels before 5.3 report the shorter attr and leave the clamps zeroed
+        boolean clampReported = attr.getInt(0) >= ATTR_SIZE;
+        return SchedulingProfile.of(policy, attr.getInt(16), attr.getInt(20),
+                                    clampReported ? attr.getInt(48) : 0,
+                                    clampReported ? attr.getInt(52) : SchedulingProfile.MAX_UTIL);
+    }
+}
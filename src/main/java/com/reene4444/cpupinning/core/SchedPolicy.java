@@ -0,0 +1,60 @@
+package com.reene4444.cpupinning.core;
+
+/**
+ * Linux scheduling policy of a thread
+ */
+public enum SchedPolicy {
+    /**
+     * Default time-sharing policy (SCHED_OTHER), weighted by nice value
+     */
+    OTHER(0),
+    
+    /**
+     * Real-time first-in first-out; runs until it blocks or a higher priority thread wakes
+     */
+    FIFO(1),
+    
+    /**
+     * Real-time round-robin; like FIFO with a time slice among equal priorities
+     */
+    RR(2),
+    
+    /**
+     * Time-sharing for CPU-bound batch work; never preempts on wakeup
+     */
+    BATCH(3),
+    
+    /**
+     * Runs only when nothing else wants the CPU
+     */
+    IDLE(5);
+    
+    private final int value;
+    
+    SchedPolicy(int value) {
+        this.value = value;
+    }
+    
+    /**
+     * SCHED_* value passed to sched_setattr(2)
+     */
+    int getValue() {
+        return value;
+    }
+    
+    /**
+     * @return the policy, or null for policies this framework does not manage (e.g. SCHED_DEADLINE)
+     */
+    static SchedPolicy fromValue(int value) {
+        for (SchedPolicy policy : values()) {
+            if (policy.value == value) {
+                return policy;
+            }
+        }
+        return null;
+    }
+    
+    boolean isRealtime() {
+        return this == FIFO || this == RR;
+    }
+}
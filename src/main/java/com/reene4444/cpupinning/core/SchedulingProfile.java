@@ -0,0 +1,251 @@
+package com.reene4444.cpupinning.core;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Scheduling policy, nice value or real-time priority, and optional utilization clamp
+ * to apply to a thread together with its CPU affinity.
+ * <p>
+ * Profiles are written as {@code policy[:value][,uclamp=min-max]}, e.g. {@code "batch"},
+ * {@code "other:-5"}, {@code "fifo:10"} or {@code "other:0,uclamp=512-1024"}, where the
+ * value is the nice value for other/batch and the priority for fifo/rr.
+ */
+public final class SchedulingProfile {
+    /** Highest real-time priority accepted; above this threads compete with kernel IRQ threads */
+    public static final int MAX_REALTIME_PRIORITY = 49;
+    /** Full capacity on the utilization clamp scale */
+    public static final int MAX_UTIL = 1024;
+    public static final SchedulingProfile DEFAULT = normal(0);
+    
+    private static final int EPERM = 1;
+    
+    private final SchedPolicy policy;
+    private final int nice;
+    private final int priority;
+    // -1 when the profile does not clamp utilization
+    private final int utilMin;
+    private final int utilMax;
+    
+    private SchedulingProfile(SchedPolicy policy, int nice, int priority, int utilMin, int utilMax) {
+        this.policy = policy;
+        this.nice = nice;
+        this.priority = priority;
+        this.utilMin = utilMin;
+        this.utilMax = utilMax;
+    }
+    
+    public static SchedulingProfile normal(int nice) {
+        return new SchedulingProfile(SchedPolicy.OTHER, checkNice(nice), 0, -1, -1);
+    }
+    
+    public static SchedulingProfile batch(int nice) {
+        return new SchedulingProfile(SchedPolicy.BATCH, checkNice(nice), 0, -1, -1);
+    }
+    
+    public static SchedulingProfile idle() {
+        return new SchedulingProfile(SchedPolicy.IDLE, 0, 0, -1, -1);
+    }
+    
+    public static SchedulingProfile fifo(int priority) {
+        return new SchedulingProfile(SchedPolicy.FIFO, 0, checkPriority(priority), -1, -1);
+    }
+    
+    public static SchedulingProfile roundRobin(int priority) {
+        return new SchedulingProfile(SchedPolicy.RR, 0, checkPriority(priority), -1, -1);
+    }
+    
+    /**
+     * Same profile with a utilization clamp, which biases CPU frequency and task
+     * placement on kernels built with CONFIG_UCLAMP_TASK
+     * @param min minimum utilization, 0 to {@link #MAX_UTIL}
+     * @param max maximum utilization, min to {@link #MAX_UTIL}
+     */
+    public SchedulingProfile withUtilClamp(int min, int max) {
+        if (min < 0 || max > MAX_UTIL || min > max) {
+            throw new IllegalArgumentException(String.format("Invalid utilization clamp %d-%d", min, max));
+        }
+        return new SchedulingProfile(policy, nice, priority, min, max);
+    }
+    
+    public SchedulingProfile withoutUtilClamp() {
+        return hasUtilClamp() ? new SchedulingProfile(policy, nice, priority, -1, -1) : this;
+    }
+    
+    private static int checkNice(int nice) {
+        if (nice < -20 || nice > 19) {
+            throw new IllegalArgumentException("Nice value must be between -20 and 19: " + nice);
+        }
+        return nice;
+    }
+    
+    private static int checkPriority(int priority) {
+        if (priority < 1 || priority > MAX_REALTIME_PRIORITY) {
+            throw new IllegalArgumentException(String.format(
+                "Real-time priority must be between 1 and %d: %d", MAX_REALTIME_PRIORITY, priority));
+        }
+        return priority;
+    }
+    
+    /**
+     * Parse {@code policy[:value][,uclamp=min-max]}
+     * @throws IllegalArgumentException if the profile is malformed or out of range
+     */
+    public static SchedulingProfile parse(String spec) {
+        if (spec == null || spec.isBlank()) {
+            throw new IllegalArgumentException("Empty scheduling profile");
+        }
+        String[] parts = spec.trim().toLowerCase(Locale.ROOT).split("\\s*,\\s*");
+        String[] head = parts[0].split("\\s*:\\s*", 2);
+        try {
+            Integer value = head.length > 1 ? Integer.valueOf(head[1]) : null;
+            SchedulingProfile profile;
+            switch (head[0]) {
+                case "other":
+                case "normal":
+                    profile = normal(value != null ? value : 0);
+                    break;
+                case "batch":
+                    profile = batch(value != null ? value : 0);
+                    break;
+                case "idle":
+                    profile = idle();
+                    break;
+                case "fifo":
+                    profile = fifo(requireValue(value, spec));
+                    break;
+                case "rr":
+                    profile = roundRobin(requireValue(value, spec));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown scheduling policy in '" + spec + "'");
+            }
+            for (int i = 1; i < parts.length; i++) {
+                if (!parts[i].startsWith("uclamp=")) {
+                    throw new IllegalArgumentException("Unknown scheduling option '" + parts[i] + "' in '" + spec + "'");
+                }
+                String[] clamp = parts[i].substring("uclamp=".length()).split("-", 2);
+                if (clamp.length != 2) {
+                    throw new IllegalArgumentException("Expected uclamp=min-max in '" + spec + "'");
+                }
+                profile = profile.withUtilClamp(Integer.parseInt(clamp[0].trim()), Integer.parseInt(clamp[1].trim()));
+            }
+            return profile;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in scheduling profile '" + spec + "'");
+        }
+    }
+    
+    private static int requireValue(Integer value, String spec) {
+        if (value == null) {
+            throw new IllegalArgumentException("Real-time policy needs a priority, e.g. 'fifo:10': '" + spec + "'");
+        }
+        return value;
+    }
+    
+    /**
+     * Weaker profile to try after the kernel rejected this one: without CAP_SYS_NICE
+     * real-time policies fall back to SCHED_OTHER and negative nice values to 0, and
+     * kernels without utilization clamping drop the clamp
+     * @param errno error returned by sched_setattr(2)
+     * @return the next profile to try, or null to give up
+     */
+    SchedulingProfile degrade(int errno) {
+        if (errno != EPERM) {
+            return hasUtilClamp() ? withoutUtilClamp() : null;
+        }
+        if (policy.isRealtime()) {
+            return new SchedulingProfile(SchedPolicy.OTHER, 0, 0, utilMin, utilMax);
+        }
+        if (nice < 0) {
+            return new SchedulingProfile(policy, 0, 0, utilMin, utilMax);
+        }
+        // Raising the minimum clamp can itself require privileges
+        return hasUtilClamp() ? withoutUtilClamp() : null;
+    }
+    
+    /**
+     * Profile as read back from the kernel; the default clamp range counts as no clamp
+     */
+    static SchedulingProfile of(SchedPolicy policy, int nice, int priority, int utilMin, int utilMax) {
+        boolean clamped = utilMin > 0 || (utilMax > 0 && utilMax < MAX_UTIL);
+        return new SchedulingProfile(policy, policy.isRealtime() || policy == SchedPolicy.IDLE ? 0 : nice,
+                                     policy.isRealtime() ? priority : 0,
+                                     clamped ? utilMin : -1, clamped ? utilMax : -1);
+    }
+    
+    public SchedPolicy getPolicy() {
+        return policy;
+    }
+    
+    /**
+     * Nice value for OTHER and BATCH, 0 otherwise
+     */
+    public int getNice() {
+        return nice;
+    }
+    
+    /**
+     * Real-time priority for FIFO and RR, 0 otherwise
+     */
+    public int getPriority() {
+        return priority;
+    }
+    
+    public boolean isRealtime() {
+        return policy.isRealtime();
+    }
+    
+    public boolean hasUtilClamp() {
+        return utilMin >= 0;
+    }
+    
+    /**
+     * @return minimum utilization, -1 without a clamp
+     */
+    public int getUtilMin() {
+        return utilMin;
+    }
+    
+    /**
+     * @return maximum utilization, -1 without a clamp
+     */
+    public int getUtilMax() {
+        return utilMax;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SchedulingProfile)) {
+            return false;
+        }
+        SchedulingProfile other = (SchedulingProfile) o;
+        return policy == other.policy && nice == other.nice && priority == other.priority
+            && utilMin == other.utilMin && utilMax == other.utilMax;
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(policy, nice, priority, utilMin, utilMax);
+    }
+    
+    /**
+     * The profile in {@link #parse} syntax
+     */
+    @Override
+    public String toString() {
+        StringBuilder spec = new StringBuilder(policy.name().toLowerCase(Locale.ROOT));
+        if (policy.isRealtime()) {
+            spec.append(':').append(priority);
+        } else if (policy != SchedPolicy.IDLE) {
+            spec.append(':').append(nice);
+        }
+        if (hasUtilClamp()) {
+            spec.append(",uclamp=").append(utilMin).append('-').append(utilMax);
+        }
+        return spec.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package com.reene4444.cpupinning.core;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * How a pool treats the SMT (hyperthread) siblings of its CPUs
+ */
+public enum SmtMode {
+    /**
+     * Siblings are independent CPUs that other pools may use
+     */
+    SHARED,
+    
+    /**
+     * The pool owns whole physical cores: the siblings of its CPUs join the pool and
+     * are kept from every other pool
+     */
+    WHOLE_CORE,
+    
+    /**
+     * HT off for this pool: its threads run on one logical CPU per physical core and
+     * the other siblings are kept from every other pool, so they stay idle
+     */
+    HT_OFF;
+    
+    /**
+     * CPUs the pool's threads are pinned to
+     */
+    public Set<Integer> select(Set<Integer> cpus) {
+        return select(cpus, NumaTopology.getInstance()::getSmtSiblings);
+    }
+    
+    /**
+     * @param siblingsOf SMT siblings of a CPU, including the CPU itself
+     */
+    public Set<Integer> select(Set<Integer> cpus, Function<Integer, Set<Integer>> siblingsOf) {
+        Set<Integer> selected = new TreeSet<>();
+        switch (this) {
+            case WHOLE_CORE:
+                for (Integer cpu : cpus) {
+                    selected.addAll(siblingsOf.apply(cpu));
+                }
+                break;
+            case HT_OFF:
+                Set<Integer> covered = new TreeSet<>();
+                // Lowest CPU of each core, so the choice is stable
+                for (Integer cpu : new TreeSet<>(cpus)) {
+                    if (covered.addAll(siblingsOf.apply(cpu))) {
+                        selected.add(cpu);
+                    }
+                }
+                break;
+            default:
+                selected.addAll(cpus);
+        }
+        return selected;
+    }
+    
+    /**
+     * CPUs no other pool may use: the pool's CPUs plus, unless {@link #SHARED}, every
+     * sibling of them
+     */
+    public Set<Integer> claim(Set<Integer> cpus) {
+        return claim(cpus, NumaTopology.getInstance()::getSmtSiblings);
+    }
+    
+    public Set<Integer> claim(Set<Integer> cpus, Function<Integer, Set<Integer>> siblingsOf) {
+        return this == SHARED ? new TreeSet<>(cpus) : WHOLE_CORE.select(cpus, siblingsOf);
+    }
+}
@@ -0,0 +1,65 @@
+package com.reene4444.cpupinning.core;
+
+import java.util.Set;
+
+/**
+ * Where the framework intends a tracked thread to run
+ */
+public final class ThreadPlacement {
+    private final String pool;
+    private final String threadName;
+    private final int nativeTid;
+    private final Set<Integer> cpus;
+    private final SchedulingProfile scheduling;
+    
+    public ThreadPlacement(String pool, String threadName, int nativeTid, Set<Integer> cpus) {
+        this(pool, threadName, nativeTid, cpus, null);
+    }
+    
+    public ThreadPlacement(String pool, String threadName, int nativeTid, Set<Integer> cpus,
+                           SchedulingProfile scheduling) {
+        this.pool = pool;
+        this.threadName = threadName;
+        this.nativeTid = nativeTid;
+        this.cpus = Set.copyOf(cpus);
+        this.scheduling = scheduling;
+    }
+    
+    /**
+     * Owner of the placement: a business pool name or {@code "workload:<TYPE>"}
+     */
+    public String getPool() {
+        return pool;
+    }
+    
+    public String getThreadName() {
+        return threadName;
+    }
+    
+    /**
+     * @return native thread ID, 0 when unknown
+     */
+    public int getNativeTid() {
+        return nativeTid;
+    }
+    
+    /**
+     * CPUs the thread was last pinned to
+     */
+    public Set<Integer> getCpus() {
+        return cpus;
+    }
+    
+    /**
+     * Scheduling profile in effect after the thread was pinned, null if none was applied
+     */
+    public SchedulingProfile getScheduling() {
+        return scheduling;
+    }
+    
+    @Override
+    public String toString() {
+        String placement = String.format("%s(tid=%d) in %s -> %s", threadName, nativeTid, pool, CpuList.format(cpus));
+        return scheduling != null ? placement + " [" + scheduling + "]" : placement;
+    }
+}
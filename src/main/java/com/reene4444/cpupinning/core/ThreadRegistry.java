@@ -0,0 +1,197 @@
+package com.reene4444.cpupinning.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Cleaner;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Per-thread state keyed by Java thread ID that never keeps a {@link Thread} alive.
+ * <p>
+ * Entries hold only a weak reference to their thread. An entry is released when its
+ * thread is garbage collected (via a {@link Cleaner}) or, without waiting for GC,
+ * by sweeps that drop terminated threads: one runs whenever the registry has doubled
+ * since the last sweep, and {@link #forEach} skips and releases dead entries as it
+ * goes. Automatic releases are reported to the optional release callback; explicit
+ * {@link #remove} calls are not.
+ */
+public final class ThreadRegistry<V> {
+    private static final Logger logger = LoggerFactory.getLogger(ThreadRegistry.class);
+    private static final Cleaner cleaner = Cleaner.create(runnable -> {
+        Thread thread = new Thread(runnable, "cpu-pinning-thread-registry-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final int MIN_SWEEP_THRESHOLD = 1024;
+    
+    private final Map<Long, Registration<V>> entries = new ConcurrentHashMap<>();
+    private final BiConsumer<Long, V> onRelease;
+    private volatile int sweepThreshold = MIN_SWEEP_THRESHOLD;
+    
+    public ThreadRegistry() {
+        this(null);
+    }
+    
+    /**
+     * @param onRelease called with the thread ID and value when an entry is released
+     *                  because its thread terminated; must not block
+     */
+    public ThreadRegistry(BiConsumer<Long, V> onRelease) {
+        this.onRelease = onRelease;
+    }
+    
+    public V get(Thread thread) {
+        Registration<V> registration = entries.get(thread.getId());
+        return registration != null ? registration.value : null;
+    }
+    
+    /**
+     * Associate a value with a thread
+     * @return the previous value, or null
+     */
+    public V put(Thread thread, V value) {
+        long id = thread.getId();
+        Registration<V> registration = entries.get(id);
+        if (registration != null) {
+            V previous = registration.value;
+            registration.value = value;
+            return previous;
+        }
+    
+        registration = new Registration<>(thread, value);
+        Registration<V> raced = entries.putIfAbsent(id, registration);
+        if (raced != null) {
+            V previous = raced.value;
+            raced.value = value;
+            return previous;
+        }
+        // The action must not capture the thread, or it would never become unreachable
+        Registration<V> registered = registration;
+        registration.cleanable = cleaner.register(thread, () -> release(id, registered));
+    
+        if (entries.size() >= sweepThreshold) {
+            sweep();
+        }
+        return null;
+    }
+    
+    /**
+     * Remove a thread's entry without reporting it as released
+     */
+    public V remove(Thread thread) {
+        Registration<V> registration = entries.remove(thread.getId());
+        if (registration == null) {
+            return null;
+        }
+        if (registration.cleanable != null) {
+            registration.cleanable.clean();
+        }
+        return registration.value;
+    }
+    
+    public int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Visit every entry whose thread is alive, releasing entries of terminated threads
+     */
+    public void forEach(BiConsumer<Thread, V> action) {
+        for (Map.Entry<Long, Registration<V>> entry : entries.entrySet()) {
+            Thread thread = entry.getValue().thread.get();
+            if (thread == null || !thread.isAlive()) {
+                release(entry.getKey(), entry.getValue());
+                continue;
+            }
+            action.accept(thread, entry.getValue().value);
+        }
+    }
+    
+    /**
+     * Threads of the entries, for scans that visit a slice per call. The iterator is
+     * weakly consistent like {@link ConcurrentHashMap}'s: it may or may not see entries
+     * added while it is in use. Like {@link #forEach}, it skips and releases entries of
+     * terminated threads.
+     */
+    public Iterator<Thread> threadIterator() {
+        Iterator<Map.Entry<Long, Registration<V>>> entryIterator = entries.entrySet().iterator();
+        return new Iterator<>() {
+            private Thread next;
+    
+            @Override
+            public boolean hasNext() {
+                while (next == null && entryIterator.hasNext()) {
+                    Map.Entry<Long, Registration<V>> entry = entryIterator.next();
+                    Thread thread = entry.getValue().thread.get();
+                    if (thread == null || !thread.isAlive()) {
+                        release(entry.getKey(), entry.getValue());
+                    } else {
+                        next = thread;
+                    }
+                }
+                return next != null;
+            }
+    
+            @Override
+            public Thread next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Thread thread = next;
+                next = null;
+                return thread;
+            }
+        };
+    }
+    
+    /**
+     * Release entries of terminated threads
+     * @return number of entries released
+     */
+    public int sweep() {
+        int released = 0;
+        for (Map.Entry<Long, Registration<V>> entry : entries.entrySet()) {
+            Thread thread = entry.getValue().thread.get();
+            if ((thread == null || !thread.isAlive()) && release(entry.getKey(), entry.getValue())) {
+                released++;
+            }
+        }
+        sweepThreshold = Math.max(MIN_SWEEP_THRESHOLD, entries.size() * 2);
+        return released;
+    }
+    
+    private boolean release(long id, Registration<V> registration) {
+        if (!entries.remove(id, registration)) {
+            return false;
+        }
+        if (registration.cleanable != null) {
+            // Drop the cleaner's reference to the value now rather than at the thread's GC
+            registration.cleanable.clean();
+        }
+        if (onRelease != null) {
+            try {
+                onRelease.accept(id, registration.value);
+            } catch (RuntimeException e) {
+                logger.warn("Thread registry release callback failed for thread {}", id, e);
+            }
+        }
+        return true;
+    }
+    
+    private static final class Registration<V> {
+        final WeakReference<Thread> thread;
+        volatile V value;
+        volatile Cleaner.Cleanable cleanable;
+    
+        Registration(Thread thread, V value) {
+            this.thread = new WeakReference<>(thread);
+            this.value = value;
+        }
+    }
+}
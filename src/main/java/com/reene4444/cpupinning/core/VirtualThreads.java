@@ -0,0 +1,46 @@
+package com.reene4444.cpupinning.core;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Virtual thread detection that compiles and runs on Java 17.
+ * <p>
+ * A virtual thread has no kernel thread of its own: native calls made from it act on
+ * its current carrier, so per-thread state for virtual threads is kept per carrier.
+ */
+public final class VirtualThreads {
+    private static final MethodHandle IS_VIRTUAL = lookupIsVirtual();
+    
+    private VirtualThreads() {
+    }
+    
+    private static MethodHandle lookupIsVirtual() {
+        try {
+            return MethodHandles.publicLookup()
+                .findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (ReflectiveOperationException e) {
+            // Java 17/18
+            return null;
+        }
+    }
+    
+    /**
+     * Whether the running JVM has virtual threads
+     */
+    public static boolean isSupported() {
+        return IS_VIRTUAL != null;
+    }
+    
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(thread);
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+}
@@ -27,6 +27,12 @@ public enum WorkloadType {
     /**
      * Low-latency critical workloads: real-time processing, trading systems
      */
-    LOW_LATENCY
+    LOW_LATENCY,
+    
+    /**
+     * Classified at runtime from measured CPU time, allocation rate and blocking,
+     * and placed as the type it currently resolves to; has no CPUs of its own
+     */
+    AUTO
 }
 
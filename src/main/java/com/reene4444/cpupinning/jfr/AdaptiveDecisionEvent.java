@@ -0,0 +1,53 @@
+package com.reene4444.cpupinning.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one adaptive engine review of a thread, with the inputs behind the decision
+ */
+@Name("com.reene4444.cpupinning.AdaptiveDecision")
+@Label("Adaptive Decision")
+@Category({"CPU Pinning"})
+@Description("The adaptive engine reviewed a thread's placement")
+@StackTrace(false)
+public class AdaptiveDecisionEvent extends jdk.jfr.Event {
+    
+    @Label("Native Thread ID")
+    public int nativeTid;
+    
+    @Label("Workload Type")
+    public String workloadType;
+    
+    @Label("Average Latency (ms)")
+    public double averageLatencyMs;
+    
+    @Label("Latency Threshold (ms)")
+    public long latencyThresholdMs;
+    
+    @Label("Average QPS")
+    public double averageQps;
+    
+    @Label("Minimum QPS")
+    public long minQps;
+    
+    @Label("IPC")
+    @Description("Instructions per cycle over the last perf sampling interval, 0 when unavailable")
+    public double ipc;
+    
+    @Label("Reason")
+    @Description("Migration reason, or null when the thread stays")
+    public String reason;
+    
+    @Label("Current CPUs")
+    public String currentCpus;
+    
+    @Label("Target CPUs")
+    public String targetCpus;
+    
+    @Label("Migrated")
+    public boolean migrated;
+}
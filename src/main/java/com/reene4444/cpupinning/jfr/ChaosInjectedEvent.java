@@ -0,0 +1,31 @@
+package com.reene4444.cpupinning.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning a chaos injection window
+ */
+@Name("com.reene4444.cpupinning.ChaosInjected")
+@Label("Chaos Injected")
+@Category({"CPU Pinning"})
+@Description("Stress of the given mode was injected on the given CPUs for the event's duration")
+@StackTrace(false)
+public class ChaosInjectedEvent extends jdk.jfr.Event {
+    
+    @Label("CPUs")
+    public String cpus;
+    
+    @Label("Mode")
+    public String mode;
+    
+    @Label("Intensity")
+    @Description("Fraction of each duty cycle spent stressing")
+    public double intensity;
+    
+    @Label("Planned Duration (s)")
+    public int plannedDurationSeconds;
+}
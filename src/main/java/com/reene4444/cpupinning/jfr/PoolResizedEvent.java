@@ -0,0 +1,27 @@
+package com.reene4444.cpupinning.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a business or workload pool being registered or resized
+ */
+@Name("com.reene4444.cpupinning.PoolResized")
+@Label("Pool Resized")
+@Category({"CPU Pinning"})
+@Description("A CPU pool was registered or its CPU set changed")
+@StackTrace(false)
+public class PoolResizedEvent extends jdk.jfr.Event {
+    
+    @Label("Pool")
+    public String pool;
+    
+    @Label("Previous CPUs")
+    public String previousCpus;
+    
+    @Label("CPUs")
+    public String cpus;
+}
@@ -0,0 +1,33 @@
+package com.reene4444.cpupinning.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a placed thread moving to a different CPU set
+ */
+@Name("com.reene4444.cpupinning.ThreadMigrated")
+@Label("Thread Migrated")
+@Category({"CPU Pinning"})
+@Description("A pinned thread was moved to a different CPU set")
+@StackTrace(false)
+public class ThreadMigratedEvent extends jdk.jfr.Event {
+    
+    @Label("Native Thread ID")
+    public int nativeTid;
+    
+    @Label("Pool")
+    public String pool;
+    
+    @Label("From CPUs")
+    public String fromCpus;
+    
+    @Label("To CPUs")
+    public String toCpus;
+    
+    @Label("Reason")
+    public String reason;
+}
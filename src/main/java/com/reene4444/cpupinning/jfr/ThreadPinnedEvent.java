@@ -0,0 +1,27 @@
+package com.reene4444.cpupinning.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one sched_setaffinity call; its duration is the syscall time
+ */
+@Name("com.reene4444.cpupinning.ThreadPinned")
+@Label("Thread Pinned")
+@Category({"CPU Pinning"})
+@Description("CPU affinity of a thread was set")
+@StackTrace(false)
+public class ThreadPinnedEvent extends jdk.jfr.Event {
+    
+    @Label("Native Thread ID")
+    public int nativeTid;
+    
+    @Label("CPUs")
+    public String cpus;
+    
+    @Label("Success")
+    public boolean success;
+}
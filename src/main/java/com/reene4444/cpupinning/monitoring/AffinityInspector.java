@@ -0,0 +1,242 @@
+package com.reene4444.cpupinning.monitoring;
+
+import com.reene4444.cpupinning.adaptive.AdaptiveAffinityEngine;
+import com.reene4444.cpupinning.business.BusinessIsolationManager;
+import com.reene4444.cpupinning.core.CpuAffinity;
+import com.reene4444.cpupinning.core.CpuList;
+import com.reene4444.cpupinning.core.CpuSpec;
+import com.reene4444.cpupinning.core.IrqTopology;
+import com.reene4444.cpupinning.core.NumaTopology;
+import com.reene4444.cpupinning.core.ThreadPlacement;
+import com.reene4444.cpupinning.core.WorkloadType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Affinity Inspector - snapshot of topology, pools, tracked threads (desired vs actual
+ * kernel affinity) and recent migrations, plus pool resize and rebalance operations.
+ * Backs the actuator endpoint and is also exposed as a JMX MBean.
+ * <p>
+ * Only threads tracked by the framework are inspected, never the whole JVM, and the
+ * number of kernel affinity reads per snapshot is capped, so cost stays bounded.
+ */
+public class AffinityInspector implements AffinityInspectorMBean {
+    private static final Logger logger = LoggerFactory.getLogger(AffinityInspector.class);
+    
+    public static final String OBJECT_NAME = "com.reene4444.cpupinning:type=AffinityInspector";
+    public static final int DEFAULT_THREAD_LIMIT = 512;
+    public static final int DEFAULT_MIGRATION_LIMIT = 50;
+    
+    private final AdaptiveAffinityEngine engine;
+    private final BusinessIsolationManager manager;
+    private final AffinityJournal journal;
+    
+    /**
+     * @param journal source of recent migrations, may be null
+     */
+    public AffinityInspector(AdaptiveAffinityEngine engine, BusinessIsolationManager manager,
+                             AffinityJournal journal) {
+        this.engine = engine;
+        this.manager = manager;
+        this.journal = journal;
+    }
+    
+    /**
+     * Build a snapshot suitable for JSON rendering
+     * @param threadLimit maximum number of threads whose kernel affinity is read
+     */
+    public Map<String, Object> snapshot(int threadLimit, int migrationLimit) {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("topology", topology());
+    
+        // Pools: business pools first, then the adaptive engine's workload pools
+        Map<String, String> poolCpus = new LinkedHashMap<>();
+        for (String name : new TreeSet<>(manager.getBusinessNames())) {
+            BusinessIsolationManager.CpuPool pool = manager.getBusinessPool(name);
+            if (pool != null) {
+                poolCpus.put(name, CpuList.format(pool.getCpus()));
+            }
+        }
+        for (Map.Entry<WorkloadType, Set<Integer>> entry : engine.getWorkloadCpus().entrySet()) {
+            poolCpus.put("workload:" + entry.getKey(), CpuList.format(entry.getValue()));
+        }
+    
+        List<ThreadPlacement> placements = new ArrayList<>(manager.getThreadPlacements());
+        placements.addAll(engine.getThreadPlacements());
+        Map<String, List<Map<String, Object>>> poolThreads = new LinkedHashMap<>();
+        int inspected = 0;
+        for (ThreadPlacement placement : placements) {
+            Map<String, Object> thread = new LinkedHashMap<>();
+            thread.put("name", placement.getThreadName());
+            thread.put("tid", placement.getNativeTid());
+            thread.put("desiredCpus", CpuList.format(placement.getCpus()));
+            if (placement.getScheduling() != null) {
+                thread.put("scheduling", placement.getScheduling().toString());
+            }
+            if (placement.getNativeTid() > 0 && inspected < threadLimit) {
+                Set<Integer> actual = CpuAffinity.getThreadAffinity(placement.getNativeTid());
+                thread.put("actualCpus", CpuList.format(actual));
+                thread.put("drifted", !actual.isEmpty() && !actual.equals(placement.getCpus()));
+                inspected++;
+            }
+            poolThreads.computeIfAbsent(placement.getPool(), name -> new ArrayList<>()).add(thread);
+        }
+    
+        List<Map<String, Object>> pools = new ArrayList<>();
+        for (Map.Entry<String, String> entry : poolCpus.entrySet()) {
+            Map<String, Object> pool = new LinkedHashMap<>();
+            pool.put("name", entry.getKey());
+            pool.put("cpus", entry.getValue());
+            pool.put("threads", poolThreads.getOrDefault(entry.getKey(), List.of()));
+            BusinessIsolationManager.CpuPool business = manager.getBusinessPool(entry.getKey());
+            if (business != null && business.getBudget() != null) {
+                pool.put("budgetCpus", business.getBudget().getCpus());
+                pool.put("budgetUsage", business.getBudget().getUsage());
+            }
+            if (business != null && (business.getCpuNanos() > 0 || business.getRejectedTasks() > 0)) {
+                pool.put("taskCpuMs", business.getCpuNanos() / 1_000_000);
+                pool.put("throttledTasks", business.getThrottledTasks());
+                pool.put("rejectedTasks", business.getRejectedTasks());
+            }
+            pools.add(pool);
+        }
+        snapshot.put("pools", pools);
+        snapshot.put("trackedThreads", placements.size());
+        snapshot.put("inspectedThreads", inspected);
+        snapshot.put("carrierCpus", engine.getCarrierCpus());
+        snapshot.put("domainLatencyMs", engine.getDomainLatencies());
+        snapshot.put("migrationCount", engine.getMigrationCount());
+        snapshot.put("recentMigrations", recentMigrations(migrationLimit));
+        return snapshot;
+    }
+    
+    private Map<String, Object> topology() {
+        NumaTopology numaTopology = NumaTopology.getInstance();
+        IrqTopology irqTopology = IrqTopology.getInstance();
+        Map<String, Object> topology = new LinkedHashMap<>();
+        topology.put("effectiveCpus", CpuList.format(numaTopology.getEffectiveCpus()));
+        Map<String, String> nodes = new TreeMap<>();
+        for (Integer node : numaTopology.getNumaNodes()) {
+            nodes.put(String.valueOf(node), CpuList.format(Set.copyOf(numaTopology.getCpusInNode(node))));
+        }
+        topology.put("numaNodes", nodes);
+        List<String> l3Domains = new ArrayList<>();
+        for (int domain = 0; domain < numaTopology.getL3DomainCount(); domain++) {
+            l3Domains.add(CpuList.format(numaTopology.getCpusInL3Domain(domain)));
+        }
+        topology.put("l3Domains", l3Domains);
+        List<String> smtSiblings = new ArrayList<>();
+        for (Set<Integer> siblings : numaTopology.getSmtSiblingGroups()) {
+            smtSiblings.add(CpuList.format(siblings));
+        }
+        topology.put("smtSiblings", smtSiblings);
+        topology.put("isolatedCpus", CpuList.format(irqTopology.getIsolatedCpus()));
+        topology.put("nohzFullCpus", CpuList.format(irqTopology.getNohzFullCpus()));
+        return topology;
+    }
+    
+    private List<Map<String, Object>> recentMigrations(int limit) {
+        List<Map<String, Object>> migrations = new ArrayList<>();
+        if (journal == null) {
+            return migrations;
+        }
+        for (AffinityJournalReader.Entry entry : journal.recent(limit, AffinityJournal.EventType.MIGRATION)) {
+            Map<String, Object> migration = new LinkedHashMap<>();
+            migration.put("timestamp", entry.getTimestamp().toString());
+            migration.put("tid", entry.getNativeTid());
+            migration.put("pool", entry.getPool());
+            migration.put("fromCpus", CpuList.format(entry.getOldCpus()));
+            migration.put("toCpus", CpuList.format(entry.getNewCpus()));
+            migration.put("reason", String.valueOf(entry.getReason()));
+            migrations.add(migration);
+        }
+        return migrations;
+    }
+    
+    /**
+     * Resize a business pool, creating it if needed
+     * @param cpuSpec CPU specification as accepted by {@link CpuSpec#resolve(String)}
+     */
+    @Override
+    public int resizePool(String pool, String cpuSpec) {
+        Set<Integer> cpus = CpuSpec.resolve(cpuSpec);
+        if (cpus.isEmpty()) {
+            throw new IllegalArgumentException("CPU specification '" + cpuSpec + "' resolves to no usable CPUs");
+        }
+        int repinned = manager.reconfigurePools(Map.of(pool, cpus));
+        logger.info("Resized pool '{}' to {} via inspector, re-pinned {} thread(s)", pool, CpuList.format(cpus), repinned);
+        return repinned;
+    }
+    
+    @Override
+    public int rebalance() {
+        return engine.rebalance();
+    }
+    
+    @Override
+    public String getEffectiveCpus() {
+        return CpuList.format(NumaTopology.getInstance().getEffectiveCpus());
+    }
+    
+    @Override
+    public String[] getPoolNames() {
+        return manager.getBusinessNames().stream().sorted().toArray(String[]::new);
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public String snapshot() {
+        Map<String, Object> snapshot = snapshot(DEFAULT_THREAD_LIMIT, DEFAULT_MIGRATION_LIMIT);
+        StringBuilder text = new StringBuilder();
+        text.append("topology: ").append(snapshot.get("topology")).append('\n');
+        for (Map<String, Object> pool : (List<Map<String, Object>>) snapshot.get("pools")) {
+            text.append("pool ").append(pool.get("name")).append(" cpus=").append(pool.get("cpus")).append('\n');
+            for (Map<String, Object> thread : (List<Map<String, Object>>) pool.get("threads")) {
+                text.append("  ").append(thread).append('\n');
+            }
+        }
+        for (Map<String, Object> migration : (List<Map<String, Object>>) snapshot.get("recentMigrations")) {
+            text.append("migration ").append(migration).append('\n');
+        }
+        return text.toString();
+    }
+    
+    /**
+     * Register this inspector with the platform MBean server
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            logger.warn("Failed to register {}: {}", OBJECT_NAME, e.getMessage());
+        }
+    }
+    
+    public void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            logger.warn("Failed to unregister {}: {}", OBJECT_NAME, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.reene4444.cpupinning.monitoring;
+
+/**
+ * JMX view of {@link AffinityInspector}, registered as {@value AffinityInspector#OBJECT_NAME}
+ */
+public interface AffinityInspectorMBean {
+    
+    String getEffectiveCpus();
+    
+    String[] getPoolNames();
+    
+    /**
+     * Text rendering of the topology, pools, threads and recent migrations
+     */
+    String snapshot();
+    
+    /**
+     * Resize a business pool to a CPU specification and re-pin its threads
+     * @return number of threads re-pinned
+     */
+    int resizePool(String pool, String cpuSpec);
+    
+    /**
+     * Run an adaptive engine review pass now
+     * @return number of threads migrated
+     */
+    int rebalance();
+}
@@ -0,0 +1,314 @@
+package com.reene4444.cpupinning.monitoring;
+
+import com.reene4444.cpupinning.core.AffinityEvents;
+import com.reene4444.cpupinning.core.AffinityListener;
+import com.reene4444.cpupinning.core.MigrationReason;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Affinity event journal - an in-memory ring of fixed-size binary records
+ * (timestamp, tid, old mask, new mask, reason, pool) for every pin, migration,
+ * release, pool change and detected drift, so placements can be reconstructed after the fact.
+ * <p>
+ * Recording is lock-free: a writer claims a slot with one atomic increment and
+ * publishes it seqlock-style. Writing a record from primitive masks allocates nothing;
+ * the {@code Set} overload used by the listener callbacks iterates boxed CPU numbers
+ * first. Masks cover CPUs 0-127; a record touching higher CPUs is flagged as truncated. {@link #dump(Path)} writes the
+ * ring to a memory-mapped file that {@link AffinityJournalReader} decodes.
+ */
+public class AffinityJournal implements AffinityListener, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(AffinityJournal.class);
+    
+    static final int MAGIC = 0x414A524E; // "AJRN"
+    static final int VERSION = 1;
+    static final int RECORD_BYTES = 64;
+    static final int MASK_CPUS = 128;
+    static final byte FLAG_TRUNCATED = 1;
+    
+    // Slot layout in longs: commit, timestamp, meta (tid | type | reason | flags | pool), old lo/hi, new lo/hi, spare
+    private static final int SLOT_LONGS = RECORD_BYTES / Long.BYTES;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+    
+    /**
+     * Kind of journaled event
+     */
+    public enum EventType {
+        PIN, MIGRATION, RELEASE, POOL_CHANGE, DRIFT
+    }
+    
+    private final long[] ring;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Integer> poolIds = new ConcurrentHashMap<>();
+    private final List<String> poolNames = new CopyOnWriteArrayList<>();
+    // Wall clock anchor, so records only pay for System.nanoTime()
+    private final long epochNanosAtStart;
+    private final long nanoTimeAtStart;
+    private volatile Path shutdownDumpPath;
+    
+    /**
+     * @param capacity number of records kept, rounded up to a power of two
+     */
+    public AffinityJournal(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Journal capacity must be positive: " + capacity);
+        }
+        int slots = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.ring = new long[slots * SLOT_LONGS];
+        this.mask = slots - 1;
+        Instant now = Instant.now();
+        this.nanoTimeAtStart = System.nanoTime();
+        this.epochNanosAtStart = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+        poolId("");
+    }
+    
+    public int getCapacity() {
+        return mask + 1;
+    }
+    
+    /**
+     * Total number of records written, including ones already overwritten
+     */
+    public long getRecordedCount() {
+        return sequence.get();
+    }
+    
+    /**
+     * Dump the journal to this file when {@link #close()} is called (null to disable)
+     */
+    public void setShutdownDumpPath(Path shutdownDumpPath) {
+        this.shutdownDumpPath = shutdownDumpPath;
+    }
+    
+    @Override
+    public void onThreadPinned(int nativeTid, String pool, Set<Integer> previousCpus, Set<Integer> cpus) {
+        record(EventType.PIN, nativeTid, pool, previousCpus, cpus, null);
+    }
+    
+    @Override
+    public void onThreadMigrated(int nativeTid, String pool, Set<Integer> fromCpus, Set<Integer> toCpus,
+                                 MigrationReason reason) {
+        record(EventType.MIGRATION, nativeTid, pool, fromCpus, toCpus, reason);
+    }
+    
+    @Override
+    public void onThreadReleased(int nativeTid, String pool) {
+        record(EventType.RELEASE, nativeTid, pool, Set.of(), Set.of(), null);
+    }
+    
+    @Override
+    public void onPoolChanged(String pool, Set<Integer> previousCpus, Set<Integer> cpus) {
+        record(EventType.POOL_CHANGE, 0, pool, previousCpus, cpus, null);
+    }
+    
+    /**
+     * Old mask is the desired CPUs, new mask the affinity found in the kernel
+     */
+    @Override
+    public void onDriftDetected(int nativeTid, String pool, Set<Integer> desiredCpus, Set<Integer> actualCpus,
+                                boolean repaired) {
+        record(EventType.DRIFT, nativeTid, pool, desiredCpus, actualCpus, null);
+    }
+    
+    /**
+     * Append one record, overwriting the oldest once the ring is full
+     */
+    public void record(EventType type, int nativeTid, String pool, Set<Integer> oldCpus, Set<Integer> newCpus,
+                       MigrationReason reason) {
+        long oldLo = 0, oldHi = 0, newLo = 0, newHi = 0;
+        boolean truncated = false;
+        for (Integer cpu : oldCpus) {
+            if (cpu < 64) {
+                oldLo |= 1L << cpu;
+            } else if (cpu < MASK_CPUS) {
+                oldHi |= 1L << (cpu - 64);
+            } else {
+                truncated = true;
+            }
+        }
+        for (Integer cpu : newCpus) {
+            if (cpu < 64) {
+                newLo |= 1L << cpu;
+            } else if (cpu < MASK_CPUS) {
+                newHi |= 1L << (cpu - 64);
+            } else {
+                truncated = true;
+            }
+        }
+        record(type, nativeTid, pool, oldLo, oldHi, newLo, newHi, truncated, reason);
+    }
+    
+    /**
+     * Append one record from CPU masks without allocating (bit n of a low word is CPU n,
+     * of a high word CPU 64 + n), overwriting the oldest once the ring is full
+     * @param truncated whether the masks leave out CPUs above 127
+     */
+    public void record(EventType type, int nativeTid, String pool, long oldLo, long oldHi, long newLo, long newHi,
+                       boolean truncated, MigrationReason reason) {
+        int flags = truncated ? FLAG_TRUNCATED : 0;
+        long meta = ((long) nativeTid << 32)
+                  | ((long) type.ordinal() << 24)
+                  | ((long) (reason == null ? 0 : reason.ordinal() + 1) << 20)
+                  | ((long) flags << 16)
+                  | poolId(pool);
+    
+        long seq = sequence.getAndIncrement();
+        int base = (int) (seq & mask) * SLOT_LONGS;
+        // Mark the slot as being written before touching its fields
+        SLOTS.setOpaque(ring, base, -(seq + 1));
+        VarHandle.storeStoreFence();
+        ring[base + 1] = System.nanoTime();
+        ring[base + 2] = meta;
+        ring[base + 3] = oldLo;
+        ring[base + 4] = oldHi;
+        ring[base + 5] = newLo;
+        ring[base + 6] = newHi;
+        SLOTS.setRelease(ring, base, seq + 1);
+    }
+    
+    private int poolId(String pool) {
+        String name = pool != null ? pool : "";
+        Integer id = poolIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (poolNames) {
+            id = poolIds.get(name);
+            if (id == null) {
+                if (poolNames.size() > 0xFFFF) {
+                    return 0;
+                }
+                id = poolNames.size();
+                poolNames.add(name);
+                poolIds.put(name, id);
+            }
+            return id;
+        }
+    }
+    
+    /**
+     * Decode the most recent records still in the ring, newest first
+     * @param type only return this kind of event, or null for all
+     */
+    public List<AffinityJournalReader.Entry> recent(int limit, EventType type) {
+        String[] pools = poolNames.toArray(new String[0]);
+        long clockOffset = epochNanosAtStart - nanoTimeAtStart;
+        List<AffinityJournalReader.Entry> entries = new ArrayList<>();
+        long end = sequence.get();
+        long start = Math.max(0, end - getCapacity());
+        for (long seq = end - 1; seq >= start && entries.size() < limit; seq--) {
+            int base = (int) (seq & mask) * SLOT_LONGS;
+            long commit = (long) SLOTS.getAcquire(ring, base);
+            if (commit != seq + 1) {
+                continue;
+            }
+            long timestamp = ring[base + 1];
+            long meta = ring[base + 2];
+            long oldLo = ring[base + 3];
+            long oldHi = ring[base + 4];
+            long newLo = ring[base + 5];
+            long newHi = ring[base + 6];
+            VarHandle.loadLoadFence();
+            if ((long) SLOTS.getOpaque(ring, base) != commit) {
+                continue;
+            }
+            if (type == null || ((meta >>> 24) & 0xFF) == type.ordinal()) {
+                entries.add(AffinityJournalReader.decode(seq, timestamp + clockOffset, meta,
+                                                         oldLo, oldHi, newLo, newHi, pools));
+            }
+        }
+        return entries;
+    }
+    
+    /**
+     * Write the records currently in the ring, oldest first, to a memory-mapped file
+     * @return number of records written
+     */
+    public int dump(Path file) throws IOException {
+        List<String> pools = List.copyOf(poolNames);
+        byte[][] encodedPools = new byte[pools.size()][];
+        int poolBytes = 0;
+        for (int i = 0; i < encodedPools.length; i++) {
+            encodedPools[i] = pools.get(i).getBytes(StandardCharsets.UTF_8);
+            poolBytes += Short.BYTES + encodedPools[i].length;
+        }
+    
+        long end = sequence.get();
+        long start = Math.max(0, end - getCapacity());
+        int headerBytes = 3 * Integer.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES;
+        long size = headerBytes + poolBytes + (end - start) * RECORD_BYTES;
+    
+        int written = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(RECORD_BYTES).putInt(pools.size());
+            buffer.putLong(epochNanosAtStart - nanoTimeAtStart);
+            int countPosition = buffer.position();
+            buffer.putLong(0);
+            for (byte[] encoded : encodedPools) {
+                buffer.putShort((short) encoded.length).put(encoded);
+            }
+    
+            for (long seq = start; seq < end; seq++) {
+                int base = (int) (seq & mask) * SLOT_LONGS;
+                long commit = (long) SLOTS.getAcquire(ring, base);
+                if (commit != seq + 1) {
+                    // Still being written or already overwritten
+                    continue;
+                }
+                long timestamp = ring[base + 1];
+                long meta = ring[base + 2];
+                long oldLo = ring[base + 3];
+                long oldHi = ring[base + 4];
+                long newLo = ring[base + 5];
+                long newHi = ring[base + 6];
+                VarHandle.loadLoadFence();
+                if ((long) SLOTS.getOpaque(ring, base) != commit) {
+                    continue;
+                }
+                buffer.putLong(seq).putLong(timestamp).putLong(meta)
+                      .putLong(oldLo).putLong(oldHi).putLong(newLo).putLong(newHi).putLong(0);
+                written++;
+            }
+            buffer.putLong(countPosition, written);
+            buffer.force();
+        }
+        logger.info("Dumped {} affinity journal record(s) to {}", written, file);
+        return written;
+    }
+    
+    /**
+     * Stop receiving framework events, dumping the journal first if a shutdown path is set
+     */
+    @Override
+    public void close() {
+        AffinityEvents.removeListener(this);
+        Path path = shutdownDumpPath;
+        if (path != null) {
+            try {
+                dump(path);
+            } catch (IOException e) {
+                logger.warn("Failed to dump affinity journal to {}: {}", path, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.reene4444.cpupinning.monitoring;
+
+import com.reene4444.cpupinning.core.CpuList;
+import com.reene4444.cpupinning.core.MigrationReason;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Decodes files written by {@link AffinityJournal#dump(Path)}.
+ * <p>
+ * Usage: {@code java -cp adaptive-cpu-pinning.jar com.reene4444.cpupinning.monitoring.AffinityJournalReader <file>}
+ */
+public final class AffinityJournalReader {
+    
+    private static final AffinityJournal.EventType[] EVENT_TYPES = AffinityJournal.EventType.values();
+    private static final MigrationReason[] REASONS = MigrationReason.values();
+    
+    private AffinityJournalReader() {
+    }
+    
+    /**
+     * One decoded journal record
+     */
+    public static final class Entry {
+        private final long sequence;
+        private final Instant timestamp;
+        private final int nativeTid;
+        private final AffinityJournal.EventType type;
+        private final MigrationReason reason;
+        private final String pool;
+        private final Set<Integer> oldCpus;
+        private final Set<Integer> newCpus;
+        private final boolean truncated;
+    
+        Entry(long sequence, Instant timestamp, int nativeTid, AffinityJournal.EventType type,
+              MigrationReason reason, String pool, Set<Integer> oldCpus, Set<Integer> newCpus, boolean truncated) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.nativeTid = nativeTid;
+            this.type = type;
+            this.reason = reason;
+            this.pool = pool;
+            this.oldCpus = oldCpus;
+            this.newCpus = newCpus;
+            this.truncated = truncated;
+        }
+    
+        public long getSequence() {
+            return sequence;
+        }
+    
+        public Instant getTimestamp() {
+            return timestamp;
+        }
+    
+        public int getNativeTid() {
+            return nativeTid;
+        }
+    
+        public AffinityJournal.EventType getType() {
+            return type;
+        }
+    
+        /**
+         * @return the migration reason, or null for other event types
+         */
+        public MigrationReason getReason() {
+            return reason;
+        }
+    
+        public String getPool() {
+            return pool;
+        }
+    
+        public Set<Integer> getOldCpus() {
+            return oldCpus;
+        }
+    
+        public Set<Integer> getNewCpus() {
+            return newCpus;
+        }
+    
+        /**
+         * @return true if the masks omit CPUs numbered {@value AffinityJournal#MASK_CPUS} and above
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+    
+        @Override
+        public String toString() {
+            return String.format("%d %s tid=%d %s pool=%s [%s] -> [%s]%s%s", sequence, timestamp, nativeTid, type,
+                                 pool, CpuList.format(oldCpus), CpuList.format(newCpus),
+                                 reason != null ? " reason=" + reason : "", truncated ? " (truncated)" : "");
+        }
+    }
+    
+    /**
+     * Read every record of a journal dump, oldest first
+     */
+    public static List<Entry> read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 4 * Integer.BYTES + 2 * Long.BYTES || buffer.getInt() != AffinityJournal.MAGIC) {
+                throw new IOException("Not an affinity journal: " + file);
+            }
+            int version = buffer.getInt();
+            int recordBytes = buffer.getInt();
+            if (version != AffinityJournal.VERSION || recordBytes != AffinityJournal.RECORD_BYTES) {
+                throw new IOException(String.format("Unsupported affinity journal version %d (record size %d)",
+                                                    version, recordBytes));
+            }
+            int poolCount = buffer.getInt();
+            long clockOffset = buffer.getLong();
+            long count = buffer.getLong();
+    
+            String[] pools = new String[poolCount];
+            for (int i = 0; i < poolCount; i++) {
+                byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(name);
+                pools[i] = new String(name, StandardCharsets.UTF_8);
+            }
+    
+            List<Entry> entries = new ArrayList<>((int) count);
+            for (long i = 0; i < count; i++) {
+                long sequence = buffer.getLong();
+                long epochNanos = buffer.getLong() + clockOffset;
+                long meta = buffer.getLong();
+                entries.add(decode(sequence, epochNanos, meta, buffer.getLong(), buffer.getLong(),
+                                   buffer.getLong(), buffer.getLong(), pools));
+                buffer.getLong();
+            }
+            return entries;
+        }
+    }
+    
+    static Entry decode(long sequence, long epochNanos, long meta, long oldLo, long oldHi, long newLo, long newHi,
+                        String[] pools) {
+        int reason = (int) (meta >>> 20) & 0xF;
+        int pool = (int) meta & 0xFFFF;
+        return new Entry(sequence,
+                         Instant.ofEpochSecond(0, epochNanos),
+                         (int) (meta >>> 32),
+                         EVENT_TYPES[(int) (meta >>> 24) & 0xFF],
+                         reason == 0 ? null : REASONS[reason - 1],
+                         pool < pools.length ? pools[pool] : "",
+                         toCpus(oldLo, oldHi), toCpus(newLo, newHi),
+                         ((meta >>> 16) & AffinityJournal.FLAG_TRUNCATED) != 0);
+    }
+    
+    private static Set<Integer> toCpus(long lo, long hi) {
+        Set<Integer> cpus = new TreeSet<>();
+        for (int word = 0; word < 2; word++) {
+            long bits = word == 0 ? lo : hi;
+            while (bits != 0) {
+                cpus.add(word * 64 + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+        return cpus;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: AffinityJournalReader <journal-file>");
+            System.exit(2);
+        }
+        for (Entry entry : read(Paths.get(args[0]))) {
+            System.out.println(entry);
+        }
+    }
+}
@@ -1,59 +1,341 @@
 package com.reene4444.cpupinning.monitoring;
 
+import com.reene4444.cpupinning.business.BusinessIsolationManager;
+import com.reene4444.cpupinning.core.AffinityEvents;
+import com.reene4444.cpupinning.core.AffinityListener;
 import com.reene4444.cpupinning.core.CpuAffinity;
+import com.reene4444.cpupinning.core.CpuUtilizationSampler;
+import com.reene4444.cpupinning.core.IrqTopology;
+import com.reene4444.cpupinning.core.MigrationReason;
+import com.reene4444.cpupinning.core.NumaTopology;
+import com.reene4444.cpupinning.core.WorkloadType;
+import com.reene4444.cpupinning.numa.NumaExecutor;
+import com.reene4444.cpupinning.perf.PerfCounterMonitor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
-import java.util.concurrent.atomic.AtomicLong;
+
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
 
 /**
- * Metrics collection for CPU pinning framework
+ * Metrics collection for CPU pinning framework.
+ * Receives framework events as an {@link AffinityListener}; register it with
+ * {@link AffinityEvents#addListener}. Tags are limited to pool, workload, reason,
+ * result and cpu, so cardinality stays bounded by configuration and core count.
  */
-public class CpuPinningMetrics {
+public class CpuPinningMetrics implements AffinityListener, AutoCloseable {
     
     private final MeterRegistry meterRegistry;
-    private final AtomicLong pinnedThreads = new AtomicLong(0);
-    private final AtomicLong migrations = new AtomicLong(0);
+    private final Timer pinSuccess;
+    private final Timer pinFailure;
+    // tids currently placed, per pool
+    private final Map<String, Set<Integer>> poolThreads = new ConcurrentHashMap<>();
+    private final Map<String, Set<Integer>> poolCpus = new ConcurrentHashMap<>();
+    private final Map<String, Counter> pinsAvoided = new ConcurrentHashMap<>();
+    private final Map<String, Counter> migrations = new ConcurrentHashMap<>();
+    private final LongAdder totalMigrations = new LongAdder();
+    private final Map<String, Counter> drifts = new ConcurrentHashMap<>();
+    private final Set<String> budgetedPools = ConcurrentHashMap.newKeySet();
+    private final Map<WorkloadType, Timer> workloadLatency = new EnumMap<>(WorkloadType.class);
+    private final Map<String, Timer> operationLatency = new ConcurrentHashMap<>();
     
     public CpuPinningMetrics(MeterRegistry meterRegistry) {
         this.meterRegistry = meterRegistry;
+        this.pinSuccess = pinTimer("success");
+        this.pinFailure = pinTimer("failure");
+        for (WorkloadType type : WorkloadType.values()) {
+            if (type == WorkloadType.AUTO) {
+                // Executions are recorded under the type AUTO resolved to
+                continue;
+            }
+            workloadLatency.put(type, Timer.builder("cpu.pinning.workload.latency")
+                    .description("Execution time of workload-annotated methods")
+                    .tag("workload", type.name())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
         registerMetrics();
     }
     
+    private Timer pinTimer(String result) {
+        return Timer.builder("cpu.pinning.pin.latency")
+                .description("Duration of sched_setaffinity calls")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+    
     private void registerMetrics() {
         Gauge.builder("cpu.pinning.available.cpus", () -> CpuAffinity.getAvailableCpuCount())
                 .description("Number of available CPU cores")
                 .register(meterRegistry);
-        
-        Gauge.builder("cpu.pinning.pinned.threads", pinnedThreads::get)
+    
+        Gauge.builder("cpu.pinning.pinned.threads", poolThreads, CpuPinningMetrics::countThreads)
                 .description("Number of threads with CPU affinity set")
                 .register(meterRegistry);
-        
-        Gauge.builder("cpu.pinning.migrations", migrations::get)
+    
+        // Kept as a gauge for existing dashboards; cpu.pinning.thread.migrations breaks it down
+        Gauge.builder("cpu.pinning.migrations", totalMigrations, LongAdder::sum)
                 .description("Total number of CPU migrations")
                 .register(meterRegistry);
+    
+        IrqTopology irqTopology = IrqTopology.getInstance();
+        for (Integer cpu : NumaTopology.getInstance().getEffectiveCpus()) {
+            Gauge.builder("cpu.pinning.irq.rate", irqTopology, irq -> irq.getInterruptRate(cpu))
+                    .description("Interrupts per second handled by the CPU")
+                    .tag("cpu", String.valueOf(cpu))
+                    .tag("isolated", String.valueOf(irqTopology.getIsolatedCpus().contains(cpu)))
+                    .register(meterRegistry);
+        }
+    
+        BusinessIsolationManager manager = BusinessIsolationManager.getInstance();
+        for (String name : manager.getBusinessNames()) {
+            BusinessIsolationManager.CpuPool pool = manager.getBusinessPool(name);
+            if (pool != null) {
+                onPoolChanged(name, Set.of(), pool.getCpus());
+            }
+        }
+    
+        PerfCounterMonitor perfCounterMonitor = PerfCounterMonitor.getInstance();
+        perfCounterMonitor.setNewGroupCallback(this::registerPerfGauges);
+        for (String group : perfCounterMonitor.getGroupNames()) {
+            registerPerfGauges(group);
+        }
+    }
+    
+    private void registerPerfGauges(String group) {
+        PerfCounterMonitor.GroupCounters counters = PerfCounterMonitor.getInstance().getGroup(group);
+        Gauge.builder("cpu.pinning.perf.ipc", counters, PerfCounterMonitor.GroupCounters::getIpc)
+                .description("Instructions per cycle of the group's threads over the last interval")
+                .tag("group", group)
+                .register(meterRegistry);
+        Gauge.builder("cpu.pinning.perf.llc.mpki", counters, PerfCounterMonitor.GroupCounters::getLlcMpki)
+                .description("Last-level cache misses per thousand instructions over the last interval")
+                .tag("group", group)
+                .register(meterRegistry);
+        Gauge.builder("cpu.pinning.perf.llc.misses", counters, PerfCounterMonitor.GroupCounters::getLlcMisses)
+                .description("Last-level cache misses over the last interval")
+                .tag("group", group)
+                .register(meterRegistry);
+        Gauge.builder("cpu.pinning.perf.context.switches", counters,
+                      PerfCounterMonitor.GroupCounters::getContextSwitches)
+                .description("Context switches over the last interval")
+                .tag("group", group)
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Register the per-pool gauges the first time a pool is seen
+     */
+    private Set<Integer> threadsOf(String pool) {
+        return poolThreads.computeIfAbsent(pool, name -> {
+            Set<Integer> tids = ConcurrentHashMap.newKeySet();
+            Gauge.builder("cpu.pinning.pool.threads", tids, Set::size)
+                    .description("Threads currently placed in the pool")
+                    .tag("pool", name)
+                    .register(meterRegistry);
+            Gauge.builder("cpu.pinning.pool.utilization", this, metrics -> metrics.poolUtilization(name))
+                    .description("Average utilization of the pool's CPUs over the last sampling interval")
+                    .tag("pool", name)
+                    .register(meterRegistry);
+            return tids;
+        });
+    }
+    
+    private double poolUtilization(String pool) {
+        Set<Integer> cpus = poolCpus.get(pool);
+        if (cpus == null || cpus.isEmpty()) {
+            return 0.0;
+        }
+        CpuUtilizationSampler sampler = CpuUtilizationSampler.getInstance();
+        double total = 0.0;
+        for (Integer cpu : cpus) {
+            total += sampler.getUtilization(cpu);
+        }
+        return total / cpus.size();
+    }
+    
+    private static double countThreads(Map<String, Set<Integer>> poolThreads) {
+        // A thread can be claimed by a workload and a business pool at once
+        Set<Integer> distinct = new HashSet<>();
+        for (Set<Integer> tids : poolThreads.values()) {
+            distinct.addAll(tids);
+        }
+        return distinct.size();
+    }
+    
+    @Override
+    public void onPinSyscall(long durationNanos, boolean success) {
+        (success ? pinSuccess : pinFailure).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    @Override
+    public void onThreadPinned(int nativeTid, String pool, Set<Integer> previousCpus, Set<Integer> cpus) {
+        Set<Integer> tids = threadsOf(pool);
+        poolCpus.putIfAbsent(pool, Set.copyOf(cpus));
+        if (nativeTid > 0) {
+            tids.add(nativeTid);
+        }
+    }
+    
+    @Override
+    public void onPinAvoided(String pool) {
+        pinsAvoided.computeIfAbsent(pool, name -> Counter.builder("cpu.pinning.pins.avoided")
+                .description("Pin requests satisfied without a syscall")
+                .tag("pool", name)
+                .register(meterRegistry)).increment();
+    }
+    
+    @Override
+    public void onThreadMigrated(int nativeTid, String pool, Set<Integer> fromCpus, Set<Integer> toCpus,
+                                 MigrationReason reason) {
+        totalMigrations.increment();
+        migrations.computeIfAbsent(pool + '\0' + reason, key -> Counter.builder("cpu.pinning.thread.migrations")
+                .description("Threads moved to a different CPU set")
+                .tag("pool", pool)
+                .tag("reason", reason.name())
+                .register(meterRegistry)).increment();
+        if (nativeTid > 0) {
+            threadsOf(pool).add(nativeTid);
+        }
+    }
+    
+    @Override
+    public void onThreadReleased(int nativeTid, String pool) {
+        Set<Integer> tids = poolThreads.get(pool);
+        if (tids != null) {
+            tids.remove(nativeTid);
+        }
+    }
+    
+    @Override
+    public void onPoolChanged(String pool, Set<Integer> previousCpus, Set<Integer> cpus) {
+        threadsOf(pool);
+        poolCpus.put(pool, Set.copyOf(cpus));
+        if (BusinessIsolationManager.getInstance().getBusinessPool(pool) != null && budgetedPools.add(pool)) {
+            registerBudgetMeters(pool);
+        }
+    }
+    
+    /**
+     * Register the CPU time, budget usage, throttling and rejection meters of a business pool's executors
+     */
+    private void registerBudgetMeters(String pool) {
+        BusinessIsolationManager manager = BusinessIsolationManager.getInstance();
+        FunctionCounter.builder("cpu.pinning.pool.cpu.time", manager, m -> poolStat(m, pool, 
+                                BusinessIsolationManager.CpuPool::getCpuNanos) / 1e9)
+                .description("CPU seconds used by tasks of the pool's executors")
+                .tag("pool", pool)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("cpu.pinning.pool.budget.usage", manager, m -> {
+                    BusinessIsolationManager.CpuPool cpuPool = m.getBusinessPool(pool);
+                    return cpuPool != null && cpuPool.getBudget() != null ? cpuPool.getBudget().getUsage() : 0.0;
+                })
+                .description("Share of the pool's CPU budget burst spent, above 1 while in debt")
+                .tag("pool", pool)
+                .register(meterRegistry);
+        FunctionCounter.builder("cpu.pinning.pool.throttled", manager, m -> poolStat(m, pool, 
+                                BusinessIsolationManager.CpuPool::getThrottledTasks))
+                .description("Batch tasks delayed because the pool's CPU budget was exhausted")
+                .tag("pool", pool)
+                .register(meterRegistry);
+        FunctionCounter.builder("cpu.pinning.pool.rejected", manager, m -> poolStat(m, pool, 
+                                BusinessIsolationManager.CpuPool::getRejectedTasks))
+                .description("Tasks rejected because the pool's executor queues were full")
+                .tag("pool", pool)
+                .register(meterRegistry);
+    }
+    
+    private static double poolStat(BusinessIsolationManager manager, String pool, 
+                                   ToLongFunction<BusinessIsolationManager.CpuPool> stat) {
+        BusinessIsolationManager.CpuPool cpuPool = manager.getBusinessPool(pool);
+        return cpuPool != null ? stat.applyAsLong(cpuPool) : 0;
+    }
+    
+    @Override
+    public void onDriftDetected(int nativeTid, String pool, Set<Integer> desiredCpus, Set<Integer> actualCpus,
+                                boolean repaired) {
+        drifts.computeIfAbsent(pool + '\0' + repaired, key -> Counter.builder("cpu.pinning.drift")
+                .description("Managed threads found with a kernel affinity different from the desired CPUs")
+                .tag("pool", pool)
+                .tag("repaired", String.valueOf(repaired))
+                .register(meterRegistry)).increment();
+    }
+    
+    @Override
+    public void onExecutionCompleted(WorkloadType type, long latencyNanos) {
+        workloadLatency.get(type).record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Register per-node queue depth, cross-node steal and completed task meters of a NUMA executor
+     */
+    public void bindNumaExecutor(NumaExecutor executor) {
+        for (Integer node : executor.getNodes()) {
+            Gauge.builder("cpu.pinning.numa.queue.depth", executor, numa -> numa.getQueueDepth(node))
+                    .description("Tasks waiting in the node's queue")
+                    .tag("executor", executor.getName())
+                    .tag("node", String.valueOf(node))
+                    .register(meterRegistry);
+            FunctionCounter.builder("cpu.pinning.numa.steals", executor, numa -> numa.getCrossNodeSteals(node))
+                    .description("Tasks the node's workers took from other nodes' queues")
+                    .tag("executor", executor.getName())
+                    .tag("node", String.valueOf(node))
+                    .register(meterRegistry);
+            FunctionCounter.builder("cpu.pinning.numa.completed", executor, numa -> numa.getCompletedTasks(node))
+                    .description("Tasks run by the node's workers")
+                    .tag("executor", executor.getName())
+                    .tag("node", String.valueOf(node))
+                    .register(meterRegistry);
+        }
     }
     
+    /**
+     * @deprecated pins are recorded from framework events, see {@link #onThreadPinned}
+     */
+    @Deprecated
     public void recordThreadPinned() {
-        pinnedThreads.incrementAndGet();
         meterRegistry.counter("cpu.pinning.thread.pinned").increment();
     }
     
+    /**
+     * @deprecated releases are recorded from framework events, see {@link #onThreadReleased}
+     */
+    @Deprecated
     public void recordThreadUnpinned() {
-        pinnedThreads.decrementAndGet();
         meterRegistry.counter("cpu.pinning.thread.unpinned").increment();
     }
     
+    /**
+     * Count a migration the framework did not make itself in cpu.pinning.migrations
+     * @deprecated migrations are recorded from framework events, see {@link #onThreadMigrated}
+     */
+    @Deprecated
     public void recordMigration() {
-        migrations.incrementAndGet();
+        totalMigrations.increment();
         meterRegistry.counter("cpu.pinning.migration").increment();
     }
     
     public void recordLatency(String operation, long latencyMs) {
-        Timer.Sample sample = Timer.start(meterRegistry);
-        sample.stop(Timer.builder("cpu.pinning.operation.latency")
-                .tag("operation", operation)
-                .register(meterRegistry));
+        operationLatency.computeIfAbsent(operation, name -> Timer.builder("cpu.pinning.operation.latency")
+                .tag("operation", name)
+                .register(meterRegistry)).record(latencyMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Stop receiving framework events
+     */
+    @Override
+    public void close() {
+        AffinityEvents.removeListener(this);
     }
 }
-
@@ -0,0 +1,29 @@
+package com.reene4444.cpupinning.numa;
+
+/**
+ * Memory placement policy for NUMA-local allocations
+ */
+public enum MemoryPolicy {
+    /**
+     * Allocate from the preferred node, falling back to other nodes when it is full
+     */
+    PREFERRED(1),
+    
+    /**
+     * Allocate only from the node, never falling back to another node
+     */
+    BIND(2);
+    
+    private final int mode;
+    
+    MemoryPolicy(int mode) {
+        this.mode = mode;
+    }
+    
+    /**
+     * MPOL_* value passed to mbind(2)
+     */
+    int getMode() {
+        return mode;
+    }
+}
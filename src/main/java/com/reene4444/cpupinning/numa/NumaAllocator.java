@@ -0,0 +1,132 @@
+package com.reene4444.cpupinning.numa;
+
+import com.reene4444.cpupinning.business.BusinessIsolationManager;
+import com.reene4444.cpupinning.core.NumaTopology;
+import com.sun.jna.Pointer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * NUMA Allocator - off-heap buffers placed on a chosen NUMA node, so a pinned pool's
+ * I/O and cache buffers live on the same node as the threads using them.
+ * <p>
+ * Memory is mapped anonymously, given an mbind(2) policy before first touch, and then
+ * pre-faulted so every page is placed at allocation time. Where mbind is unavailable
+ * (non-Linux, seccomp, single-node kernels without NUMA) buffers fall back to
+ * {@link ByteBuffer#allocateDirect}, which the allocating thread's first touch places
+ * on its own node.
+ */
+public class NumaAllocator {
+    private static final Logger logger = LoggerFactory.getLogger(NumaAllocator.class);
+    private static final int PAGE_SIZE = 4096;
+    // mbind errors meaning it cannot work in this process at all, rather than for one call
+    private static final int EPERM = 1;
+    private static final int ENOSYS = 38;
+    private static NumaAllocator instance;
+    
+    private final NumaTopology topology;
+    private volatile boolean bindingAvailable = NumaMemory.isSupportedPlatform();
+    
+    private NumaAllocator() {
+        this.topology = NumaTopology.getInstance();
+    }
+    
+    public static synchronized NumaAllocator getInstance() {
+        if (instance == null) {
+            instance = new NumaAllocator();
+        }
+        return instance;
+    }
+    
+    /**
+     * Whether buffers are currently placed with mbind rather than by first touch
+     */
+    public boolean isBindingSupported() {
+        return bindingAvailable;
+    }
+    
+    /**
+     * Allocate a buffer preferring the given node
+     */
+    public NumaBuffer allocate(int bytes, int node) {
+        return allocate(bytes, node, MemoryPolicy.PREFERRED);
+    }
+    
+    /**
+     * Allocate a buffer on the node the calling thread is running on
+     */
+    public NumaBuffer allocateLocal(int bytes) {
+        return allocate(bytes, topology.getCurrentNumaNode(), MemoryPolicy.PREFERRED);
+    }
+    
+    /**
+     * Allocate a buffer on the node hosting a business pool's CPUs
+     */
+    public NumaBuffer allocateForPool(String businessName, int bytes, MemoryPolicy policy) {
+        BusinessIsolationManager.CpuPool pool = BusinessIsolationManager.getInstance().getBusinessPool(businessName);
+        if (pool == null) {
+            throw new IllegalArgumentException("Business pool not found: " + businessName);
+        }
+        return allocate(bytes, nodeOf(pool.getCpus()), policy);
+    }
+    
+    /**
+     * Node hosting most of the given CPUs
+     */
+    public int nodeOf(Set<Integer> cpus) {
+        Map<Integer, Integer> cpusPerNode = new HashMap<>();
+        int bestNode = topology.getCurrentNumaNode();
+        int bestCount = 0;
+        for (Integer cpu : cpus) {
+            int node = topology.getNumaNode(cpu);
+            int count = cpusPerNode.merge(node, 1, Integer::sum);
+            if (count > bestCount || (count == bestCount && node < bestNode)) {
+                bestNode = node;
+                bestCount = count;
+            }
+        }
+        return bestNode;
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the size is not positive or the node is unknown
+     */
+    public NumaBuffer allocate(int bytes, int node, MemoryPolicy policy) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bytes);
+        }
+        if (!topology.getNumaNodes().contains(node)) {
+            throw new IllegalArgumentException(String.format("Unknown NUMA node %d, nodes are %s", 
+                                                             node, topology.getNumaNodes()));
+        }
+        if (!bindingAvailable) {
+            return new NumaBuffer(ByteBuffer.allocateDirect(bytes), null, 0, node, false);
+        }
+        long length = ((long) bytes + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+        Pointer address = NumaMemory.map(length);
+        if (address == null) {
+            throw new OutOfMemoryError("mmap of " + length + " bytes failed");
+        }
+    
+        int result = NumaMemory.bind(address, length, policy.getMode(), node);
+        // Either way the mapping is still usable, just placed by first touch
+        if (result == -ENOSYS || result == -EPERM) {
+            bindingAvailable = false;
+            logger.info("mbind unavailable (errno {}), NUMA buffers will be placed by first touch", -result);
+        } else if (result != 0) {
+            logger.warn("mbind to node {} failed (errno {}), buffer of {} bytes placed by first touch", 
+                       node, -result, bytes);
+        }
+        ByteBuffer buffer = address.getByteBuffer(0, bytes);
+        // Fault every page in now, under the policy, instead of on the hot path
+        for (int offset = 0; offset < bytes; offset += PAGE_SIZE) {
+            buffer.put(offset, (byte) 0);
+        }
+        return new NumaBuffer(buffer, address, length, node, result == 0);
+    }
+}
@@ -0,0 +1,90 @@
+package com.reene4444.cpupinning.numa;
+
+import com.sun.jna.Pointer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Off-heap buffer placed on a NUMA node. The memory is released (or returned to its
+ * slab pool) on {@link #close()}; the {@link ByteBuffer} must not be used afterwards.
+ */
+public final class NumaBuffer implements AutoCloseable {
+    private final ByteBuffer buffer;
+    // null for the unbound allocateDirect fallback, whose memory the GC releases
+    private final Pointer address;
+    private final long mappedLength;
+    private final int node;
+    private final boolean bound;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile NumaSlabPool owner;
+    
+    NumaBuffer(ByteBuffer buffer, Pointer address, long mappedLength, int node, boolean bound) {
+        this.buffer = buffer;
+        this.address = address;
+        this.mappedLength = mappedLength;
+        this.node = node;
+        this.bound = bound;
+    }
+    
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+    
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+    
+    /**
+     * Node the buffer was requested on
+     */
+    public int getNode() {
+        return node;
+    }
+    
+    /**
+     * Whether a memory policy was applied; false for the first-touch fallback
+     */
+    public boolean isBound() {
+        return bound;
+    }
+    
+    /**
+     * Node actually backing the buffer's first page, as reported by the kernel
+     * @return node ID, or -1 if unknown
+     */
+    public int getActualNode() {
+        return address != null ? NumaMemory.nodeOf(address) : -1;
+    }
+    
+    void setOwner(NumaSlabPool owner) {
+        this.owner = owner;
+    }
+    
+    /**
+     * Mark a recycled buffer as in use again
+     */
+    void reopen() {
+        buffer.clear();
+        closed.set(false);
+    }
+    
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        NumaSlabPool pool = owner;
+        if (pool != null) {
+            pool.release(this);
+        } else {
+            free();
+        }
+    }
+    
+    void free() {
+        if (address != null) {
+            NumaMemory.unmap(address, mappedLength);
+        }
+    }
+}
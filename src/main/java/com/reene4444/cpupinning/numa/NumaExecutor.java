@@ -0,0 +1,331 @@
+package com.reene4444.cpupinning.numa;
+
+import com.reene4444.cpupinning.core.CpuAffinity;
+import com.reene4444.cpupinning.core.CpuList;
+import com.reene4444.cpupinning.core.NumaTopology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * NUMA Executor - one group of pinned workers per NUMA node, each group with its own queue.
+ * <p>
+ * Tasks are routed to an explicit node, to the node owning a key, or by default to the
+ * node the submitting thread is running on, so they run next to the memory they touch.
+ * An idle worker takes work from another node only while that node's queue is deeper
+ * than the steal threshold, so tasks cross nodes only when a node is overloaded.
+ * <p>
+ * Submitters enqueue under the read side of a lock and shutdown takes the write side,
+ * so once a worker sees the executor shut down every accepted task is already queued
+ * and the worker only exits after its queue is empty.
+ */
+public class NumaExecutor extends AbstractExecutorService {
+    private static final Logger logger = LoggerFactory.getLogger(NumaExecutor.class);
+    
+    // How often an idle worker re-checks other nodes for work to steal
+    private static final long STEAL_POLL_MS = 5;
+    private static final long IDLE_POLL_MS = 100;
+    
+    private final String name;
+    private final NodeGroup[] groups;
+    private final Map<Integer, NodeGroup> groupsByNode = new TreeMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final CountDownLatch terminated;
+    // Read side held while checking shutdown and enqueueing, write side to shut down
+    private final ReentrantReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+    private volatile int stealThreshold = 64;
+    private volatile boolean shutdown;
+    
+    /**
+     * Create workers on every NUMA node that has CPUs in the effective cpuset
+     * @param threadsPerNode workers per node, 0 for one per CPU of the node
+     */
+    public NumaExecutor(String name, int threadsPerNode) {
+        this(name, detectNodeCpus(), threadsPerNode);
+    }
+    
+    /**
+     * @param nodeCpus CPUs of each node's worker group, by node ID
+     * @param threadsPerNode workers per node, 0 for one per CPU of the node
+     */
+    public NumaExecutor(String name, Map<Integer, Set<Integer>> nodeCpus, int threadsPerNode) {
+        if (nodeCpus.isEmpty()) {
+            throw new IllegalArgumentException("No NUMA node with usable CPUs");
+        }
+        this.name = name;
+        this.groups = new NodeGroup[nodeCpus.size()];
+        int index = 0;
+        int workerCount = 0;
+        for (Map.Entry<Integer, Set<Integer>> entry : new TreeMap<>(nodeCpus).entrySet()) {
+            NodeGroup group = new NodeGroup(entry.getKey(), entry.getValue());
+            groups[index++] = group;
+            groupsByNode.put(group.node, group);
+            workerCount += threadsPerNode > 0 ? threadsPerNode : group.cpus.size();
+        }
+        this.terminated = new CountDownLatch(workerCount);
+    
+        for (NodeGroup group : groups) {
+            int count = threadsPerNode > 0 ? threadsPerNode : group.cpus.size();
+            for (int i = 0; i < count; i++) {
+                String workerName = name + "-node" + group.node + "-" + i;
+                Thread worker = new Thread(() -> runWorker(group), workerName);
+                worker.setDaemon(true);
+                workers.add(worker);
+            }
+        }
+        workers.forEach(Thread::start);
+        logger.info("NUMA executor '{}' started: {} worker(s) on node(s) {}", name, workerCount, groupsByNode.keySet());
+    }
+    
+    /**
+     * CPUs of each node restricted to the effective cpuset; memory-only nodes are skipped
+     */
+    private static Map<Integer, Set<Integer>> detectNodeCpus() {
+        NumaTopology topology = NumaTopology.getInstance();
+        Set<Integer> effectiveCpus = topology.getEffectiveCpus();
+        Map<Integer, Set<Integer>> nodeCpus = new TreeMap<>();
+        for (Integer node : topology.getNumaNodes()) {
+            Set<Integer> cpus = new HashSet<>(topology.getCpusInNode(node));
+            cpus.retainAll(effectiveCpus);
+            if (!cpus.isEmpty()) {
+                nodeCpus.put(node, cpus);
+            }
+        }
+        return nodeCpus;
+    }
+    
+    /**
+     * Tasks another node may steal once a node's queue holds more than this many
+     */
+    public void setStealThreshold(int stealThreshold) {
+        this.stealThreshold = Math.max(0, stealThreshold);
+    }
+    
+    public int getStealThreshold() {
+        return stealThreshold;
+    }
+    
+    /**
+     * Run on the node the submitting thread is currently running on
+     */
+    @Override
+    public void execute(Runnable command) {
+        enqueue(groupFor(NumaTopology.getInstance().getCurrentNumaNode()), command);
+    }
+    
+    /**
+     * Run on the given node
+     */
+    public void execute(int node, Runnable command) {
+        enqueue(groupFor(node), command);
+    }
+    
+    public <T> Future<T> submit(int node, Callable<T> task) {
+        RunnableFuture<T> future = newTaskFor(task);
+        execute(node, future);
+        return future;
+    }
+    
+    /**
+     * Run on the node owning the key, so all tasks for one key share a node
+     */
+    public void executeByKey(Object key, Runnable command) {
+        execute(nodeForKey(key), command);
+    }
+    
+    public <T> Future<T> submitByKey(Object key, Callable<T> task) {
+        return submit(nodeForKey(key), task);
+    }
+    
+    /**
+     * Node a key's tasks are routed to
+     */
+    public int nodeForKey(Object key) {
+        int hash = key.hashCode();
+        // Spread high bits so keys differing only there do not collide
+        return groups[Math.floorMod(hash ^ (hash >>> 16), groups.length)].node;
+    }
+    
+    private NodeGroup groupFor(int node) {
+        NodeGroup group = groupsByNode.get(node);
+        return group != null ? group : groups[Math.floorMod(node, groups.length)];
+    }
+    
+    private void enqueue(NodeGroup group, Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        shutdownLock.readLock().lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("NUMA executor '" + name + "' is shut down");
+            }
+            group.queue.add(command);
+        } finally {
+            shutdownLock.readLock().unlock();
+        }
+    }
+    
+    private void runWorker(NodeGroup group) {
+        if (!CpuAffinity.pinThread(group.cpus)) {
+            logger.warn("NUMA executor '{}' could not pin worker to node {} CPUs {}",
+                       name, group.node, CpuList.format(group.cpus));
+        }
+        long pollMs = groups.length > 1 ? STEAL_POLL_MS : IDLE_POLL_MS;
+        try {
+            while (true) {
+                Runnable task = group.queue.poll();
+                if (task == null) {
+                    task = steal(group);
+                }
+                if (task == null) {
+                    // No task can be added once shutdown is visible, see enqueue
+                    if (shutdown && group.queue.isEmpty()) {
+                        return;
+                    }
+                    task = group.queue.poll(pollMs, TimeUnit.MILLISECONDS);
+                    if (task == null) {
+                        continue;
+                    }
+                }
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    // Errors too: a worker that dies is never replaced and its node would stall
+                    logger.error("Task failed in NUMA executor '{}' on node {}", name, group.node, e);
+                }
+                group.completed.increment();
+            }
+        } catch (InterruptedException e) {
+            // shutdownNow
+        } finally {
+            terminated.countDown();
+        }
+    }
+    
+    /**
+     * Take a task from the deepest other node whose queue exceeds the steal threshold
+     */
+    private Runnable steal(NodeGroup thief) {
+        NodeGroup victim = null;
+        int deepest = stealThreshold;
+        for (NodeGroup group : groups) {
+            int depth = group.queue.size();
+            if (group != thief && depth > deepest) {
+                victim = group;
+                deepest = depth;
+            }
+        }
+        if (victim == null) {
+            return null;
+        }
+        Runnable task = victim.queue.poll();
+        if (task != null) {
+            thief.stolen.increment();
+        }
+        return task;
+    }
+    
+    /**
+     * Nodes that have a worker group
+     */
+    public Set<Integer> getNodes() {
+        return Collections.unmodifiableSet(groupsByNode.keySet());
+    }
+    
+    public Set<Integer> getCpus(int node) {
+        return groupFor(node).cpus;
+    }
+    
+    /**
+     * Tasks waiting in the node's queue
+     */
+    public int getQueueDepth(int node) {
+        return groupFor(node).queue.size();
+    }
+    
+    /**
+     * Tasks the node's workers took from other nodes' queues
+     */
+    public long getCrossNodeSteals(int node) {
+        return groupFor(node).stolen.sum();
+    }
+    
+    /**
+     * Tasks run by the node's workers, stolen ones included
+     */
+    public long getCompletedTasks(int node) {
+        return groupFor(node).completed.sum();
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public void shutdown() {
+        shutdownLock.writeLock().lock();
+        try {
+            shutdown = true;
+        } finally {
+            shutdownLock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        List<Runnable> pending = new ArrayList<>();
+        for (NodeGroup group : groups) {
+            group.queue.drainTo(pending);
+        }
+        workers.forEach(Thread::interrupt);
+        return pending;
+    }
+    
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+    
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+    
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+    
+    private static class NodeGroup {
+        final int node;
+        final Set<Integer> cpus;
+        final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+        final LongAdder stolen = new LongAdder();
+        final LongAdder completed = new LongAdder();
+    
+        NodeGroup(int node, Set<Integer> cpus) {
+            this.node = node;
+            this.cpus = Set.copyOf(cpus);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.reene4444.cpupinning.numa;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+/**
+ * Minimal mmap(2)/mbind(2)/get_mempolicy(2) binding for node-bound anonymous memory
+ */
+final class NumaMemory {
+    private static final int PROT_READ = 0x1;
+    private static final int PROT_WRITE = 0x2;
+    private static final int MAP_PRIVATE = 0x02;
+    private static final int MAP_ANONYMOUS = 0x20;
+    private static final int MPOL_F_NODE = 1;
+    private static final int MPOL_F_ADDR = 2;
+    /** Bits in the node masks passed to the kernel */
+    private static final int MAX_NODES = 1024;
+    
+    private static final int SYS_MBIND = "aarch64".equals(Platform.ARCH) ? 235 
+                                       : "x86-64".equals(Platform.ARCH) ? 237 : -1;
+    private static final int SYS_GET_MEMPOLICY = "aarch64".equals(Platform.ARCH) ? 236 
+                                               : "x86-64".equals(Platform.ARCH) ? 239 : -1;
+    private static final MemoryLibrary LIBC = Platform.isLinux() ? Native.load("c", MemoryLibrary.class) : null;
+    
+    interface MemoryLibrary extends Library {
+        Pointer mmap(Pointer addr, long length, int prot, int flags, int fd, long offset);
+        int munmap(Pointer addr, long length);
+        long syscall(long number, Pointer addr, long length, long mode, long[] nodemask, long maxnode, long flags);
+        long syscall(long number, int[] mode, Pointer nodemask, long maxnode, Pointer addr, long flags);
+    }
+    
+    private NumaMemory() {
+    }
+    
+    static boolean isSupportedPlatform() {
+        return LIBC != null && SYS_MBIND > 0;
+    }
+    
+    /**
+     * Map anonymous memory; no pages are allocated until first touch
+     * @return the mapping, or null on failure
+     */
+    static Pointer map(long length) {
+        Pointer address = LIBC.mmap(null, length, PROT_READ | PROT_WRITE, MAP_PRIVATE | MAP_ANONYMOUS, -1, 0);
+        return Pointer.nativeValue(address) == -1 ? null : address;
+    }
+    
+    static void unmap(Pointer address, long length) {
+        LIBC.munmap(address, length);
+    }
+    
+    /**
+     * Apply a memory policy to a not yet touched range
+     * @return 0, or -errno on failure
+     */
+    static int bind(Pointer address, long length, int mode, int node) {
+        if (node < 0 || node >= MAX_NODES) {
+            throw new IllegalArgumentException("NUMA node out of range: " + node);
+        }
+        long[] nodemask = new long[MAX_NODES / Long.SIZE];
+        nodemask[node / Long.SIZE] |= 1L << (node % Long.SIZE);
+        long result = LIBC.syscall(SYS_MBIND, address, length, mode, nodemask, MAX_NODES, 0);
+        return result == 0 ? 0 : -Native.getLastError();
+    }
+    
+    /**
+     * Node backing the page at an address
+     * @return node ID, or -1 if unknown
+     */
+    static int nodeOf(Pointer address) {
+        if (SYS_GET_MEMPOLICY <= 0) {
+            return -1;
+        }
+        int[] node = new int[1];
+        long result = LIBC.syscall(SYS_GET_MEMPOLICY, node, null, 0, address, MPOL_F_NODE | MPOL_F_ADDR);
+        return result == 0 ? node[0] : -1;
+    }
+}
@@ -0,0 +1,131 @@
+package com.reene4444.cpupinning.numa;
+
+import com.reene4444.cpupinning.core.NumaTopology;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-node pool of fixed-size {@link NumaBuffer} slabs. Closing an acquired buffer
+ * returns it to its node's free list, so node-local buffers are recycled instead of
+ * being mapped, bound and faulted in again.
+ */
+public class NumaSlabPool implements AutoCloseable {
+    private final NumaAllocator allocator;
+    private final int slabBytes;
+    private final int maxFreePerNode;
+    private final MemoryPolicy policy;
+    private final Map<Integer, FreeList> freeLists = new ConcurrentHashMap<>();
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private volatile boolean closed;
+    
+    /**
+     * @param maxFreePerNode slabs kept per node; slabs released beyond it are freed
+     */
+    public NumaSlabPool(NumaAllocator allocator, int slabBytes, int maxFreePerNode, MemoryPolicy policy) {
+        this.allocator = allocator;
+        this.slabBytes = slabBytes;
+        this.maxFreePerNode = maxFreePerNode;
+        this.policy = policy;
+    }
+    
+    public int getSlabBytes() {
+        return slabBytes;
+    }
+    
+    /**
+     * Take a cleared slab placed on the given node
+     */
+    public NumaBuffer acquire(int node) {
+        NumaBuffer buffer = freeList(node).poll();
+        if (buffer != null) {
+            reused.increment();
+        } else {
+            buffer = allocator.allocate(slabBytes, node, policy);
+            buffer.setOwner(this);
+            allocated.increment();
+        }
+        buffer.reopen();
+        return buffer;
+    }
+    
+    /**
+     * Take a slab placed on the node the calling thread is running on
+     */
+    public NumaBuffer acquireLocal() {
+        return acquire(NumaTopology.getInstance().getCurrentNumaNode());
+    }
+    
+    void release(NumaBuffer buffer) {
+        if (closed || !freeList(buffer.getNode()).offer(buffer)) {
+            buffer.free();
+        }
+    }
+    
+    private FreeList freeList(int node) {
+        return freeLists.computeIfAbsent(node, key -> new FreeList());
+    }
+    
+    /**
+     * Slabs waiting for reuse on a node
+     */
+    public int getFreeCount(int node) {
+        FreeList freeList = freeLists.get(node);
+        return freeList != null ? freeList.size.get() : 0;
+    }
+    
+    /**
+     * Slabs mapped by this pool so far
+     */
+    public long getAllocatedCount() {
+        return allocated.sum();
+    }
+    
+    /**
+     * Acquisitions served from a free list
+     */
+    public long getReuseCount() {
+        return reused.sum();
+    }
+    
+    /**
+     * Free all idle slabs; slabs still in use are freed when closed
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (FreeList freeList : freeLists.values()) {
+            NumaBuffer buffer;
+            while ((buffer = freeList.poll()) != null) {
+                buffer.free();
+            }
+        }
+    }
+    
+    private class FreeList {
+        final Queue<NumaBuffer> slabs = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+    
+        NumaBuffer poll() {
+            NumaBuffer buffer = slabs.poll();
+            if (buffer != null) {
+                size.decrementAndGet();
+            }
+            return buffer;
+        }
+    
+        boolean offer(NumaBuffer buffer) {
+            if (size.incrementAndGet() > maxFreePerNode) {
+                size.decrementAndGet();
+                return false;
+            }
+            slabs.add(buffer);
+            return true;
+        }
+    }
+}
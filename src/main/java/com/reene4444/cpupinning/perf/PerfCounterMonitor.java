@@ -0,0 +1,259 @@
+package com.reene4444.cpupinning.perf;
+
+import com.sun.jna.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Optional per-thread hardware counter sampling (LLC misses, instructions, cycles,
+ * context switches) aggregated per group, where a group is a workload type or pool.
+ * Falls back to software perf events, then to /proc, when perf_event_paranoid or
+ * the (virtual) PMU does not allow hardware counters.
+ */
+public class PerfCounterMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(PerfCounterMonitor.class);
+    /** Weight of the newest interval in a thread's IPC baseline */
+    private static final double BASELINE_SMOOTHING = 0.2;
+    /** Intervals retiring fewer instructions than this are too idle to judge IPC */
+    private static final long MIN_INSTRUCTIONS = 1_000_000;
+    private static PerfCounterMonitor instance;
+    
+    private final PerfMode mode;
+    private final Map<Integer, ThreadCounters> threads = new ConcurrentHashMap<>();
+    private final Map<String, GroupCounters> groups = new ConcurrentHashMap<>();
+    private final long[] scratch = new long[3];
+    private volatile boolean enabled = false;
+    private volatile double ipcDropThreshold = 0.3;
+    private volatile Consumer<String> newGroupCallback = group -> { };
+    
+    private PerfCounterMonitor() {
+        this.mode = detectMode();
+    }
+    
+    public static synchronized PerfCounterMonitor getInstance() {
+        if (instance == null) {
+            instance = new PerfCounterMonitor();
+        }
+        return instance;
+    }
+    
+    private static PerfMode detectMode() {
+        if (!Platform.isLinux()) {
+            return PerfMode.NONE;
+        }
+        if (!PerfEvent.isSupportedPlatform()) {
+            return PerfMode.PROCFS;
+        }
+        // Probe on the current thread: paranoid level, seccomp and PMU presence all show up here
+        int fd = PerfEvent.open(PerfEvent.TYPE_HARDWARE, PerfEvent.HW_INSTRUCTIONS, 0);
+        if (fd >= 0) {
+            PerfEvent.close(fd);
+            return PerfMode.HARDWARE;
+        }
+        int hardwareErrno = -fd;
+        fd = PerfEvent.open(PerfEvent.TYPE_SOFTWARE, PerfEvent.SW_CONTEXT_SWITCHES, 0, false);
+        if (fd >= 0) {
+            PerfEvent.close(fd);
+            logger.info("Hardware perf counters unavailable (errno {}), using software counters", hardwareErrno);
+            return PerfMode.SOFTWARE;
+        }
+        logger.info("perf_event_open not permitted (errno {}, perf_event_paranoid={}), using /proc counters",
+                   -fd, readParanoidLevel());
+        return PerfMode.PROCFS;
+    }
+    
+    private static String readParanoidLevel() {
+        try {
+            Path paranoid = Paths.get("/proc/sys/kernel/perf_event_paranoid");
+            return Files.exists(paranoid) ? Files.readString(paranoid).trim() : "n/a";
+        } catch (IOException e) {
+            return "unreadable";
+        }
+    }
+    
+    public PerfMode getMode() {
+        return mode;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Enable or disable counting. While disabled, registration is a no-op.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled && mode != PerfMode.NONE;
+        if (!this.enabled) {
+            for (ThreadCounters counters : threads.values()) {
+                counters.close();
+            }
+            threads.clear();
+        } else {
+            logger.info("Per-thread performance counters enabled in {} mode", mode);
+        }
+    }
+    
+    /**
+     * Relative IPC drop below a thread's baseline treated as a migration signal
+     */
+    public void setIpcDropThreshold(double ipcDropThreshold) {
+        this.ipcDropThreshold = ipcDropThreshold;
+    }
+    
+    /**
+     * Called once for each group the first time a thread is registered in it
+     */
+    public void setNewGroupCallback(Consumer<String> newGroupCallback) {
+        this.newGroupCallback = newGroupCallback;
+    }
+    
+    /**
+     * Start counting a thread under a group, moving it if it was in another group
+     */
+    public void register(String group, int nativeTid) {
+        if (!enabled || nativeTid <= 0) {
+            return;
+        }
+        ThreadCounters existing = threads.get(nativeTid);
+        if (existing != null && existing.group.equals(group)) {
+            return;
+        }
+        ThreadCounters counters = ThreadCounters.open(nativeTid, group, mode);
+        existing = threads.put(nativeTid, counters);
+        if (existing != null) {
+            existing.close();
+        }
+        if (groups.putIfAbsent(group, new GroupCounters(group)) == null) {
+            newGroupCallback.accept(group);
+        }
+    }
+    
+    public void unregister(int nativeTid) {
+        ThreadCounters counters = threads.remove(nativeTid);
+        if (counters != null) {
+            counters.close();
+        }
+    }
+    
+    /**
+     * Read every registered thread, update per-thread IPC and per-group totals for the last interval
+     */
+    public synchronized void sample() {
+        if (!enabled) {
+            return;
+        }
+        Map<String, long[]> totals = new HashMap<>();
+        Iterator<ThreadCounters> it = threads.values().iterator();
+        while (it.hasNext()) {
+            ThreadCounters counters = it.next();
+            if (!counters.sample(scratch)) {
+                // Thread exited
+                counters.close();
+                it.remove();
+                continue;
+            }
+            if (counters.delta[ThreadCounters.INSTRUCTIONS] >= MIN_INSTRUCTIONS && !Double.isNaN(counters.ipc)) {
+                counters.ipcBaseline = Double.isNaN(counters.ipcBaseline) ? counters.ipc
+                    : counters.ipcBaseline + BASELINE_SMOOTHING * (counters.ipc - counters.ipcBaseline);
+            }
+            long[] total = totals.computeIfAbsent(counters.group, group -> new long[ThreadCounters.COUNT]);
+            for (int i = 0; i < ThreadCounters.COUNT; i++) {
+                total[i] += counters.delta[i];
+            }
+        }
+        for (GroupCounters group : groups.values()) {
+            group.update(totals.getOrDefault(group.getName(), new long[ThreadCounters.COUNT]));
+        }
+    }
+    
+    /**
+     * Whether a thread's IPC over the last interval fell below its baseline by
+     * more than the drop threshold - typically cache or SMT interference on its cores
+     */
+    public boolean isIpcDropped(int nativeTid) {
+        ThreadCounters counters = threads.get(nativeTid);
+        if (counters == null || Double.isNaN(counters.ipc) || Double.isNaN(counters.ipcBaseline)
+                || counters.delta[ThreadCounters.INSTRUCTIONS] < MIN_INSTRUCTIONS) {
+            return false;
+        }
+        return counters.ipc < counters.ipcBaseline * (1.0 - ipcDropThreshold);
+    }
+    
+    /**
+     * IPC of a thread over the last interval, NaN if unknown
+     */
+    public double getThreadIpc(int nativeTid) {
+        ThreadCounters counters = threads.get(nativeTid);
+        return counters != null ? counters.ipc : Double.NaN;
+    }
+    
+    public GroupCounters getGroup(String group) {
+        return groups.get(group);
+    }
+    
+    public Set<String> getGroupNames() {
+        return new HashSet<>(groups.keySet());
+    }
+    
+    /**
+     * Counter totals of a group over the last sampling interval
+     */
+    public static class GroupCounters {
+        private final String name;
+        private volatile long llcMisses;
+        private volatile long instructions;
+        private volatile long cycles;
+        private volatile long contextSwitches;
+        
+        GroupCounters(String name) {
+            this.name = name;
+        }
+        
+        void update(long[] totals) {
+            llcMisses = totals[ThreadCounters.LLC_MISSES];
+            instructions = totals[ThreadCounters.INSTRUCTIONS];
+            cycles = totals[ThreadCounters.CYCLES];
+            contextSwitches = totals[ThreadCounters.CONTEXT_SWITCHES];
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public long getLlcMisses() {
+            return llcMisses;
+        }
+        
+        public long getInstructions() {
+            return instructions;
+        }
+        
+        public long getCycles() {
+            return cycles;
+        }
+        
+        public long getContextSwitches() {
+            return contextSwitches;
+        }
+        
+        public double getIpc() {
+            return cycles > 0 ? (double) instructions / cycles : Double.NaN;
+        }
+        
+        /**
+         * LLC misses per thousand instructions
+         */
+        public double getLlcMpki() {
+            return instructions > 0 ? llcMisses * 1000.0 / instructions : Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.reene4444.cpupinning.perf;
+
+import com.sun.jna.Library;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+/**
+ * Minimal perf_event_open(2) binding for counting (non-sampling) events on one thread
+ */
+final class PerfEvent {
+    static final int TYPE_HARDWARE = 0;
+    static final int TYPE_SOFTWARE = 1;
+    static final long HW_CPU_CYCLES = 0;
+    static final long HW_INSTRUCTIONS = 1;
+    static final long HW_CACHE_MISSES = 3;
+    static final long SW_CONTEXT_SWITCHES = 3;
+    
+    /** PERF_ATTR_SIZE_VER5, accepted by every kernel since 4.1 */
+    private static final int ATTR_SIZE = 112;
+    private static final int READ_FORMAT_TOTAL_TIME_ENABLED = 1;
+    private static final int READ_FORMAT_TOTAL_TIME_RUNNING = 2;
+    // attr flag bits
+    private static final long EXCLUDE_KERNEL = 1L << 5;
+    private static final long EXCLUDE_HV = 1L << 6;
+    
+    private static final int SYS_PERF_EVENT_OPEN = "aarch64".equals(Platform.ARCH) ? 241 
+                                                 : "x86-64".equals(Platform.ARCH) ? 298 : -1;
+    private static final PerfLibrary LIBC = Platform.isLinux() ? Native.load("c", PerfLibrary.class) : null;
+    
+    interface PerfLibrary extends Library {
+        long syscall(long number, Pointer attr, long pid, long cpu, long groupFd, long flags);
+        long read(int fd, long[] buffer, long count);
+        int close(int fd);
+    }
+    
+    private PerfEvent() {
+    }
+    
+    static boolean isSupportedPlatform() {
+        return LIBC != null && SYS_PERF_EVENT_OPEN > 0;
+    }
+    
+    /**
+     * Open a user-space-only counter on a thread of this process
+     * @return file descriptor, or -errno on failure
+     */
+    static int open(int type, long config, int tid) {
+        return open(type, config, tid, true);
+    }
+    
+    /**
+     * Open a counter on a thread of this process. Context switches happen in the kernel,
+     * so they are only visible when kernel events are included.
+     * @return file descriptor, or -errno on failure
+     */
+    static int open(int type, long config, int tid, boolean userOnly) {
+        if (!isSupportedPlatform()) {
+            return -1;
+        }
+        Memory attr = new Memory(ATTR_SIZE);
+        attr.clear();
+        attr.setInt(0, type);
+        attr.setInt(4, ATTR_SIZE);
+        attr.setLong(8, config);
+        attr.setLong(32, READ_FORMAT_TOTAL_TIME_ENABLED | READ_FORMAT_TOTAL_TIME_RUNNING);
+        // Enabled immediately; excluding kernel and hypervisor is what paranoid level 2 permits
+        attr.setLong(40, userOnly ? EXCLUDE_KERNEL | EXCLUDE_HV : 0);
+        long fd = LIBC.syscall(SYS_PERF_EVENT_OPEN, attr, tid, -1, -1, 0);
+        return fd >= 0 ? (int) fd : -Native.getLastError();
+    }
+    
+    /**
+     * Read a counter, scaled for multiplexing
+     * @param buffer scratch buffer of at least 3 longs
+     * @return counter value, or -1 if the read failed
+     */
+    static long read(int fd, long[] buffer) {
+        if (LIBC.read(fd, buffer, 3L * Long.BYTES) != 3L * Long.BYTES) {
+            return -1;
+        }
+        long value = buffer[0];
+        long enabled = buffer[1];
+        long running = buffer[2];
+        if (running > 0 && running < enabled) {
+            value = (long) (value * ((double) enabled / running));
+        }
+        return value;
+    }
+    
+    static void close(int fd) {
+        if (fd >= 0) {
+            LIBC.close(fd);
+        }
+    }
+}
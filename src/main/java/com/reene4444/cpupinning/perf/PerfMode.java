@@ -0,0 +1,27 @@
+package com.reene4444.cpupinning.perf;
+
+/**
+ * Counter source in use, from most to least detailed
+ */
+public enum PerfMode {
+    /**
+     * Hardware counters via perf_event_open: LLC misses, instructions, cycles, context switches
+     */
+    HARDWARE,
+    
+    /**
+     * Software perf events only (context switches); hardware counters unavailable,
+     * e.g. in VMs without a virtual PMU
+     */
+    SOFTWARE,
+    
+    /**
+     * perf_event_open not permitted (perf_event_paranoid): context switches from /proc
+     */
+    PROCFS,
+    
+    /**
+     * No counter source (non-Linux platforms)
+     */
+    NONE
+}
@@ -0,0 +1,98 @@
+package com.reene4444.cpupinning.perf;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Open counters of one thread. Counters not available in the current mode read as 0.
+ */
+final class ThreadCounters {
+    static final int LLC_MISSES = 0;
+    static final int INSTRUCTIONS = 1;
+    static final int CYCLES = 2;
+    static final int CONTEXT_SWITCHES = 3;
+    static final int COUNT = 4;
+    
+    final int tid;
+    final String group;
+    private final PerfMode mode;
+    private final int[] fds = {-1, -1, -1, -1};
+    /** Absolute values at the previous sample */
+    final long[] previous = new long[COUNT];
+    /** Deltas over the last interval */
+    final long[] delta = new long[COUNT];
+    double ipc = Double.NaN;
+    double ipcBaseline = Double.NaN;
+    
+    private ThreadCounters(int tid, String group, PerfMode mode) {
+        this.tid = tid;
+        this.group = group;
+        this.mode = mode;
+    }
+    
+    static ThreadCounters open(int tid, String group, PerfMode mode) {
+        ThreadCounters counters = new ThreadCounters(tid, group, mode);
+        if (mode == PerfMode.HARDWARE) {
+            counters.fds[LLC_MISSES] = PerfEvent.open(PerfEvent.TYPE_HARDWARE, PerfEvent.HW_CACHE_MISSES, tid);
+            counters.fds[INSTRUCTIONS] = PerfEvent.open(PerfEvent.TYPE_HARDWARE, PerfEvent.HW_INSTRUCTIONS, tid);
+            counters.fds[CYCLES] = PerfEvent.open(PerfEvent.TYPE_HARDWARE, PerfEvent.HW_CPU_CYCLES, tid);
+        }
+        if (mode == PerfMode.HARDWARE || mode == PerfMode.SOFTWARE) {
+            counters.fds[CONTEXT_SWITCHES] = 
+                PerfEvent.open(PerfEvent.TYPE_SOFTWARE, PerfEvent.SW_CONTEXT_SWITCHES, tid, false);
+        }
+        return counters;
+    }
+    
+    /**
+     * Read all counters and update the interval deltas
+     * @return false if the thread is gone
+     */
+    boolean sample(long[] scratch) {
+        for (int i = 0; i < COUNT; i++) {
+            long value;
+            if (fds[i] >= 0) {
+                value = PerfEvent.read(fds[i], scratch);
+            } else if (i == CONTEXT_SWITCHES && mode == PerfMode.PROCFS) {
+                value = readProcContextSwitches();
+            } else {
+                continue;
+            }
+            if (value < 0) {
+                return false;
+            }
+            delta[i] = value - previous[i];
+            previous[i] = value;
+        }
+        ipc = fds[CYCLES] >= 0 && delta[CYCLES] > 0 ? (double) delta[INSTRUCTIONS] / delta[CYCLES] : Double.NaN;
+        // perf counters of an exited thread stay readable, so check the task itself
+        return Files.exists(taskDir());
+    }
+    
+    private long readProcContextSwitches() {
+        try {
+            long switches = 0;
+            for (String line : Files.readAllLines(taskDir().resolve("status"))) {
+                if (line.startsWith("voluntary_ctxt_switches:") || line.startsWith("nonvoluntary_ctxt_switches:")) {
+                    switches += Long.parseLong(line.substring(line.indexOf(':') + 1).trim());
+                }
+            }
+            return switches;
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    private Path taskDir() {
+        return Paths.get("/proc/self/task", String.valueOf(tid));
+    }
+    
+    void close() {
+        for (int i = 0; i < COUNT; i++) {
+            PerfEvent.close(fds[i]);
+            fds[i] = -1;
+        }
+    }
+}
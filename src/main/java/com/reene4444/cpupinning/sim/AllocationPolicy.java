@@ -0,0 +1,44 @@
+package com.reene4444.cpupinning.sim;
+
+import com.reene4444.cpupinning.core.MigrationReason;
+
+import java.util.Set;
+
+/**
+ * Placement policy evaluated by {@link PlacementSimulator}. Implementations must be
+ * deterministic for simulations to be repeatable.
+ */
+public interface AllocationPolicy {
+    
+    /**
+     * CPUs for a thread the trace does not place itself
+     */
+    Set<Integer> place(SimulatedThread thread, SimulationState state);
+    
+    /**
+     * Called for every live thread at each review interval
+     * @return where to move the thread, or null to leave it
+     */
+    Migration review(SimulatedThread thread, SimulationState state);
+    
+    /**
+     * Move decided by a policy
+     */
+    final class Migration {
+        private final Set<Integer> cpus;
+        private final MigrationReason reason;
+    
+        public Migration(Set<Integer> cpus, MigrationReason reason) {
+            this.cpus = Set.copyOf(cpus);
+            this.reason = reason;
+        }
+    
+        public Set<Integer> getCpus() {
+            return cpus;
+        }
+    
+        public MigrationReason getReason() {
+            return reason;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.reene4444.cpupinning.sim;
+
+import com.reene4444.cpupinning.adaptive.AdaptiveAffinityEngine;
+import com.reene4444.cpupinning.adaptive.CpuSelection;
+import com.reene4444.cpupinning.adaptive.MigrationPolicy;
+import com.reene4444.cpupinning.core.MigrationReason;
+import com.reene4444.cpupinning.core.SmtMode;
+import com.reene4444.cpupinning.core.WorkloadType;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The {@link AdaptiveAffinityEngine} policy on a simulated topology: the same migration
+ * thresholds, default workload split and SMT modes through {@link MigrationPolicy} and
+ * {@link CpuSelection}, with saturated CPUs avoided using the simulated utilization.
+ * LOW_LATENCY gets the lowest-numbered CPUs, as the engine does when no CPU is isolated
+ * or quieter than another, because a trace carries no interrupt counts.
+ */
+public class EnginePolicy implements AllocationPolicy {
+    private final MigrationPolicy migrationPolicy;
+    private final Map<WorkloadType, Set<Integer>> workloadCpus = new EnumMap<>(WorkloadType.class);
+    private final Map<WorkloadType, SmtMode> smtModes = new EnumMap<>(WorkloadType.class);
+    // Modes set on top of the engine's defaults for the topology last simulated
+    private final Map<WorkloadType, SmtMode> smtOverrides = new EnumMap<>(WorkloadType.class);
+    // Default CPUs per workload type on the topology last simulated
+    private final Map<WorkloadType, Set<Integer>> defaults = new EnumMap<>(WorkloadType.class);
+    private double saturationThreshold = 0.9;
+    private SimTopology topology;
+    
+    public EnginePolicy() {
+        this(new MigrationPolicy(100, 100));
+    }
+    
+    public EnginePolicy(MigrationPolicy migrationPolicy) {
+        this.migrationPolicy = migrationPolicy;
+    }
+    
+    /**
+     * Override the CPUs of a workload type, as {@code cpu.pinning.workloads.<TYPE>} does
+     */
+    public void setWorkloadCpus(WorkloadType type, Set<Integer> cpus) {
+        workloadCpus.put(type, new TreeSet<>(cpus));
+    }
+    
+    public void setSmtMode(WorkloadType type, SmtMode mode) {
+        smtOverrides.put(type, mode);
+        applySmtMode(type, mode);
+    }
+    
+    private void applySmtMode(WorkloadType type, SmtMode mode) {
+        if (mode == SmtMode.SHARED) {
+            smtModes.remove(type);
+        } else {
+            smtModes.put(type, mode);
+        }
+    }
+    
+    public void setSaturationThreshold(double saturationThreshold) {
+        this.saturationThreshold = saturationThreshold;
+    }
+    
+    @Override
+    public Set<Integer> place(SimulatedThread thread, SimulationState state) {
+        return withoutSaturated(selectCpus(resolve(thread.getWorkloadType()), state), state);
+    }
+    
+    @Override
+    public Migration review(SimulatedThread thread, SimulationState state) {
+        MigrationReason reason = migrationPolicy.evaluate(false, thread.getAverageLatencyMs(), thread.getAverageQps());
+        return reason != null ? new Migration(place(thread, state), reason) : null;
+    }
+    
+    private static WorkloadType resolve(WorkloadType type) {
+        return type == WorkloadType.AUTO ? WorkloadType.MIXED : type;
+    }
+    
+    private Set<Integer> selectCpus(WorkloadType type, SimulationState state) {
+        SimTopology simTopology = state.getTopology();
+        if (simTopology != topology) {
+            topology = simTopology;
+            defaults.clear();
+            smtModes.clear();
+            smtModes.putAll(CpuSelection.defaultSmtModes(this::configuredCpus, topology.getCpus(), topology::getSiblings));
+            smtOverrides.forEach(this::applySmtMode);
+        }
+        return CpuSelection.select(type, this::configuredCpus, smtModes, topology.getCpus(), topology::getSiblings);
+    }
+    
+    private Set<Integer> configuredCpus(WorkloadType type) {
+        Set<Integer> configured = workloadCpus.get(type);
+        if (configured != null) {
+            return configured;
+        }
+        // A trace has no interrupt counts, so CPUs rank as the engine ranks them without any
+        List<Integer> byNumber = new ArrayList<>(new TreeSet<>(topology.getCpus()));
+        return defaults.computeIfAbsent(type, t -> CpuSelection.defaultCpus(t, topology.getCpus(), byNumber));
+    }
+    
+    private Set<Integer> withoutSaturated(Set<Integer> cpus, SimulationState state) {
+        Set<Integer> available = new TreeSet<>();
+        for (Integer cpu : cpus) {
+            if (state.getUtilization(cpu) < saturationThreshold) {
+                available.add(cpu);
+            }
+        }
+        return available.isEmpty() ? new TreeSet<>(cpus) : available;
+    }
+    
+    @Override
+    public String toString() {
+        return "engine(" + migrationPolicy + ", SMT " + smtModes + ")";
+    }
+}
@@ -0,0 +1,255 @@
+package com.reene4444.cpupinning.sim;
+
+import com.reene4444.cpupinning.adaptive.MigrationPolicy;
+import com.reene4444.cpupinning.core.WorkloadType;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Deterministic offline replay of a {@link Trace} against an {@link AllocationPolicy} on a
+ * {@link SimTopology}, for evaluating policy changes without a live machine.
+ * <p>
+ * Each sample's CPU time is spread over the thread's simulated CPUs. At every review
+ * interval per-CPU utilization is closed out and the policy may move threads. A sample's
+ * latency is projected from the recorded one by the contention it would see on its
+ * simulated CPUs: overcommit stretches it, a busy SMT sibling or running away from the
+ * thread's home node slows it, and a migration adds a one-off cold-cache penalty. The
+ * projection is a proxy for comparing policies with each other, not a prediction of
+ * production latency.
+ * <p>
+ * Usage: {@code java -cp adaptive-cpu-pinning.jar com.reene4444.cpupinning.sim.PlacementSimulator
+ * <trace> [host|NODESxCORESxTHREADS] [latencyThresholdMs] [minQps] [reviewIntervalMs]}
+ */
+public class PlacementSimulator {
+    private final SimTopology topology;
+    private final AllocationPolicy policy;
+    private long reviewIntervalMs = 5000;
+    private double migrationPenaltyMs = 1.0;
+    private double remoteNodePenalty = 0.3;
+    private double smtPenalty = 0.25;
+    private boolean replayPlacements = true;
+    
+    public PlacementSimulator(SimTopology topology, AllocationPolicy policy) {
+        this.topology = topology;
+        this.policy = policy;
+    }
+    
+    public void setReviewIntervalMs(long reviewIntervalMs) {
+        if (reviewIntervalMs <= 0) {
+            throw new IllegalArgumentException("Review interval must be positive: " + reviewIntervalMs);
+        }
+        this.reviewIntervalMs = reviewIntervalMs;
+    }
+    
+    /**
+     * Latency added to the first sample after a migration
+     */
+    public void setMigrationPenaltyMs(double migrationPenaltyMs) {
+        this.migrationPenaltyMs = migrationPenaltyMs;
+    }
+    
+    /**
+     * Fractional slowdown while a thread runs off the node it was first placed on
+     */
+    public void setRemoteNodePenalty(double remoteNodePenalty) {
+        this.remoteNodePenalty = remoteNodePenalty;
+    }
+    
+    /**
+     * Fractional slowdown when every CPU of a thread has a busy SMT sibling outside its set
+     */
+    public void setSmtPenalty(double smtPenalty) {
+        this.smtPenalty = smtPenalty;
+    }
+    
+    /**
+     * Start threads on their recorded CPUs (default), or let the policy place every thread
+     */
+    public void setReplayPlacements(boolean replayPlacements) {
+        this.replayPlacements = replayPlacements;
+    }
+    
+    public SimulationReport run(Trace trace) {
+        return new Run(trace).execute();
+    }
+    
+    /**
+     * State of one replay
+     */
+    private class Run implements SimulationState {
+        private final Trace trace;
+        private final SimulationReport report;
+        private final Map<String, SimulatedThread> threads = new TreeMap<>();
+        private final Map<Integer, Double> busyMs = new HashMap<>();
+        private Map<Integer, Double> utilization = Map.of();
+        private long timeMs;
+        private long windowStartMs;
+    
+        Run(Trace trace) {
+            this.trace = trace;
+            this.report = new SimulationReport(policy.toString(), topology, trace.getDurationMs());
+        }
+    
+        SimulationReport execute() {
+            long nextReviewMs = reviewIntervalMs;
+            for (TraceRecord record : trace.getRecords()) {
+                while (record.getTimeMs() >= nextReviewMs) {
+                    review(nextReviewMs);
+                    nextReviewMs += reviewIntervalMs;
+                }
+                timeMs = record.getTimeMs();
+                apply(record);
+            }
+            if (trace.getDurationMs() > windowStartMs) {
+                closeWindow(trace.getDurationMs());
+            }
+            return report;
+        }
+    
+        private void apply(TraceRecord record) {
+            SimulatedThread thread = threads.get(record.getThread());
+            switch (record.getKind()) {
+                case PIN:
+                    if (thread == null) {
+                        start(record.getThread(), record.getWorkloadType(), record.getCpus());
+                    } else if (!record.getCpus().isEmpty()) {
+                        // A recorded re-pin; the simulated policy makes its own moves
+                        report.addRecordedMigration();
+                    }
+                    break;
+                case MIGRATE:
+                    report.addRecordedMigration();
+                    break;
+                case SAMPLE:
+                    if (thread == null) {
+                        thread = start(record.getThread(), WorkloadType.MIXED, Set.of());
+                    }
+                    sample(thread, record);
+                    break;
+                default:
+                    threads.remove(record.getThread());
+            }
+        }
+    
+        private SimulatedThread start(String name, WorkloadType type, Set<Integer> recordedCpus) {
+            SimulatedThread thread = new SimulatedThread(name, type);
+            Set<Integer> cpus = new TreeSet<>(recordedCpus);
+            cpus.retainAll(topology.getCpus());
+            if (!replayPlacements || cpus.isEmpty()) {
+                cpus = new TreeSet<>(policy.place(thread, this));
+                cpus.retainAll(topology.getCpus());
+            }
+            if (cpus.isEmpty()) {
+                cpus = new TreeSet<>(topology.getCpus());
+            }
+            thread.place(cpus, nodeOf(cpus));
+            threads.put(name, thread);
+            return thread;
+        }
+    
+        private void sample(SimulatedThread thread, TraceRecord record) {
+            Set<Integer> cpus = thread.getCpus();
+            double share = record.getCpuMs() / cpus.size();
+            double load = 0;
+            int busySiblings = 0;
+            for (Integer cpu : cpus) {
+                busyMs.merge(cpu, share, Double::sum);
+                load += getUtilization(cpu);
+                for (Integer sibling : topology.getSiblings(cpu)) {
+                    if (!cpus.contains(sibling) && getUtilization(sibling) > 0.5) {
+                        busySiblings++;
+                        break;
+                    }
+                }
+            }
+            double slowdown = Math.max(1.0, load / cpus.size())
+                            * (1 + smtPenalty * busySiblings / cpus.size())
+                            * (nodeOf(cpus) != thread.getHomeNode() ? 1 + remoteNodePenalty : 1);
+            double latencyMs = record.getLatencyMs() * slowdown + thread.takePenalty();
+            thread.record(latencyMs, record.getQps());
+            report.addLatency(thread.getWorkloadType(), latencyMs);
+        }
+    
+        private void review(long reviewTimeMs) {
+            closeWindow(reviewTimeMs);
+            timeMs = reviewTimeMs;
+            for (SimulatedThread thread : new ArrayList<>(threads.values())) {
+                AllocationPolicy.Migration migration = policy.review(thread, this);
+                if (migration == null) {
+                    continue;
+                }
+                Set<Integer> cpus = new TreeSet<>(migration.getCpus());
+                cpus.retainAll(topology.getCpus());
+                if (!cpus.isEmpty() && !cpus.equals(thread.getCpus())) {
+                    thread.migrate(cpus, nodeOf(cpus), migrationPenaltyMs);
+                    report.addMigration(migration.getReason());
+                }
+            }
+        }
+    
+        private void closeWindow(long endMs) {
+            long lengthMs = endMs - windowStartMs;
+            Map<Integer, Double> closed = new TreeMap<>();
+            for (Integer cpu : topology.getCpus()) {
+                closed.put(cpu, lengthMs > 0 ? busyMs.getOrDefault(cpu, 0.0) / lengthMs : 0.0);
+            }
+            report.addWindow(closed);
+            utilization = closed;
+            busyMs.clear();
+            windowStartMs = endMs;
+        }
+    
+        /**
+         * Node of a thread's lowest CPU
+         */
+        private int nodeOf(Set<Integer> cpus) {
+            return topology.getNode(new TreeSet<>(cpus).first());
+        }
+    
+        @Override
+        public SimTopology getTopology() {
+            return topology;
+        }
+    
+        @Override
+        public long getTimeMs() {
+            return timeMs;
+        }
+    
+        @Override
+        public double getUtilization(int cpu) {
+            return utilization.getOrDefault(cpu, 0.0);
+        }
+    
+        @Override
+        public Collection<SimulatedThread> getThreads() {
+            return Collections.unmodifiableCollection(threads.values());
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 5) {
+            System.err.println("Usage: PlacementSimulator <trace> [host|NODESxCORESxTHREADS] "
+                               + "[latencyThresholdMs] [minQps] [reviewIntervalMs]");
+            System.exit(2);
+        }
+        Trace trace = Trace.read(Paths.get(args[0]));
+        SimTopology topology = SimTopology.parse(args.length > 1 ? args[1] : "host");
+        MigrationPolicy migrationPolicy = new MigrationPolicy(args.length > 2 ? Long.parseLong(args[2]) : 100,
+                                                              args.length > 3 ? Long.parseLong(args[3]) : 100);
+        PlacementSimulator simulator = new PlacementSimulator(topology, new EnginePolicy(migrationPolicy));
+        if (args.length > 4) {
+            simulator.setReviewIntervalMs(Long.parseLong(args[4]));
+        }
+        System.out.print(simulator.run(trace));
+    }
+}
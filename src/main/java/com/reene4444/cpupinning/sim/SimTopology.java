@@ -0,0 +1,108 @@
+package com.reene4444.cpupinning.sim;
+
+import com.reene4444.cpupinning.core.NumaTopology;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * CPU topology the simulator places threads on: CPUs, their NUMA nodes and SMT siblings.
+ * Either synthetic, for machines that are not at hand, or captured from this host.
+ */
+public final class SimTopology {
+    private final Set<Integer> cpus = new TreeSet<>();
+    private final Map<Integer, Integer> cpuToNode = new HashMap<>();
+    private final Map<Integer, Set<Integer>> siblings = new HashMap<>();
+    
+    private SimTopology() {
+    }
+    
+    /**
+     * Synthetic topology numbered as Linux numbers x86 servers: the first hyperthread of
+     * every core first, then the second ones, so CPU {@code c} and {@code c + cores} are siblings
+     */
+    public static SimTopology synthetic(int nodes, int coresPerNode, int threadsPerCore) {
+        if (nodes < 1 || coresPerNode < 1 || threadsPerCore < 1) {
+            throw new IllegalArgumentException(String.format(
+                "Invalid topology %dx%dx%d", nodes, coresPerNode, threadsPerCore));
+        }
+        SimTopology topology = new SimTopology();
+        int cores = nodes * coresPerNode;
+        for (int core = 0; core < cores; core++) {
+            Set<Integer> coreCpus = new TreeSet<>();
+            for (int thread = 0; thread < threadsPerCore; thread++) {
+                coreCpus.add(thread * cores + core);
+            }
+            for (Integer cpu : coreCpus) {
+                topology.add(cpu, core / coresPerNode, coreCpus);
+            }
+        }
+        return topology;
+    }
+    
+    /**
+     * Topology of the effective cpuset of this host
+     */
+    public static SimTopology fromHost() {
+        NumaTopology numaTopology = NumaTopology.getInstance();
+        SimTopology topology = new SimTopology();
+        for (Integer cpu : numaTopology.getEffectiveCpus()) {
+            topology.add(cpu, numaTopology.getNumaNode(cpu), numaTopology.getSmtSiblings(cpu));
+        }
+        return topology;
+    }
+    
+    /**
+     * Parse {@code "host"} or {@code "NODESxCORESxTHREADS"}, e.g. {@code "2x16x2"}
+     */
+    public static SimTopology parse(String spec) {
+        if ("host".equalsIgnoreCase(spec.trim())) {
+            return fromHost();
+        }
+        String[] parts = spec.trim().toLowerCase().split("x");
+        try {
+            if (parts.length == 3) {
+                return synthetic(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Expected 'host' or NODESxCORESxTHREADS, got '" + spec + "'");
+    }
+    
+    private void add(int cpu, int node, Set<Integer> cpuSiblings) {
+        cpus.add(cpu);
+        cpuToNode.put(cpu, node);
+        siblings.put(cpu, Collections.unmodifiableSet(new TreeSet<>(cpuSiblings)));
+    }
+    
+    public Set<Integer> getCpus() {
+        return Collections.unmodifiableSet(cpus);
+    }
+    
+    public int getNode(int cpu) {
+        return cpuToNode.getOrDefault(cpu, 0);
+    }
+    
+    public Set<Integer> getNodes() {
+        return new TreeSet<>(cpuToNode.values());
+    }
+    
+    /**
+     * SMT siblings of a CPU, including the CPU itself
+     */
+    public Set<Integer> getSiblings(int cpu) {
+        return siblings.getOrDefault(cpu, Set.of(cpu));
+    }
+    
+    @Override
+    public String toString() {
+        Map<Integer, Integer> perNode = new TreeMap<>();
+        cpuToNode.values().forEach(node -> perNode.merge(node, 1, Integer::sum));
+        return String.format("%d CPU(s) on node(s) %s", cpus.size(), perNode);
+    }
+}
@@ -0,0 +1,93 @@
+package com.reene4444.cpupinning.sim;
+
+import com.reene4444.cpupinning.adaptive.MigrationPolicy;
+import com.reene4444.cpupinning.core.WorkloadType;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A thread replayed by the simulator, as its allocation policy sees it
+ */
+public final class SimulatedThread {
+    private final String name;
+    private final WorkloadType workloadType;
+    private Set<Integer> cpus = Set.of();
+    // Node the thread first ran on, where its memory is assumed to live
+    private int homeNode = -1;
+    private int migrations;
+    // Extra latency owed to the next sample after a migration
+    private double pendingPenaltyMs;
+    private final Deque<Double> latencyHistory = new ArrayDeque<>();
+    private final Deque<Double> qpsHistory = new ArrayDeque<>();
+    
+    SimulatedThread(String name, WorkloadType workloadType) {
+        this.name = name;
+        this.workloadType = workloadType;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public WorkloadType getWorkloadType() {
+        return workloadType;
+    }
+    
+    public Set<Integer> getCpus() {
+        return cpus;
+    }
+    
+    /**
+     * Node the thread was first placed on, -1 before it is placed
+     */
+    public int getHomeNode() {
+        return homeNode;
+    }
+    
+    public int getMigrations() {
+        return migrations;
+    }
+    
+    /**
+     * Average projected latency over the last {@link MigrationPolicy#HISTORY_SIZE} samples
+     */
+    public double getAverageLatencyMs() {
+        return latencyHistory.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+    }
+    
+    public double getAverageQps() {
+        return qpsHistory.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+    }
+    
+    void place(Set<Integer> cpus, int node) {
+        this.cpus = Collections.unmodifiableSet(new TreeSet<>(cpus));
+        if (homeNode < 0) {
+            homeNode = node;
+        }
+    }
+    
+    void migrate(Set<Integer> cpus, int node, double penaltyMs) {
+        place(cpus, node);
+        migrations++;
+        pendingPenaltyMs += penaltyMs;
+    }
+    
+    double takePenalty() {
+        double penalty = pendingPenaltyMs;
+        pendingPenaltyMs = 0;
+        return penalty;
+    }
+    
+    void record(double latencyMs, double qps) {
+        latencyHistory.addLast(latencyMs);
+        qpsHistory.addLast(qps);
+        if (latencyHistory.size() > MigrationPolicy.HISTORY_SIZE) {
+            latencyHistory.removeFirst();
+            qpsHistory.removeFirst();
+        }
+    }
+}
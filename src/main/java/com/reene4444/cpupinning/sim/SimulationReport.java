@@ -0,0 +1,155 @@
+package com.reene4444.cpupinning.sim;
+
+import com.reene4444.cpupinning.core.MigrationReason;
+import com.reene4444.cpupinning.core.WorkloadType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of one simulation: projected migrations, per-CPU utilization and latency
+ * percentiles per workload type
+ */
+public final class SimulationReport {
+    private final String policy;
+    private final SimTopology topology;
+    private final long durationMs;
+    private final Map<MigrationReason, Integer> migrations = new EnumMap<>(MigrationReason.class);
+    private int recordedMigrations;
+    private final Map<Integer, double[]> utilization = new TreeMap<>();
+    private int windows;
+    private int overcommittedWindows;
+    private final Map<WorkloadType, List<Double>> latencies = new EnumMap<>(WorkloadType.class);
+    private final List<Double> allLatencies = new ArrayList<>();
+    
+    SimulationReport(String policy, SimTopology topology, long durationMs) {
+        this.policy = policy;
+        this.topology = topology;
+        this.durationMs = durationMs;
+        for (Integer cpu : topology.getCpus()) {
+            // Sum and peak
+            utilization.put(cpu, new double[2]);
+        }
+    }
+    
+    void addMigration(MigrationReason reason) {
+        migrations.merge(reason, 1, Integer::sum);
+    }
+    
+    void addRecordedMigration() {
+        recordedMigrations++;
+    }
+    
+    void addWindow(Map<Integer, Double> cpuUtilization) {
+        windows++;
+        cpuUtilization.forEach((cpu, value) -> {
+            double[] stats = utilization.get(cpu);
+            if (stats != null) {
+                stats[0] += value;
+                stats[1] = Math.max(stats[1], value);
+            }
+            if (value > 1.0) {
+                overcommittedWindows++;
+            }
+        });
+    }
+    
+    void addLatency(WorkloadType type, double latencyMs) {
+        latencies.computeIfAbsent(type, t -> new ArrayList<>()).add(latencyMs);
+        allLatencies.add(latencyMs);
+    }
+    
+    public int getMigrationCount() {
+        return migrations.values().stream().mapToInt(Integer::intValue).sum();
+    }
+    
+    public Map<MigrationReason, Integer> getMigrations() {
+        return Collections.unmodifiableMap(migrations);
+    }
+    
+    /**
+     * Migrations the live engine made in the recorded trace, for comparison
+     */
+    public int getRecordedMigrations() {
+        return recordedMigrations;
+    }
+    
+    /**
+     * Mean utilization of each CPU over all review intervals
+     */
+    public Map<Integer, Double> getMeanUtilization() {
+        Map<Integer, Double> mean = new TreeMap<>();
+        utilization.forEach((cpu, stats) -> mean.put(cpu, windows > 0 ? stats[0] / windows : 0.0));
+        return mean;
+    }
+    
+    public Map<Integer, Double> getPeakUtilization() {
+        Map<Integer, Double> peak = new TreeMap<>();
+        utilization.forEach((cpu, stats) -> peak.put(cpu, stats[1]));
+        return peak;
+    }
+    
+    /**
+     * Number of (CPU, review interval) pairs in which demand exceeded the CPU
+     */
+    public int getOvercommittedWindows() {
+        return overcommittedWindows;
+    }
+    
+    /**
+     * Projected latency percentile of one workload type, NaN without samples
+     * @param percentile between 0 and 100
+     */
+    public double getLatencyPercentile(WorkloadType type, double percentile) {
+        return percentile(latencies.getOrDefault(type, List.of()), percentile);
+    }
+    
+    /**
+     * Projected latency percentile over all threads, NaN without samples
+     */
+    public double getLatencyPercentile(double percentile) {
+        return percentile(allLatencies, percentile);
+    }
+    
+    private static double percentile(List<Double> samples, double percentile) {
+        if (samples.isEmpty()) {
+            return Double.NaN;
+        }
+        List<Double> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        // Nearest rank
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, rank - 1)));
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "policy %s on %s, %d ms simulated%n", policy, topology, durationMs));
+        report.append(String.format(Locale.ROOT, "migrations: %d projected %s, %d recorded%n",
+                                    getMigrationCount(), migrations, recordedMigrations));
+        report.append(String.format(Locale.ROOT, "overcommitted CPU intervals: %d of %d%n",
+                                    overcommittedWindows, windows * utilization.size()));
+        report.append("utilization (mean/peak):");
+        Map<Integer, Double> mean = getMeanUtilization();
+        getPeakUtilization().forEach((cpu, peak) -> 
+            report.append(String.format(Locale.ROOT, " %d=%.2f/%.2f", cpu, mean.get(cpu), peak)));
+        report.append(String.format("%n"));
+        for (WorkloadType type : latencies.keySet()) {
+            appendLatency(report, type.name(), latencies.get(type));
+        }
+        appendLatency(report, "ALL", allLatencies);
+        return report.toString();
+    }
+    
+    private static void appendLatency(StringBuilder report, String label, List<Double> samples) {
+        report.append(String.format(Locale.ROOT, "latency %s: p50 %.2f ms, p99 %.2f ms, max %.2f ms (%d samples)%n",
+                                    label, percentile(samples, 50), percentile(samples, 99),
+                                    percentile(samples, 100), samples.size()));
+    }
+}
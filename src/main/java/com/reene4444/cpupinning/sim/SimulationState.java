@@ -0,0 +1,27 @@
+package com.reene4444.cpupinning.sim;
+
+import java.util.Collection;
+
+/**
+ * Read-only view of a running simulation for {@link AllocationPolicy} decisions
+ */
+public interface SimulationState {
+    
+    SimTopology getTopology();
+    
+    /**
+     * Simulated time in milliseconds since the start of the trace
+     */
+    long getTimeMs();
+    
+    /**
+     * Demand on a CPU over the last completed review interval, where 1.0 is fully busy;
+     * above 1.0 the CPU was overcommitted
+     */
+    double getUtilization(int cpu);
+    
+    /**
+     * Live threads, ordered by name
+     */
+    Collection<SimulatedThread> getThreads();
+}
@@ -0,0 +1,154 @@
+package com.reene4444.cpupinning.sim;
+
+import com.reene4444.cpupinning.core.WorkloadType;
+import com.reene4444.cpupinning.monitoring.AffinityJournal;
+import com.reene4444.cpupinning.monitoring.AffinityJournalReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Time-ordered placement trace replayed by {@link PlacementSimulator}. Traces are plain
+ * text, one {@link TraceRecord} per line; blank lines and lines starting with '#' are skipped.
+ */
+public final class Trace {
+    private final List<TraceRecord> records;
+    
+    private Trace(List<TraceRecord> records) {
+        List<TraceRecord> sorted = new ArrayList<>(records);
+        // Stable, so records with equal timestamps keep their recorded order
+        sorted.sort(Comparator.comparingLong(TraceRecord::getTimeMs));
+        this.records = Collections.unmodifiableList(sorted);
+    }
+    
+    public static Trace of(List<TraceRecord> records) {
+        return new Trace(records);
+    }
+    
+    public static Trace read(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            return parse(reader);
+        }
+    }
+    
+    public static Trace parse(String text) {
+        try {
+            return parse(new BufferedReader(new StringReader(text)));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    public static Trace parse(BufferedReader reader) throws IOException {
+        List<TraceRecord> records = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                records.add(TraceRecord.parse(trimmed));
+            }
+        }
+        return new Trace(records);
+    }
+    
+    /**
+     * Placement events captured by an {@link AffinityJournal}, with times relative to the
+     * first record. Threads are named {@code tid-N}, and their workload type comes from
+     * {@code workload:<TYPE>} pools (MIXED for business pools). Merge the result with
+     * sampled latency and CPU time to replay it.
+     */
+    public static Trace fromJournal(List<AffinityJournalReader.Entry> entries) {
+        List<TraceRecord> records = new ArrayList<>();
+        long start = entries.isEmpty() ? 0 : entries.get(0).getTimestamp().toEpochMilli();
+        for (AffinityJournalReader.Entry entry : entries) {
+            long timeMs = entry.getTimestamp().toEpochMilli() - start;
+            String thread = "tid-" + entry.getNativeTid();
+            switch (entry.getType()) {
+                case PIN:
+                    records.add(TraceRecord.pin(timeMs, thread, workloadOf(entry.getPool()), entry.getNewCpus()));
+                    break;
+                case MIGRATION:
+                    records.add(TraceRecord.migrate(timeMs, thread, entry.getNewCpus()));
+                    break;
+                case RELEASE:
+                    records.add(TraceRecord.exit(timeMs, thread));
+                    break;
+                default:
+                    // Pool changes and drift are not thread placements
+            }
+        }
+        return new Trace(records);
+    }
+    
+    private static WorkloadType workloadOf(String pool) {
+        if (pool.startsWith("workload:")) {
+            try {
+                return WorkloadType.valueOf(pool.substring("workload:".length()));
+            } catch (IllegalArgumentException e) {
+                // fall through
+            }
+        }
+        return WorkloadType.MIXED;
+    }
+    
+    /**
+     * Deterministic synthetic trace: a mix of CPU-bound, I/O-bound, mixed and
+     * latency-critical threads whose load rises and falls in bursts
+     * @param seed same seed, same trace
+     */
+    public static Trace synthetic(long seed, int threads, long durationMs, long sampleIntervalMs) {
+        Random random = new Random(seed);
+        WorkloadType[] mix = {WorkloadType.CPU_INTENSIVE, WorkloadType.IO_INTENSIVE, 
+                              WorkloadType.MIXED, WorkloadType.LOW_LATENCY};
+        List<TraceRecord> records = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            WorkloadType type = mix[i % mix.length];
+            String thread = type.name().toLowerCase().replace('_', '-') + "-" + i;
+            records.add(TraceRecord.pin(0, thread, type, Set.of()));
+            double busy = type == WorkloadType.CPU_INTENSIVE ? 0.9 : type == WorkloadType.IO_INTENSIVE ? 0.15 : 0.5;
+            double baseLatency = type == WorkloadType.LOW_LATENCY ? 2 : type == WorkloadType.IO_INTENSIVE ? 40 : 20;
+            for (long time = sampleIntervalMs; time <= durationMs; time += sampleIntervalMs) {
+                // Bursts of roughly 10 intervals at up to twice the usual load
+                double burst = (time / sampleIntervalMs / 10 + i) % 3 == 0 ? 1 + random.nextDouble() : 1;
+                double cpuMs = Math.min(1.0, busy * burst) * sampleIntervalMs;
+                double latency = baseLatency * burst * (0.8 + 0.4 * random.nextDouble());
+                double qps = 1000 / Math.max(1, latency) * (0.5 + random.nextDouble());
+                records.add(TraceRecord.sample(time, thread, Math.round(latency * 100) / 100.0,
+                                               Math.round(qps), Math.round(cpuMs)));
+            }
+        }
+        return new Trace(records);
+    }
+    
+    /**
+     * This trace and another merged in time order
+     */
+    public Trace merge(Trace other) {
+        List<TraceRecord> merged = new ArrayList<>(records);
+        merged.addAll(other.records);
+        return new Trace(merged);
+    }
+    
+    public void write(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        records.forEach(record -> lines.add(record.toString()));
+        Files.write(file, lines);
+    }
+    
+    public List<TraceRecord> getRecords() {
+        return records;
+    }
+    
+    public long getDurationMs() {
+        return records.isEmpty() ? 0 : records.get(records.size() - 1).getTimeMs();
+    }
+}
@@ -0,0 +1,178 @@
+package com.reene4444.cpupinning.sim;
+
+import com.reene4444.cpupinning.core.CpuList;
+import com.reene4444.cpupinning.core.WorkloadType;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * One line of a placement trace:
+ * <pre>
+ * TIME_MS THREAD PIN WORKLOAD [CPUS]
+ * TIME_MS THREAD SAMPLE latency=MS qps=N cpu=MS
+ * TIME_MS THREAD MIGRATE CPUS
+ * TIME_MS THREAD EXIT
+ * </pre>
+ * A sample's CPU time is what the thread consumed since its previous record. PIN
+ * without CPUs lets the policy place the thread; MIGRATE records what the live
+ * engine did and is only counted, since the simulated policy makes its own moves.
+ */
+public final class TraceRecord {
+    
+    public enum Kind {
+        PIN, SAMPLE, MIGRATE, EXIT
+    }
+    
+    private final long timeMs;
+    private final String thread;
+    private final Kind kind;
+    private final WorkloadType workloadType;
+    private final Set<Integer> cpus;
+    private final double latencyMs;
+    private final double qps;
+    private final double cpuMs;
+    
+    private TraceRecord(long timeMs, String thread, Kind kind, WorkloadType workloadType, Set<Integer> cpus,
+                        double latencyMs, double qps, double cpuMs) {
+        if (thread.isEmpty() || thread.chars().anyMatch(Character::isWhitespace)) {
+            throw new IllegalArgumentException("Thread names in a trace cannot contain whitespace: '" + thread + "'");
+        }
+        this.timeMs = timeMs;
+        this.thread = thread;
+        this.kind = kind;
+        this.workloadType = workloadType;
+        this.cpus = cpus != null ? Set.copyOf(cpus) : Set.of();
+        this.latencyMs = latencyMs;
+        this.qps = qps;
+        this.cpuMs = cpuMs;
+    }
+    
+    /**
+     * @param cpus recorded placement, or empty to let the policy place the thread
+     */
+    public static TraceRecord pin(long timeMs, String thread, WorkloadType workloadType, Set<Integer> cpus) {
+        return new TraceRecord(timeMs, thread, Kind.PIN, workloadType, cpus, 0, 0, 0);
+    }
+    
+    public static TraceRecord sample(long timeMs, String thread, double latencyMs, double qps, double cpuMs) {
+        return new TraceRecord(timeMs, thread, Kind.SAMPLE, null, null, latencyMs, qps, cpuMs);
+    }
+    
+    public static TraceRecord migrate(long timeMs, String thread, Set<Integer> cpus) {
+        return new TraceRecord(timeMs, thread, Kind.MIGRATE, null, cpus, 0, 0, 0);
+    }
+    
+    public static TraceRecord exit(long timeMs, String thread) {
+        return new TraceRecord(timeMs, thread, Kind.EXIT, null, null, 0, 0, 0);
+    }
+    
+    /**
+     * Parse one trace line
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    public static TraceRecord parse(String line) {
+        String[] fields = line.trim().split("\\s+");
+        if (fields.length < 3) {
+            throw new IllegalArgumentException("Malformed trace line: '" + line + "'");
+        }
+        try {
+            long timeMs = Long.parseLong(fields[0]);
+            String thread = fields[1];
+            switch (Kind.valueOf(fields[2].toUpperCase(Locale.ROOT))) {
+                case PIN:
+                    return pin(timeMs, thread, WorkloadType.valueOf(fields[3].toUpperCase(Locale.ROOT)),
+                               fields.length > 4 ? CpuList.parse(fields[4]) : Set.of());
+                case SAMPLE:
+                    double latencyMs = 0;
+                    double qps = 0;
+                    double cpuMs = 0;
+                    for (int i = 3; i < fields.length; i++) {
+                        String[] pair = fields[i].split("=", 2);
+                        double value = Double.parseDouble(pair[1]);
+                        switch (pair[0]) {
+                            case "latency":
+                                latencyMs = value;
+                                break;
+                            case "qps":
+                                qps = value;
+                                break;
+                            case "cpu":
+                                cpuMs = value;
+                                break;
+                            default:
+                                throw new IllegalArgumentException("Unknown sample field '" + pair[0] + "'");
+                        }
+                    }
+                    return sample(timeMs, thread, latencyMs, qps, cpuMs);
+                case MIGRATE:
+                    return migrate(timeMs, thread, CpuList.parse(fields[3]));
+                default:
+                    return exit(timeMs, thread);
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed trace line: '" + line + "' (" + e.getMessage() + ")", e);
+        }
+    }
+    
+    public long getTimeMs() {
+        return timeMs;
+    }
+    
+    public String getThread() {
+        return thread;
+    }
+    
+    public Kind getKind() {
+        return kind;
+    }
+    
+    /**
+     * Workload type of a PIN record, null otherwise
+     */
+    public WorkloadType getWorkloadType() {
+        return workloadType;
+    }
+    
+    /**
+     * CPUs of a PIN or MIGRATE record, empty otherwise
+     */
+    public Set<Integer> getCpus() {
+        return cpus;
+    }
+    
+    public double getLatencyMs() {
+        return latencyMs;
+    }
+    
+    public double getQps() {
+        return qps;
+    }
+    
+    public double getCpuMs() {
+        return cpuMs;
+    }
+    
+    /**
+     * The record as a trace line
+     */
+    @Override
+    public String toString() {
+        switch (kind) {
+            case PIN:
+                return String.format("%d %s PIN %s%s", timeMs, thread, workloadType,
+                                     cpus.isEmpty() ? "" : " " + CpuList.format(cpus));
+            case SAMPLE:
+                return String.format(Locale.ROOT, "%d %s SAMPLE latency=%s qps=%s cpu=%s", timeMs, thread,
+                                     format(latencyMs), format(qps), format(cpuMs));
+            case MIGRATE:
+                return String.format("%d %s MIGRATE %s", timeMs, thread, CpuList.format(cpus));
+            default:
+                return String.format("%d %s EXIT", timeMs, thread);
+        }
+    }
+    
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+}
@@ -1,32 +1,64 @@
 package com.reene4444.cpupinning.spring;
 
 import com.reene4444.cpupinning.adaptive.AdaptiveAffinityEngine;
+import com.reene4444.cpupinning.adaptive.DriftReconciler;
+import com.reene4444.cpupinning.adaptive.PlacementCache;
 import com.reene4444.cpupinning.business.BusinessIsolationManager;
 import com.reene4444.cpupinning.chaos.ChaosIntegration;
+import com.reene4444.cpupinning.core.AffinityEvents;
+import com.reene4444.cpupinning.core.CpuUtilizationSampler;
+import com.reene4444.cpupinning.core.HostCoordinator;
+import com.reene4444.cpupinning.monitoring.AffinityInspector;
+import com.reene4444.cpupinning.monitoring.AffinityJournal;
 import com.reene4444.cpupinning.monitoring.CpuPinningMetrics;
+import com.reene4444.cpupinning.perf.PerfCounterMonitor;
+import com.reene4444.cpupinning.spring.actuate.CpuPinningEndpoint;
 import com.reene4444.cpupinning.spring.aspect.AffinityPoolAspect;
 import com.reene4444.cpupinning.spring.aspect.AdaptiveAffinityAspect;
 import com.reene4444.cpupinning.spring.aspect.PinnedAffinityAspect;
+import com.reene4444.cpupinning.spring.web.JettyPinningCustomizer;
+import com.reene4444.cpupinning.spring.web.TomcatPinningCustomizer;
+import com.reene4444.cpupinning.spring.web.UndertowPinningCustomizer;
+import com.reene4444.cpupinning.spring.web.WebThreadPlacement;
 import com.reene4444.cpupinning.virtual.VirtualThreadPinner;
 import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.nio.file.Paths;
 
 /**
- * Spring Boot Auto Configuration for CPU Pinning Framework
+ * Spring Boot Auto Configuration for CPU Pinning Framework.
+ * <p>
+ * Startup stays cheap for applications that pin nothing: topology detection runs in the
+ * background from {@link TopologyDiscoveryInitializer}, the sampler and drift reconciler
+ * start on the first pin, the engine's review thread on the first tracked thread, and
+ * chaos testing only exists with {@code cpu.pinning.chaos.enabled=true}. The placement
+ * cache, when enabled, is restored before pool and workload configuration is applied.
+ * Runs after Actuator's metrics auto-configuration so its {@link MeterRegistry} can be found.
  */
-@Configuration
+@AutoConfiguration(afterName = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
 @EnableAspectJAutoProxy
+@EnableConfigurationProperties(CpuPinningProperties.class)
 @ConditionalOnProperty(name = "cpu.pinning.enabled", havingValue = "true", matchIfMissing = true)
 public class CpuPinningAutoConfiguration {
     
     @Bean
     @ConditionalOnMissingBean
-    public AdaptiveAffinityEngine adaptiveAffinityEngine(MeterRegistry meterRegistry) {
-        return new AdaptiveAffinityEngine(meterRegistry);
+    public AdaptiveAffinityEngine adaptiveAffinityEngine() {
+        return new AdaptiveAffinityEngine();
     }
     
     @Bean
@@ -43,14 +75,87 @@ public class CpuPinningAutoConfiguration {
     
     @Bean
     @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "cpu.pinning.chaos.enabled", havingValue = "true")
     public ChaosIntegration chaosIntegration() {
         return new ChaosIntegration();
     }
     
+    @Bean(destroyMethod = "close")
+    public DeferredStart cpuPinningDeferredStart() {
+        return new DeferredStart();
+    }
+    
+    @Bean(destroyMethod = "stop")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "cpu.pinning.sampler.enabled", havingValue = "true", matchIfMissing = true)
+    public CpuUtilizationSampler cpuUtilizationSampler(CpuPinningProperties properties, DeferredStart deferredStart) {
+        CpuUtilizationSampler sampler = CpuUtilizationSampler.getInstance();
+        sampler.setSaturationThreshold(properties.getSampler().getSaturationThreshold());
+        long intervalMs = properties.getSampler().getInterval().toMillis();
+        deferredStart.add(() -> sampler.start(intervalMs));
+        return sampler;
+    }
+    
     @Bean
     @ConditionalOnMissingBean
-    public CpuPinningMetrics cpuPinningMetrics(MeterRegistry meterRegistry) {
-        return new CpuPinningMetrics(meterRegistry);
+    @ConditionalOnProperty(name = "cpu.pinning.perf.enabled", havingValue = "true")
+    public PerfCounterMonitor perfCounterMonitor(CpuPinningProperties properties) {
+        PerfCounterMonitor monitor = PerfCounterMonitor.getInstance();
+        monitor.setIpcDropThreshold(properties.getPerf().getIpcDropThreshold());
+        monitor.setEnabled(true);
+        return monitor;
+    }
+    
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "cpu.pinning.journal.enabled", havingValue = "true", matchIfMissing = true)
+    public AffinityJournal affinityJournal(CpuPinningProperties properties) {
+        CpuPinningProperties.Journal journalProperties = properties.getJournal();
+        AffinityJournal journal = new AffinityJournal(journalProperties.getCapacity());
+        if (journalProperties.getDumpPath() != null && !journalProperties.getDumpPath().isBlank()) {
+            journal.setShutdownDumpPath(Paths.get(journalProperties.getDumpPath()));
+        }
+        AffinityEvents.addListener(journal);
+        return journal;
+    }
+    
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "cpu.pinning.host.enabled", havingValue = "true")
+    public HostCoordinator hostCoordinator(CpuPinningProperties properties) throws IOException {
+        CpuPinningProperties.Host host = properties.getHost();
+        return HostCoordinator.enable(Paths.get(host.getRegistry()), host.getHeartbeat().toMillis(),
+                                      host.getLeaseTimeout().toMillis());
+    }
+    
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "cpu.pinning.cache.enabled", havingValue = "true")
+    public PlacementCache placementCache(CpuPinningProperties properties, AdaptiveAffinityEngine adaptiveAffinityEngine,
+                                         BusinessIsolationManager businessIsolationManager, DeferredStart deferredStart) {
+        CpuPinningProperties.Cache cache = properties.getCache();
+        PlacementCache placementCache = new PlacementCache(Paths.get(cache.getPath()), adaptiveAffinityEngine,
+                                                           businessIsolationManager);
+        placementCache.restore();
+        long intervalMs = cache.getWriteInterval().toMillis();
+        deferredStart.add(() -> placementCache.start(intervalMs));
+        return placementCache;
+    }
+    
+    @Bean
+    @ConditionalOnMissingBean
+    public PinningConfigurationApplier pinningConfigurationApplier(CpuPinningProperties properties,
+                                                                   Environment environment,
+                                                                   AdaptiveAffinityEngine adaptiveAffinityEngine,
+                                                                   BusinessIsolationManager businessIsolationManager,
+                                                                   ObjectProvider<HostCoordinator> hostCoordinator,
+                                                                   ObjectProvider<PlacementCache> placementCache) {
+        // Pools must be leased host-wide from the start, so the registry is joined first,
+        // and learned placements are restored before configuration is applied over them
+        hostCoordinator.getIfAvailable();
+        placementCache.getIfAvailable();
+        return new PinningConfigurationApplier(properties, environment, 
+                                               adaptiveAffinityEngine, businessIsolationManager);
     }
     
     @Bean
@@ -67,5 +172,107 @@ public class CpuPinningAutoConfiguration {
     public PinnedAffinityAspect pinnedAffinityAspect(VirtualThreadPinner virtualThreadPinner) {
         return new PinnedAffinityAspect(virtualThreadPinner);
     }
+    
+    @Bean(destroyMethod = "stop")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "cpu.pinning.drift.enabled", havingValue = "true", matchIfMissing = true)
+    public DriftReconciler driftReconciler(CpuPinningProperties properties,
+                                           AdaptiveAffinityEngine adaptiveAffinityEngine,
+                                           BusinessIsolationManager businessIsolationManager,
+                                           DeferredStart deferredStart) {
+        CpuPinningProperties.Drift drift = properties.getDrift();
+        DriftReconciler reconciler = new DriftReconciler(adaptiveAffinityEngine, businessIsolationManager);
+        reconciler.setPolicy(drift.getPolicy());
+        reconciler.setMaxChecksPerScan(drift.getMaxThreadsPerScan());
+        long intervalMs = drift.getInterval().toMillis();
+        deferredStart.add(() -> reconciler.start(intervalMs));
+        return reconciler;
+    }
+    
+    @Bean(initMethod = "registerMBean", destroyMethod = "unregisterMBean")
+    @ConditionalOnMissingBean
+    public AffinityInspector affinityInspector(AdaptiveAffinityEngine adaptiveAffinityEngine,
+                                               BusinessIsolationManager businessIsolationManager,
+                                               ObjectProvider<AffinityJournal> affinityJournal) {
+        return new AffinityInspector(adaptiveAffinityEngine, businessIsolationManager, 
+                                     affinityJournal.getIfAvailable());
+    }
+    
+    /**
+     * Exposes the inspector as {@code /actuator/cpupinning} when Actuator is present
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+    static class EndpointConfiguration {
+    
+        @Bean
+        @ConditionalOnMissingBean
+        public CpuPinningEndpoint cpuPinningEndpoint(AffinityInspector affinityInspector) {
+            return new CpuPinningEndpoint(affinityInspector);
+        }
+    }
+    
+    /**
+     * Publishes framework events to Micrometer when it is on the classpath
+     */
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    static class MetricsConfiguration {
+    
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnBean(MeterRegistry.class)
+        public CpuPinningMetrics cpuPinningMetrics(MeterRegistry meterRegistry) {
+            CpuPinningMetrics metrics = new CpuPinningMetrics(meterRegistry);
+            AffinityEvents.addListener(metrics);
+            return metrics;
+        }
+    }
+    
+    /**
+     * Pins embedded web server threads at creation instead of per request
+     */
+    @Configuration
+    @ConditionalOnWebApplication
+    @ConditionalOnProperty(name = "cpu.pinning.web.enabled", havingValue = "true")
+    static class WebServerPinningConfiguration {
+    
+        @Bean
+        @ConditionalOnMissingBean
+        public WebThreadPlacement webThreadPlacement(CpuPinningProperties properties) {
+            return WebThreadPlacement.from(properties.getWeb());
+        }
+    
+        @Configuration
+        @ConditionalOnClass(name = "org.apache.catalina.startup.Tomcat")
+        static class TomcatPinningConfiguration {
+    
+            @Bean
+            public TomcatPinningCustomizer tomcatPinningCustomizer(WebThreadPlacement placement) {
+                return new TomcatPinningCustomizer(placement);
+            }
+        }
+    
+        @Configuration
+        @ConditionalOnClass(name = "org.eclipse.jetty.server.Server")
+        static class JettyPinningConfiguration {
+    
+            @Bean
+            public JettyPinningCustomizer jettyPinningCustomizer(WebThreadPlacement placement, 
+                                                                 ServerProperties serverProperties) {
+                return new JettyPinningCustomizer(placement, serverProperties);
+            }
+        }
+    
+        @Configuration
+        @ConditionalOnClass(name = "io.undertow.Undertow")
+        static class UndertowPinningConfiguration {
+    
+            @Bean
+            public UndertowPinningCustomizer undertowPinningCustomizer(WebThreadPlacement placement, 
+                                                                       ServerProperties serverProperties) {
+                return new UndertowPinningCustomizer(placement, serverProperties);
+            }
+        }
+    }
 }
-
@@ -0,0 +1,643 @@
+package com.reene4444.cpupinning.spring;
+
+import com.reene4444.cpupinning.adaptive.DriftPolicy;
+import com.reene4444.cpupinning.core.HostCoordinator;
+import com.reene4444.cpupinning.core.SmtMode;
+import com.reene4444.cpupinning.core.WorkloadType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the CPU Pinning Framework ({@code cpu.pinning.*})
+ */
+@ConfigurationProperties(prefix = "cpu.pinning")
+public class CpuPinningProperties {
+    
+    /**
+     * Enable the CPU pinning framework
+     */
+    private boolean enabled = true;
+    
+    /**
+     * Business pools by name. CPU specifications accept cpulist syntax ("0-3,8"),
+     * "node:N", "l3:N" or a percentage of the effective cpuset ("25%").
+     */
+    private final Map<String, Pool> pools = new LinkedHashMap<>();
+    
+    /**
+     * CPU specification per workload type, overriding the adaptive engine's defaults
+     */
+    private final Map<WorkloadType, String> workloads = new EnumMap<>(WorkloadType.class);
+    
+    /**
+     * Scheduling profile per workload type, overriding the adaptive engine's defaults.
+     * Profiles are written as "policy[:value][,uclamp=min-max]", e.g. "batch", "other:-5" or "fifo:10".
+     */
+    private final Map<WorkloadType, String> scheduling = new EnumMap<>(WorkloadType.class);
+    
+    /**
+     * SMT mode per workload type, overriding the adaptive engine's defaults
+     */
+    private final Map<WorkloadType, SmtMode> smt = new EnumMap<>(WorkloadType.class);
+    
+    private final Engine engine = new Engine();
+    
+    private final Irq irq = new Irq();
+    
+    private final Sampler sampler = new Sampler();
+    
+    private final Perf perf = new Perf();
+    
+    private final Web web = new Web();
+    
+    private final Journal journal = new Journal();
+    
+    private final Drift drift = new Drift();
+    
+    private final Host host = new Host();
+    
+    private final Chaos chaos = new Chaos();
+    
+    private final Cache cache = new Cache();
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public Map<String, Pool> getPools() {
+        return pools;
+    }
+    
+    public Map<WorkloadType, String> getWorkloads() {
+        return workloads;
+    }
+    
+    public Map<WorkloadType, String> getScheduling() {
+        return scheduling;
+    }
+    
+    public Map<WorkloadType, SmtMode> getSmt() {
+        return smt;
+    }
+    
+    public Engine getEngine() {
+        return engine;
+    }
+    
+    public Irq getIrq() {
+        return irq;
+    }
+    
+    public Sampler getSampler() {
+        return sampler;
+    }
+    
+    public Perf getPerf() {
+        return perf;
+    }
+    
+    public Web getWeb() {
+        return web;
+    }
+    
+    public Journal getJournal() {
+        return journal;
+    }
+    
+    public Drift getDrift() {
+        return drift;
+    }
+    
+    public Host getHost() {
+        return host;
+    }
+    
+    public Chaos getChaos() {
+        return chaos;
+    }
+    
+    public Cache getCache() {
+        return cache;
+    }
+    
+    /**
+     * Business pool definition ({@code cpu.pinning.pools.<name>.*})
+     */
+    public static class Pool {
+    
+        /**
+         * CPU specification for the pool
+         */
+        private String cpus;
+    
+        /**
+         * Latency-critical pool whose CPUs should stay free of device interrupts.
+         * Combine with the "isolated" or "quiet:N" specifications.
+         */
+        private boolean reserved = false;
+    
+        /**
+         * Scheduling profile applied to the pool's threads, e.g. "batch" or "fifo:10".
+         * Unset leaves their scheduling untouched.
+         */
+        private String scheduling;
+    
+        /**
+         * How the pool treats the hyperthread siblings of its CPUs: SHARED, WHOLE_CORE
+         * (siblings join the pool) or HT_OFF (one thread per core, siblings left idle)
+         */
+        private SmtMode smt = SmtMode.SHARED;
+    
+        /**
+         * Number of CPUs to allocate from those no other pool holds (and, with host
+         * coordination, no other process on the host). Used when cpus is unset.
+         */
+        private int count;
+    
+        /**
+         * CPUs' worth of CPU time per second that tasks of the pool's executors may use,
+         * e.g. 1.5; batch tasks wait while it is spent. 0 leaves the pool unlimited.
+         */
+        private double budget;
+    
+        /**
+         * Wall time at the full budget rate the pool can save up for bursts
+         */
+        private Duration budgetBurst = Duration.ofMillis(100);
+    
+        public String getCpus() {
+            return cpus;
+        }
+    
+        public void setCpus(String cpus) {
+            this.cpus = cpus;
+        }
+    
+        public boolean isReserved() {
+            return reserved;
+        }
+    
+        public void setReserved(boolean reserved) {
+            this.reserved = reserved;
+        }
+    
+        public String getScheduling() {
+            return scheduling;
+        }
+    
+        public void setScheduling(String scheduling) {
+            this.scheduling = scheduling;
+        }
+    
+        public SmtMode getSmt() {
+            return smt;
+        }
+    
+        public void setSmt(SmtMode smt) {
+            this.smt = smt;
+        }
+    
+        public int getCount() {
+            return count;
+        }
+    
+        public void setCount(int count) {
+            this.count = count;
+        }
+    
+        public double getBudget() {
+            return budget;
+        }
+    
+        public void setBudget(double budget) {
+            this.budget = budget;
+        }
+    
+        public Duration getBudgetBurst() {
+            return budgetBurst;
+        }
+    
+        public void setBudgetBurst(Duration budgetBurst) {
+            this.budgetBurst = budgetBurst;
+        }
+    }
+    
+    /**
+     * Adaptive engine policy ({@code cpu.pinning.engine.*})
+     */
+    public static class Engine {
+    
+        /**
+         * Average latency above which a thread is reconsidered for migration
+         */
+        private long latencyThresholdMs = 100;
+    
+        /**
+         * Average QPS below which a thread is reconsidered for migration
+         */
+        private long minQps = 100;
+    
+        /**
+         * Interval between adaptive review passes
+         */
+        private Duration reviewInterval = Duration.ofSeconds(5);
+    
+        public long getLatencyThresholdMs() {
+            return latencyThresholdMs;
+        }
+    
+        public void setLatencyThresholdMs(long latencyThresholdMs) {
+            this.latencyThresholdMs = latencyThresholdMs;
+        }
+    
+        public long getMinQps() {
+            return minQps;
+        }
+    
+        public void setMinQps(long minQps) {
+            this.minQps = minQps;
+        }
+    
+        public Duration getReviewInterval() {
+            return reviewInterval;
+        }
+    
+        public void setReviewInterval(Duration reviewInterval) {
+            this.reviewInterval = reviewInterval;
+        }
+    }
+    
+    /**
+     * Interrupt handling ({@code cpu.pinning.irq.*})
+     */
+    public static class Irq {
+    
+        /**
+         * Rewrite /proc/irq/N/smp_affinity_list so no IRQ targets a reserved pool's CPUs. Requires root.
+         */
+        private boolean steer = false;
+    
+        public boolean isSteer() {
+            return steer;
+        }
+    
+        public void setSteer(boolean steer) {
+            this.steer = steer;
+        }
+    }
+    
+    /**
+     * Per-CPU utilization sampling from /proc/stat ({@code cpu.pinning.sampler.*})
+     */
+    public static class Sampler {
+    
+        /**
+         * Sample per-CPU utilization, steal and iowait in the background
+         */
+        private boolean enabled = true;
+    
+        /**
+         * Sampling interval
+         */
+        private Duration interval = Duration.ofSeconds(1);
+    
+        /**
+         * Load (utilization plus weighted steal, 0..1+) at which a core is avoided for new placements
+         */
+        private double saturationThreshold = 0.9;
+    
+        public boolean isEnabled() {
+            return enabled;
+        }
+    
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    
+        public Duration getInterval() {
+            return interval;
+        }
+    
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+    
+        public double getSaturationThreshold() {
+            return saturationThreshold;
+        }
+    
+        public void setSaturationThreshold(double saturationThreshold) {
+            this.saturationThreshold = saturationThreshold;
+        }
+    }
+    
+    /**
+     * Per-thread performance counters via perf_event_open ({@code cpu.pinning.perf.*})
+     */
+    public static class Perf {
+    
+        /**
+         * Count LLC misses, instructions, cycles and context switches for pinned threads
+         */
+        private boolean enabled = false;
+    
+        /**
+         * Relative IPC drop below a thread's baseline that triggers a migration review
+         */
+        private double ipcDropThreshold = 0.3;
+    
+        public boolean isEnabled() {
+            return enabled;
+        }
+    
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    
+        public double getIpcDropThreshold() {
+            return ipcDropThreshold;
+        }
+    
+        public void setIpcDropThreshold(double ipcDropThreshold) {
+            this.ipcDropThreshold = ipcDropThreshold;
+        }
+    }
+    
+    /**
+     * Embedded web server thread placement ({@code cpu.pinning.web.*})
+     */
+    public static class Web {
+    
+        /**
+         * Pin embedded server threads at creation time
+         */
+        private boolean enabled = false;
+    
+        /**
+         * CPU specification for acceptor and selector/poller threads. Defaults to the second half of the CPUs.
+         */
+        private String ioCpus;
+    
+        /**
+         * CPU specification for request worker threads. Defaults to the first half of the CPUs.
+         */
+        private String workerCpus;
+    
+        public boolean isEnabled() {
+            return enabled;
+        }
+    
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    
+        public String getIoCpus() {
+            return ioCpus;
+        }
+    
+        public void setIoCpus(String ioCpus) {
+            this.ioCpus = ioCpus;
+        }
+    
+        public String getWorkerCpus() {
+            return workerCpus;
+        }
+    
+        public void setWorkerCpus(String workerCpus) {
+            this.workerCpus = workerCpus;
+        }
+    }
+    
+    /**
+     * Binary journal of pins, migrations and pool changes ({@code cpu.pinning.journal.*})
+     */
+    public static class Journal {
+    
+        /**
+         * Record affinity events in an in-memory ring
+         */
+        private boolean enabled = true;
+    
+        /**
+         * Number of records kept (64 bytes each), rounded up to a power of two
+         */
+        private int capacity = 16384;
+    
+        /**
+         * File the journal is dumped to on shutdown; not dumped when unset
+         */
+        private String dumpPath;
+    
+        public boolean isEnabled() {
+            return enabled;
+        }
+    
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    
+        public int getCapacity() {
+            return capacity;
+        }
+    
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+    
+        public String getDumpPath() {
+            return dumpPath;
+        }
+    
+        public void setDumpPath(String dumpPath) {
+            this.dumpPath = dumpPath;
+        }
+    }
+    
+    /**
+     * Detection of thread affinity changed by external tools ({@code cpu.pinning.drift.*})
+     */
+    public static class Drift {
+    
+        /**
+         * Periodically compare managed threads' kernel affinity with their desired CPUs
+         */
+        private boolean enabled = true;
+    
+        /**
+         * Time between reconciliation scans
+         */
+        private Duration interval = Duration.ofSeconds(10);
+    
+        /**
+         * Re-apply the desired CPUs, or only alert
+         */
+        private DriftPolicy policy = DriftPolicy.REAPPLY;
+    
+        /**
+         * Maximum number of threads checked per scan; larger sets are covered over several scans
+         */
+        private int maxThreadsPerScan = 256;
+    
+        public boolean isEnabled() {
+            return enabled;
+        }
+    
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    
+        public Duration getInterval() {
+            return interval;
+        }
+    
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+    
+        public DriftPolicy getPolicy() {
+            return policy;
+        }
+    
+        public void setPolicy(DriftPolicy policy) {
+            this.policy = policy;
+        }
+    
+        public int getMaxThreadsPerScan() {
+            return maxThreadsPerScan;
+        }
+    
+        public void setMaxThreadsPerScan(int maxThreadsPerScan) {
+            this.maxThreadsPerScan = maxThreadsPerScan;
+        }
+    }
+    
+    /**
+     * Core leases shared with other JVMs on the host ({@code cpu.pinning.host.*})
+     */
+    public static class Host {
+    
+        /**
+         * Lease business pool CPUs through a registry shared by every JVM on the host
+         */
+        private boolean enabled = false;
+    
+        /**
+         * Registry file; every coordinated JVM must use the same one
+         */
+        private String registry = HostCoordinator.DEFAULT_PATH.toString();
+    
+        /**
+         * Time between heartbeats
+         */
+        private Duration heartbeat = Duration.ofSeconds(1);
+    
+        /**
+         * Silence after which a process's leases may be taken over
+         */
+        private Duration leaseTimeout = Duration.ofSeconds(10);
+    
+        public boolean isEnabled() {
+            return enabled;
+        }
+    
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    
+        public String getRegistry() {
+            return registry;
+        }
+    
+        public void setRegistry(String registry) {
+            this.registry = registry;
+        }
+    
+        public Duration getHeartbeat() {
+            return heartbeat;
+        }
+    
+        public void setHeartbeat(Duration heartbeat) {
+            this.heartbeat = heartbeat;
+        }
+    
+        public Duration getLeaseTimeout() {
+            return leaseTimeout;
+        }
+    
+        public void setLeaseTimeout(Duration leaseTimeout) {
+            this.leaseTimeout = leaseTimeout;
+        }
+    }
+    
+    /**
+     * Chaos testing ({@code cpu.pinning.chaos.*})
+     */
+    public static class Chaos {
+    
+        /**
+         * Create the ChaosIntegration bean; leave off outside test and staging environments
+         */
+        private boolean enabled = false;
+    
+        public boolean isEnabled() {
+            return enabled;
+        }
+    
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+    
+    /**
+     * Placement cache for warm restarts ({@code cpu.pinning.cache.*})
+     */
+    public static class Cache {
+    
+        /**
+         * Restore learned placements at startup and save them while running
+         */
+        private boolean enabled = false;
+    
+        /**
+         * Cache file; give each application its own
+         */
+        private String path = "cpu-pinning-placement.properties";
+    
+        /**
+         * Minimum time between writes; unchanged state is never written
+         */
+        private Duration writeInterval = Duration.ofSeconds(30);
+    
+        public boolean isEnabled() {
+            return enabled;
+        }
+    
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    
+        public String getPath() {
+            return path;
+        }
+    
+        public void setPath(String path) {
+            this.path = path;
+        }
+    
+        public Duration getWriteInterval() {
+            return writeInterval;
+        }
+    
+        public void setWriteInterval(Duration writeInterval) {
+            this.writeInterval = writeInterval;
+        }
+    }
+}
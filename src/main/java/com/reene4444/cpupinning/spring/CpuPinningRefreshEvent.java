@@ -0,0 +1,14 @@
+package com.reene4444.cpupinning.spring;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published to re-read {@code cpu.pinning.*} from the Environment and apply it live.
+ * Spring Cloud's {@code EnvironmentChangeEvent} triggers the same refresh when present.
+ */
+public class CpuPinningRefreshEvent extends ApplicationEvent {
+    
+    public CpuPinningRefreshEvent(Object source) {
+        super(source);
+    }
+}
@@ -0,0 +1,57 @@
+package com.reene4444.cpupinning.spring;
+
+import com.reene4444.cpupinning.core.AffinityEvents;
+import com.reene4444.cpupinning.core.AffinityListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs start actions the first time any thread is pinned, so background samplers and
+ * scanners cost nothing in applications that never pin a thread
+ */
+class DeferredStart implements AffinityListener, AutoCloseable {
+    
+    private final List<Runnable> actions = new ArrayList<>();
+    private boolean started;
+    private boolean closed;
+    
+    DeferredStart() {
+        AffinityEvents.addListener(this);
+    }
+    
+    /**
+     * Run the action on the first pin, or now if a thread was already pinned
+     */
+    synchronized void add(Runnable action) {
+        if (started) {
+            action.run();
+        } else if (!closed) {
+            actions.add(action);
+        }
+    }
+    
+    @Override
+    public void onPinSyscall(long durationNanos, boolean success) {
+        if (success) {
+            start();
+        }
+    }
+    
+    private synchronized void start() {
+        if (started || closed) {
+            return;
+        }
+        started = true;
+        AffinityEvents.removeListener(this);
+        actions.forEach(Runnable::run);
+        actions.clear();
+    }
+    
+    @Override
+    public synchronized void close() {
+        closed = true;
+        actions.clear();
+        AffinityEvents.removeListener(this);
+    }
+}
@@ -0,0 +1,174 @@
+package com.reene4444.cpupinning.spring;
+
+import com.reene4444.cpupinning.adaptive.AdaptiveAffinityEngine;
+import com.reene4444.cpupinning.business.BusinessIsolationManager;
+import com.reene4444.cpupinning.core.CpuSpec;
+import com.reene4444.cpupinning.core.IrqTopology;
+import com.reene4444.cpupinning.core.SchedulingProfile;
+import com.reene4444.cpupinning.core.SmtMode;
+import com.reene4444.cpupinning.core.WorkloadType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Applies externalized pool, workload and engine configuration at startup and again
+ * whenever a refresh event arrives. Masks are recomputed from the CPU specifications
+ * and affected threads are re-pinned in one batched pass per component.
+ */
+public class PinningConfigurationApplier implements SmartInitializingSingleton, ApplicationListener<ApplicationEvent> {
+    private static final Logger logger = LoggerFactory.getLogger(PinningConfigurationApplier.class);
+    private static final String CLOUD_ENVIRONMENT_CHANGE_EVENT = 
+        "org.springframework.cloud.context.environment.EnvironmentChangeEvent";
+    
+    private final CpuPinningProperties properties;
+    private final Environment environment;
+    private final AdaptiveAffinityEngine adaptiveAffinityEngine;
+    private final BusinessIsolationManager businessIsolationManager;
+    
+    public PinningConfigurationApplier(CpuPinningProperties properties, Environment environment,
+                                       AdaptiveAffinityEngine adaptiveAffinityEngine,
+                                       BusinessIsolationManager businessIsolationManager) {
+        this.properties = properties;
+        this.environment = environment;
+        this.adaptiveAffinityEngine = adaptiveAffinityEngine;
+        this.businessIsolationManager = businessIsolationManager;
+    }
+    
+    @Override
+    public void afterSingletonsInstantiated() {
+        apply(properties);
+    }
+    
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof CpuPinningRefreshEvent 
+                || CLOUD_ENVIRONMENT_CHANGE_EVENT.equals(event.getClass().getName())) {
+            refresh();
+        }
+    }
+    
+    /**
+     * Re-bind {@code cpu.pinning.*} from the current Environment and apply it
+     */
+    public void refresh() {
+        CpuPinningProperties refreshed = Binder.get(environment)
+                .bindOrCreate("cpu.pinning", CpuPinningProperties.class);
+        try {
+            apply(refreshed);
+        } catch (IllegalArgumentException e) {
+            // Keep the previous, valid configuration
+            logger.error("Rejected CPU pinning configuration refresh: {}", e.getMessage());
+        }
+    }
+    
+    private void apply(CpuPinningProperties config) {
+        // Resolve everything before touching any thread so a bad spec changes nothing
+        Map<String, Set<Integer>> pools = new LinkedHashMap<>();
+        Map<String, SmtMode> poolSmt = new LinkedHashMap<>();
+        Map<String, Integer> poolCounts = new LinkedHashMap<>();
+        for (Map.Entry<String, CpuPinningProperties.Pool> entry : config.getPools().entrySet()) {
+            CpuPinningProperties.Pool pool = entry.getValue();
+            if (pool.getBudget() > 0 && pool.getBudgetBurst().toMillis() <= 0) {
+                throw new IllegalArgumentException(String.format(
+                    "cpu.pinning.pools.%s.budget-burst '%s' must be at least 1 ms", entry.getKey(), pool.getBudgetBurst()));
+            }
+            if (pool.getCount() > 0 && (pool.getCpus() == null || pool.getCpus().isBlank())) {
+                // Sized pools are placed after the explicit ones so they take what is left
+                poolCounts.put(entry.getKey(), pool.getCount());
+                continue;
+            }
+            pools.put(entry.getKey(), resolve("pools." + entry.getKey(), pool.getCpus()));
+            poolSmt.put(entry.getKey(), pool.getSmt());
+        }
+        Map<WorkloadType, Set<Integer>> workloads = new EnumMap<>(WorkloadType.class);
+        for (Map.Entry<WorkloadType, String> entry : config.getWorkloads().entrySet()) {
+            if (entry.getKey() == WorkloadType.AUTO) {
+                throw new IllegalArgumentException(
+                    "cpu.pinning.workloads.AUTO is not allowed: AUTO resolves to another workload type's CPUs");
+            }
+            workloads.put(entry.getKey(), resolve("workloads." + entry.getKey(), entry.getValue()));
+        }
+        Map<String, SchedulingProfile> poolScheduling = new LinkedHashMap<>();
+        for (Map.Entry<String, CpuPinningProperties.Pool> entry : config.getPools().entrySet()) {
+            String spec = entry.getValue().getScheduling();
+            if (spec != null) {
+                poolScheduling.put(entry.getKey(), parse("pools." + entry.getKey() + ".scheduling", spec));
+            }
+        }
+        Map<WorkloadType, SchedulingProfile> scheduling = new EnumMap<>(WorkloadType.class);
+        for (Map.Entry<WorkloadType, String> entry : config.getScheduling().entrySet()) {
+            if (entry.getKey() == WorkloadType.AUTO) {
+                throw new IllegalArgumentException(
+                    "cpu.pinning.scheduling.AUTO is not allowed: AUTO uses the resolved workload type's profile");
+            }
+            scheduling.put(entry.getKey(), parse("scheduling." + entry.getKey(), entry.getValue()));
+        }
+        if (config.getSmt().containsKey(WorkloadType.AUTO)) {
+            throw new IllegalArgumentException(
+                "cpu.pinning.smt.AUTO is not allowed: AUTO uses the resolved workload type's SMT mode");
+        }
+    
+        if (!pools.isEmpty()) {
+            businessIsolationManager.reconfigurePools(pools, poolSmt);
+        }
+        for (Map.Entry<String, Integer> entry : poolCounts.entrySet()) {
+            String name = entry.getKey();
+            businessIsolationManager.allocateBusinessPool(name, entry.getValue());
+            SmtMode smt = config.getPools().get(name).getSmt();
+            if (businessIsolationManager.getBusinessPool(name).getSmtMode() != smt) {
+                businessIsolationManager.setSmtMode(name, smt);
+            }
+        }
+        poolScheduling.forEach(businessIsolationManager::setSchedulingProfile);
+        config.getPools().forEach((name, pool) -> businessIsolationManager.setCpuBudget(
+            name, pool.getBudget(), pool.getBudgetBurst().toMillis()));
+        if (config.getIrq().isSteer()) {
+            Set<Integer> reserved = new TreeSet<>();
+            for (Map.Entry<String, CpuPinningProperties.Pool> entry : config.getPools().entrySet()) {
+                if (entry.getValue().isReserved()) {
+                    reserved.addAll(businessIsolationManager.getBusinessPool(entry.getKey()).getCpus());
+                }
+            }
+            IrqTopology.getInstance().steerIrqsAwayFrom(reserved);
+        }
+        if (!workloads.isEmpty()) {
+            adaptiveAffinityEngine.updateWorkloadMapping(workloads);
+        }
+        config.getSmt().forEach(adaptiveAffinityEngine::setSmtMode);
+        if (!scheduling.isEmpty()) {
+            adaptiveAffinityEngine.updateSchedulingProfiles(scheduling);
+        }
+        CpuPinningProperties.Engine engine = config.getEngine();
+        adaptiveAffinityEngine.updatePolicy(engine.getLatencyThresholdMs(), engine.getMinQps(), 
+                                            engine.getReviewInterval().toMillis());
+    }
+    
+    private static SchedulingProfile parse(String property, String spec) {
+        try {
+            return SchedulingProfile.parse(spec);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                String.format("cpu.pinning.%s '%s' is invalid: %s", property, spec, e.getMessage()));
+        }
+    }
+    
+    private static Set<Integer> resolve(String property, String spec) {
+        Set<Integer> cpus = CpuSpec.resolve(spec);
+        if (cpus.isEmpty()) {
+            throw new IllegalArgumentException(
+                String.format("cpu.pinning.%s '%s' resolves to no usable CPUs", property, spec));
+        }
+        return cpus;
+    }
+}
@@ -0,0 +1,20 @@
+package com.reene4444.cpupinning.spring;
+
+import com.reene4444.cpupinning.core.NumaTopology;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts topology detection and native library loading in the background before any
+ * bean is created, so they overlap with context startup instead of delaying the
+ * first framework bean
+ */
+public class TopologyDiscoveryInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+    
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        if (context.getEnvironment().getProperty("cpu.pinning.enabled", Boolean.class, true)) {
+            NumaTopology.discoverAsync();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.reene4444.cpupinning.spring.actuate;
+
+import com.reene4444.cpupinning.monitoring.AffinityInspector;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint ({@code /actuator/cpupinning}) exposing {@link AffinityInspector}
+ * <ul>
+ *   <li>{@code GET /actuator/cpupinning?limit=N} - snapshot, reading kernel affinity of at most N threads</li>
+ *   <li>{@code POST /actuator/cpupinning} - run an adaptive rebalance pass</li>
+ *   <li>{@code POST /actuator/cpupinning/{pool}} with {@code {"cpus": "0-3"}} - resize a business pool</li>
+ * </ul>
+ */
+@Endpoint(id = "cpupinning")
+public class CpuPinningEndpoint {
+    
+    private final AffinityInspector inspector;
+    
+    public CpuPinningEndpoint(AffinityInspector inspector) {
+        this.inspector = inspector;
+    }
+    
+    @ReadOperation
+    public Map<String, Object> snapshot(@Nullable Integer limit) {
+        return inspector.snapshot(limit != null ? limit : AffinityInspector.DEFAULT_THREAD_LIMIT,
+                                  AffinityInspector.DEFAULT_MIGRATION_LIMIT);
+    }
+    
+    @WriteOperation
+    public Map<String, Object> rebalance() {
+        return Map.of("migrated", inspector.rebalance());
+    }
+    
+    @WriteOperation
+    public Map<String, Object> resizePool(@Selector String pool, String cpus) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pool", pool);
+        result.put("cpus", cpus);
+        result.put("repinned", inspector.resizePool(pool, cpus));
+        return result;
+    }
+}
@@ -21,7 +21,8 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface AdaptiveAffinity {
     /**
-     * Workload type for adaptive CPU selection
+     * Workload type for adaptive CPU selection; {@link WorkloadType#AUTO} classifies the
+     * method from its measured CPU time, allocation rate and blocking
      */
     WorkloadType workloadType() default WorkloadType.MIXED;
     
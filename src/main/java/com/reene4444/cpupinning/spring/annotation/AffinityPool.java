@@ -25,7 +25,9 @@ public @interface AffinityPool {
     String value();
     
     /**
-     * CPU cores allocated to this business pool
+     * CPU cores allocated to this business pool. Ignored when the pool is defined
+     * through {@code cpu.pinning.pools.<name>.cpus}, which is preferred since it
+     * does not hard-code core IDs.
      */
     int[] cpus() default {};
 }
@@ -1,13 +1,18 @@
 package com.reene4444.cpupinning.spring.aspect;
 
 import com.reene4444.cpupinning.adaptive.AdaptiveAffinityEngine;
+import com.reene4444.cpupinning.adaptive.WorkloadClassifier;
+import com.reene4444.cpupinning.core.WorkloadType;
 import com.reene4444.cpupinning.spring.annotation.AdaptiveAffinity;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.lang.reflect.Method;
+
 /**
  * AOP Aspect for @AdaptiveAffinity annotation
  */
@@ -22,28 +27,45 @@ public class AdaptiveAffinityAspect {
         this.adaptiveAffinityEngine = adaptiveAffinityEngine;
     }
     
-    @Around("@within(adaptiveAffinity) || @annotation(adaptiveAffinity)")
+    // AspectJ cannot bind one parameter on both sides of ||, so methods and types get separate advice
+    @Around("@annotation(adaptiveAffinity)")
     public Object applyAdaptiveAffinity(ProceedingJoinPoint joinPoint, AdaptiveAffinity adaptiveAffinity) 
             throws Throwable {
+        return apply(joinPoint, adaptiveAffinity);
+    }
+    
+    @Around("@within(adaptiveAffinity) && !@annotation(com.reene4444.cpupinning.spring.annotation.AdaptiveAffinity)")
+    public Object applyTypeAdaptiveAffinity(ProceedingJoinPoint joinPoint, AdaptiveAffinity adaptiveAffinity) 
+            throws Throwable {
+        return apply(joinPoint, adaptiveAffinity);
+    }
+    
+    private Object apply(ProceedingJoinPoint joinPoint, AdaptiveAffinity adaptiveAffinity) throws Throwable {
         Thread currentThread = Thread.currentThread();
         
+        WorkloadType workloadType;
+        WorkloadClassifier.Measurement measurement = null;
         if (adaptiveAffinity.numaAware()) {
             adaptiveAffinityEngine.numaAwarePin(currentThread);
+            workloadType = WorkloadType.MIXED;
+        } else if (adaptiveAffinity.workloadType() == WorkloadType.AUTO) {
+            // Each annotated method is classified on its own
+            Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+            workloadType = adaptiveAffinityEngine.autoPinByClassification(currentThread, method);
+            measurement = adaptiveAffinityEngine.getWorkloadClassifier().start(method);
         } else {
-            adaptiveAffinityEngine.autoPinByWorkload(currentThread, adaptiveAffinity.workloadType());
+            workloadType = adaptiveAffinity.workloadType();
+            adaptiveAffinityEngine.autoPinByWorkload(currentThread, workloadType);
         }
         
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
         try {
-            Object result = joinPoint.proceed();
-            long latency = System.currentTimeMillis() - startTime;
-            adaptiveAffinityEngine.recordLatency(currentThread, latency);
-            return result;
-        } catch (Throwable e) {
-            long latency = System.currentTimeMillis() - startTime;
-            adaptiveAffinityEngine.recordLatency(currentThread, latency);
-            throw e;
+            return joinPoint.proceed();
+        } finally {
+            if (measurement != null) {
+                measurement.finish();
+            }
+            adaptiveAffinityEngine.recordExecution(currentThread, workloadType, System.nanoTime() - startTime);
         }
     }
 }
-
@@ -29,8 +29,18 @@ public class AffinityPoolAspect {
         this.businessIsolationManager = businessIsolationManager;
     }
     
-    @Around("@within(affinityPool) || @annotation(affinityPool)")
+    // AspectJ cannot bind one parameter on both sides of ||, so methods and types get separate advice
+    @Around("@annotation(affinityPool)")
     public Object pinToBusinessPool(ProceedingJoinPoint joinPoint, AffinityPool affinityPool) throws Throwable {
+        return pin(joinPoint, affinityPool);
+    }
+    
+    @Around("@within(affinityPool) && !@annotation(com.reene4444.cpupinning.spring.annotation.AffinityPool)")
+    public Object pinTypeToBusinessPool(ProceedingJoinPoint joinPoint, AffinityPool affinityPool) throws Throwable {
+        return pin(joinPoint, affinityPool);
+    }
+    
+    private Object pin(ProceedingJoinPoint joinPoint, AffinityPool affinityPool) throws Throwable {
         String businessName = affinityPool.value();
         Set<Integer> cpus = Arrays.stream(affinityPool.cpus())
                 .boxed()
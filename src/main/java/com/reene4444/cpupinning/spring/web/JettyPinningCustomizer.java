@@ -0,0 +1,194 @@
+package com.reene4444.cpupinning.spring.web;
+
+import com.reene4444.cpupinning.core.AffinityScope;
+import com.reene4444.cpupinning.core.CpuAffinity;
+import com.reene4444.cpupinning.core.PinningThreadFactory;
+import org.eclipse.jetty.io.SelectorManager;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.embedded.jetty.ConfigurableJettyWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.core.Ordered;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+
+/**
+ * Pins Jetty threads at creation time.
+ * The server thread pool is rebuilt with the same limits and a pinning thread factory on the
+ * compute set and keeps serving requests; every {@link ServerConnector} is rebuilt as a
+ * {@link PinnedServerConnector} so the pool threads running its acceptor and selector loops
+ * move to the I/O set. Pools that hand requests to virtual threads, and pools that are not a
+ * {@link QueuedThreadPool}, are left as they are and only the I/O threads are pinned.
+ */
+public class JettyPinningCustomizer implements WebServerFactoryCustomizer<ConfigurableJettyWebServerFactory>, Ordered {
+    private static final Logger logger = LoggerFactory.getLogger(JettyPinningCustomizer.class);
+    
+    private final WebThreadPlacement placement;
+    private final ServerProperties.Jetty.Threads threads;
+    
+    public JettyPinningCustomizer(WebThreadPlacement placement, ServerProperties serverProperties) {
+        this.placement = placement;
+        this.threads = serverProperties.getJetty().getThreads();
+    }
+    
+    @Override
+    public void customize(ConfigurableJettyWebServerFactory factory) {
+        ThreadPool current = currentThreadPool(factory);
+        if (current == null || current instanceof QueuedThreadPool) {
+            QueuedThreadPool existing = (QueuedThreadPool) current;
+            if (existing != null && existing.getVirtualThreadsExecutor() != null) {
+                logger.info("Jetty requests run on virtual threads, only I/O threads will be pinned");
+            } else {
+                factory.setThreadPool(pinnedThreadPool(existing));
+            }
+        } else {
+            logger.info("Jetty has a custom thread pool {}, only I/O threads will be pinned", 
+                       current.getClass().getName());
+        }
+        factory.addServerCustomizers(this::customizeServer);
+    }
+    
+    /**
+     * Same limits as the pool being replaced, or as the server properties when there is none
+     */
+    private QueuedThreadPool pinnedThreadPool(QueuedThreadPool existing) {
+        PinningThreadFactory workerFactory = 
+            new PinningThreadFactory("jetty-worker-", placement.getWorkerCpus(), false);
+        int max = existing != null ? existing.getMaxThreads() : threads.getMax();
+        int min = existing != null ? existing.getMinThreads() : threads.getMin();
+        int idleTimeout = existing != null ? existing.getIdleTimeout() : (int) threads.getIdleTimeout().toMillis();
+        int reserved = existing != null ? existing.getReservedThreads() : -1;
+        QueuedThreadPool pool = new QueuedThreadPool(max, min, idleTimeout, reserved, workQueue(), null, workerFactory);
+        if (existing != null) {
+            pool.setName(existing.getName());
+            pool.setDaemon(existing.isDaemon());
+            pool.setThreadsPriority(existing.getThreadsPriority());
+        }
+        return pool;
+    }
+    
+    /**
+     * Queue bounded by server.jetty.threads.max-queue-capacity, as Spring Boot builds it
+     */
+    private BlockingQueue<Runnable> workQueue() {
+        Integer capacity = threads.getMaxQueueCapacity();
+        if (capacity == null) {
+            return null;
+        }
+        return capacity == 0 ? new SynchronousQueue<>() : new BlockingArrayQueue<>(capacity);
+    }
+    
+    private static ThreadPool currentThreadPool(ConfigurableJettyWebServerFactory factory) {
+        // Spring Boot's servlet and reactive factories both expose the pool, their common interface does not
+        try {
+            return (ThreadPool) factory.getClass().getMethod("getThreadPool").invoke(factory);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+    
+    private void customizeServer(Server server) {
+        for (Connector connector : server.getConnectors()) {
+            if (!(connector instanceof ServerConnector original)) {
+                continue;
+            }
+            int acceptors = original.getAcceptors();
+            int selectors = original.getSelectorManager().getSelectorCount();
+    
+            // Same executor as the original, so request handling stays on the server's worker pool
+            ServerConnector pinned = new PinnedServerConnector(server, original, acceptors, selectors, 
+                    placement.getIoCpus());
+            pinned.setHost(original.getHost());
+            pinned.setPort(original.getPort());
+            pinned.setIdleTimeout(original.getIdleTimeout());
+            pinned.setAcceptQueueSize(original.getAcceptQueueSize());
+            pinned.setReuseAddress(original.getReuseAddress());
+    
+            server.removeConnector(original);
+            server.addConnector(pinned);
+            logger.info("Jetty connector on port {}: {} acceptor(s) and {} selector(s) -> CPUs {}, workers -> CPUs {}",
+                       original.getPort(), acceptors, selectors, placement.getIoCpus(), placement.getWorkerCpus());
+        }
+    }
+    
+    @Override
+    public int getOrder() {
+        // Run after Spring Boot's own customizers so thread limits are already applied
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+    
+    /**
+     * Connector whose acceptor and selector loops run on the I/O set.
+     * Both borrow a thread from the server's pool for the connector's lifetime; the
+     * acceptor pins it on its first accept and the selector for the length of its produce
+     * loop, and the thread gets its worker placement back once the loop ends. Under load
+     * Jetty may hand selection to another pool thread, which then keeps worker placement.
+     */
+    static class PinnedServerConnector extends ServerConnector {
+        private final Set<Integer> ioCpus;
+        // Affinity the pool thread running an acceptor loop had before it was pinned
+        private final ThreadLocal<Set<Integer>> acceptorPreviousCpus = new ThreadLocal<>();
+    
+        PinnedServerConnector(Server server, ServerConnector original, int acceptors, int selectors, 
+                              Set<Integer> ioCpus) {
+            super(server, original.getExecutor(), original.getScheduler(), original.getByteBufferPool(), 
+                  acceptors, selectors, original.getConnectionFactories().toArray(new ConnectionFactory[0]));
+            this.ioCpus = ioCpus;
+        }
+    
+        @Override
+        public void accept(int acceptorID) throws IOException {
+            if (acceptorPreviousCpus.get() == null) {
+                Set<Integer> previous = CpuAffinity.getThreadAffinity();
+                acceptorPreviousCpus.set(previous);
+                if (!previous.isEmpty()) {
+                    CpuAffinity.pinThread(ioCpus);
+                }
+            }
+            try {
+                super.accept(acceptorID);
+            } finally {
+                if (!isRunning()) {
+                    // The acceptor loop ends once the connector stops; hand the thread back to the pool as it was
+                    restoreAcceptor();
+                }
+            }
+        }
+    
+        private void restoreAcceptor() {
+            Set<Integer> previous = acceptorPreviousCpus.get();
+            acceptorPreviousCpus.remove();
+            if (previous != null && !previous.isEmpty()) {
+                CpuAffinity.pinThread(previous);
+            }
+        }
+    
+        @Override
+        protected SelectorManager newSelectorManager(Executor executor, Scheduler scheduler, int selectors) {
+            return new ServerConnectorManager(executor, scheduler, selectors) {
+                @Override
+                protected void execute(Runnable task) {
+                    // Selector produce loops, plus registering accepted channels when there are no acceptors
+                    super.execute(() -> {
+                        try (AffinityScope scope = AffinityScope.enter(ioCpus)) {
+                            task.run();
+                        }
+                    });
+                }
+            };
+        }
+    }
+}
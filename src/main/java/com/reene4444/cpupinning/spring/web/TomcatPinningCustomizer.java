@@ -0,0 +1,130 @@
+package com.reene4444.cpupinning.spring.web;
+
+import com.reene4444.cpupinning.core.AffinityScope;
+import com.reene4444.cpupinning.core.PinningThreadFactory;
+import org.apache.catalina.Lifecycle;
+import org.apache.catalina.LifecycleEvent;
+import org.apache.catalina.LifecycleListener;
+import org.apache.catalina.connector.Connector;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.tomcat.util.threads.TaskQueue;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.embedded.tomcat.ConfigurableTomcatWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.core.Ordered;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pins Tomcat connector threads at creation time.
+ * Workers come from a pinning thread factory on the compute set; acceptor and
+ * poller threads have no factory hook, so the connector is started inside an
+ * {@link AffinityScope} on the I/O set and they inherit that mask. The worker
+ * executor is built on every start and shut down on stop, so a connector that is
+ * stopped and started again gets a fresh one.
+ */
+public class TomcatPinningCustomizer implements WebServerFactoryCustomizer<ConfigurableTomcatWebServerFactory>, Ordered {
+    private static final Logger logger = LoggerFactory.getLogger(TomcatPinningCustomizer.class);
+    
+    private final WebThreadPlacement placement;
+    
+    public TomcatPinningCustomizer(WebThreadPlacement placement) {
+        this.placement = placement;
+    }
+    
+    @Override
+    public void customize(ConfigurableTomcatWebServerFactory factory) {
+        factory.addConnectorCustomizers(this::customizeConnector);
+    }
+    
+    private void customizeConnector(Connector connector) {
+        ProtocolHandler handler = connector.getProtocolHandler();
+        if (!(handler instanceof AbstractProtocol<?> protocol)) {
+            logger.warn("Unsupported Tomcat protocol handler {}, connector threads not pinned", 
+                       handler.getClass().getName());
+            return;
+        }
+    
+        // Respect executors installed elsewhere (e.g. virtual threads)
+        boolean pinWorkers = protocol.getExecutor() == null;
+        if (!pinWorkers) {
+            logger.info("Tomcat connector already has an executor, only I/O threads will be pinned");
+        }
+        connector.addLifecycleListener(new ConnectorPlacementListener(connector, protocol, pinWorkers));
+    }
+    
+    @Override
+    public int getOrder() {
+        // Run after Spring Boot's own customizers so thread limits are already applied
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+    
+    private class ConnectorPlacementListener implements LifecycleListener {
+        private final Connector connector;
+        private final AbstractProtocol<?> protocol;
+        private final boolean pinWorkers;
+        private ThreadPoolExecutor workerExecutor;
+        private AffinityScope startScope;
+    
+        ConnectorPlacementListener(Connector connector, AbstractProtocol<?> protocol, boolean pinWorkers) {
+            this.connector = connector;
+            this.protocol = protocol;
+            this.pinWorkers = pinWorkers;
+        }
+    
+        @Override
+        public void lifecycleEvent(LifecycleEvent event) {
+            switch (event.getType()) {
+                case Lifecycle.BEFORE_START_EVENT:
+                    if (pinWorkers) {
+                        // The protocol only starts its endpoint after this event
+                        workerExecutor = newWorkerExecutor();
+                        protocol.setExecutor(workerExecutor);
+                    }
+                    startScope = AffinityScope.enter(placement.getIoCpus());
+                    break;
+                case Lifecycle.AFTER_START_EVENT:
+                    boolean ioPinned = startScope.isPinned();
+                    closeScope();
+                    logger.info("Tomcat connector on port {}: acceptor/poller threads {} CPUs {}, workers -> CPUs {}",
+                               connector.getLocalPort(), ioPinned ? "pinned to" : "could not be pinned to",
+                               placement.getIoCpus(), placement.getWorkerCpus());
+                    break;
+                case Lifecycle.AFTER_STOP_EVENT:
+                    // Start may have failed before AFTER_START
+                    closeScope();
+                    if (workerExecutor != null) {
+                        // Externally supplied executors are not shut down by Tomcat
+                        workerExecutor.shutdown();
+                        workerExecutor = null;
+                        // Thread limits read as -1 while an external executor is set
+                        protocol.setExecutor(null);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    
+        private ThreadPoolExecutor newWorkerExecutor() {
+            String name = protocol.getName().replace("\"", "");
+            PinningThreadFactory workerFactory = 
+                new PinningThreadFactory(name + "-exec-", placement.getWorkerCpus(), true);
+            TaskQueue taskQueue = new TaskQueue();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(protocol.getMinSpareThreads(), 
+                    protocol.getMaxThreads(), 60, TimeUnit.SECONDS, taskQueue, workerFactory);
+            taskQueue.setParent(executor);
+            return executor;
+        }
+    
+        private void closeScope() {
+            if (startScope != null) {
+                startScope.close();
+                startScope = null;
+            }
+        }
+    }
+}
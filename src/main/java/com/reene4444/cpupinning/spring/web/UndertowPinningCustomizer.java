@@ -0,0 +1,95 @@
+package com.reene4444.cpupinning.spring.web;
+
+import com.reene4444.cpupinning.core.AffinityScope;
+import com.reene4444.cpupinning.core.PinningThreadFactory;
+import io.undertow.Undertow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.embedded.undertow.ConfigurableUndertowWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.core.Ordered;
+import org.xnio.Xnio;
+import org.xnio.XnioWorker;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pins Undertow threads at creation time.
+ * The XNIO worker is built here instead of inside Undertow: its I/O threads are
+ * created inside an {@link AffinityScope} on the I/O set, and task execution is
+ * delegated to an external executor whose threads are pinned to the compute set.
+ */
+public class UndertowPinningCustomizer 
+        implements WebServerFactoryCustomizer<ConfigurableUndertowWebServerFactory>, Ordered, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(UndertowPinningCustomizer.class);
+    
+    private final WebThreadPlacement placement;
+    private final ServerProperties.Undertow.Threads threads;
+    private final List<XnioWorker> workers = new CopyOnWriteArrayList<>();
+    private final List<ExecutorService> executors = new CopyOnWriteArrayList<>();
+    
+    public UndertowPinningCustomizer(WebThreadPlacement placement, ServerProperties serverProperties) {
+        this.placement = placement;
+        this.threads = serverProperties.getUndertow().getThreads();
+    }
+    
+    @Override
+    public void customize(ConfigurableUndertowWebServerFactory factory) {
+        factory.addBuilderCustomizers(this::customizeBuilder);
+    }
+    
+    private void customizeBuilder(Undertow.Builder builder) {
+        // Same defaults as Undertow, sized from the cores actually assigned
+        int ioThreads = threads.getIo() != null ? threads.getIo() : Math.max(placement.getIoCpus().size(), 2);
+        int workerThreads = threads.getWorker() != null ? threads.getWorker() : ioThreads * 8;
+        
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), 
+                new PinningThreadFactory("undertow-worker-", placement.getWorkerCpus(), true));
+        executor.allowCoreThreadTimeOut(true);
+        
+        XnioWorker worker;
+        boolean ioPinned;
+        try (AffinityScope scope = AffinityScope.enter(placement.getIoCpus())) {
+            ioPinned = scope.isPinned();
+            worker = Xnio.getInstance(Undertow.class.getClassLoader())
+                    .createWorkerBuilder()
+                    .setWorkerName("undertow-io")
+                    .setWorkerIoThreads(ioThreads)
+                    .setExternalExecutorService(executor)
+                    .setDaemon(true)
+                    .build();
+        }
+        builder.setWorker(worker);
+        workers.add(worker);
+        executors.add(executor);
+        
+        logger.info("Undertow: {} I/O threads {} CPUs {}, {} workers -> CPUs {}", ioThreads,
+                   ioPinned ? "pinned to" : "could not be pinned to", placement.getIoCpus(),
+                   workerThreads, placement.getWorkerCpus());
+    }
+    
+    @Override
+    public int getOrder() {
+        // Run after Spring Boot's own customizers so thread limits are already applied
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+    
+    @Override
+    public void destroy() {
+        // Undertow does not shut down a worker it did not create
+        for (XnioWorker worker : workers) {
+            worker.shutdown();
+        }
+        for (ExecutorService executor : executors) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.reene4444.cpupinning.spring.web;
+
+import com.reene4444.cpupinning.core.CpuAffinity;
+import com.reene4444.cpupinning.core.CpuSpec;
+import com.reene4444.cpupinning.spring.CpuPinningProperties;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Resolved CPU placement for embedded web server threads: acceptor and selector
+ * threads go to the I/O set, request workers to the compute set
+ */
+public class WebThreadPlacement {
+    private final Set<Integer> ioCpus;
+    private final Set<Integer> workerCpus;
+    
+    public WebThreadPlacement(Set<Integer> ioCpus, Set<Integer> workerCpus) {
+        this.ioCpus = new HashSet<>(ioCpus);
+        this.workerCpus = new HashSet<>(workerCpus);
+    }
+    
+    /**
+     * Resolve placement from {@code cpu.pinning.web.*}, falling back to the same
+     * half split the adaptive engine uses (workers on the first half, I/O on the second)
+     */
+    public static WebThreadPlacement from(CpuPinningProperties.Web web) {
+        int cpuCount = CpuAffinity.getAvailableCpuCount();
+        int half = cpuCount / 2;
+        
+        Set<Integer> io = CpuSpec.resolve(web.getIoCpus());
+        if (io.isEmpty()) {
+            for (int i = half; i < cpuCount; i++) {
+                io.add(i);
+            }
+        }
+        
+        Set<Integer> workers = CpuSpec.resolve(web.getWorkerCpus());
+        if (workers.isEmpty()) {
+            for (int i = 0; i < half; i++) {
+                workers.add(i);
+            }
+        }
+        if (workers.isEmpty()) {
+            // Single CPU: nothing to partition
+            workers.addAll(io);
+        }
+        return new WebThreadPlacement(io, workers);
+    }
+    
+    public Set<Integer> getIoCpus() {
+        return new HashSet<>(ioCpus);
+    }
+    
+    public Set<Integer> getWorkerCpus() {
+        return new HashSet<>(workerCpus);
+    }
+    
+    @Override
+    public String toString() {
+        return "I/O threads -> CPUs " + ioCpus + ", workers -> CPUs " + workerCpus;
+    }
+}
@@ -0,0 +1,320 @@
+package com.reene4444.cpupinning.virtual;
+
+import com.reene4444.cpupinning.core.AffinityDomain;
+import com.reene4444.cpupinning.core.CpuAffinity;
+import com.reene4444.cpupinning.core.NumaTopology;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Structured fan-out kept inside one last-level cache domain: subtasks forked from a
+ * scope run only on CPUs sharing an L3 cache with the thread that opened it, so data
+ * the parent just touched stays cache-resident for the subtasks.
+ * <p>
+ * Semantics follow {@code StructuredTaskScope.ShutdownOnFailure}: only the opening
+ * thread forks, joins and closes; the first failing subtask cancels its siblings and
+ * is rethrown by {@link #join()}; {@link #close()} cancels anything unfinished and
+ * waits for every subtask to return.
+ * <p>
+ * The virtual thread scheduler cannot be confined to a subset of CPUs, so on every
+ * JDK subtasks run on a per-domain fork/join pool of pinned platform threads, one per
+ * CPU. A join blocks as a managed blocker, so a subtask that opens and joins a nested
+ * scope gets a compensating worker instead of starving the pool. Subtasks execute in
+ * the {@link AffinityDomain} {@code "l3:N"}, so their latency is aggregated per domain.
+ * Subtasks are meant to be CPU-bound: one that blocks on I/O holds a worker of its
+ * domain for the duration.
+ */
+public final class PinnedTaskScope<T> implements AutoCloseable {
+    private static final Map<String, ForkJoinPool> domainPools = new ConcurrentHashMap<>();
+    
+    private final String domain;
+    private final Set<Integer> cpus;
+    private final ForkJoinPool pool;
+    private final Thread owner = Thread.currentThread();
+    private final Queue<Subtask> subtasks = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final Object lock = new Object();
+    private int running;
+    private volatile boolean shutdown;
+    private boolean closed;
+    
+    private PinnedTaskScope(String domain, Set<Integer> cpus) {
+        this.domain = domain;
+        this.cpus = Set.copyOf(cpus);
+        this.pool = domainPools.computeIfAbsent(domain, name -> new ForkJoinPool(cpus.size(),
+            forkJoinPool -> new PinnedWorker(forkJoinPool, "cpu-pinning-" + name.replace(':', '-') + "-", this.cpus),
+            null, true));
+    }
+    
+    /**
+     * Open a scope on the L3 domain of the CPU the calling thread is running on
+     */
+    public static <T> PinnedTaskScope<T> open() {
+        int cpu = CpuAffinity.getCurrentCpu();
+        return open(cpu >= 0 ? NumaTopology.getInstance().getL3Domain(cpu) : -1);
+    }
+    
+    /**
+     * Open a scope on the given L3 domain, or on the whole effective cpuset if the
+     * domain is unknown or has no usable CPUs
+     */
+    public static <T> PinnedTaskScope<T> open(int l3Domain) {
+        NumaTopology topology = NumaTopology.getInstance();
+        Set<Integer> cpus = topology.getCpusInL3Domain(l3Domain);
+        cpus.retainAll(topology.getEffectiveCpus());
+        if (cpus.isEmpty()) {
+            return new PinnedTaskScope<>("effective", topology.getEffectiveCpus());
+        }
+        return new PinnedTaskScope<>("l3:" + l3Domain, cpus);
+    }
+    
+    /**
+     * Name of the domain subtasks run in, {@code "l3:N"} or {@code "effective"}
+     */
+    public String getDomain() {
+        return domain;
+    }
+    
+    public Set<Integer> getCpus() {
+        return cpus;
+    }
+    
+    /**
+     * Start a subtask on the scope's CPUs. After {@link #shutdown()} the subtask is
+     * not run and the returned future is already cancelled.
+     */
+    public Future<T> fork(Callable<? extends T> task) {
+        ensureOwner();
+        if (closed) {
+            throw new IllegalStateException("Scope is closed");
+        }
+        Subtask subtask = new Subtask(task);
+        subtasks.add(subtask);
+        if (shutdown) {
+            subtask.cancel(false);
+            return subtask;
+        }
+    
+        synchronized (lock) {
+            running++;
+        }
+        try {
+            pool.execute(() -> {
+                try {
+                    subtask.run();
+                } finally {
+                    subtaskDone();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            subtaskDone();
+            throw e;
+        }
+        return subtask;
+    }
+    
+    private void subtaskDone() {
+        synchronized (lock) {
+            if (--running == 0) {
+                lock.notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Wait for all subtasks to finish, or for the first failure to cancel the rest
+     * @throws ExecutionException wrapping the first subtask failure
+     */
+    public PinnedTaskScope<T> join() throws InterruptedException, ExecutionException {
+        ensureOwner();
+        ForkJoinPool.managedBlock(new Completion(0));
+        throwIfFailed();
+        return this;
+    }
+    
+    /**
+     * Like {@link #join()}, but gives up at the deadline. Subtasks keep running until
+     * the scope is shut down or closed.
+     */
+    public PinnedTaskScope<T> joinUntil(Instant deadline)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        ensureOwner();
+        long timeoutNanos = Math.max(1, Duration.between(Instant.now(), deadline).toNanos());
+        Completion completion = new Completion(System.nanoTime() + timeoutNanos);
+        ForkJoinPool.managedBlock(completion);
+        if (!completion.isReleasable()) {
+            throw new TimeoutException("Subtasks still running at " + deadline);
+        }
+        throwIfFailed();
+        return this;
+    }
+    
+    private void throwIfFailed() throws ExecutionException {
+        Throwable cause = failure.get();
+        if (cause != null) {
+            throw new ExecutionException(cause);
+        }
+    }
+    
+    /**
+     * Results of all subtasks in fork order, after a successful {@link #join()}
+     */
+    public List<T> results() throws ExecutionException {
+        ensureOwner();
+        throwIfFailed();
+        List<T> results = new ArrayList<>(subtasks.size());
+        for (Subtask subtask : subtasks) {
+            if (!subtask.isDone() || subtask.isCancelled()) {
+                throw new IllegalStateException("Subtask not completed; join the scope first");
+            }
+            try {
+                results.add(subtask.get());
+            } catch (InterruptedException e) {
+                // Unreachable: the subtask is done
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * Cancel unfinished subtasks and stop new ones from starting. May be called from
+     * any thread, including a subtask that has produced enough.
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (Subtask subtask : subtasks) {
+            subtask.cancel(true);
+        }
+    }
+    
+    public boolean isShutdown() {
+        return shutdown;
+    }
+    
+    /**
+     * Shut down and wait for every subtask thread to return
+     */
+    @Override
+    public void close() {
+        ensureOwner();
+        if (closed) {
+            return;
+        }
+        closed = true;
+        shutdown();
+        boolean interrupted = false;
+        Completion completion = new Completion(0);
+        while (!completion.isReleasable()) {
+            try {
+                ForkJoinPool.managedBlock(completion);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void ensureOwner() {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("Scope is owned by thread " + owner.getName());
+        }
+    }
+    
+    private final class Subtask extends FutureTask<T> {
+    
+        Subtask(Callable<? extends T> task) {
+            super(() -> AffinityDomain.call(domain, task::call));
+        }
+    
+        @Override
+        protected void setException(Throwable cause) {
+            super.setException(cause);
+            // A sibling interrupted by shutdown is cancelled, not failed
+            if (!isCancelled() && failure.compareAndSet(null, cause)) {
+                shutdown();
+            }
+        }
+    }
+    
+    /**
+     * Waits until no subtask is running, or until an optional deadline
+     */
+    private final class Completion implements ForkJoinPool.ManagedBlocker {
+        private final long deadlineNanos;
+    
+        /**
+         * @param deadlineNanos {@link System#nanoTime()} deadline, 0 for none
+         */
+        Completion(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+    
+        @Override
+        public boolean block() throws InterruptedException {
+            synchronized (lock) {
+                if (running == 0) {
+                    return true;
+                }
+                if (deadlineNanos == 0) {
+                    lock.wait();
+                    return running == 0;
+                }
+                long remainingNanos = deadlineNanos - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    return true;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remainingNanos);
+                return running == 0 || System.nanoTime() - deadlineNanos >= 0;
+            }
+        }
+    
+        @Override
+        public boolean isReleasable() {
+            synchronized (lock) {
+                return running == 0;
+            }
+        }
+    }
+    
+    /**
+     * Fork/join worker pinned to the scope's CPUs before it runs any subtask
+     */
+    private static final class PinnedWorker extends ForkJoinWorkerThread {
+        private final Set<Integer> cpus;
+    
+        PinnedWorker(ForkJoinPool pool, String namePrefix, Set<Integer> cpus) {
+            super(pool);
+            this.cpus = cpus;
+            setName(namePrefix + getPoolIndex());
+            setDaemon(true);
+        }
+    
+        @Override
+        protected void onStart() {
+            super.onStart();
+            CpuAffinity.pinThread(cpus);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.reene4444.cpupinning.virtual;
 
+import com.reene4444.cpupinning.core.AffinityDomain;
 import com.reene4444.cpupinning.core.CpuAffinity;
+import com.reene4444.cpupinning.core.CpuList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,7 +12,11 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Virtual Thread CPU Pinner - provides CPU pinning support for Java 21+ Virtual Threads
- * Solves CPU cache invalidation issues in high-concurrency IO tasks
+ * Solves CPU cache invalidation issues in high-concurrency IO tasks.
+ * <p>
+ * What gets pinned is the carrier running each task. Carriers belong to the JVM-wide
+ * virtual thread scheduler and are shared by every executor, so a task re-pins its
+ * carrier whenever it finds it pinned to other CPUs, e.g. by another executor's task.
  */
 public class VirtualThreadPinner {
     private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinner.class);
@@ -33,6 +39,17 @@ public class VirtualThreadPinner {
      * @return ExecutorService with pinned virtual threads
      */
     public ExecutorService createPinnedExecutor(Set<Integer> cores) {
+        return createPinnedExecutor("virtual:" + CpuList.format(cores), cores);
+    }
+    
+    /**
+     * Create a VirtualThreadExecutor pinned to specific CPU cores whose tasks run in
+     * the given {@link AffinityDomain}, so their latency is aggregated under its name
+     * @param domain name the executor's execution samples are aggregated under
+     * @param cores CPU cores to pin to
+     * @return ExecutorService with pinned virtual threads
+     */
+    public ExecutorService createPinnedExecutor(String domain, Set<Integer> cores) {
         if (cores == null || cores.isEmpty()) {
             throw new IllegalArgumentException("CPU cores must be specified");
         }
@@ -61,7 +78,7 @@ public class VirtualThreadPinner {
         }
         
         // Wrap with pinning logic
-        ExecutorService pinnedExecutor = new PinnedVirtualThreadExecutor(executor, cores);
+        ExecutorService pinnedExecutor = new PinnedVirtualThreadExecutor(executor, domain, cores);
         pinnedExecutors.put(executorCounter.incrementAndGet(), pinnedExecutor);
         
         logger.info("Created pinned virtual thread executor for CPUs: {}", cores);
@@ -80,23 +97,30 @@ public class VirtualThreadPinner {
      */
     private static class PinnedVirtualThreadExecutor implements ExecutorService {
         private final ExecutorService delegate;
+        private final String domain;
         private final Set<Integer> cores;
-        private final ThreadLocal<Boolean> pinned = ThreadLocal.withInitial(() -> false);
         
-        public PinnedVirtualThreadExecutor(ExecutorService delegate, Set<Integer> cores) {
+        public PinnedVirtualThreadExecutor(ExecutorService delegate, String domain, Set<Integer> cores) {
             this.delegate = delegate;
+            this.domain = domain;
             this.cores = cores;
         }
         
+        /**
+         * Pin the carrier (platform thread) running the current task unless its mask
+         * already is this executor's; reading the mask is cheaper than setting it
+         */
+        private void pinCarrier() {
+            if (!CpuAffinity.getThreadAffinity().equals(cores)) {
+                CpuAffinity.pinThread(cores);
+            }
+        }
+        
         @Override
         public void execute(Runnable command) {
             delegate.execute(() -> {
-                // Pin the carrier thread (platform thread) that runs the virtual thread
-                if (!pinned.get()) {
-                    CpuAffinity.pinThread(cores);
-                    pinned.set(true);
-                }
-                command.run();
+                pinCarrier();
+                AffinityDomain.run(domain, command);
             });
         }
         
@@ -128,33 +152,24 @@ public class VirtualThreadPinner {
         @Override
         public <T> Future<T> submit(Callable<T> task) {
             return delegate.submit(() -> {
-                if (!pinned.get()) {
-                    CpuAffinity.pinThread(cores);
-                    pinned.set(true);
-                }
-                return task.call();
+                pinCarrier();
+                return AffinityDomain.call(domain, task);
             });
         }
         
         @Override
         public <T> Future<T> submit(Runnable task, T result) {
             return delegate.submit(() -> {
-                if (!pinned.get()) {
-                    CpuAffinity.pinThread(cores);
-                    pinned.set(true);
-                }
-                task.run();
+                pinCarrier();
+                AffinityDomain.run(domain, task);
             }, result);
         }
         
         @Override
         public Future<?> submit(Runnable task) {
             return delegate.submit(() -> {
-                if (!pinned.get()) {
-                    CpuAffinity.pinThread(cores);
-                    pinned.set(true);
-                }
-                task.run();
+                pinCarrier();
+                AffinityDomain.run(domain, task);
             });
         }
         
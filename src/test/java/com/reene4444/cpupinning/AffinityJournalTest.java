@@ -0,0 +1,78 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.core.MigrationReason;
+import com.reene4444.cpupinning.monitoring.AffinityJournal;
+import com.reene4444.cpupinning.monitoring.AffinityJournalReader;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class AffinityJournalTest {
+    
+    @Test
+    public void testDumpAndRead() throws Exception {
+        AffinityJournal journal = new AffinityJournal(4);
+        journal.onPoolChanged("orders", Set.of(), Set.of(0, 1));
+        journal.onThreadPinned(1234, "orders", Set.of(), Set.of(0, 1));
+        journal.onThreadMigrated(1234, "orders", Set.of(0, 1), Set.of(70, 127, 200), MigrationReason.HIGH_LATENCY);
+        
+        Path file = Files.createTempFile("affinity-journal", ".bin");
+        try {
+            assertEquals(3, journal.dump(file));
+            List<AffinityJournalReader.Entry> entries = AffinityJournalReader.read(file);
+            assertEquals(3, entries.size());
+            
+            AffinityJournalReader.Entry migration = entries.get(2);
+            assertEquals(AffinityJournal.EventType.MIGRATION, migration.getType());
+            assertEquals(1234, migration.getNativeTid());
+            assertEquals("orders", migration.getPool());
+            assertEquals(MigrationReason.HIGH_LATENCY, migration.getReason());
+            assertEquals(Set.of(0, 1), migration.getOldCpus());
+            assertEquals(Set.of(70, 127), migration.getNewCpus());
+            assertTrue(migration.isTruncated());
+            assertNull(entries.get(0).getReason());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    @Test
+    public void testRecordsPrimitiveMasks() throws Exception {
+        AffinityJournal journal = new AffinityJournal(4);
+        journal.record(AffinityJournal.EventType.MIGRATION, 42, "orders", 0b11L, 0L, 1L << 5, 1L << 63, false,
+                       MigrationReason.IPC_DROP);
+        
+        List<AffinityJournalReader.Entry> entries = journal.recent(1, null);
+        AffinityJournalReader.Entry migration = entries.get(0);
+        assertEquals(42, migration.getNativeTid());
+        assertEquals("orders", migration.getPool());
+        assertEquals(MigrationReason.IPC_DROP, migration.getReason());
+        assertEquals(Set.of(0, 1), migration.getOldCpus());
+        assertEquals(Set.of(5, 127), migration.getNewCpus());
+        assertFalse(migration.isTruncated());
+    }
+    
+    @Test
+    public void testRingKeepsNewestRecords() throws Exception {
+        AffinityJournal journal = new AffinityJournal(3);
+        assertEquals(4, journal.getCapacity());
+        for (int tid = 1; tid <= 10; tid++) {
+            journal.onThreadPinned(tid, "pool", Set.of(), Set.of(tid));
+        }
+        
+        Path file = Files.createTempFile("affinity-journal", ".bin");
+        try {
+            assertEquals(4, journal.dump(file));
+            List<AffinityJournalReader.Entry> entries = AffinityJournalReader.read(file);
+            assertEquals(7, entries.get(0).getNativeTid());
+            assertEquals(10, entries.get(3).getNativeTid());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
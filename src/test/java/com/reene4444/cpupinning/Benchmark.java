@@ -0,0 +1,8 @@
+package com.reene4444.cpupinning;
+
+/**
+ * JUnit category of long-running benchmarks: left out of the default build, run them with
+ * {@code mvn test -Pbenchmarks}
+ */
+public interface Benchmark {
+}
@@ -0,0 +1,40 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.business.BusinessIsolationManager;
+import com.reene4444.cpupinning.core.NumaTopology;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class BusinessPoolTest {
+    
+    private final BusinessIsolationManager manager = BusinessIsolationManager.getInstance();
+    
+    @After
+    public void tearDown() {
+        manager.unregisterBusinessPool("orders");
+    }
+    
+    @Test
+    public void testReRegisterOnOwnCpusKeepsThreads() {
+        Set<Integer> cpus = NumaTopology.getInstance().getEffectiveCpus();
+        manager.registerBusinessPool("orders", cpus);
+        assertTrue(manager.pinToBusiness(Thread.currentThread(), "orders"));
+        BusinessIsolationManager.CpuPool first = manager.getBusinessPool("orders");
+    
+        // Replacing a pool must not count its own CPUs as taken
+        manager.registerBusinessPool("orders", cpus);
+        BusinessIsolationManager.CpuPool second = manager.getBusinessPool("orders");
+        assertNotSame(first, second);
+        assertEquals(Set.of(Thread.currentThread()), second.getThreads());
+        assertEquals(0, first.getThreadCount());
+    
+        assertTrue(manager.unregisterBusinessPool("orders"));
+        assertFalse(manager.unregisterBusinessPool("orders"));
+        assertEquals(0, second.getThreadCount());
+        assertEquals(-1, manager.getNativeTid(Thread.currentThread()));
+    }
+}
@@ -0,0 +1,119 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.chaos.ChaosExperiment;
+import com.reene4444.cpupinning.chaos.ChaosIntegration;
+import com.reene4444.cpupinning.chaos.ExperimentReport;
+import com.reene4444.cpupinning.chaos.LatencyHistogram;
+import com.reene4444.cpupinning.chaos.StressMode;
+import com.reene4444.cpupinning.chaos.StressSpec;
+import com.reene4444.cpupinning.core.NumaTopology;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pinning isolation experiment: run with -Pbenchmarks -Dexperiment.millis=10000 on a multi-core host
+ * to compare pinned and unpinned latency under cache-thrashing neighbors
+ */
+public class ChaosExperimentTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChaosExperimentTest.class);
+    private static final int MILLIS = Integer.getInteger("experiment.millis", 300);
+    
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(5_000_000, histogram.getPercentileNanos(50), 5_000_000 * 0.07);
+        assertEquals(9_900_000, histogram.getPercentileNanos(99), 9_900_000 * 0.07);
+        assertEquals(10_000_000, histogram.getPercentileNanos(100));
+        assertEquals(5_000_500, histogram.getMeanNanos(), 1e-6);
+    
+        LatencyHistogram small = new LatencyHistogram();
+        small.record(7);
+        histogram.add(small);
+        assertEquals(7, histogram.getMinNanos());
+        assertEquals(7, histogram.getPercentileNanos(0));
+    }
+    
+    @Test
+    public void testExperimentMeasuresEveryPhase() throws Exception {
+        Set<Integer> cpus = Set.of(NumaTopology.getInstance().getEffectiveCpus().iterator().next());
+        AtomicLong calls = new AtomicLong();
+        ChaosIntegration chaos = new ChaosIntegration();
+        try {
+            ChaosExperiment experiment = new ChaosExperiment(chaos, cpus, () -> {
+                if (calls.incrementAndGet() % 1000 == 0) {
+                    throw new IllegalStateException("every thousandth call fails");
+                }
+                spin(200);
+            });
+            experiment.setWarmupMs(50);
+            experiment.setMeasureMs(200);
+            experiment.setStress(StressSpec.of(StressMode.CPU, cpus).withIntensity(0.5).withPeriodMs(10));
+            ExperimentReport report = experiment.run();
+    
+            long errors = 0;
+            for (ChaosExperiment.Phase phase : ChaosExperiment.Phase.values()) {
+                ExperimentReport.PhaseResult result = report.getPhase(phase);
+                assertTrue(phase + " completed nothing", result.getOperations() > 0);
+                assertTrue(result.getLatency().getPercentileNanos(99) >= result.getLatency().getPercentileNanos(50));
+                errors += result.getErrors();
+            }
+            assertTrue(errors > 0);
+            assertFalse(chaos.isChaosEnabled());
+    
+            String json = report.toJson();
+            assertTrue(json, json.startsWith("{\"workloadCpus\":"));
+            assertTrue(json, json.contains("\"phase\":\"CHAOS_UNPINNED\""));
+            assertTrue(json, json.contains("\"p99VsBaseline\":"));
+            assertTrue(report.toString().contains("CHAOS_PINNED vs baseline"));
+        } finally {
+            chaos.shutdown();
+        }
+    }
+    
+    @Test
+    @Category(Benchmark.class)
+    public void testPinningIsolationExperiment() throws Exception {
+        Set<Integer> all = NumaTopology.getInstance().getEffectiveCpus();
+        Set<Integer> workloadCpus = Set.of(all.iterator().next());
+        long[] workingSet = new long[256 * 1024];
+        ChaosIntegration chaos = new ChaosIntegration();
+        try {
+            ChaosExperiment experiment = new ChaosExperiment(chaos, workloadCpus, () -> {
+                long x = System.nanoTime();
+                for (int i = 0; i < 256; i++) {
+                    x ^= x << 13;
+                    x ^= x >>> 7;
+                    x ^= x << 17;
+                    workingSet[(int) (x & (workingSet.length - 1))]++;
+                }
+            });
+            experiment.setWarmupMs(MILLIS / 3);
+            experiment.setMeasureMs(MILLIS);
+            Set<Integer> noisy = all.size() > 1 ? all.stream().filter(cpu -> !workloadCpus.contains(cpu))
+                .collect(java.util.stream.Collectors.toSet()) : all;
+            experiment.setStress(StressSpec.of(StressMode.CACHE_THRASH, noisy).withBufferBytes(64 * 1024 * 1024));
+            logger.info("pinning isolation experiment over {} ms per phase\n{}", MILLIS, experiment.run());
+        } finally {
+            chaos.shutdown();
+        }
+    }
+    
+    private static void spin(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.chaos.ChaosIntegration;
+import com.reene4444.cpupinning.chaos.ChaosRun;
+import com.reene4444.cpupinning.chaos.StressMode;
+import com.reene4444.cpupinning.chaos.StressSpec;
+import com.reene4444.cpupinning.core.NumaTopology;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Noisy-neighbor benchmark: run with -Pbenchmarks -Dchaos.millis=2000 to see how each stress mode
+ * slows a cache-resident workload sharing its CPUs
+ */
+public class ChaosStressTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChaosStressTest.class);
+    private static final int MILLIS = Integer.getInteger("chaos.millis", 200);
+    private static final int SMALL_BUFFER = 1024 * 1024;
+    
+    @Test
+    public void testEveryModeStartsAndStops() throws Exception {
+        Set<Integer> cpus = NumaTopology.getInstance().getEffectiveCpus();
+        ChaosIntegration chaos = new ChaosIntegration();
+        try {
+            for (StressMode mode : StressMode.values()) {
+                StressSpec spec = StressSpec.of(mode, cpus).withBufferBytes(SMALL_BUFFER)
+                    .withIntensity(0.5).withPeriodMs(10);
+                ChaosRun run = chaos.startStress(spec, 0);
+                assertTrue(chaos.isChaosEnabled());
+                assertEquals(mode == StressMode.LOCK_CONTENTION ? 2 * cpus.size() : cpus.size(),
+                             run.getWorkerCpus().size(), mode == StressMode.SMT_SIBLING ? cpus.size() : 0);
+                Thread.sleep(50);
+                assertTrue(run.stop());
+                assertFalse(run.stop());
+                assertTrue(run.awaitTermination(5, TimeUnit.SECONDS));
+                assertTrue(mode + " did no work", run.getStressedNanos() > 0);
+                assertFalse(chaos.isChaosEnabled());
+            }
+            // Idle workers are reused rather than a new thread per CPU per run
+            assertTrue(chaos.getStressWorkerCount() + " worker(s)", chaos.getStressWorkerCount() <= 2 * cpus.size());
+        } finally {
+            chaos.shutdown();
+        }
+    }
+    
+    @Test
+    public void testDutyCycleLimitsStressTime() throws Exception {
+        Set<Integer> cpus = Set.of(NumaTopology.getInstance().getEffectiveCpus().iterator().next());
+        ChaosIntegration chaos = new ChaosIntegration();
+        try {
+            long start = System.nanoTime();
+            ChaosRun run = chaos.startStress(StressSpec.of(StressMode.CPU, cpus).withIntensity(0.25).withPeriodMs(20), 0);
+            Thread.sleep(500);
+            run.stop();
+            assertTrue(run.awaitTermination(5, TimeUnit.SECONDS));
+            double share = (double) run.getStressedNanos() / (System.nanoTime() - start);
+            assertTrue("stressed " + share + " of the time", share > 0.1 && share < 0.6);
+        } finally {
+            chaos.shutdown();
+        }
+    }
+    
+    @Test
+    @Category(Benchmark.class)
+    public void testNoisyNeighborBenchmark() throws Exception {
+        Set<Integer> cpus = NumaTopology.getInstance().getEffectiveCpus();
+        long[] workingSet = new long[512 * 1024];
+        ChaosIntegration chaos = new ChaosIntegration();
+        try {
+            walk(workingSet);
+            StringBuilder results = new StringBuilder(String.format("baseline %.2f", walk(workingSet)));
+            for (StressMode mode : StressMode.values()) {
+                ChaosRun run = chaos.startStress(StressSpec.of(mode, cpus).withBufferBytes(64 * 1024 * 1024), 0);
+                try {
+                    results.append(String.format(", %s %.2f", mode, walk(workingSet)));
+                } finally {
+                    run.stop();
+                    run.awaitTermination(5, TimeUnit.SECONDS);
+                }
+            }
+            logger.info("noisy neighbor over {} ms, ns per access (4 MB working set): {}", MILLIS, results);
+        } finally {
+            chaos.shutdown();
+        }
+    }
+    
+    /**
+     * Random walk over the working set for MILLIS, in ns per access
+     */
+    private static double walk(long[] workingSet) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MILLIS);
+        long start = System.nanoTime();
+        long accesses = 0;
+        long x = 1;
+        long sum = 0;
+        int mask = workingSet.length - 1;
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < 1024; i++) {
+                x ^= x << 13;
+                x ^= x >>> 7;
+                x ^= x << 17;
+                sum += workingSet[(int) (x & mask)]++;
+            }
+            accesses += 1024;
+        }
+        assertTrue(sum >= 0);
+        return (double) (System.nanoTime() - start) / accesses;
+    }
+}
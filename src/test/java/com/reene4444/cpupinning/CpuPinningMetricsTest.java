@@ -0,0 +1,60 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.core.MigrationReason;
+import com.reene4444.cpupinning.monitoring.CpuPinningMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CpuPinningMetricsTest {
+    
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CpuPinningMetrics metrics = new CpuPinningMetrics(registry);
+    
+    @After
+    public void tearDown() {
+        metrics.close();
+        registry.close();
+    }
+    
+    @Test
+    public void testCountsEachMigration() {
+        metrics.onThreadMigrated(101, "orders", Set.of(0), Set.of(1), MigrationReason.HIGH_LATENCY);
+        metrics.onThreadMigrated(102, "orders", Set.of(0), Set.of(1), MigrationReason.HIGH_LATENCY);
+        metrics.onThreadMigrated(101, "orders", Set.of(1), Set.of(0), MigrationReason.RECONFIGURATION);
+        metrics.onThreadMigrated(103, "payments", Set.of(2), Set.of(3), MigrationReason.HIGH_LATENCY);
+    
+        assertEquals(2.0, registry.get("cpu.pinning.thread.migrations")
+                .tags("pool", "orders", "reason", "HIGH_LATENCY").counter().count(), 0.0);
+        assertEquals(1.0, registry.get("cpu.pinning.thread.migrations")
+                .tags("pool", "orders", "reason", "RECONFIGURATION").counter().count(), 0.0);
+        assertEquals(1.0, registry.get("cpu.pinning.thread.migrations")
+                .tags("pool", "payments").counter().count(), 0.0);
+        assertEquals(4.0, registry.get("cpu.pinning.migrations").gauge().value(), 0.0);
+    
+        // Migrations counted by callers of the old API still show up in the total
+        metrics.recordMigration();
+        assertEquals(5.0, registry.get("cpu.pinning.migrations").gauge().value(), 0.0);
+        assertEquals(1.0, registry.get("cpu.pinning.migration").counter().count(), 0.0);
+    }
+    
+    @Test
+    public void testOperationLatencyTimerReused() {
+        metrics.recordLatency("rebalance", 5);
+        metrics.recordLatency("rebalance", 15);
+        metrics.recordLatency("repin", 1);
+    
+        Collection<Timer> timers = registry.get("cpu.pinning.operation.latency").timers();
+        assertEquals(2, timers.size());
+        Timer rebalance = registry.get("cpu.pinning.operation.latency").tag("operation", "rebalance").timer();
+        assertEquals(2, rebalance.count());
+        assertEquals(20.0, rebalance.totalTime(TimeUnit.MILLISECONDS), 0.0);
+    }
+}
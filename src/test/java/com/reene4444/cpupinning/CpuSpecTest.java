@@ -0,0 +1,47 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.core.CpuList;
+import com.reene4444.cpupinning.core.CpuSpec;
+import com.reene4444.cpupinning.core.NumaTopology;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CpuSpecTest {
+    
+    @Test
+    public void testParseCpuList() {
+        assertEquals(Set.of(0, 1, 2, 3, 8, 10, 11), CpuList.parse("0-3,8,10-11"));
+        assertTrue(CpuList.parse(" ").isEmpty());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseInvalidCpuList() {
+        CpuList.parse("3-1");
+    }
+    
+    @Test
+    public void testFormatCpuList() {
+        assertEquals("0-3,8,10-11", CpuList.format(Set.of(11, 10, 8, 3, 2, 1, 0)));
+        assertEquals("", CpuList.format(Set.of()));
+    }
+    
+    @Test
+    public void testResolveStaysWithinEffectiveCpus() {
+        NumaTopology topology = NumaTopology.getInstance();
+        Set<Integer> effective = topology.getEffectiveCpus();
+        
+        assertEquals(effective, CpuSpec.resolve("100%", topology));
+        assertEquals(1, CpuSpec.resolve("1%", topology).size());
+        assertTrue(effective.containsAll(CpuSpec.resolve("node:0", topology)));
+        assertTrue(effective.containsAll(CpuSpec.resolve("l3:0", topology)));
+        assertTrue(CpuSpec.resolve("4096", topology).isEmpty());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testResolveInvalidPercentage() {
+        CpuSpec.resolve("150%", NumaTopology.getInstance());
+    }
+}
@@ -0,0 +1,110 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.core.CpuUtilizationSampler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CpuUtilizationSamplerTest {
+    
+    private static final double DELTA = 0.01;
+    
+    private Path procStat;
+    private CpuUtilizationSampler sampler;
+    // Cumulative user nice system idle iowait irq softirq steal per CPU
+    private final long[][] counters = new long[5][8];
+    
+    @Before
+    public void setUp() throws Exception {
+        procStat = Files.createTempFile("stat", null);
+        // cpu4 is beyond the sampler's slots and must be ignored
+        sampler = new CpuUtilizationSampler(procStat, 4);
+        write();
+        sampler.start(3_600_000);
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        sampler.stop();
+        Files.deleteIfExists(procStat);
+    }
+    
+    @Test
+    public void testParsesPerCpuCounters() throws Exception {
+        assertFalse(sampler.hasSamples());
+        for (int i = 0; i < 30; i++) {
+            // Per 100 ticks: cpu0 idle, cpu1 half busy, cpu2 half busy (half of that stolen)
+            // and a quarter iowait, cpu3 busy
+            advance(0, 0, 0, 0);
+            advance(1, 50, 0, 0);
+            advance(2, 50, 25, 25);
+            advance(3, 100, 0, 0);
+            advance(4, 100, 0, 0);
+            write();
+            sampler.sample();
+        }
+    
+        assertTrue(sampler.hasSamples());
+        assertEquals(0.0, sampler.getUtilization(0), DELTA);
+        assertEquals(0.5, sampler.getUtilization(1), DELTA);
+        // iowait is not busy time, steal is
+        assertEquals(0.5, sampler.getUtilization(2), DELTA);
+        assertEquals(0.25, sampler.getIowait(2), DELTA);
+        assertEquals(0.25, sampler.getSteal(2), DELTA);
+        assertEquals(1.0, sampler.getLoad(2), DELTA);
+        assertEquals(1.0, sampler.getUtilization(3), DELTA);
+        assertEquals(0.0, sampler.getUtilization(4), 0.0);
+    
+        // Within 0.2 of the least loaded; cpu2 and cpu3 are saturated
+        sampler.setSaturationThreshold(0.9);
+        assertEquals(Set.of(0), sampler.leastLoaded(Set.of(0, 1, 2, 3)));
+        assertEquals(Set.of(1), sampler.leastLoaded(Set.of(1, 2, 3)));
+        assertEquals(Set.of(1), sampler.withoutSaturated(Set.of(1, 2, 3)));
+        assertEquals(Set.of(2, 3), sampler.leastLoaded(Set.of(2, 3)));
+        assertEquals(Set.of(0, 1), sampler.leastLoaded(Set.of(0, 1, 2, 3), 2));
+    }
+    
+    @Test
+    public void testAveragesMoveTowardsNewSamples() throws Exception {
+        advance(0, 100, 0, 0);
+        write();
+        sampler.sample();
+        // Weighted 0.3 towards the newest sample
+        assertEquals(0.3, sampler.getUtilization(0), 1e-9);
+        advance(0, 100, 0, 0);
+        write();
+        sampler.sample();
+        assertEquals(0.51, sampler.getUtilization(0), 1e-9);
+    
+        // No ticks since the last read, e.g. an offline CPU, leaves the average alone
+        write();
+        sampler.sample();
+        assertEquals(0.51, sampler.getUtilization(0), 1e-9);
+    }
+    
+    private void advance(int cpu, long busy, long iowait, long steal) {
+        counters[cpu][0] += busy - steal;
+        counters[cpu][3] += 100 - busy - iowait;
+        counters[cpu][4] += iowait;
+        counters[cpu][7] += steal;
+    }
+    
+    private void write() throws Exception {
+        StringBuilder stat = new StringBuilder("cpu  1 2 3 4 5 6 7 8 0 0\n");
+        for (int cpu = 0; cpu < counters.length; cpu++) {
+            stat.append("cpu").append(cpu);
+            for (long value : counters[cpu]) {
+                stat.append(' ').append(value);
+            }
+            stat.append(" 0 0\n");
+        }
+        stat.append("intr 12345 0 0\nctxt 999\n");
+        Files.writeString(procStat, stat);
+    }
+}
@@ -0,0 +1,113 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.adaptive.AdaptiveAffinityEngine;
+import com.reene4444.cpupinning.adaptive.DriftPolicy;
+import com.reene4444.cpupinning.adaptive.DriftReconciler;
+import com.reene4444.cpupinning.business.BusinessIsolationManager;
+import com.reene4444.cpupinning.core.CpuAffinity;
+import com.reene4444.cpupinning.core.NumaTopology;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class DriftReconcilerTest {
+    
+    private final BusinessIsolationManager manager = BusinessIsolationManager.getInstance();
+    private final AdaptiveAffinityEngine engine = new AdaptiveAffinityEngine();
+    private final DriftReconciler reconciler = new DriftReconciler(engine, manager);
+    private final TreeSet<Integer> effective = new TreeSet<>(NumaTopology.getInstance().getEffectiveCpus());
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<Thread> threads = new ArrayList<>();
+    
+    @Before
+    public void setUp() {
+        manager.registerBusinessPool("drift", Set.of(effective.first()));
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        assertTrue(manager.unregisterBusinessPool("drift"));
+        engine.shutdown();
+    }
+    
+    @Test
+    public void testScansInSlices() throws Exception {
+        startPooledThreads(5);
+        reconciler.setMaxChecksPerScan(2);
+    
+        // At most two threads per scan, and passes cover every pooled thread
+        long checked = 0;
+        for (int scan = 0; scan < 20; scan++) {
+            long before = reconciler.getCheckCount();
+            assertEquals(0, reconciler.reconcile());
+            assertTrue(reconciler.getCheckCount() - before <= 2);
+            checked += reconciler.getCheckCount() - before;
+        }
+        assertTrue(checked + " check(s)", checked >= 5);
+        assertEquals(0, reconciler.getDriftCount());
+    }
+    
+    @Test
+    public void testRepairsMaskChangedByHand() throws Exception {
+        assumeTrue("drift needs a second CPU to move to", effective.size() > 1);
+        int[] tids = startPooledThreads(1);
+        reconciler.setPolicy(DriftPolicy.ALERT);
+        assertTrue(CpuAffinity.pinThread(tids[0], effective));
+    
+        assertTrue(reconcileUntilDrift() > 0);
+        assertEquals(0, reconciler.getRepairCount());
+        assertEquals(effective, CpuAffinity.getThreadAffinity(tids[0]));
+    
+        reconciler.setPolicy(DriftPolicy.REAPPLY);
+        assertTrue(reconcileUntilDrift() > 0);
+        assertEquals(1, reconciler.getRepairCount());
+        assertEquals(Set.of(effective.first()), CpuAffinity.getThreadAffinity(tids[0]));
+    }
+    
+    private int reconcileUntilDrift() {
+        long before = reconciler.getDriftCount();
+        for (int scan = 0; scan < 100 && reconciler.getDriftCount() == before; scan++) {
+            reconciler.reconcile();
+        }
+        return (int) (reconciler.getDriftCount() - before);
+    }
+    
+    /**
+     * Threads that pin themselves to the pool and wait until the test ends
+     */
+    private int[] startPooledThreads(int count) throws InterruptedException {
+        int[] tids = new int[count];
+        CountDownLatch pinned = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            Thread thread = new Thread(() -> {
+                assertTrue(manager.pinToBusiness(Thread.currentThread(), "drift"));
+                tids[index] = CpuAffinity.getCurrentThreadNativeId();
+                pinned.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "drift-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        assertTrue(pinned.await(5, TimeUnit.SECONDS));
+        return tids;
+    }
+}
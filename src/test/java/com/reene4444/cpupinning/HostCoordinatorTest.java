@@ -0,0 +1,109 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.core.CpuList;
+import com.reene4444.cpupinning.core.HostCoordinator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Leases shared between JVMs: every test spawns child processes on one registry file
+ */
+public class HostCoordinatorTest {
+    
+    private Path registry;
+    private final List<Process> children = new ArrayList<>();
+    
+    @Before
+    public void setUp() throws Exception {
+        registry = Files.createTempFile("cpu-pinning-host", ".registry");
+        Files.delete(registry);
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        for (Process child : children) {
+            child.destroyForcibly().waitFor();
+        }
+        Files.deleteIfExists(registry);
+    }
+    
+    @Test
+    public void testLeasesAreExclusiveUntilOwnerDies() throws Exception {
+        Process child = spawn("acquire", "0-1", "60000");
+        assertEquals("leased 0-1", firstLine(child));
+    
+        try (HostCoordinator coordinator = HostCoordinator.open(registry, 100, 500)) {
+            assertEquals(Set.of(1), coordinator.tryAcquire(Set.of(1, 4)));
+            assertTrue(coordinator.getHeldCpus().isEmpty());
+            assertEquals(child.pid(), coordinator.getOwner(1));
+            assertEquals(Set.of(2, 3), coordinator.acquireAny(2, CpuList.parse("0-7")));
+    
+            child.destroyForcibly().waitFor();
+            assertTrue(coordinator.tryAcquire(Set.of(1)).isEmpty());
+            assertEquals(Set.of(1, 2, 3), coordinator.getHeldCpus());
+    
+            coordinator.release(Set.of(2));
+            assertEquals(0L, coordinator.getOwner(2));
+        }
+    }
+    
+    @Test
+    public void testConcurrentProcessesGetDisjointCpus() throws Exception {
+        List<Process> racers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            racers.add(spawn("acquire-any", "2", "0-7", "60000"));
+        }
+        Set<Integer> leased = new HashSet<>();
+        for (Process racer : racers) {
+            String line = firstLine(racer);
+            assertTrue(line, line.startsWith("leased "));
+            for (Integer cpu : CpuList.parse(line.substring("leased ".length()))) {
+                assertTrue("CPU " + cpu + " leased twice", leased.add(cpu));
+            }
+        }
+        assertEquals(8, leased.size());
+    
+        try (HostCoordinator coordinator = HostCoordinator.open(registry, 100, 500)) {
+            assertTrue(coordinator.acquireAny(1, CpuList.parse("0-7")).isEmpty());
+            assertEquals(8, coordinator.getLeases().size());
+        }
+    }
+    
+    private Process spawn(String... command) throws Exception {
+        List<String> args = new ArrayList<>(List.of(
+            Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"),
+            HostCoordinator.class.getName(), registry.toString()));
+        args.addAll(List.of(command));
+        Process child = new ProcessBuilder(args).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        children.add(child);
+        return child;
+    }
+    
+    private static String firstLine(Process child) throws Exception {
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(child.getInputStream(), StandardCharsets.UTF_8));
+        // Skip log output that may share stdout with the result
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("leased ") || line.startsWith("held elsewhere ") || line.equals("none free")) {
+                return line;
+            }
+        }
+        fail("child exited without a result");
+        return null;
+    }
+}
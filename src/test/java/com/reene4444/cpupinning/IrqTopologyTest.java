@@ -0,0 +1,102 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.core.IrqTopology;
+import com.reene4444.cpupinning.core.NumaTopology;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class IrqTopologyTest {
+    
+    private Path proc;
+    private Path sysCpu;
+    
+    @Before
+    public void setUp() throws Exception {
+        proc = Files.createTempDirectory("proc");
+        sysCpu = Files.createTempDirectory("cpu");
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        for (Path root : List.of(proc, sysCpu)) {
+            try (Stream<Path> files = Files.walk(root)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testIsolationFromCommandLine() throws Exception {
+        Files.writeString(proc.resolve("cmdline"), 
+            "BOOT_IMAGE=/vmlinuz root=/dev/sda1 isolcpus=domain,managed_irq,2-3,6 nohz_full=1-3,7 quiet\n");
+        IrqTopology topology = new IrqTopology(proc, sysCpu);
+        assertEquals(Set.of(2, 3, 6), topology.getIsolatedCpus());
+        assertEquals(Set.of(1, 2, 3, 7), topology.getNohzFullCpus());
+    }
+    
+    @Test
+    public void testIsolationFromSysfsAndPlainCmdline() throws Exception {
+        Files.writeString(proc.resolve("cmdline"), "ro isolcpus=4-5 nohz_full=\n");
+        Files.writeString(sysCpu.resolve("isolated"), "8-9\n");
+        Files.writeString(sysCpu.resolve("nohz_full"), "\n");
+        IrqTopology topology = new IrqTopology(proc, sysCpu);
+        assertEquals(Set.of(4, 5, 8, 9), topology.getIsolatedCpus());
+        assertEquals(Set.of(), topology.getNohzFullCpus());
+    }
+    
+    @Test
+    public void testSumsInterruptsPerCpuColumn() throws Exception {
+        // CPU2 is offline and has no column
+        Files.writeString(proc.resolve("interrupts"), String.join("\n",
+            "           CPU0       CPU1       CPU3",
+            "  0:         44          0          0   IO-APIC   2-edge      timer",
+            " 24:        100        200        300   PCI-MSI 327680-edge      xhci_hcd",
+            "NMI:          5          6          7   Non-maskable interrupts",
+            "ERR:          9",
+            "MIS:          0",
+            ""));
+        IrqTopology topology = new IrqTopology(proc, sysCpu);
+        assertEquals(Map.of(0, 149L, 1, 206L, 3, 307L), topology.getInterruptCounts());
+        // Before the first rate window the cumulative counts decide
+        assertEquals(List.of(0, 1, 3), topology.rankQuietCpus(Set.of(3, 1, 0)));
+    }
+    
+    @Test
+    public void testSteersIrqsOffReservedCpus() throws Exception {
+        int housekeeping = NumaTopology.getInstance().getEffectiveCpus().iterator().next();
+        int reserved = housekeeping + 1;
+        writeAffinity(0, String.valueOf(housekeeping));
+        writeAffinity(24, housekeeping + "-" + reserved);
+        writeAffinity(25, String.valueOf(reserved));
+        Files.createDirectories(proc.resolve("irq/default_smp_affinity"));
+        IrqTopology topology = new IrqTopology(proc, sysCpu);
+        assertEquals(Set.of(housekeeping, reserved), topology.getIrqAffinities().get(24));
+        assertEquals(3, topology.getIrqAffinities().size());
+    
+        assertEquals(2, topology.steerIrqsAwayFrom(Set.of(reserved)));
+        Map<Integer, Set<Integer>> affinities = topology.getIrqAffinities();
+        assertEquals(Set.of(housekeeping), affinities.get(0));
+        assertEquals(Set.of(housekeeping), affinities.get(24));
+        // Left with nothing, so moved to every CPU not reserved
+        assertFalse(affinities.get(25).contains(reserved));
+        assertTrue(affinities.get(25).contains(housekeeping));
+    }
+    
+    private void writeAffinity(int irq, String cpuList) throws Exception {
+        Path dir = Files.createDirectories(proc.resolve("irq/" + irq));
+        Files.writeString(dir.resolve("smp_affinity_list"), cpuList + "\n");
+    }
+}
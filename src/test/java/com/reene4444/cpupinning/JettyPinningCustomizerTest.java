@@ -0,0 +1,169 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.core.NumaTopology;
+import com.reene4444.cpupinning.spring.web.JettyPinningCustomizer;
+import com.reene4444.cpupinning.spring.web.WebThreadPlacement;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.embedded.jetty.ConfigurableJettyWebServerFactory;
+import org.springframework.boot.web.embedded.jetty.JettyServerCustomizer;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class JettyPinningCustomizerTest {
+    
+    private static final int REQUESTS = 4;
+    
+    private Server server;
+    
+    @After
+    public void tearDown() throws Exception {
+        if (server != null) {
+            server.stop();
+        }
+    }
+    
+    @Test
+    public void testRequestsServedByWorkerPool() throws Exception {
+        Set<Integer> cpus = NumaTopology.getInstance().getEffectiveCpus();
+        server = customizedServer(new JettyPinningCustomizer(new WebThreadPlacement(cpus, cpus), new ServerProperties()), null);
+    
+        // Every handler waits for the others, so all requests are served at the same time
+        Set<String> handlerThreads = ConcurrentHashMap.newKeySet();
+        CountDownLatch concurrent = new CountDownLatch(REQUESTS);
+        server.setHandler(new Handler.Abstract() {
+            @Override
+            public boolean handle(Request request, Response response, Callback callback) throws Exception {
+                handlerThreads.add(Thread.currentThread().getName());
+                concurrent.countDown();
+                concurrent.await(5, TimeUnit.SECONDS);
+                response.write(true, ByteBuffer.wrap("ok".getBytes(StandardCharsets.UTF_8)), callback);
+                return true;
+            }
+        });
+        server.start();
+    
+        ServerConnector connector = (ServerConnector) server.getConnectors()[0];
+        assertSame(server.getThreadPool(), connector.getExecutor());
+    
+        HttpClient client = HttpClient.newHttpClient();
+        URI uri = URI.create("http://localhost:" + connector.getLocalPort() + "/");
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            responses.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(200, response.get(10, TimeUnit.SECONDS).statusCode());
+        }
+    
+        assertEquals("requests served concurrently", 0, concurrent.getCount());
+        assertEquals(REQUESTS, handlerThreads.size());
+        for (String name : handlerThreads) {
+            assertTrue(name, name.startsWith("jetty-worker-"));
+        }
+    }
+    
+    @Test
+    public void testKeepsLimitsOfExistingPool() throws Exception {
+        Set<Integer> cpus = NumaTopology.getInstance().getEffectiveCpus();
+        ServerProperties properties = new ServerProperties();
+        properties.getJetty().getThreads().setMaxQueueCapacity(10);
+        QueuedThreadPool existing = new QueuedThreadPool(12, 3, 5000);
+        existing.setName("boot-pool");
+        server = customizedServer(new JettyPinningCustomizer(new WebThreadPlacement(cpus, cpus), properties), existing);
+    
+        QueuedThreadPool pool = (QueuedThreadPool) server.getThreadPool();
+        assertNotSame(existing, pool);
+        assertEquals(12, pool.getMaxThreads());
+        assertEquals(3, pool.getMinThreads());
+        assertEquals(5000, pool.getIdleTimeout());
+        assertEquals("boot-pool", pool.getName());
+        Method getQueue = QueuedThreadPool.class.getDeclaredMethod("getQueue");
+        getQueue.setAccessible(true);
+        assertEquals(10, ((BlockingQueue<?>) getQueue.invoke(pool)).remainingCapacity());
+    }
+    
+    @Test
+    public void testVirtualThreadPoolLeftAlone() throws Exception {
+        Set<Integer> cpus = NumaTopology.getInstance().getEffectiveCpus();
+        // Stands in for Spring Boot's pool when spring.threads.virtual.enabled is set
+        QueuedThreadPool existing = new QueuedThreadPool() {
+            @Override
+            public Executor getVirtualThreadsExecutor() {
+                return Runnable::run;
+            }
+        };
+        server = customizedServer(new JettyPinningCustomizer(new WebThreadPlacement(cpus, cpus), new ServerProperties()), 
+                                  existing);
+        assertSame(existing, server.getThreadPool());
+    }
+    
+    /**
+     * What the customizer reads the current pool through, as Spring Boot's Jetty factories expose it
+     */
+    public interface ThreadPoolHolder {
+        ThreadPool getThreadPool();
+    }
+    
+    /**
+     * A server built the way Spring Boot's Jetty factory would after applying the customizer
+     */
+    private static Server customizedServer(JettyPinningCustomizer customizer, ThreadPool existing) {
+        ThreadPool[] threadPool = { existing };
+        List<JettyServerCustomizer> serverCustomizers = new ArrayList<>();
+        ConfigurableJettyWebServerFactory factory = (ConfigurableJettyWebServerFactory) Proxy.newProxyInstance(
+            JettyPinningCustomizerTest.class.getClassLoader(), 
+            new Class<?>[] { ConfigurableJettyWebServerFactory.class, ThreadPoolHolder.class },
+            (proxy, method, args) -> {
+                if (method.getName().equals("getThreadPool")) {
+                    return threadPool[0];
+                } else if (method.getName().equals("setThreadPool")) {
+                    threadPool[0] = (ThreadPool) args[0];
+                } else if (method.getName().equals("addServerCustomizers")) {
+                    serverCustomizers.addAll(List.of((JettyServerCustomizer[]) args[0]));
+                }
+                return null;
+            });
+        customizer.customize(factory);
+        assertNotNull(threadPool[0]);
+    
+        Server server = new Server(threadPool[0]);
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(0);
+        server.addConnector(connector);
+        serverCustomizers.forEach(serverCustomizer -> serverCustomizer.customize(server));
+    
+        Connector[] connectors = server.getConnectors();
+        assertEquals(1, connectors.length);
+        assertNotSame(connector, connectors[0]);
+        return server;
+    }
+}
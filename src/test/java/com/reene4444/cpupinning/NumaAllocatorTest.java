@@ -0,0 +1,122 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.core.AffinityScope;
+import com.reene4444.cpupinning.core.NumaTopology;
+import com.reene4444.cpupinning.numa.MemoryPolicy;
+import com.reene4444.cpupinning.numa.NumaAllocator;
+import com.reene4444.cpupinning.numa.NumaBuffer;
+import com.reene4444.cpupinning.numa.NumaSlabPool;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local vs remote bandwidth benchmark: run with -Pbenchmarks -Dnuma.rounds=100 on a multi-node host
+ */
+public class NumaAllocatorTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(NumaAllocatorTest.class);
+    private static final int ROUNDS = Integer.getInteger("numa.rounds", 4);
+    private static final int BUFFER_BYTES = 32 * 1024 * 1024;
+    
+    @Test
+    public void testAllocatesOnRequestedNode() {
+        NumaAllocator allocator = NumaAllocator.getInstance();
+        int node = NumaTopology.getInstance().getNumaNodes().iterator().next();
+        try (NumaBuffer buffer = allocator.allocate(10_000, node, MemoryPolicy.BIND)) {
+            assertEquals(10_000, buffer.getCapacity());
+            buffer.getBuffer().putLong(9_992, 42L);
+            assertEquals(42L, buffer.getBuffer().getLong(9_992));
+            if (buffer.isBound()) {
+                assertEquals(node, buffer.getActualNode());
+            }
+        }
+    }
+    
+    @Test
+    public void testRejectsUnknownNode() {
+        NumaAllocator allocator = NumaAllocator.getInstance();
+        boolean binding = allocator.isBindingSupported();
+        for (int node : new int[] { -1, 1024, Collections.max(NumaTopology.getInstance().getNumaNodes()) + 1 }) {
+            try {
+                allocator.allocate(4096, node, MemoryPolicy.BIND);
+                fail("node " + node + " does not exist");
+            } catch (IllegalArgumentException expected) {
+                // A caller error must not turn mbind off for the process
+                assertEquals(binding, allocator.isBindingSupported());
+            }
+        }
+    }
+    
+    @Test
+    public void testSlabPoolRecyclesPerNode() {
+        int node = NumaTopology.getInstance().getNumaNodes().iterator().next();
+        try (NumaSlabPool pool = new NumaSlabPool(NumaAllocator.getInstance(), 64 * 1024, 2, MemoryPolicy.PREFERRED)) {
+            NumaBuffer first = pool.acquire(node);
+            first.getBuffer().position(100);
+            first.close();
+            assertEquals(1, pool.getFreeCount(node));
+    
+            NumaBuffer second = pool.acquire(node);
+            assertSame(first, second);
+            assertEquals(0, second.getBuffer().position());
+            assertEquals(1, pool.getReuseCount());
+    
+            List<NumaBuffer> held = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                held.add(pool.acquire(node));
+            }
+            held.forEach(NumaBuffer::close);
+            second.close();
+            second.close();
+            assertEquals(2, pool.getFreeCount(node));
+            assertEquals(5, pool.getAllocatedCount());
+        }
+    }
+    
+    @Test
+    @Category(Benchmark.class)
+    public void testLocalVersusRemoteBandwidth() {
+        NumaTopology topology = NumaTopology.getInstance();
+        NumaAllocator allocator = NumaAllocator.getInstance();
+        List<Integer> nodes = new ArrayList<>(topology.getNumaNodes());
+        int reader = nodes.get(0);
+        // With a single node "remote" is the same node, which keeps the benchmark runnable
+        int remote = nodes.get(nodes.size() - 1);
+    
+        try (AffinityScope scope = AffinityScope.enter(new HashSet<>(topology.getCpusInNode(reader)));
+             NumaBuffer local = allocator.allocate(BUFFER_BYTES, reader, MemoryPolicy.BIND);
+             NumaBuffer far = allocator.allocate(BUFFER_BYTES, remote, MemoryPolicy.BIND)) {
+            double localGbps = 0;
+            double remoteGbps = 0;
+            for (int pass = 0; pass < 2; pass++) {
+                localGbps = bandwidth(local.getBuffer());
+                remoteGbps = bandwidth(far.getBuffer());
+            }
+            logger.info(String.format("NUMA bandwidth x%d (%s): node %d -> node %d %.2f GB/s, node %d -> node %d %.2f GB/s",
+                                      ROUNDS, local.isBound() ? "mbind" : "first-touch fallback",
+                                      reader, reader, localGbps, reader, remote, remoteGbps));
+        }
+    }
+    
+    private static double bandwidth(ByteBuffer buffer) {
+        long start = System.nanoTime();
+        long sum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int offset = 0; offset + Long.BYTES <= buffer.capacity(); offset += Long.BYTES) {
+                sum += buffer.getLong(offset);
+            }
+        }
+        assertEquals(0, sum);
+        return (double) ROUNDS * buffer.capacity() / (System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,199 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.core.NumaTopology;
+import com.reene4444.cpupinning.numa.NumaExecutor;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Memory-bandwidth benchmark: run with -Pbenchmarks -Dnuma.rounds=200 on a 2-node host to compare
+ * node-local with cross-node routing
+ */
+public class NumaExecutorTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(NumaExecutorTest.class);
+    private static final int ROUNDS = Integer.getInteger("numa.rounds", 4);
+    private static final int BUFFER_BYTES = 32 * 1024 * 1024;
+    
+    @Test
+    public void testRoutesByNodeAndKey() throws Exception {
+        Set<Integer> cpus = NumaTopology.getInstance().getEffectiveCpus();
+        NumaExecutor executor = new NumaExecutor("route", Map.of(0, cpus, 1, cpus), 1);
+        try {
+            assertEquals("route-node1-0", executor.submit(1, () -> Thread.currentThread().getName()).get());
+            for (int key = 0; key < 16; key++) {
+                String expected = "route-node" + executor.nodeForKey(key) + "-0";
+                assertEquals(expected, executor.submitByKey(key, () -> Thread.currentThread().getName()).get());
+            }
+            assertEquals(0, executor.getCrossNodeSteals(0) + executor.getCrossNodeSteals(1));
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testWorkerSurvivesFailingTasks() throws Exception {
+        Set<Integer> cpus = NumaTopology.getInstance().getEffectiveCpus();
+        NumaExecutor executor = new NumaExecutor("failing", Map.of(0, cpus), 1);
+        try {
+            executor.execute(0, () -> {
+                throw new IllegalStateException("task failure");
+            });
+            executor.execute(0, () -> {
+                throw new AssertionError("task error");
+            });
+            assertEquals("ok", executor.submit(0, () -> "ok").get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testTasksAcceptedDuringShutdownStillRun() throws Exception {
+        Set<Integer> cpus = NumaTopology.getInstance().getEffectiveCpus();
+        for (int round = 0; round < 20; round++) {
+            NumaExecutor executor = new NumaExecutor("racing", Map.of(0, cpus, 1, cpus), 1);
+            List<Future<?>> accepted = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch submitting = new CountDownLatch(2);
+            List<Thread> submitters = new ArrayList<>();
+            for (int node = 0; node < 2; node++) {
+                int target = node;
+                Thread submitter = new Thread(() -> {
+                    submitting.countDown();
+                    try {
+                        while (true) {
+                            accepted.add(executor.submit(target, () -> null));
+                        }
+                    } catch (RejectedExecutionException e) {
+                        // shut down
+                    }
+                });
+                submitters.add(submitter);
+                submitter.start();
+            }
+            assertTrue(submitting.await(5, TimeUnit.SECONDS));
+            executor.shutdown();
+            for (Thread submitter : submitters) {
+                submitter.join(5000);
+            }
+    
+            // Every task that was not rejected completes, none is stranded in a queue
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            for (Future<?> future : accepted) {
+                assertTrue(future.isDone());
+            }
+            assertEquals(0, executor.getQueueDepth(0) + executor.getQueueDepth(1));
+        }
+    }
+    
+    @Test
+    public void testStealsOnlyAboveThreshold() throws Exception {
+        Set<Integer> cpus = NumaTopology.getInstance().getEffectiveCpus();
+        NumaExecutor executor = new NumaExecutor("steal", Map.of(0, cpus, 1, cpus), 1);
+        executor.setStealThreshold(4);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // Block node 0's only worker, then queue up to the threshold behind it
+            executor.execute(0, () -> {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 4; i++) {
+                executor.execute(0, () -> { });
+            }
+            Thread.sleep(100);
+            assertEquals(0, executor.getCrossNodeSteals(1));
+    
+            for (int i = 0; i < 4; i++) {
+                executor.execute(0, () -> { });
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (executor.getQueueDepth(0) > 4 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(4, executor.getQueueDepth(0));
+            assertEquals(4, executor.getCrossNodeSteals(1));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(5, executor.getCompletedTasks(0));
+    }
+    
+    @Test
+    @Category(Benchmark.class)
+    public void testMemoryBandwidthBenchmark() throws Exception {
+        NumaExecutor executor = new NumaExecutor("bandwidth", 0);
+        try {
+            List<Integer> nodes = new ArrayList<>(executor.getNodes());
+            // Direct buffers are zeroed, so first touch places their pages on the allocating worker's node
+            List<ByteBuffer> buffers = new ArrayList<>();
+            for (Integer node : nodes) {
+                buffers.add(executor.submit(node, () -> ByteBuffer.allocateDirect(BUFFER_BYTES)).get());
+            }
+    
+            double localGbps = 0;
+            double remoteGbps = 0;
+            for (int pass = 0; pass < 2; pass++) {
+                localGbps = bandwidth(executor, nodes, buffers, 0);
+                remoteGbps = bandwidth(executor, nodes, buffers, 1);
+            }
+            logger.info(String.format("memory bandwidth over %d node(s) x%d: node-local %.2f GB/s, cross-node %.2f GB/s",
+                                      nodes.size(), ROUNDS, localGbps, remoteGbps));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Stream every buffer from the node {@code offset} positions after its owner
+     */
+    private static double bandwidth(NumaExecutor executor, List<Integer> nodes, List<ByteBuffer> buffers,
+                                    int offset) throws Exception {
+        long start = System.nanoTime();
+        List<Future<Long>> sums = new ArrayList<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < buffers.size(); i++) {
+                ByteBuffer buffer = buffers.get(i).duplicate();
+                sums.add(executor.submit(nodes.get((i + offset) % nodes.size()), () -> sum(buffer)));
+            }
+        }
+        for (Future<Long> sum : sums) {
+            assertEquals(0L, (long) sum.get());
+        }
+        long bytes = (long) ROUNDS * buffers.size() * BUFFER_BYTES;
+        return bytes / (double) (System.nanoTime() - start);
+    }
+    
+    private static long sum(ByteBuffer buffer) {
+        long sum = 0;
+        while (buffer.remaining() >= Long.BYTES) {
+            sum += buffer.getLong();
+        }
+        return sum;
+    }
+}
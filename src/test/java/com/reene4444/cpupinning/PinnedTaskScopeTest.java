@@ -0,0 +1,151 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.core.CpuAffinity;
+import com.reene4444.cpupinning.virtual.PinnedTaskScope;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Scatter-gather benchmark: run with -Pbenchmarks -Dscatter.rounds=20000 for stable numbers
+ */
+public class PinnedTaskScopeTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PinnedTaskScopeTest.class);
+    private static final int ROUNDS = Integer.getInteger("scatter.rounds", 200);
+    private static final int FAN_OUT = 8;
+    private static final int SHARD = 64 * 1024;
+    
+    @Test
+    public void testScatterGatherRunsOnScopeCpus() throws Exception {
+        try (PinnedTaskScope<Integer> scope = PinnedTaskScope.open()) {
+            for (int i = 0; i < FAN_OUT; i++) {
+                int value = i;
+                scope.fork(() -> {
+                    assertTrue(scope.getCpus().containsAll(CpuAffinity.getThreadAffinity()));
+                    return value * value;
+                });
+            }
+            scope.join();
+    
+            int sum = 0;
+            for (int result : scope.results()) {
+                sum += result;
+            }
+            assertEquals(140, sum);
+        }
+    }
+    
+    @Test
+    public void testFailureCancelsSiblings() throws Exception {
+        Future<Integer> slow;
+        try (PinnedTaskScope<Integer> scope = PinnedTaskScope.open()) {
+            scope.fork(() -> {
+                throw new IllegalStateException("boom");
+            });
+            // Cancelled before it starts on one CPU, interrupted while sleeping on more
+            slow = scope.fork(() -> {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                return 1;
+            });
+            try {
+                scope.join();
+                fail("Expected the failing subtask to be rethrown");
+            } catch (ExecutionException e) {
+                assertEquals("boom", e.getCause().getMessage());
+            }
+            assertTrue(scope.isShutdown());
+            assertTrue(scope.fork(() -> 2).isCancelled());
+        }
+        try {
+            slow.get();
+            fail("Expected the sibling to be cancelled");
+        } catch (CancellationException expected) {
+        }
+    }
+    
+    @Test
+    @Category(Benchmark.class)
+    public void testScatterGatherBenchmark() throws Exception {
+        long[][] shards = new long[FAN_OUT][SHARD];
+        for (long[] shard : shards) {
+            for (int i = 0; i < shard.length; i++) {
+                shard[i] = i;
+            }
+        }
+        long expected = (long) FAN_OUT * SHARD * (SHARD - 1) / 2;
+    
+        ExecutorService unpinned = Executors.newFixedThreadPool(FAN_OUT);
+        try {
+            // Warm up both paths before timing
+            long scopeNanos = 0;
+            long poolNanos = 0;
+            for (int pass = 0; pass < 2; pass++) {
+                scopeNanos = time(() -> assertEquals(expected, scatterGatherInScope(shards)));
+                poolNanos = time(() -> assertEquals(expected, scatterGatherInPool(unpinned, shards)));
+            }
+            logger.info(String.format("scatter-gather x%d: PinnedTaskScope %.1f us/round, fixed pool %.1f us/round",
+                                      ROUNDS, scopeNanos / 1000.0 / ROUNDS, poolNanos / 1000.0 / ROUNDS));
+        } finally {
+            unpinned.shutdownNow();
+        }
+    }
+    
+    private interface Body {
+        void run() throws Exception;
+    }
+    
+    private static long time(Body body) throws Exception {
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            body.run();
+        }
+        return System.nanoTime() - start;
+    }
+    
+    private static long scatterGatherInScope(long[][] shards) throws Exception {
+        try (PinnedTaskScope<Long> scope = PinnedTaskScope.open()) {
+            for (long[] shard : shards) {
+                scope.fork(() -> sum(shard));
+            }
+            scope.join();
+            long total = 0;
+            for (long partial : scope.results()) {
+                total += partial;
+            }
+            return total;
+        }
+    }
+    
+    private static long scatterGatherInPool(ExecutorService pool, long[][] shards) throws Exception {
+        List<Future<Long>> partials = new ArrayList<>();
+        for (long[] shard : shards) {
+            partials.add(pool.submit(() -> sum(shard)));
+        }
+        long total = 0;
+        for (Future<Long> partial : partials) {
+            total += partial.get();
+        }
+        return total;
+    }
+    
+    private static long sum(long[] shard) {
+        long sum = 0;
+        for (long value : shard) {
+            sum += value;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,89 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.adaptive.AdaptiveAffinityEngine;
+import com.reene4444.cpupinning.adaptive.PlacementCache;
+import com.reene4444.cpupinning.adaptive.WorkloadClassifier;
+import com.reene4444.cpupinning.business.BusinessIsolationManager;
+import com.reene4444.cpupinning.core.WorkloadType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class PlacementCacheTest {
+    
+    private Path directory;
+    private Path file;
+    private AdaptiveAffinityEngine learned;
+    private AdaptiveAffinityEngine restarted;
+    
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("placement-cache");
+        file = directory.resolve("placement.properties");
+        learned = new AdaptiveAffinityEngine();
+        restarted = new AdaptiveAffinityEngine();
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        learned.shutdown();
+        restarted.shutdown();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+    
+    @Test
+    public void testRestoresLearnedStateOnSameTopology() throws Exception {
+        WorkloadClassifier classifier = learned.getWorkloadClassifier();
+        for (int i = 0; i < 10; i++) {
+            // 100 ms of wall time, all of it on CPU
+            classifier.record("OrderService.price()", 100_000_000L, 100_000_000L, 0, 0);
+        }
+        assertEquals(WorkloadType.CPU_INTENSIVE, classifier.getWorkloadType("OrderService.price()"));
+    
+        PlacementCache cache = new PlacementCache(file, learned, BusinessIsolationManager.getInstance());
+        assertTrue(cache.save());
+        assertFalse("unchanged state must not be written again", cache.save());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(file), files.collect(Collectors.toList()));
+        }
+    
+        PlacementCache restore = new PlacementCache(file, restarted, BusinessIsolationManager.getInstance());
+        assertTrue(restore.restore());
+        assertEquals(learned.getLearnedWorkloadCpus().entrySet().stream()
+                         .filter(entry -> !entry.getValue().isEmpty()).collect(Collectors.toSet()),
+                     restarted.getLearnedWorkloadCpus().entrySet().stream()
+                         .filter(entry -> !entry.getValue().isEmpty()).collect(Collectors.toSet()));
+        assertEquals(WorkloadType.CPU_INTENSIVE,
+                     restarted.getWorkloadClassifier().getWorkloadType("OrderService.price()"));
+        assertFalse("restored state is not written back", restore.save());
+    }
+    
+    @Test
+    public void testIgnoresOtherTopologyOrVersion() throws Exception {
+        new PlacementCache(file, learned, BusinessIsolationManager.getInstance()).save();
+        String saved = Files.readString(file, StandardCharsets.UTF_8);
+    
+        Files.writeString(file, saved.replaceAll("fingerprint=\\w+", "fingerprint=0123"), StandardCharsets.UTF_8);
+        assertFalse(new PlacementCache(file, restarted, BusinessIsolationManager.getInstance()).restore());
+    
+        Files.writeString(file, saved.replace("version=1", "version=99"), StandardCharsets.UTF_8);
+        assertFalse(new PlacementCache(file, restarted, BusinessIsolationManager.getInstance()).restore());
+    
+        Files.delete(file);
+        assertFalse(new PlacementCache(file, restarted, BusinessIsolationManager.getInstance()).restore());
+    }
+}
@@ -0,0 +1,136 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.adaptive.CpuSelection;
+import com.reene4444.cpupinning.adaptive.MigrationPolicy;
+import com.reene4444.cpupinning.core.MigrationReason;
+import com.reene4444.cpupinning.core.SmtMode;
+import com.reene4444.cpupinning.core.WorkloadType;
+import com.reene4444.cpupinning.sim.AllocationPolicy;
+import com.reene4444.cpupinning.sim.EnginePolicy;
+import com.reene4444.cpupinning.sim.PlacementSimulator;
+import com.reene4444.cpupinning.sim.SimTopology;
+import com.reene4444.cpupinning.sim.SimulatedThread;
+import com.reene4444.cpupinning.sim.SimulationState;
+import com.reene4444.cpupinning.sim.SimulationReport;
+import com.reene4444.cpupinning.sim.Trace;
+import com.reene4444.cpupinning.sim.TraceRecord;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+/**
+ * Policy comparison on a synthetic trace: run with -Pbenchmarks -Dsim.threads=256 for a larger fleet
+ */
+public class PlacementSimulatorTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PlacementSimulatorTest.class);
+    private static final int THREADS = Integer.getInteger("sim.threads", 32);
+    
+    private static final String OVERLOADED = String.join("\n",
+        "# two threads sharing CPU 0 of a two-CPU box",
+        "0 a PIN MIXED 0",
+        "0 b PIN MIXED 0",
+        "500 a SAMPLE latency=150 qps=200 cpu=500",
+        "500 b SAMPLE latency=150 qps=200 cpu=500",
+        "1500 a SAMPLE latency=150 qps=200 cpu=1000",
+        "1500 b SAMPLE latency=150 qps=200 cpu=1000",
+        "2500 b MIGRATE 1",
+        "2500 a SAMPLE latency=150 qps=200 cpu=1000",
+        "2500 b SAMPLE latency=150 qps=200 cpu=1000",
+        "3000 a EXIT",
+        "3000 b EXIT");
+    
+    @Test
+    public void testSameTraceSameReport() {
+        SimTopology topology = SimTopology.synthetic(2, 4, 2);
+        Trace trace = Trace.synthetic(42, 16, 60_000, 500);
+        String first = new PlacementSimulator(topology, new EnginePolicy()).run(trace).toString();
+        String second = new PlacementSimulator(topology, new EnginePolicy()).run(Trace.synthetic(42, 16, 60_000, 500))
+            .toString();
+        assertEquals(first, second);
+    }
+    
+    @Test
+    public void testSharedCpuSelection() {
+        Set<Integer> cpus = Set.of(0, 1, 2, 3, 4, 5, 6, 7);
+        List<Integer> quiet = List.of(6, 7, 0, 1, 2, 3, 4, 5);
+        assertEquals(Set.of(0, 1, 2, 3), CpuSelection.defaultCpus(WorkloadType.CPU_INTENSIVE, cpus, quiet));
+        assertEquals(Set.of(4, 5, 6, 7), CpuSelection.defaultCpus(WorkloadType.IO_INTENSIVE, cpus, quiet));
+        assertEquals(Set.of(6, 7), CpuSelection.defaultCpus(WorkloadType.LOW_LATENCY, cpus, quiet));
+        assertEquals(Set.of(0), CpuSelection.defaultCpus(WorkloadType.CPU_INTENSIVE, Set.of(0), List.of(0)));
+    
+        // Siblings numbered 4 apart; LOW_LATENCY runs one thread per core and keeps the other sibling idle
+        Function<Integer, Set<Integer>> siblings = cpu -> Set.of(cpu % 4, cpu % 4 + 4);
+        Map<WorkloadType, Set<Integer>> configured = Map.of(WorkloadType.LOW_LATENCY, Set.of(0, 4),
+                                                            WorkloadType.MIXED, cpus);
+        Map<WorkloadType, SmtMode> modes = Map.of(WorkloadType.LOW_LATENCY, SmtMode.HT_OFF);
+        assertEquals(Set.of(0), CpuSelection.select(WorkloadType.LOW_LATENCY, configured::get, modes, cpus, siblings));
+        assertEquals(Set.of(1, 2, 3, 5, 6, 7), 
+                     CpuSelection.select(WorkloadType.MIXED, configured::get, modes, cpus, siblings));
+    }
+    
+    @Test
+    public void testEnginePolicyMovesOverloadedThreads() {
+        SimTopology topology = SimTopology.synthetic(1, 2, 1);
+        Trace trace = Trace.parse(OVERLOADED);
+    
+        PlacementSimulator engine = new PlacementSimulator(topology, new EnginePolicy(new MigrationPolicy(100, 100)));
+        engine.setReviewIntervalMs(1000);
+        SimulationReport moved = engine.run(trace);
+        assertTrue(moved.getMigrationCount() > 0);
+        assertTrue(moved.getMigrations().containsKey(MigrationReason.HIGH_LATENCY));
+        assertEquals(1, moved.getRecordedMigrations());
+    
+        AllocationPolicy stay = new AllocationPolicy() {
+            @Override
+            public Set<Integer> place(SimulatedThread thread, SimulationState state) {
+                return state.getTopology().getCpus();
+            }
+    
+            @Override
+            public Migration review(SimulatedThread thread, SimulationState state) {
+                return null;
+            }
+        };
+        PlacementSimulator stayingPut = new PlacementSimulator(topology, stay);
+        stayingPut.setReviewIntervalMs(1000);
+        SimulationReport stayed = stayingPut.run(trace);
+        assertEquals(0, stayed.getMigrationCount());
+        assertEquals(2.0, stayed.getPeakUtilization().get(0), 1e-9);
+        // Both threads stay on one overcommitted CPU, so latency is projected at twice the recording
+        assertEquals(300.0, stayed.getLatencyPercentile(99), 1e-9);
+    }
+    
+    @Test
+    public void testTraceTextRoundTrip() {
+        Trace trace = Trace.synthetic(7, 4, 2_000, 250)
+            .merge(Trace.of(List.of(TraceRecord.migrate(1_000, "mixed-2", Set.of(1, 2, 3)))));
+        StringBuilder text = new StringBuilder();
+        for (TraceRecord record : trace.getRecords()) {
+            text.append(record).append('\n');
+        }
+        assertEquals(trace.getRecords().toString(), Trace.parse(text.toString()).getRecords().toString());
+    }
+    
+    @Test
+    @Category(Benchmark.class)
+    public void testPolicyComparison() {
+        SimTopology topology = SimTopology.synthetic(2, 8, 2);
+        Trace trace = Trace.synthetic(1, THREADS, 120_000, 500);
+        for (MigrationPolicy policy : new MigrationPolicy[] {new MigrationPolicy(100, 100), new MigrationPolicy(50, 10)}) {
+            SimulationReport report = new PlacementSimulator(topology, new EnginePolicy(policy)).run(trace);
+            logger.info(String.format("simulated %d thread(s) on %s with %s: %d migration(s), p99 %.1f ms, "
+                                      + "%d overcommitted window(s)", THREADS, topology, policy,
+                                      report.getMigrationCount(), report.getLatencyPercentile(99),
+                                      report.getOvercommittedWindows()));
+        }
+    }
+}
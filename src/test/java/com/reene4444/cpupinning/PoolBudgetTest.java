@@ -0,0 +1,187 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.business.BusinessIsolationManager;
+import com.reene4444.cpupinning.business.PoolExecutor;
+import com.reene4444.cpupinning.business.TaskPriority;
+import com.reene4444.cpupinning.chaos.LatencyHistogram;
+import com.reene4444.cpupinning.core.NumaTopology;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Per-pool CPU budgets: run with -Pbenchmarks -Dbudget.millis=10000 for stable latency numbers
+ */
+public class PoolBudgetTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PoolBudgetTest.class);
+    private static final long MILLIS = Long.getLong("budget.millis", 500);
+    private static final ThreadMXBean THREAD_MX = ManagementFactory.getThreadMXBean();
+    
+    private final BusinessIsolationManager manager = BusinessIsolationManager.getInstance();
+    private final String pool = "budget";
+    private PoolExecutor executor;
+    
+    @Before
+    public void setUp() {
+        manager.registerBusinessPool(pool, NumaTopology.getInstance().getEffectiveCpus());
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        if (executor != null) {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+        assertTrue(manager.unregisterBusinessPool(pool));
+        assertNull(manager.getBusinessPool(pool));
+    }
+    
+    @Test
+    public void testLatencyFirstAndFastRejection() throws Exception {
+        executor = new PoolExecutor(pool, 1, 2);
+        BusinessIsolationManager.CpuPool cpuPool = manager.getBusinessPool(pool);
+        long rejectedBefore = cpuPool.getRejectedTasks();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(TaskPriority.LATENCY, () -> {
+            blocked.countDown();
+            await(release);
+        });
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    
+        List<String> order = new CopyOnWriteArrayList<>();
+        executor.execute(() -> order.add("batch"));
+        Future<?> latency = executor.submit(TaskPriority.LATENCY, () -> order.add("latency"));
+        long start = System.nanoTime();
+        try {
+            executor.execute(TaskPriority.LATENCY, () -> order.add("rejected"));
+            fail("a saturated pool must reject");
+        } catch (RejectedExecutionException expected) {
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        assertEquals(rejectedBefore + 1, cpuPool.getRejectedTasks());
+    
+        release.countDown();
+        latency.get(5, TimeUnit.SECONDS);
+        executor.submit(TaskPriority.BATCH, () -> { }).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("latency", "batch"), order);
+    }
+    
+    @Test
+    public void testWorkerSurvivesFailingTasks() throws Exception {
+        executor = new PoolExecutor(pool, 1, 4);
+        executor.execute(() -> {
+            throw new IllegalStateException("task failure");
+        });
+        executor.execute(() -> {
+            throw new AssertionError("task error");
+        });
+        assertEquals("ok", executor.submit(TaskPriority.BATCH, () -> "ok").get(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testBudgetDelaysBatchButNotLatency() throws Exception {
+        // 5 ms of CPU per 100 ms: every 10 ms batch task leaves the pool in debt
+        manager.setCpuBudget(pool, 0.05, 100);
+        executor = new PoolExecutor(pool, 1, 16);
+        BusinessIsolationManager.CpuPool cpuPool = manager.getBusinessPool(pool);
+        long throttledBefore = cpuPool.getThrottledTasks();
+        long cpuBefore = cpuPool.getCpuNanos();
+    
+        executor.submit(TaskPriority.BATCH, () -> spin(10)).get(5, TimeUnit.SECONDS);
+        long start = System.nanoTime();
+        Future<?> batch = executor.submit(TaskPriority.BATCH, () -> spin(10));
+        executor.submit(TaskPriority.LATENCY, () -> spin(1)).get(5, TimeUnit.SECONDS);
+        long latencyNanos = System.nanoTime() - start;
+        assertFalse("batch work waits for the budget", batch.isDone());
+    
+        batch.get(5, TimeUnit.SECONDS);
+        long batchNanos = System.nanoTime() - start;
+        assertTrue("latency task took " + latencyNanos / 1_000_000 + " ms", latencyNanos < batchNanos);
+        assertTrue(cpuPool.getThrottledTasks() > throttledBefore);
+        // Workers charge a task after its future completes
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(cpuPool.getCpuNanos() - cpuBefore >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(cpuPool.getBudget().getUsage() > 0);
+    }
+    
+    @Test
+    @Category(Benchmark.class)
+    public void testLatencyUnderBatchFloodBenchmark() throws Exception {
+        LatencyHistogram unlimited = flood(0);
+        LatencyHistogram budgeted = flood(0.25);
+        logger.info(String.format("latency tasks under a batch flood, %d ms each: unlimited p50 %.2f ms p99 %.2f ms, "
+                                  + "0.25 CPU budget p50 %.2f ms p99 %.2f ms", MILLIS,
+                                  unlimited.getPercentileNanos(50) / 1e6, unlimited.getPercentileNanos(99) / 1e6,
+                                  budgeted.getPercentileNanos(50) / 1e6, budgeted.getPercentileNanos(99) / 1e6));
+        assertTrue(unlimited.getCount() > 0 && budgeted.getCount() > 0);
+    }
+    
+    /**
+     * Keep the batch queue full of 2 ms tasks while probing with tiny latency tasks every millisecond
+     */
+    private LatencyHistogram flood(double budgetCpus) throws Exception {
+        manager.setCpuBudget(pool, budgetCpus, 20);
+        executor = new PoolExecutor(pool, 2, 1024);
+        LatencyHistogram histogram = new LatencyHistogram();
+        AtomicLong pending = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MILLIS);
+        while (System.nanoTime() < deadline) {
+            while (executor.getQueueDepth(TaskPriority.BATCH) < 4) {
+                executor.execute(() -> spin(2));
+            }
+            long submitted = System.nanoTime();
+            pending.incrementAndGet();
+            executor.execute(TaskPriority.LATENCY, () -> {
+                long latency = System.nanoTime() - submitted;
+                synchronized (histogram) {
+                    histogram.record(latency);
+                }
+                pending.decrementAndGet();
+            });
+            Thread.sleep(1);
+        }
+        long drain = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pending.get() > 0 && System.nanoTime() < drain) {
+            Thread.sleep(1);
+        }
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        executor = null;
+        synchronized (histogram) {
+            return histogram;
+        }
+    }
+    
+    private static void spin(long cpuMillis) {
+        long end = THREAD_MX.getCurrentThreadCpuTime() + TimeUnit.MILLISECONDS.toNanos(cpuMillis);
+        while (THREAD_MX.getCurrentThreadCpuTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.core.CpuAffinity;
+import com.reene4444.cpupinning.core.SchedPolicy;
+import com.reene4444.cpupinning.core.SchedulingProfile;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SchedulingProfileTest {
+    
+    @Test
+    public void testParsesProfiles() {
+        assertEquals(SchedulingProfile.batch(0), SchedulingProfile.parse("batch"));
+        assertEquals(SchedulingProfile.normal(-5).withUtilClamp(512, 1024), 
+                     SchedulingProfile.parse(" Other:-5 , uclamp=512-1024"));
+        assertEquals(SchedulingProfile.fifo(10), SchedulingProfile.parse("fifo:10"));
+        for (String spec : new String[] {"batch:0", "idle", "rr:3", "other:-5,uclamp=0-256"}) {
+            assertEquals(spec, SchedulingProfile.parse(spec).toString());
+        }
+        for (String invalid : new String[] {"fifo", "fifo:99", "other:25", "deadline", "batch,uclamp=9-1"}) {
+            try {
+                SchedulingProfile.parse(invalid);
+                fail("Expected '" + invalid + "' to be rejected");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+    
+    @Test
+    public void testAppliesOrDegradesOnFreshThread() throws Exception {
+        // Child threads start with the default policy, so the test runner is not affected
+        AtomicReference<SchedulingProfile> batch = new AtomicReference<>();
+        AtomicReference<SchedulingProfile> fifo = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            batch.set(CpuAffinity.applySchedulingProfile(0, SchedulingProfile.batch(5)));
+            fifo.set(CpuAffinity.applySchedulingProfile(0, SchedulingProfile.fifo(1)));
+        });
+        thread.start();
+        thread.join();
+        if (CpuAffinity.getSchedulingProfile(0) == null) {
+            // No sched_getattr on this platform
+            assertNull(batch.get());
+            return;
+        }
+        assertEquals(SchedulingProfile.batch(5), batch.get());
+        // Without CAP_SYS_NICE the real-time request falls back to SCHED_OTHER
+        assertTrue(fifo.get().getPolicy() == SchedPolicy.FIFO || fifo.get().getPolicy() == SchedPolicy.OTHER);
+    }
+}
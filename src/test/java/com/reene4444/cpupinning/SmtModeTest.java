@@ -0,0 +1,155 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.adaptive.CpuSelection;
+import com.reene4444.cpupinning.core.AffinityScope;
+import com.reene4444.cpupinning.core.NumaTopology;
+import com.reene4444.cpupinning.core.SmtMode;
+import com.reene4444.cpupinning.core.WorkloadType;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sibling interference benchmark: run with -Pbenchmarks -Dsmt.iterations=2000000000 on an SMT host
+ */
+public class SmtModeTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SmtModeTest.class);
+    private static final long ITERATIONS = Long.getLong("smt.iterations", 50_000_000L);
+    
+    // Two-way SMT with siblings numbered N apart, as on most x86 servers
+    private static final Function<Integer, Set<Integer>> SIBLINGS = cpu -> Set.of(cpu % 4, cpu % 4 + 4);
+    
+    @Test
+    public void testModesSelectAndClaimSiblings() {
+        assertEquals(Set.of(0, 4, 1), SmtMode.SHARED.select(Set.of(0, 4, 1), SIBLINGS));
+        assertEquals(Set.of(0, 1), SmtMode.SHARED.claim(Set.of(0, 1), SIBLINGS));
+    
+        assertEquals(Set.of(0, 1, 4, 5), SmtMode.WHOLE_CORE.select(Set.of(0, 5), SIBLINGS));
+        assertEquals(Set.of(0, 1, 4, 5), SmtMode.WHOLE_CORE.claim(Set.of(0, 5), SIBLINGS));
+    
+        // One thread per core, lowest CPU first; the other siblings are claimed but unused
+        assertEquals(Set.of(0, 1), SmtMode.HT_OFF.select(Set.of(0, 4, 5, 1), SIBLINGS));
+        assertEquals(Set.of(1, 6), SmtMode.HT_OFF.select(Set.of(6, 1, 5), SIBLINGS));
+        assertEquals(Set.of(0, 4, 6, 2), SmtMode.HT_OFF.claim(Set.of(0, 6), SIBLINGS));
+    }
+    
+    @Test
+    public void testDefaultLatencyCoresAreKeptFromOtherTypes() {
+        Set<Integer> cpus = Set.of(0, 1, 2, 3, 4, 5, 6, 7);
+        List<Integer> quiet = List.of(0, 1, 2, 3, 4, 5, 6, 7);
+        Map<WorkloadType, Set<Integer>> configured = new EnumMap<>(WorkloadType.class);
+        for (WorkloadType type : WorkloadType.values()) {
+            configured.put(type, CpuSelection.defaultCpus(type, cpus, quiet));
+        }
+        Map<WorkloadType, SmtMode> modes = CpuSelection.defaultSmtModes(configured::get, cpus, SIBLINGS);
+        assertEquals(Map.of(WorkloadType.LOW_LATENCY, SmtMode.HT_OFF), modes);
+    
+        Map<WorkloadType, Set<Integer>> selected = new EnumMap<>(WorkloadType.class);
+        for (WorkloadType type : WorkloadType.values()) {
+            selected.put(type, CpuSelection.select(type, configured::get, modes, cpus, SIBLINGS));
+        }
+        Set<Integer> latency = selected.get(WorkloadType.LOW_LATENCY);
+        assertEquals(Set.of(0, 1), latency);
+        Set<Integer> claimed = SmtMode.HT_OFF.claim(latency, SIBLINGS);
+        assertEquals(Set.of(0, 1, 4, 5), claimed);
+        selected.forEach((type, typeCpus) -> {
+            if (type != WorkloadType.LOW_LATENCY) {
+                // Neither the latency cores nor their idle siblings are used by anyone else
+                assertTrue(type + " on " + typeCpus, Collections.disjoint(claimed, typeCpus));
+            }
+        });
+        assertEquals(Set.of(2, 3), selected.get(WorkloadType.CPU_INTENSIVE));
+        assertEquals(Set.of(6, 7), selected.get(WorkloadType.IO_INTENSIVE));
+        assertEquals(Set.of(2, 3, 6, 7), selected.get(WorkloadType.MIXED));
+    
+        // CPU_INTENSIVE configured onto the latency cores runs on what nobody claims
+        configured.put(WorkloadType.CPU_INTENSIVE, Set.of(0, 1));
+        assertEquals(Set.of(2, 3, 6, 7), 
+                     CpuSelection.select(WorkloadType.CPU_INTENSIVE, configured::get, modes, cpus, SIBLINGS));
+    
+        // Latency cores claiming the whole machine are rejected rather than shared
+        configured.put(WorkloadType.LOW_LATENCY, Set.of(0, 1, 2, 3));
+        try {
+            CpuSelection.validate(configured::get, modes, cpus, SIBLINGS);
+            fail("HT_OFF on every core leaves nothing for the other types");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertTrue(CpuSelection.defaultSmtModes(configured::get, cpus, SIBLINGS).isEmpty());
+    }
+    
+    @Test
+    @Category(Benchmark.class)
+    public void testSiblingInterferenceBenchmark() throws Exception {
+        NumaTopology topology = NumaTopology.getInstance();
+        Set<Integer> effective = topology.getEffectiveCpus();
+        List<Integer> pair = new ArrayList<>();
+        for (Set<Integer> siblings : topology.getSmtSiblingGroups()) {
+            if (effective.containsAll(siblings)) {
+                pair.addAll(siblings);
+                break;
+            }
+        }
+        int cpu = pair.isEmpty() ? effective.iterator().next() : pair.get(0);
+    
+        double idleSibling = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            idleSibling = loopsPerNano(cpu);
+        }
+        if (pair.isEmpty()) {
+            logger.info(String.format("SMT x%d: no sibling pair in cpuset %s, HT_OFF-equivalent %.3f loops/ns on CPU %d",
+                                      ITERATIONS, effective, idleSibling, cpu));
+            return;
+        }
+    
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread noisy = new Thread(() -> {
+            try (AffinityScope scope = AffinityScope.enter(Set.of(pair.get(1)))) {
+                long x = 0;
+                while (running.get()) {
+                    x = x * 6364136223846793005L + 1;
+                }
+                assertNotEquals(42, x);
+            }
+        });
+        noisy.setDaemon(true);
+        noisy.start();
+        double busySibling;
+        try {
+            busySibling = loopsPerNano(cpu);
+        } finally {
+            running.set(false);
+            noisy.join();
+        }
+        logger.info(String.format("SMT x%d on CPU %d: sibling idle (HT_OFF) %.3f loops/ns, sibling busy (SHARED) %.3f loops/ns",
+                                  ITERATIONS, cpu, idleSibling, busySibling));
+    }
+    
+    /**
+     * Tight dependent multiply-add loop pinned to one CPU
+     */
+    private static double loopsPerNano(int cpu) {
+        try (AffinityScope scope = AffinityScope.enter(Set.of(cpu))) {
+            long start = System.nanoTime();
+            long x = 1;
+            for (long i = 0; i < ITERATIONS; i++) {
+                x = x * 2862933555777941757L + 3037000493L;
+            }
+            long elapsed = System.nanoTime() - start;
+            assertNotEquals(0, x);
+            return (double) ITERATIONS / elapsed;
+        }
+    }
+}
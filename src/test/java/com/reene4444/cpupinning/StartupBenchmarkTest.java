@@ -0,0 +1,95 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.adaptive.AdaptiveAffinityEngine;
+import com.reene4444.cpupinning.chaos.ChaosIntegration;
+import com.reene4444.cpupinning.core.WorkloadType;
+import com.reene4444.cpupinning.spring.CpuPinningAutoConfiguration;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Context startup benchmark: run with -Pbenchmarks -Dstartup.rounds=20 for stable numbers
+ */
+public class StartupBenchmarkTest {
+    
+    private static final Logger logger = LoggerFactory.getLogger(StartupBenchmarkTest.class);
+    private static final int ROUNDS = Integer.getInteger("startup.rounds", 3);
+    private static final Set<String> BACKGROUND_THREADS = Set.of(
+        "cpu-utilization-sampler", "cpu-pinning-drift-reconciler", "adaptive-affinity-review");
+    
+    @Test
+    public void testNothingRunsUntilFirstPin() throws Exception {
+        try (ConfigurableApplicationContext context = start()) {
+            assertEquals(1, context.getBeansOfType(CpuPinningAutoConfiguration.class).size());
+            assertTrue(context.getBeansOfType(ChaosIntegration.class).isEmpty());
+            assertTrue(frameworkThreads().isEmpty());
+    
+            Thread worker = new Thread(() -> context.getBean(AdaptiveAffinityEngine.class)
+                .autoPinByWorkload(Thread.currentThread(), WorkloadType.CPU_INTENSIVE));
+            worker.start();
+            worker.join();
+            assertEquals(BACKGROUND_THREADS, frameworkThreads());
+        }
+    }
+    
+    @Test
+    public void testChaosBeanOnlyWhenEnabled() {
+        try (ConfigurableApplicationContext context = start("--cpu.pinning.chaos.enabled=true")) {
+            assertEquals(1, context.getBeansOfType(ChaosIntegration.class).size());
+        }
+    }
+    
+    @Test
+    @Category(Benchmark.class)
+    public void testStartupBenchmark() {
+        long totalNanos = 0;
+        int totalThreads = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            int threadsBefore = Thread.activeCount();
+            long start = System.nanoTime();
+            try (ConfigurableApplicationContext context = start()) {
+                totalNanos += System.nanoTime() - start;
+                totalThreads += Thread.activeCount() - threadsBefore;
+            }
+        }
+        logger.info(String.format("context startup x%d: %.1f ms/start, %.1f thread(s) added per start",
+                                  ROUNDS, totalNanos / 1e6 / ROUNDS, (double) totalThreads / ROUNDS));
+    }
+    
+    private static ConfigurableApplicationContext start(String... args) {
+        return new SpringApplicationBuilder(Application.class)
+            .web(WebApplicationType.NONE)
+            .logStartupInfo(false)
+            .run(args);
+    }
+    
+    /**
+     * A plain application: the framework comes in through auto-configuration
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    static class Application {
+    }
+    
+    private static Set<String> frameworkThreads() {
+        Set<String> names = new TreeSet<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (BACKGROUND_THREADS.contains(thread.getName())) {
+                names.add(thread.getName());
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,84 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.business.BusinessIsolationManager;
+import com.reene4444.cpupinning.core.NumaTopology;
+import com.reene4444.cpupinning.core.ThreadRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Soak test for thread-keyed state: run with -Dsoak.threads=2000000 for the full soak
+ */
+public class ThreadRegistrySoakTest {
+    
+    private static final int THREADS = Integer.getInteger("soak.threads", 20_000);
+    private static final int BATCH = 64;
+    private static final long MAX_HEAP_GROWTH = 8L * 1024 * 1024;
+    
+    @After
+    public void tearDown() {
+        // The pool holds every effective CPU; give them back for other tests
+        BusinessIsolationManager.getInstance().unregisterBusinessPool("soak");
+    }
+    
+    @Test
+    public void testPoolStateStaysFlatWithShortLivedThreads() throws Exception {
+        BusinessIsolationManager manager = BusinessIsolationManager.getInstance();
+        manager.registerBusinessPool("soak", NumaTopology.getInstance().getEffectiveCpus());
+        BusinessIsolationManager.CpuPool pool = manager.getBusinessPool("soak");
+        
+        runShortLivedThreads(1_000, () -> manager.pinToBusiness(Thread.currentThread(), "soak"));
+        long baseline = usedHeapAfterGc();
+        
+        runShortLivedThreads(THREADS, () -> manager.pinToBusiness(Thread.currentThread(), "soak"));
+        
+        assertTrue(pool.getThreads().isEmpty());
+        assertEquals(0, pool.getThreadCount());
+        long growth = usedHeapAfterGc() - baseline;
+        assertTrue("Heap grew by " + growth + " bytes after " + THREADS + " threads", growth < MAX_HEAP_GROWTH);
+    }
+    
+    @Test
+    public void testReleaseCallbackFiresForTerminatedThreads() throws Exception {
+        AtomicInteger released = new AtomicInteger();
+        ThreadRegistry<String> registry = new ThreadRegistry<>((threadId, value) -> released.incrementAndGet());
+        
+        runShortLivedThreads(5_000, () -> registry.put(Thread.currentThread(), "value"));
+        registry.sweep();
+        
+        assertEquals(0, registry.size());
+        assertEquals(5_000, released.get());
+        
+        registry.put(Thread.currentThread(), "self");
+        assertEquals("self", registry.remove(Thread.currentThread()));
+        assertEquals(5_000, released.get());
+    }
+    
+    private static void runShortLivedThreads(int count, Runnable task) throws InterruptedException {
+        Thread[] batch = new Thread[BATCH];
+        for (int started = 0; started < count; started += BATCH) {
+            int size = Math.min(BATCH, count - started);
+            for (int i = 0; i < size; i++) {
+                batch[i] = new Thread(task);
+                batch[i].start();
+            }
+            for (int i = 0; i < size; i++) {
+                batch[i].join();
+                batch[i] = null;
+            }
+        }
+    }
+    
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,105 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.core.NumaTopology;
+import com.reene4444.cpupinning.core.PinningThreadFactory;
+import com.reene4444.cpupinning.spring.web.TomcatPinningCustomizer;
+import com.reene4444.cpupinning.spring.web.WebThreadPlacement;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.web.embedded.tomcat.ConfigurableTomcatWebServerFactory;
+import org.springframework.boot.web.embedded.tomcat.TomcatConnectorCustomizer;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TomcatPinningCustomizerTest {
+    
+    private Tomcat tomcat;
+    
+    @After
+    public void tearDown() throws Exception {
+        if (tomcat != null) {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+    }
+    
+    @Test
+    public void testWorkerExecutorRebuiltOnRestart() throws Exception {
+        Set<Integer> cpus = NumaTopology.getInstance().getEffectiveCpus();
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("tomcat").toString());
+        Connector connector = new Connector();
+        connector.setPort(0);
+        customize(new TomcatPinningCustomizer(new WebThreadPlacement(cpus, cpus)), connector);
+        tomcat.setConnector(connector);
+        Context context = tomcat.addContext("", null);
+        Tomcat.addServlet(context, "thread", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.getWriter().write(Thread.currentThread().getName());
+            }
+        });
+        context.addServletMappingDecoded("/", "thread");
+        tomcat.start();
+    
+        AbstractProtocol<?> protocol = (AbstractProtocol<?>) connector.getProtocolHandler();
+        ThreadPoolExecutor first = (ThreadPoolExecutor) protocol.getExecutor();
+        assertTrue(first.getThreadFactory() instanceof PinningThreadFactory);
+        assertTrue(get(connector).contains("-exec-"));
+    
+        // A stopped connector shuts its workers down and gets new ones when started again
+        connector.stop();
+        assertTrue(first.isShutdown());
+        connector.start();
+        ThreadPoolExecutor second = (ThreadPoolExecutor) protocol.getExecutor();
+        assertNotSame(first, second);
+        assertFalse(second.isShutdown());
+        assertTrue(second.getThreadFactory() instanceof PinningThreadFactory);
+        assertTrue(get(connector).contains("-exec-"));
+    }
+    
+    private static String get(Connector connector) throws Exception {
+        URI uri = URI.create("http://localhost:" + connector.getLocalPort() + "/");
+        HttpResponse<String> response = HttpClient.newHttpClient()
+            .send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        return response.body();
+    }
+    
+    /**
+     * Applies the connector customizers the customizer registers, as Spring Boot's Tomcat factory would
+     */
+    private static void customize(TomcatPinningCustomizer customizer, Connector connector) {
+        List<TomcatConnectorCustomizer> connectorCustomizers = new ArrayList<>();
+        ConfigurableTomcatWebServerFactory factory = (ConfigurableTomcatWebServerFactory) Proxy.newProxyInstance(
+            TomcatPinningCustomizerTest.class.getClassLoader(), new Class<?>[] { ConfigurableTomcatWebServerFactory.class },
+            (proxy, method, args) -> {
+                if (method.getName().equals("addConnectorCustomizers")) {
+                    connectorCustomizers.addAll(List.of((TomcatConnectorCustomizer[]) args[0]));
+                }
+                return null;
+            });
+        customizer.customize(factory);
+        assertEquals(1, connectorCustomizers.size());
+        connectorCustomizers.forEach(connectorCustomizer -> connectorCustomizer.customize(connector));
+    }
+}
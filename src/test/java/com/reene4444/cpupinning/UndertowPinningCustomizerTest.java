@@ -0,0 +1,78 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.core.NumaTopology;
+import com.reene4444.cpupinning.spring.web.UndertowPinningCustomizer;
+import com.reene4444.cpupinning.spring.web.WebThreadPlacement;
+import io.undertow.Undertow;
+import io.undertow.server.handlers.BlockingHandler;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.embedded.undertow.ConfigurableUndertowWebServerFactory;
+import org.springframework.boot.web.embedded.undertow.UndertowBuilderCustomizer;
+
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class UndertowPinningCustomizerTest {
+    
+    private Undertow server;
+    private UndertowPinningCustomizer customizer;
+    
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+        if (customizer != null) {
+            customizer.destroy();
+        }
+    }
+    
+    @Test
+    public void testBlockingRequestsServedByPinnedWorkers() throws Exception {
+        Set<Integer> cpus = NumaTopology.getInstance().getEffectiveCpus();
+        customizer = new UndertowPinningCustomizer(new WebThreadPlacement(cpus, cpus), new ServerProperties());
+        Undertow.Builder builder = Undertow.builder()
+            .addHttpListener(0, "localhost")
+            .setHandler(new BlockingHandler(exchange -> 
+                exchange.getResponseSender().send(Thread.currentThread().getName())));
+        customize(customizer, builder);
+        server = builder.build();
+        server.start();
+    
+        InetSocketAddress address = (InetSocketAddress) server.getListenerInfo().get(0).getAddress();
+        URI uri = URI.create("http://localhost:" + address.getPort() + "/");
+        HttpResponse<String> response = HttpClient.newHttpClient()
+            .send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body(), response.body().startsWith("undertow-worker-"));
+    }
+    
+    /**
+     * Applies the builder customizers the customizer registers, as Spring Boot's Undertow factory would
+     */
+    private static void customize(UndertowPinningCustomizer customizer, Undertow.Builder builder) {
+        List<UndertowBuilderCustomizer> builderCustomizers = new ArrayList<>();
+        ConfigurableUndertowWebServerFactory factory = (ConfigurableUndertowWebServerFactory) Proxy.newProxyInstance(
+            UndertowPinningCustomizerTest.class.getClassLoader(), new Class<?>[] { ConfigurableUndertowWebServerFactory.class },
+            (proxy, method, args) -> {
+                if (method.getName().equals("addBuilderCustomizers")) {
+                    builderCustomizers.addAll(List.of((UndertowBuilderCustomizer[]) args[0]));
+                }
+                return null;
+            });
+        customizer.customize(factory);
+        assertEquals(1, builderCustomizers.size());
+        builderCustomizers.forEach(builderCustomizer -> builderCustomizer.customize(builder));
+    }
+}
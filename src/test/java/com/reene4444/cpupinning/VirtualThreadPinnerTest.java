@@ -0,0 +1,54 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.core.CpuAffinity;
+import com.reene4444.cpupinning.core.NumaTopology;
+import com.reene4444.cpupinning.virtual.VirtualThreadPinner;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class VirtualThreadPinnerTest {
+    
+    private final VirtualThreadPinner pinner = new VirtualThreadPinner();
+    
+    @After
+    public void tearDown() {
+        pinner.shutdown();
+    }
+    
+    @Test
+    public void testCarrierRepinnedAfterForeignChange() throws Exception {
+        TreeSet<Integer> effective = new TreeSet<>(NumaTopology.getInstance().getEffectiveCpus());
+        Set<Integer> cores = Set.of(effective.iterator().next());
+        ExecutorService executor = pinner.createPinnedExecutor(cores);
+    
+        // Another executor sharing the carrier pins it elsewhere between two tasks
+        String first = executor.submit(() -> {
+            assertEquals(cores, CpuAffinity.getThreadAffinity());
+            assertTrue(CpuAffinity.pinThread(effective));
+            return Thread.currentThread().getName();
+        }).get(5, TimeUnit.SECONDS);
+        // The carrier is only reused once it is idle again, which a task cannot wait for
+        boolean reused = false;
+        for (int attempt = 0; attempt < 100 && !reused; attempt++) {
+            reused = first.equals(executor.submit(() -> {
+                assertEquals(cores, CpuAffinity.getThreadAffinity());
+                return Thread.currentThread().getName();
+            }).get(5, TimeUnit.SECONDS));
+            Thread.sleep(10);
+        }
+        assertTrue("the carrier pinned elsewhere ran another task", reused);
+    
+        // A task of a second executor on other CPUs does not change the first one's placement
+        Set<Integer> otherCores = Set.of(effective.last());
+        ExecutorService other = pinner.createPinnedExecutor(otherCores);
+        assertEquals(otherCores, other.submit(() -> CpuAffinity.getThreadAffinity()).get(5, TimeUnit.SECONDS));
+        assertEquals(cores, executor.submit(() -> CpuAffinity.getThreadAffinity()).get(5, TimeUnit.SECONDS));
+    }
+}
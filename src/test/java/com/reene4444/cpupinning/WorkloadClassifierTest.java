@@ -0,0 +1,59 @@
+package com.reene4444.cpupinning;
+
+import com.reene4444.cpupinning.adaptive.WorkloadClassifier;
+import com.reene4444.cpupinning.core.WorkloadType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WorkloadClassifierTest {
+    
+    private static final long WALL = 10_000_000;
+    
+    @Test
+    public void testNeedsConfirmationBeforeSwitching() {
+        List<WorkloadType> changes = new ArrayList<>();
+        WorkloadClassifier classifier = new WorkloadClassifier((key, type) -> changes.add(type));
+        for (int i = 0; i < 6; i++) {
+            assertEquals(WorkloadType.MIXED, classifier.record("crunch", WALL, WALL, 0, 0));
+        }
+        assertEquals(WorkloadType.CPU_INTENSIVE, classifier.record("crunch", WALL, WALL, 0, 0));
+        assertEquals(List.of(WorkloadType.CPU_INTENSIVE), changes);
+    
+        // 10 MB per 10 ms is 1 GB/s
+        for (int i = 0; i < 10; i++) {
+            classifier.record("crunch", WALL, WALL, 10L * 1024 * 1024, 0);
+        }
+        assertEquals(WorkloadType.MEMORY_INTENSIVE, classifier.getWorkloadType("crunch"));
+    }
+    
+    @Test
+    public void testDoesNotFlapNearBoundary() {
+        List<WorkloadType> changes = new ArrayList<>();
+        WorkloadClassifier classifier = new WorkloadClassifier((key, type) -> changes.add(type));
+        for (int i = 0; i < 10; i++) {
+            classifier.record("near", WALL, WALL, 0, 0);
+        }
+        assertEquals(WorkloadType.CPU_INTENSIVE, classifier.getWorkloadType("near"));
+    
+        // Alternating around the enter threshold stays inside the band
+        for (int i = 0; i < 50; i++) {
+            classifier.record("near", WALL, i % 2 == 0 ? WALL * 6 / 10 : WALL * 8 / 10, 0, 0);
+        }
+        assertEquals(WorkloadType.CPU_INTENSIVE, classifier.getWorkloadType("near"));
+        assertEquals(1, changes.size());
+    
+        // Waiting on monitors is contention rather than I/O
+        for (int i = 0; i < 20; i++) {
+            classifier.record("locked", WALL, WALL / 20, 0, 100);
+        }
+        assertEquals(WorkloadType.MIXED, classifier.getWorkloadType("locked"));
+        for (int i = 0; i < 20; i++) {
+            classifier.record("sleepy", WALL, WALL / 20, 0, 0);
+        }
+        assertEquals(WorkloadType.IO_INTENSIVE, classifier.getWorkloadType("sleepy"));
+    }
+}